@@ -106,6 +106,7 @@ public class GlobalStationManagerClient extends GlobalStationManager {
         }
 
         getStations().addAll(list);
+        invalidateStationIndex();
     }
 
     private void resetIndexing(ClientSocket socket, UUID uuid) {
@@ -121,5 +122,6 @@ public class GlobalStationManagerClient extends GlobalStationManager {
         super.indexing = uuid;
         stations.clear();
         stationsIdMap.clear();
+        invalidateStationIndex();
     }
 }
@@ -0,0 +1,78 @@
+package globalquake.intensity;
+
+import globalquake.core.intensity.CityLocation;
+import globalquake.utils.GeoUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Cities bucketed into a lat/lon grid, so that only the cities around an earthquake have to be evaluated.
+ */
+public class CityIndex {
+
+    private static final double CELL_SIZE = 2.0;
+    private static final double KM_PER_DEGREE = Math.PI * GeoUtils.EARTH_RADIUS / 180.0;
+
+    private final int rows;
+    private final int cols;
+    private final List<CityLocation>[] buckets;
+
+    @SuppressWarnings("unchecked")
+    public CityIndex(Collection<CityLocation> cities) {
+        rows = (int) Math.ceil(180.0 / CELL_SIZE);
+        cols = (int) Math.ceil(360.0 / CELL_SIZE);
+        buckets = new List[rows * cols];
+
+        for (CityLocation city : cities) {
+            int index = row(city.lat()) * cols + col(city.lon());
+            if (buckets[index] == null) {
+                buckets[index] = new ArrayList<>();
+            }
+            buckets[index].add(city);
+        }
+    }
+
+    /**
+     * Visits every city within the given great circle distance, and possibly some more that are slightly further.
+     */
+    public void forEachNear(double lat, double lon, double radiusKm, Consumer<CityLocation> consumer) {
+        double dLat = radiusKm / KM_PER_DEGREE;
+        double minLat = lat - dLat;
+        double maxLat = lat + dLat;
+
+        int minRow = row(Math.max(-90, minLat));
+        int maxRow = row(Math.min(90, maxLat));
+
+        int colCount = cols;
+        int minCol = 0;
+        if (minLat > -90 && maxLat < 90) {
+            double maxCos = Math.cos(Math.toRadians(Math.max(Math.abs(minLat), Math.abs(maxLat))));
+            double dLon = dLat / maxCos;
+            if (dLon < 180) {
+                minCol = col(lon - dLon);
+                colCount = Math.min(cols, (int) Math.ceil(2 * dLon / CELL_SIZE) + 2);
+            }
+        }
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int i = 0; i < colCount; i++) {
+                List<CityLocation> bucket = buckets[row * cols + (minCol + i) % cols];
+                if (bucket != null) {
+                    bucket.forEach(consumer);
+                }
+            }
+        }
+    }
+
+    private int row(double lat) {
+        return Math.max(0, Math.min(rows - 1, (int) ((lat + 90.0) / CELL_SIZE)));
+    }
+
+    private int col(double lon) {
+        return Math.floorMod((int) Math.floor((lon + 180.0) / CELL_SIZE), cols);
+    }
+
+}
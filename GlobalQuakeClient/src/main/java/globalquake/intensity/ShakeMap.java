@@ -6,19 +6,35 @@ import com.uber.h3core.util.LatLng;
 import globalquake.core.earthquake.data.Hypocenter;
 import globalquake.core.intensity.IntensityScale;
 import globalquake.core.intensity.IntensityScales;
-import globalquake.core.intensity.Level;
 import globalquake.core.regions.Regions;
 import globalquake.ui.globe.Point2D;
 import globalquake.utils.GeoUtils;
+import globalquake.utils.LruCache;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class ShakeMap {
 
+    private static final int CELL_CACHE_LIMIT = 1_000_000;
+
+    // revisions closer than this produce practically the same shakemap
+    private static final double SIMILAR_MAG = 0.05;
+    private static final double SIMILAR_DEPTH = 2.0;
+    private static final double SIMILAR_DISTANCE_EDGES = 0.25;
+
+    private static final int MAX_RINGS = 4096;
+
     private static H3Core h3;
+
+    private static final LruCache<LatLng> centerCache = new LruCache<>(CELL_CACHE_LIMIT);
+    private static final LruCache<Boolean> oceanCache = new LruCache<>(CELL_CACHE_LIMIT);
+
+    private final double lat;
+    private final double lon;
+    private final double depth;
     private final double mag;
+    private final int res;
     private double maxPGA;
 
     public static void init() throws IOException{
@@ -28,70 +44,88 @@ public class ShakeMap {
     private List<IntensityHex> hexList = new ArrayList<>();
 
     public ShakeMap(Hypocenter hypocenter, int res) {
+        this.lat = hypocenter.lat;
+        this.lon = hypocenter.lon;
+        this.depth = hypocenter.depth;
         this.mag = hypocenter.magnitude;
-        generate(hypocenter, res);
+        this.res = res;
+        generate();
     }
 
-    private void generate(Hypocenter hypocenter, int res) {
-        IntensityScale intensityScale = IntensityScales.getIntensityScale();
-        double pga = GeoUtils.pgaFunction(hypocenter.magnitude, hypocenter.depth, hypocenter.depth);
-        Level level = intensityScale.getLevel(pga);
-        if(level == null){
-            return;
+    /**
+     * @return true if shakemap of the given hypocenter would be practically identical to this one
+     */
+    public boolean isSimilar(Hypocenter hypocenter, int res) {
+        if (res != this.res || Math.abs(hypocenter.magnitude - mag) >= SIMILAR_MAG
+                || Math.abs(hypocenter.depth - depth) >= SIMILAR_DEPTH) {
+            return false;
         }
 
-        long id = h3.latLngToCell(hypocenter.lat, hypocenter.lon, res);
-
-        LatLng latLng = h3.cellToLatLng(id);
-        IntensityHex intensityHex = new IntensityHex(id, pga,
-                new Point2D(latLng.lat, latLng.lng));
-        hexList = new ArrayList<>(bfs(intensityHex, hypocenter, intensityScale, res));
-        maxPGA = hexList.stream().map(IntensityHex::pga).max(Double::compareTo).orElse(0.0);
+        double edge = h3.getHexagonEdgeLengthAvg(res, LengthUnit.km);
+        return GeoUtils.greatCircleDistance(lat, lon, hypocenter.lat, hypocenter.lon) < edge * SIMILAR_DISTANCE_EDGES;
     }
 
-    private Set<IntensityHex> bfs(IntensityHex intensityHex, Hypocenter hypocenter, IntensityScale intensityScale, int res) {
-        Set<IntensityHex> result = new HashSet<>();
-        Set<Long> visited = new HashSet<>();
-
-        Queue<IntensityHex> pq = new PriorityQueue<>();
-        pq.add(intensityHex);
-
-        while(!pq.isEmpty()) {
-            IntensityHex current = pq.remove();
-            result.add(current);
-
-            for (long neighbor : h3.gridDisk(current.id(), res)) {
-                LatLng latLng = h3.cellToLatLng(neighbor);
-                double dist = GeoUtils.geologicalDistance(hypocenter.lat, hypocenter.lon, -hypocenter.depth, latLng.lat, latLng.lng, 0);
-                dist = Math.max(0, dist - h3.getHexagonEdgeLengthAvg(res, LengthUnit.km) * 0.5);
-                double pga = GeoUtils.pgaFunction(hypocenter.magnitude, dist, hypocenter.depth);
-
-                Level level = intensityScale.getLevel(pga);
-                if (level == null) {
-                    continue;
-                }
-
-
-                IntensityHex neighborHex = new IntensityHex(neighbor, pga, new Point2D(latLng.lat, latLng.lng));
-                if (visited.contains(neighbor)) {
-                    continue;
-                }
-
-                visited.add(neighbor);
+    private void generate() {
+        IntensityScale intensityScale = IntensityScales.getIntensityScale();
+        double pga = GeoUtils.pgaFunction(mag, depth, depth);
+        if(intensityScale.getLevel(pga) == null){
+            return;
+        }
 
-                pq.add(neighborHex);
+        double edge = h3.getHexagonEdgeLengthAvg(res, LengthUnit.km);
+        double minPGA = intensityScale.getLevels().get(0).getPga();
+
+        // pga only decreases with distance, so all felt cells lie within this radius
+        double maxDist = Math.max(0, GeoUtils.inversePgaFunction(mag, minPGA, depth)) + edge * 0.5;
+        int k = (int) Math.ceil(maxDist / (edge * 1.5)) + 1;
+
+        long origin = h3.latLngToCell(lat, lon, res);
+        List<List<Long>> rings;
+        while (true) {
+            rings = h3.gridDiskDistances(origin, k);
+            List<Long> outer = rings.get(rings.size() - 1);
+            // cell sizes vary across the globe, widen the disk if the estimate was too tight
+            if (k >= MAX_RINGS || outer.stream().noneMatch(id -> intensityScale.getLevel(calculatePGA(id, edge)) != null)) {
+                break;
             }
+            k *= 2;
         }
 
         boolean uhd = res >= 6;
-        return result.parallelStream().filter(intensityHex1 -> !isOcean(intensityHex1.id(), uhd)).collect(Collectors.toSet());
+        hexList = rings.parallelStream()
+                .flatMap(List::stream)
+                .map(id -> {
+                    double cellPGA = calculatePGA(id, edge);
+                    if (intensityScale.getLevel(cellPGA) == null || isOcean(id, uhd)) {
+                        return null;
+                    }
+                    LatLng latLng = getCenter(id);
+                    return new IntensityHex(id, cellPGA, new Point2D(latLng.lat, latLng.lng));
+                })
+                .filter(Objects::nonNull)
+                .toList();
+
+        maxPGA = hexList.stream().mapToDouble(IntensityHex::pga).max().orElse(0.0);
+    }
+
+    private double calculatePGA(long id, double edge) {
+        LatLng latLng = getCenter(id);
+        double dist = GeoUtils.geologicalDistance(lat, lon, -depth, latLng.lat, latLng.lng, 0);
+        dist = Math.max(0, dist - edge * 0.5);
+        return GeoUtils.pgaFunction(mag, dist, depth);
+    }
+
+    private static LatLng getCenter(long id) {
+        return centerCache.computeIfAbsent(id, h3::cellToLatLng);
     }
 
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
-    private boolean isOcean(long id, boolean uhd) {
-        List<LatLng> coords = h3.cellToBoundary(id);
-        coords.add(h3.cellToLatLng(id));
-        return coords.stream().allMatch(coord -> Regions.isOcean(coord.lat, coord.lng, uhd));
+    private static boolean isOcean(long id, boolean uhd) {
+        return oceanCache.computeIfAbsent(id, ignored -> {
+            List<LatLng> coords = new ArrayList<>(h3.cellToBoundary(id));
+            coords.add(getCenter(id));
+            return coords.stream().allMatch(coord -> Regions.isOcean(coord.lat, coord.lng, uhd));
+        });
     }
 
     public List<IntensityHex> getHexList() {
@@ -11,7 +11,10 @@ import globalquake.core.events.specific.QuakeArchiveEvent;
 import globalquake.core.events.specific.QuakeCreateEvent;
 import globalquake.core.events.specific.QuakeRemoveEvent;
 import globalquake.core.events.specific.QuakeUpdateEvent;
+import globalquake.core.intensity.CityIntensities;
 import globalquake.core.intensity.CityIntensity;
+import globalquake.core.intensity.IntensityScales;
+import globalquake.core.intensity.MMIIntensityScale;
 import globalquake.events.specific.ShakeMapsUpdatedEvent;
 import globalquake.client.GlobalQuakeLocal;
 import globalquake.core.intensity.CityLocation;
@@ -21,6 +24,7 @@ import org.tinylog.Logger;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -28,15 +32,22 @@ import java.util.concurrent.TimeUnit;
 
 public class ShakemapService {
 
-    private final Map<UUID, ShakeMap> shakeMaps = new HashMap<>();
+    private final Map<UUID, ShakeMap> shakeMaps = new ConcurrentHashMap<>();
 
-    private final ExecutorService shakemapService = Executors.newSingleThreadExecutor();
+    // updates of one quake always run on the same thread, different quakes are processed in parallel
+    private final ExecutorService[] shakemapServices;
+    private final Set<UUID> pendingUpdates = ConcurrentHashMap.newKeySet();
     private final ScheduledExecutorService checkService = Executors.newSingleThreadScheduledExecutor();
 
+    // only the strongest shaken cities are kept for display
+    public static final int MAX_CITY_INTENSITIES = 64;
+
     private static final List<CityLocation> cities = new ArrayList<>();
+    private static final CityIndex cityIndex;
 
     static {
         load();
+        cityIndex = new CityIndex(cities);
     }
 
     private static void load() {
@@ -67,6 +78,11 @@ public class ShakemapService {
     }
 
     public ShakemapService() {
+        shakemapServices = new ExecutorService[Math.max(2, Runtime.getRuntime().availableProcessors() / 2)];
+        for (int i = 0; i < shakemapServices.length; i++) {
+            shakemapServices[i] = Executors.newSingleThreadExecutor();
+        }
+
         GlobalQuake.instance.getEventHandler().registerEventListener(new GlobalQuakeEventListener(){
             @Override
             public void onQuakeCreate(QuakeCreateEvent event) {
@@ -106,8 +122,12 @@ public class ShakemapService {
         }
     }
 
+    private ExecutorService getService(UUID uuid) {
+        return shakemapServices[Math.floorMod(uuid.hashCode(), shakemapServices.length)];
+    }
+
     private void removeShakemap(UUID uuid) {
-        shakemapService.submit(() -> {
+        getService(uuid).submit(() -> {
             try {
                 shakeMaps.remove(uuid);
                 GlobalQuakeLocal.instance.getLocalEventHandler().fireEvent(new ShakeMapsUpdatedEvent());
@@ -118,10 +138,24 @@ public class ShakemapService {
     }
 
     private void updateShakemap(Earthquake earthquake) {
-        shakemapService.submit(() -> {
+        UUID uuid = earthquake.getUuid();
+        if (!pendingUpdates.add(uuid)) {
+            // an update is already queued and will use the latest hypocenter anyway
+            return;
+        }
+
+        getService(uuid).submit(() -> {
             try {
-                shakeMaps.put(earthquake.getUuid(), createShakemap(earthquake));
-                GlobalQuakeLocal.instance.getLocalEventHandler().fireEvent(new ShakeMapsUpdatedEvent());
+                pendingUpdates.remove(uuid);
+
+                Hypocenter hyp = earthquake.getCluster().getPreviousHypocenter();
+                int res = getResolution(hyp);
+                ShakeMap previous = shakeMaps.get(uuid);
+                if (previous == null || !previous.isSimilar(hyp, res)) {
+                    shakeMaps.put(uuid, new ShakeMap(hyp, res));
+                    GlobalQuakeLocal.instance.getLocalEventHandler().fireEvent(new ShakeMapsUpdatedEvent());
+                }
+
                 updateCities(earthquake);
             }catch(Exception e){
                 Logger.error(e);
@@ -130,12 +164,57 @@ public class ShakemapService {
     }
 
     private void updateCities(Earthquake earthquake) {
-        List<CityIntensity> result = new ArrayList<>();
-        cities.forEach(cityLocation -> result.add(new CityIntensity(cityLocation, calculatePGA(cityLocation, earthquake))));
+        double minPGA = IntensityScales.getIntensityScale().getLevels().get(0).getPga();
+        double maxDist = GeoUtils.inversePgaFunction(earthquake.getMag(), minPGA, earthquake.getDepth());
+
+        PriorityQueue<CityIntensity> strongest = new PriorityQueue<>(Comparator.comparing(CityIntensity::pga));
+        long feltPopulation = 0;
+        long strongPopulation = 0;
+
+        if (maxDist >= 0) {
+            List<CityIntensity> felt = new ArrayList<>();
+            cityIndex.forEachNear(earthquake.getLat(), earthquake.getLon(), getSearchRadius(maxDist, earthquake.getDepth()), cityLocation -> {
+                double pga = calculatePGA(cityLocation, earthquake);
+                if (pga >= minPGA) {
+                    felt.add(new CityIntensity(cityLocation, pga));
+                }
+            });
+
+            for (CityIntensity cityIntensity : felt) {
+                feltPopulation += (long) (cityIntensity.city().population() * feltMultiplier(cityIntensity.pga()));
+                strongPopulation += (long) (cityIntensity.city().population() * feltStrongMultiplier(cityIntensity.pga()));
 
+                strongest.add(cityIntensity);
+                if (strongest.size() > MAX_CITY_INTENSITIES) {
+                    strongest.poll();
+                }
+            }
+        }
+
+        List<CityIntensity> result = new ArrayList<>(strongest);
         result.sort(Comparator.comparing(cityIntensity -> -cityIntensity.pga()));
 
-        earthquake.cityIntensities = result;
+        earthquake.setCityIntensities(new CityIntensities(result, feltPopulation, strongPopulation));
+    }
+
+    /**
+     * @param maxDist maximum distance from the hypocenter
+     * @return great circle distance from the epicenter that covers all points within maxDist
+     */
+    private static double getSearchRadius(double maxDist, double depth) {
+        double chord = maxDist + depth;
+        if (chord >= 2 * GeoUtils.EARTH_RADIUS) {
+            return Math.PI * GeoUtils.EARTH_RADIUS;
+        }
+        return 2 * GeoUtils.EARTH_RADIUS * Math.asin(chord / (2 * GeoUtils.EARTH_RADIUS));
+    }
+
+    private static double feltMultiplier(double pga) {
+        return Math.atan(pga * 0.2) * 2 / 3.14159;
+    }
+
+    private static double feltStrongMultiplier(double pga){
+        return Math.max(0, Math.atan((pga - MMIIntensityScale.V.getPga()) * 0.2) * 2 / 3.14159);
     }
 
     private double calculatePGA(CityLocation cityLocation, Earthquake earthquake) {
@@ -144,14 +223,15 @@ public class ShakemapService {
         return GeoUtils.pgaFunction(earthquake.getMag(), dist, earthquake.getDepth());
     }
 
-    private ShakeMap createShakemap(Earthquake earthquake) {
-        Hypocenter hyp = earthquake.getCluster().getPreviousHypocenter();
+    private static int getResolution(Hypocenter hyp) {
         double mag = hyp.magnitude + hyp.depth / 200.0;
-        return new ShakeMap(hyp, mag < 5.2 ? 6 : mag < 6.4 ? 5 : mag < 8.5 ? 4 : 3);
+        return mag < 5.2 ? 6 : mag < 6.4 ? 5 : mag < 8.5 ? 4 : 3;
     }
 
     public void stop(){
-        GlobalQuake.instance.stopService(shakemapService);
+        for (ExecutorService shakemapService : shakemapServices) {
+            GlobalQuake.instance.stopService(shakemapService);
+        }
         GlobalQuake.instance.stopService(checkService);
     }
 
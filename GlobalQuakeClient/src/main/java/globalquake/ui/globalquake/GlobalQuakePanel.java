@@ -15,7 +15,6 @@ import globalquake.core.earthquake.quality.Quality;
 import globalquake.core.earthquake.quality.QualityClass;
 import globalquake.core.events.specific.QuakeCreateEvent;
 import globalquake.core.events.specific.QuakeUpdateEvent;
-import globalquake.core.intensity.MMIIntensityScale;
 import globalquake.core.station.AbstractStation;
 import globalquake.core.station.GlobalStation;
 import globalquake.core.database.SeedlinkNetwork;
@@ -24,6 +23,7 @@ import globalquake.events.GlobalQuakeLocalEventListener;
 import globalquake.events.specific.CinemaEvent;
 import globalquake.core.events.specific.QuakeRemoveEvent;
 import globalquake.client.GlobalQuakeLocal;
+import globalquake.core.intensity.CityIntensities;
 import globalquake.core.intensity.CityIntensity;
 import globalquake.utils.GeoUtils;
 import globalquake.core.geo.taup.TauPTravelTimeCalculator;
@@ -220,16 +220,14 @@ public class GlobalQuakePanel extends GlobePanel {
 
         int maxCities = 14;
 
-        int countFelt = 0;
-        int countStrong = 0;
-
         Earthquake quake = lastDisplayedQuake;
 
         if(quake == null){
             return;
         }
 
-        List<CityIntensity> cityIntensities = quake.cityIntensities;
+        CityIntensities intensities = quake.getCityIntensities();
+        List<CityIntensity> cityIntensities = intensities.cities();
         int count = 0;
         double maxPGA = 0.0;
         for(CityIntensity city : cityIntensities) {
@@ -240,9 +238,6 @@ public class GlobalQuakePanel extends GlobePanel {
                 maxPGA=pga;
             }
 
-            countFelt += (int) (city.city().population() * feltMultiplier(pga));
-            countStrong += (int) (city.city().population() * feltStrongMultiplier(pga));
-
             if(count <= maxCities){
                 count++;
             }
@@ -252,6 +247,9 @@ public class GlobalQuakePanel extends GlobePanel {
             return;
         }
 
+        long countFelt = intensities.feltPopulation();
+        long countStrong = intensities.strongFeltPopulation();
+
         int countReal = count;
 
         if(countFelt > 0){
@@ -308,14 +306,6 @@ public class GlobalQuakePanel extends GlobePanel {
         }
     }
 
-    private double feltMultiplier(double pga) {
-        return Math.atan(pga * 0.2) * 2 / 3.14159;
-    }
-
-    private double feltStrongMultiplier(double pga){
-        return Math.max(0, Math.atan((pga - MMIIntensityScale.V.getPga()) * 0.2) * 2 / 3.14159);
-    }
-
     private void drawAlertsBox(Graphics2D g) {
         Earthquake quake = null;
         double maxPGA = 0.0;
@@ -6,20 +6,20 @@ import globalquake.core.analysis.Event;
 import globalquake.core.station.AbstractStation;
 import globalquake.ui.globe.GlobeRenderer;
 import globalquake.ui.globe.Point2D;
-import globalquake.ui.globe.Polygon3D;
 import globalquake.ui.globe.RenderProperties;
-import globalquake.ui.globe.feature.RenderElement;
 import globalquake.ui.globe.feature.RenderEntity;
 import globalquake.ui.globe.feature.RenderFeature;
 import globalquake.core.Settings;
 import globalquake.ui.settings.StationsShape;
 import globalquake.ui.stationselect.FeatureSelectableStation;
 import globalquake.utils.Scale;
-import gqserver.api.packets.station.InputType;
 
 import java.awt.*;
+import java.awt.geom.Path2D;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class FeatureGlobalStation extends RenderFeature<AbstractStation> {
 
@@ -28,11 +28,45 @@ public class FeatureGlobalStation extends RenderFeature<AbstractStation> {
     public static final double RATIO_YELLOW = 2000.0;
     public static final double RATIO_RED = 20000.0;
 
+    // marker outlines around the station in screen space, with unit circumradius
+    private static final double[] CIRCLE = createOutline(0, 30);
+    private static final double[] TRIANGLE = createOutline(0, 120);
+    private static final double[] TRIANGLE_DOWN = createOutline(180, 120);
+    private static final double[] SQUARE = createOutline(45, 90);
+
+    // similar colours share one path, the difference is not visible on a few pixels large marker
+    private static final int COLOR_MASK = 0xF8F8F8;
+
+    private static final Font FONT = new Font("Calibri", Font.PLAIN, 13);
+    private static final Stroke STROKE_THIN = new BasicStroke(1f);
+    private static final Stroke STROKE_HOVER = new BasicStroke(2f);
+
+    // one path per colour shown in the last frame, rebuilt whenever the station list changes
+    private final Map<Integer, Path2D.Float> buckets = new HashMap<>();
+    private Collection<RenderEntity<AbstractStation>> bucketsEntities;
+    private final Point2D projected = new Point2D();
+
+    private AbstractStation[] visibleStations = new AbstractStation[0];
+    private float[] screenX = new float[0];
+    private float[] screenY = new float[0];
+    private int visibleCount;
+
     public FeatureGlobalStation(List<AbstractStation> globalStations) {
-        super(2);
+        super(0);
         this.globalStations = globalStations;
     }
 
+    private static double[] createOutline(double startAngle, double step) {
+        int count = (int) Math.round(360.0 / step);
+        double[] result = new double[count * 2];
+        for (int i = 0; i < count; i++) {
+            double ang = Math.toRadians(startAngle + i * step);
+            result[i * 2] = Math.sin(ang);
+            result[i * 2 + 1] = -Math.cos(ang);
+        }
+        return result;
+    }
+
     @Override
     public Collection<AbstractStation> getElements() {
         return globalStations;
@@ -40,54 +74,7 @@ public class FeatureGlobalStation extends RenderFeature<AbstractStation> {
 
     @Override
     public void createPolygon(GlobeRenderer renderer, RenderEntity<AbstractStation> entity, RenderProperties renderProperties) {
-        RenderElement elementStationCircle = entity.getRenderElement(0);
-        RenderElement elementStationSquare = entity.getRenderElement(1);
-        if (elementStationCircle.getPolygon() == null) {
-            elementStationCircle.setPolygon(new Polygon3D());
-        }
-        if (elementStationSquare.getPolygon() == null) {
-            elementStationSquare.setPolygon(new Polygon3D());
-        }
-
-        double size = Math.min(36, renderer.pxToDeg(7.0, renderProperties)) * Settings.stationsSizeMul;
-
-        InputType inputType = entity.getOriginal().getInputType();
-
-        StationsShape shape = StationsShape.values()[Settings.stationsShapeIndex];
-
-        if(shape == StationsShape.CIRCLE){
-            inputType = InputType.UNKNOWN;
-        } else if(shape == StationsShape.TRIANGLE){
-            inputType = InputType.VELOCITY;
-        }
-
-        switch (inputType){
-            case UNKNOWN ->
-                    renderer.createCircle(elementStationCircle.getPolygon(),
-                            entity.getOriginal().getLatitude(),
-                            entity.getOriginal().getLongitude(),
-                            size, 0, 30);
-            case VELOCITY ->
-                    renderer.createTriangle(elementStationCircle.getPolygon(),
-                            entity.getOriginal().getLatitude(),
-                            entity.getOriginal().getLongitude(),
-                            size * 1.41, 0, 0);
-            case ACCELERATION ->
-                    renderer.createTriangle(elementStationCircle.getPolygon(),
-                            entity.getOriginal().getLatitude(),
-                            entity.getOriginal().getLongitude(),
-                            size * 1.41, 0, 180);
-            case DISPLACEMENT ->
-                    renderer.createSquare(elementStationCircle.getPolygon(),
-                            entity.getOriginal().getLatitude(),
-                            entity.getOriginal().getLongitude(),
-                            size * 1.41, 0);
-        }
-
-        renderer.createSquare(elementStationSquare.getPolygon(),
-                entity.getOriginal().getLatitude(),
-                entity.getOriginal().getLongitude(),
-                size * 2.0, 0);
+        // markers are stamped in screen space, see renderAll
     }
 
     @Override
@@ -102,29 +89,25 @@ public class FeatureGlobalStation extends RenderFeature<AbstractStation> {
 
     @Override
     public boolean needsCreatePolygon(RenderEntity<AbstractStation> entity, boolean propertiesChanged) {
-        return propertiesChanged;
+        return false;
     }
 
     @Override
     public boolean needsProject(RenderEntity<AbstractStation> entity, boolean propertiesChanged) {
-        return propertiesChanged;
+        return false;
     }
 
     @Override
     public void project(GlobeRenderer renderer, RenderEntity<AbstractStation> entity, RenderProperties renderProperties) {
-        RenderElement elementStationCircle = entity.getRenderElement(0);
-        elementStationCircle.getShape().reset();
-        elementStationCircle.shouldDraw = renderer.project3D(elementStationCircle.getShape(), elementStationCircle.getPolygon(), true, renderProperties);
-
-        RenderElement elementStationSquare = entity.getRenderElement(1);
-        elementStationSquare.getShape().reset();
-        elementStationSquare.shouldDraw = renderer.project3D(elementStationSquare.getShape(), elementStationSquare.getPolygon(), true, renderProperties);
+        // markers are stamped in screen space, see renderAll
     }
 
     @Override
     public boolean isEntityVisible(RenderEntity<?> entity) {
-        AbstractStation station = (AbstractStation) entity.getOriginal();
+        return isStationVisible((AbstractStation) entity.getOriginal());
+    }
 
+    private static boolean isStationVisible(AbstractStation station) {
         if(Settings.hideDeadStations && !station.hasDisplayableData()){
             return false;
         }
@@ -132,54 +115,152 @@ public class FeatureGlobalStation extends RenderFeature<AbstractStation> {
         return !station.disabled;
     }
 
+    private double getMarkerRadius(GlobeRenderer renderer, RenderProperties renderProperties) {
+        double size = Math.min(36, renderer.pxToDeg(7.0, renderProperties)) * Settings.stationsSizeMul;
+        return size * renderProperties.getRenderPrecomputedValues().oneDegPx;
+    }
+
+    private static double[] getMarkerOutline(AbstractStation station) {
+        StationsShape shape = StationsShape.values()[Settings.stationsShapeIndex];
+        if (shape == StationsShape.CIRCLE) {
+            return CIRCLE;
+        } else if (shape == StationsShape.TRIANGLE) {
+            return TRIANGLE;
+        }
+
+        return switch (station.getInputType()) {
+            case UNKNOWN -> CIRCLE;
+            case VELOCITY -> TRIANGLE;
+            case ACCELERATION -> TRIANGLE_DOWN;
+            case DISPLACEMENT -> SQUARE;
+        };
+    }
+
+    private static void appendOutline(Path2D.Float path, double[] outline, double x, double y, double radius) {
+        path.moveTo(x + outline[0] * radius, y + outline[1] * radius);
+        for (int i = 2; i < outline.length; i += 2) {
+            path.lineTo(x + outline[i] * radius, y + outline[i + 1] * radius);
+        }
+        path.closePath();
+    }
+
+    private static double getOutlineRadius(double[] outline, double radius) {
+        // polygons are as large as the original globe polygons were
+        return outline == CIRCLE ? radius : radius * 1.41;
+    }
+
+    /**
+     * Projects the centres of all displayed stations that are above the horizon and on the screen.
+     */
+    private void projectStations(GlobeRenderer renderer, RenderProperties renderProperties, double margin) {
+        int count = globalStations.size();
+        if (visibleStations.length < count) {
+            visibleStations = new AbstractStation[count];
+            screenX = new float[count];
+            screenY = new float[count];
+        }
+
+        visibleCount = 0;
+        for (AbstractStation station : globalStations) {
+            if (!isStationVisible(station) || visibleCount == visibleStations.length) {
+                continue;
+            }
+
+            double x = GlobeRenderer.getX_3D(station.getLatitude(), station.getLongitude(), 0);
+            double y = GlobeRenderer.getY_3D(station.getLatitude(), station.getLongitude(), 0);
+            double z = GlobeRenderer.getZ_3D(station.getLatitude(), station.getLongitude(), 0);
+            if (!renderer.isAboveHorizon(x, y, z, renderProperties)) {
+                continue;
+            }
+
+            renderer.projectPoint(projected, x, y, z, renderProperties);
+            if (projected.x < -margin || projected.y < -margin
+                    || projected.x > renderProperties.width + margin || projected.y > renderProperties.height + margin) {
+                continue;
+            }
+
+            visibleStations[visibleCount] = station;
+            screenX[visibleCount] = (float) projected.x;
+            screenY[visibleCount] = (float) projected.y;
+            visibleCount++;
+        }
+    }
+
     @Override
-    public void render(GlobeRenderer renderer, Graphics2D graphics, RenderEntity<AbstractStation> entity, RenderProperties renderProperties) {
-        RenderElement elementStationCircle = entity.getRenderElement(0);
+    public void renderAll(GlobeRenderer renderer, Graphics2D graphics, RenderProperties renderProperties) {
+        double radius = getMarkerRadius(renderer, renderProperties);
+        projectStations(renderer, renderProperties, radius * 2.0);
+
+        if (getEntities() != bucketsEntities) {
+            buckets.clear();
+            bucketsEntities = getEntities();
+        }
 
-        if(!elementStationCircle.shouldDraw){
-            return;
+        buckets.values().forEach(Path2D::reset);
+        for (int i = 0; i < visibleCount; i++) {
+            AbstractStation station = visibleStations[i];
+            double[] outline = getMarkerOutline(station);
+            Path2D.Float path = buckets.computeIfAbsent(getDisplayColor(station).getRGB() & COLOR_MASK, ignored -> new Path2D.Float());
+            appendOutline(path, outline, screenX[i], screenY[i], getOutlineRadius(outline, radius));
         }
 
-        RenderElement elementStationSquare = entity.getRenderElement(1);
+        // the ratio scale has thousands of colours, drop those that are no longer on the screen
+        buckets.values().removeIf(path -> path.getCurrentPoint() == null);
 
         graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
                 Settings.antialiasing ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
-        graphics.setColor(getDisplayColor(entity.getOriginal()));
-        graphics.fill(elementStationCircle.getShape());
-
-        boolean mouseNearby = renderer.isMouseNearby(getCenterCoords(entity), 10.0, true, renderProperties);
+        for (Map.Entry<Integer, Path2D.Float> entry : buckets.entrySet()) {
+            graphics.setColor(new Color(entry.getKey()));
+            graphics.fill(entry.getValue());
+        }
 
-        if (mouseNearby && renderProperties.scroll < 1) {
-            graphics.setColor(Color.yellow);
-            graphics.setStroke(new BasicStroke(2f));
-            graphics.draw(elementStationCircle.getShape());
+        graphics.setFont(FONT);
+        for (int i = 0; i < visibleCount; i++) {
+            renderOverlay(renderer, graphics, visibleStations[i], screenX[i], screenY[i], radius, renderProperties);
         }
+        graphics.setStroke(STROKE_THIN);
+    }
 
-        graphics.setStroke(new BasicStroke(1f));
+    @Override
+    public void render(GlobeRenderer renderer, Graphics2D graphics, RenderEntity<AbstractStation> entity, RenderProperties renderProperties) {
+        // all stations are drawn at once in renderAll
+    }
 
-        var point3D = GlobeRenderer.createVec3D(getCenterCoords(entity));
-        var centerPonint = renderer.projectPoint(point3D, renderProperties);
+    private void renderOverlay(GlobeRenderer renderer, Graphics2D graphics, AbstractStation station, double x, double y, double radius, RenderProperties renderProperties) {
+        Point lastMouse = renderer.getLastMouse();
+        boolean mouseNearby = lastMouse != null && Math.hypot(x - lastMouse.x, y - lastMouse.y) <= 10.0
+                && renderer.isMouseNearby(new Point2D(station.getLatitude(), station.getLongitude()), 10.0, true, renderProperties);
 
-        graphics.setFont(new Font("Calibri", Font.PLAIN, 13));
+        if (mouseNearby && renderProperties.scroll < 1) {
+            double[] outline = getMarkerOutline(station);
+            Path2D.Float path = new Path2D.Float();
+            appendOutline(path, outline, x, y, getOutlineRadius(outline, radius));
+            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+                    Settings.antialiasing ? RenderingHints.VALUE_ANTIALIAS_ON : RenderingHints.VALUE_ANTIALIAS_OFF);
+            graphics.setColor(Color.yellow);
+            graphics.setStroke(STROKE_HOVER);
+            graphics.draw(path);
+            graphics.setStroke(STROKE_THIN);
+        }
 
         if(Settings.displayClusters){
-            int _y = (int) centerPonint.y + 4;
-            for(Event event2 : entity.getOriginal().getAnalysis().getDetectedEvents()){
+            int _y = (int) y + 4;
+            for(Event event2 : station.getAnalysis().getDetectedEvents()){
                 if(event2.assignedCluster != null){
                     Color c = !event2.isValid() ? Color.gray : event2.assignedCluster.color;
 
                     graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
 
                     graphics.setColor(c);
-                    graphics.draw(elementStationSquare.getShape());
-                    graphics.drawString("Cluster #"+event2.assignedCluster.id, (int) centerPonint.x + 12, _y);
+                    graphics.draw(createSquare(x, y, radius));
+                    graphics.drawString("Cluster #"+event2.assignedCluster.id, (int) x + 12, _y);
                     _y += 16;
                 }
             }
-        } else if (entity.getOriginal().isInEventMode() && ((System.currentTimeMillis() / 500) % 2 == 0)) {
+        } else if (station.isInEventMode() && ((System.currentTimeMillis() / 500) % 2 == 0)) {
             Color c = Color.green;
 
-            double maxRatio = entity.getOriginal().getMaxRatio60S();
+            double maxRatio = station.getMaxRatio60S();
 
             if (maxRatio >= RATIO_YELLOW) {
                 c = Color.yellow;
@@ -191,12 +272,17 @@ public class FeatureGlobalStation extends RenderFeature<AbstractStation> {
 
             graphics.setColor(c);
             graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            graphics.draw(elementStationSquare.getShape());
+            graphics.draw(createSquare(x, y, radius));
         }
 
-
         graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-        drawDetails(mouseNearby, renderProperties.scroll, (int) centerPonint.x, (int) centerPonint.y, graphics, entity.getOriginal());
+        drawDetails(mouseNearby, renderProperties.scroll, (int) x, (int) y, graphics, station);
+    }
+
+    private static Path2D.Float createSquare(double x, double y, double radius) {
+        Path2D.Float path = new Path2D.Float();
+        appendOutline(path, SQUARE, x, y, radius * 2.0);
+        return path;
     }
 
     private void drawDetails(boolean mouseNearby, double scroll, int x, int y, Graphics2D g, AbstractStation station) {
@@ -225,7 +311,6 @@ public class FeatureGlobalStation extends RenderFeature<AbstractStation> {
         if (scroll < Settings.stationIntensityVisibilityZoomLevel || (mouseNearby && scroll < 1)) {
             g.setColor(Color.white);
             String str = !station.hasDisplayableData() ? "-.-" : "%s".formatted((int) (station.getMaxRatio60S() * 10) / 10.0);
-            g.setFont(new Font("Calibri", Font.PLAIN, 13));
             g.setColor(station.getAnalysis().getStatus() == AnalysisStatus.EVENT ? Color.green : Color.LIGHT_GRAY);
             g.drawString(str, x - g.getFontMetrics().stringWidth(str) / 2, y + _y + 9);
         }
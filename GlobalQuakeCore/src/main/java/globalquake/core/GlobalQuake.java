@@ -90,6 +90,7 @@ public class GlobalQuake {
 		getEarthquakeAnalysis().getEarthquakes().clear();
 		getClusterAnalysis().getClusters().clear();
 		getStationManager().getStations().clear();
+		getStationManager().invalidateStationIndex();
 	}
 
 	@SuppressWarnings("unused")
@@ -142,6 +143,13 @@ public class GlobalQuake {
 		return seedlinkNetworksReader;
 	}
 
+	/**
+	 * Replaces the source of the station data, has to be called before the runtime is started.
+	 */
+	public void setSeedlinkReader(SeedlinkNetworksReader seedlinkNetworksReader) {
+		this.seedlinkNetworksReader = seedlinkNetworksReader;
+	}
+
 	public StationDatabaseManager getStationDatabaseManager() {
 		return stationDatabaseManager;
 	}
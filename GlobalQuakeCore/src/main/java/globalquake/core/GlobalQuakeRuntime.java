@@ -1,9 +1,13 @@
 package globalquake.core;
 
+import globalquake.core.analysis.RetentionManager;
+import globalquake.core.earthquake.data.Cluster;
+import globalquake.core.metrics.Metrics;
 import globalquake.core.station.AbstractStation;
 import globalquake.utils.NamedThreadFactory;
 import org.tinylog.Logger;
 
+import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -20,6 +24,8 @@ public class GlobalQuakeRuntime {
     private ScheduledExecutorService exec1Sec;
     private ScheduledExecutorService execQuake;
 
+    private final RetentionManager retentionManager = new RetentionManager();
+
     public void runThreads() {
         execAnalysis = Executors
                 .newSingleThreadScheduledExecutor(new NamedThreadFactory("Station Analysis Thread"));
@@ -28,11 +34,19 @@ public class GlobalQuakeRuntime {
         execQuake = Executors
                 .newSingleThreadScheduledExecutor(new NamedThreadFactory("Hypocenter Location Thread"));
 
+        Metrics.REGISTRY.gauge("gq_waveform_retained_bytes", "Estimated heap used by the waveform logs of all stations",
+                retentionManager::getRetainedBytes);
+        Metrics.REGISTRY.gauge("gq_waveform_budget_bytes", "Memory budget for the waveform logs",
+                retentionManager::getBudget);
+        Metrics.REGISTRY.gauge("gq_waveform_shortened_stations", "Stations keeping less than the full waveform storage time",
+                retentionManager::getShortenedStations);
+
         execAnalysis.scheduleAtFixedRate(() -> {
             try {
                 long a = System.currentTimeMillis();
                 GlobalQuake.instance.getStationManager().getStations().parallelStream().forEach(AbstractStation::analyse);
                 lastAnalysis = System.currentTimeMillis() - a;
+                Metrics.STATION_ANALYSIS.observe(lastAnalysis / 1000.0);
             } catch (Exception e) {
                 Logger.error("Exception occurred in station analysis");
                 GlobalQuake.getErrorHandler().handleException(e);
@@ -42,11 +56,15 @@ public class GlobalQuakeRuntime {
         exec1Sec.scheduleAtFixedRate(() -> {
             try {
                 long a = System.currentTimeMillis();
+                List<Cluster> clusters = GlobalQuake.instance.getClusterAnalysis() == null ?
+                        List.of() : GlobalQuake.instance.getClusterAnalysis().getClusters();
+                retentionManager.update(GlobalQuake.instance.getStationManager().getStations(), clusters, a);
                 GlobalQuake.instance.getStationManager().getStations().parallelStream().forEach(station -> station.second(a));
                 if (GlobalQuake.instance.getEarthquakeAnalysis() != null) {
                     GlobalQuake.instance.getEarthquakeAnalysis().second();
                 }
                 lastSecond = System.currentTimeMillis() - a;
+                Metrics.SECOND_LOOP.observe(lastSecond / 1000.0);
             } catch (Exception e) {
                 Logger.error("Exception occurred in 1-second loop");
                 GlobalQuake.getErrorHandler().handleException(e);
@@ -57,8 +75,11 @@ public class GlobalQuakeRuntime {
             try {
                 long a = System.currentTimeMillis();
                 GlobalQuake.instance.getClusterAnalysis().run();
+                clusterAnalysisT = System.currentTimeMillis() - a;
                 GlobalQuake.instance.getEarthquakeAnalysis().run();
                 lastQuakesT = System.currentTimeMillis() - a;
+                Metrics.CLUSTER_ANALYSIS.observe(clusterAnalysisT / 1000.0);
+                Metrics.HYPOCENTER_ANALYSIS.observe((lastQuakesT - clusterAnalysisT) / 1000.0);
             } catch (Exception e) {
                 Logger.error("Exception occurred in hypocenter location loop");
                 GlobalQuake.getErrorHandler().handleException(e);
@@ -66,6 +87,10 @@ public class GlobalQuakeRuntime {
         }, 0, 300, TimeUnit.MILLISECONDS);
     }
 
+    public RetentionManager getRetentionManager() {
+        return retentionManager;
+    }
+
     public void stop() {
         GlobalQuake.instance.stopService(execQuake);
         GlobalQuake.instance.stopService(execAnalysis);
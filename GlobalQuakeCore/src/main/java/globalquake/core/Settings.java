@@ -99,6 +99,7 @@ public final class Settings {
 	public static Boolean cinemaModeReenable;
 
 	public static Integer logsStoreTimeMinutes;
+	public static Integer logsMemoryBudgetPercent;
 	public static Integer maxEvents;
 	public static final int maxEventsDefault = 60;
 	public static Boolean displayCoreWaves;
@@ -236,6 +237,7 @@ public final class Settings {
 		loadProperty("maxEvents", String.valueOf(maxEventsDefault));
 
 		loadProperty("logsStoreTimeMinutes", "5", o -> validateInt(1, 60, (Integer) o));
+		loadProperty("logsMemoryBudgetPercent", "40", o -> validateInt(5, 90, (Integer) o));
 
 		loadProperty("cinemaModeOnStartup", "true");
 		loadProperty("cinemaModeReenable", "true");
@@ -1,5 +1,6 @@
 package globalquake.core.analysis;
 
+import globalquake.core.Settings;
 import globalquake.core.station.AbstractStation;
 import edu.sc.seis.seisFile.mseed.DataRecord;
 import org.tinylog.Logger;
@@ -22,6 +23,9 @@ public abstract class Analysis {
     private final ArrayList<Log> previousLogs;
     private AnalysisStatus status;
 
+    // how long the logs are kept in ms, set by the RetentionManager
+    private volatile long retention = -1;
+
     public Analysis(AbstractStation station) {
         this.station = station;
         this.sampleRate = -1;
@@ -40,6 +44,13 @@ public abstract class Analysis {
     }
 
     public void analyse(DataRecord dr) {
+        analyse(dr, System.currentTimeMillis());
+    }
+
+    /**
+     * @param currentTime the time the record is received at, the records from the future are ignored
+     */
+    public void analyse(DataRecord dr, long currentTime) {
         if (sampleRate <= 0) {
             sampleRate = dr.getSampleRate();
             reset();
@@ -47,13 +58,13 @@ public abstract class Analysis {
 
 
         long time = dr.getLastSampleBtime().toInstant().toEpochMilli();
-        if (time >= lastRecord && time <= System.currentTimeMillis() + 60 * 1000) {
-            decode(dr);
+        if (time >= lastRecord && time <= currentTime + 60 * 1000) {
+            decode(dr, currentTime);
             lastRecord = time;
         }
     }
 
-    private void decode(DataRecord dataRecord) {
+    private void decode(DataRecord dataRecord, long currentTime) {
         long time = dataRecord.getStartBtime().toInstant().toEpochMilli();
         long gap = lastRecord != 0 ? (time - lastRecord) : -1;
         if (gap > getGapThreshold()) {
@@ -72,7 +83,7 @@ public abstract class Analysis {
             }
 
             for (int v : data) {
-                nextSample(v, time, System.currentTimeMillis());
+                nextSample(v, time, currentTime);
                 time += (long) (1000 / getSampleRate());
             }
         } catch (Exception e) {
@@ -102,6 +113,19 @@ public abstract class Analysis {
         return sampleRate;
     }
 
+    public long getRetention() {
+        long retention = this.retention;
+        return retention > 0 ? retention : Settings.logsStoreTimeMinutes * 60 * 1000L;
+    }
+
+    public void setRetention(long retention) {
+        this.retention = retention;
+    }
+
+    public long getRetainedBytes() {
+        return (long) previousLogs.size() * RetentionManager.LOG_BYTES;
+    }
+
     public abstract void second(long time);
 
     public List<Event> getDetectedEvents() {
@@ -1,6 +1,5 @@
 package globalquake.core.analysis;
 
-import globalquake.core.Settings;
 import globalquake.core.station.AbstractStation;
 import globalquake.core.station.StationState;
 import edu.sc.seis.seisFile.mseed.DataRecord;
@@ -197,7 +196,7 @@ public class BetterAnalysis extends Analysis {
         }
 
         if (time - currentTime < 1000 * 10
-                && currentTime - time < 1000L * 60 * Settings.logsStoreTimeMinutes) {
+                && currentTime - time < getRetention()) {
             Log currentLog = new Log(time, v, (float) filteredV, (float) shortAverage, (float) mediumAverage,
                     (float) longAverage, (float) thirdAverage, (float) specialAverage, getStatus());
             synchronized (previousLogsLock) {
@@ -227,11 +226,11 @@ public class BetterAnalysis extends Analysis {
     }
 
     @Override
-    public void analyse(DataRecord dr) {
+    public void analyse(DataRecord dr, long currentTime) {
         if (getStatus() != AnalysisStatus.INIT) {
             numRecords++;
         }
-        super.analyse(dr);
+        super.analyse(dr, currentTime);
     }
 
     @Override
@@ -279,11 +278,17 @@ public class BetterAnalysis extends Analysis {
         }
         getDetectedEvents().removeAll(toBeRemoved);
 
-        long oldestTime = (time - (Settings.logsStoreTimeMinutes * 60 * 1000));
+        long oldestTime = time - getRetention();
         synchronized (previousLogsLock) {
+            int size = getPreviousLogs().size();
             while (!getPreviousLogs().isEmpty() && getPreviousLogs().get(getPreviousLogs().size() - 1).time() < oldestTime) {
                 getPreviousLogs().remove(getPreviousLogs().size() - 1);
             }
+
+            // the list doesn't shrink by itself, release the memory once the retention was cut down
+            if (getPreviousLogs().size() < size / 2) {
+                getPreviousLogs().trimToSize();
+            }
         }
     }
 
@@ -0,0 +1,213 @@
+package globalquake.core.analysis;
+
+import globalquake.core.Settings;
+import globalquake.core.earthquake.data.Cluster;
+import globalquake.core.station.AbstractStation;
+import globalquake.utils.GeoUtils;
+import org.tinylog.Logger;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the waveform logs of all stations within a memory budget instead of one fixed storage time.
+ * Stations assigned to a cluster or in the event mode keep the full storage time.
+ * The rest of the budget is shared by the other stations in proportion to their priority, so the quiet stations
+ * and the stations far from all active clusters are the first to lose their older logs.
+ * No station goes below {@link #MIN_RETENTION}, which is still enough to detect a new event.
+ */
+public class RetentionManager {
+
+    // estimated heap size of one Log together with its slot in the list
+    public static final long LOG_BYTES = 64;
+
+    public static final long MIN_RETENTION = (BetterAnalysis.EVENT_EXTENSION_TIME + 10) * 1000;
+
+    private static final double NEAR_DISTANCE = 2000.0;
+    private static final double MIN_PRIORITY = 0.1;
+    private static final long REPORT_INTERVAL = 60 * 1000;
+
+    private final LongSupplier budgetSupplier;
+    private final LongSupplier maxRetentionSupplier;
+
+    private volatile long budget;
+    private volatile long retainedBytes;
+    private volatile int protectedStations;
+    private volatile int shortenedStations;
+    private volatile long lowestRetention;
+    private volatile boolean overBudget;
+
+    private long lastReport;
+
+    public RetentionManager() {
+        this(() -> Runtime.getRuntime().maxMemory() / 100 * Settings.logsMemoryBudgetPercent,
+                () -> Settings.logsStoreTimeMinutes * 60 * 1000L);
+    }
+
+    public RetentionManager(LongSupplier budgetSupplier, LongSupplier maxRetentionSupplier) {
+        this.budgetSupplier = budgetSupplier;
+        this.maxRetentionSupplier = maxRetentionSupplier;
+    }
+
+    public synchronized void update(List<AbstractStation> stations, List<Cluster> clusters, long time) {
+        long budget = budgetSupplier.getAsLong();
+        long maxRetention = maxRetentionSupplier.getAsLong();
+        long minRetention = Math.min(MIN_RETENTION, maxRetention);
+
+        Set<AbstractStation> assigned = new HashSet<>();
+        List<double[]> roots = new ArrayList<>();
+        for (Cluster cluster : clusters) {
+            assigned.addAll(cluster.getAssignedEvents().keySet());
+            if (cluster.getRootLat() != Cluster.NONE) {
+                roots.add(new double[]{cluster.getRootLat(), cluster.getRootLon()});
+            }
+        }
+
+        int count = stations.size();
+        Analysis[] analyses = new Analysis[count];
+        double[] priorities = new double[count];
+        double[] rates = new double[count];
+
+        long retained = 0;
+        double available = budget;
+        int protectedCount = 0;
+        for (int i = 0; i < count; i++) {
+            AbstractStation station = stations.get(i);
+            Analysis analysis = station.getAnalysis();
+            analyses[i] = analysis;
+            retained += analysis.getRetainedBytes();
+
+            // bytes per ms of retention
+            double rate = analysis.getSampleRate() > 0 ? analysis.getSampleRate() * LOG_BYTES / 1000.0 : 0;
+            if (rate == 0 || assigned.contains(station) || station.isInEventMode()) {
+                priorities[i] = -1;
+                available -= rate * maxRetention;
+                protectedCount++;
+            } else {
+                priorities[i] = getPriority(station, roots);
+                rates[i] = rate;
+            }
+        }
+
+        double factor = findFactor(priorities, rates, available, minRetention, maxRetention);
+
+        int shortened = 0;
+        long lowest = maxRetention;
+        for (int i = 0; i < count; i++) {
+            long retention = priorities[i] < 0 ? maxRetention : getRetention(factor * priorities[i], minRetention, maxRetention);
+            analyses[i].setRetention(retention);
+            if (retention < maxRetention) {
+                shortened++;
+                lowest = Math.min(lowest, retention);
+            }
+        }
+
+        this.budget = budget;
+        this.retainedBytes = retained;
+        this.protectedStations = protectedCount;
+        this.shortenedStations = shortened;
+        this.lowestRetention = lowest;
+
+        boolean over = factor == 0 && available < getUsage(priorities, rates, 0, minRetention, maxRetention);
+        if (over && !overBudget) {
+            Logger.warn("Waveform memory budget of %.1f MB is too small for %d stations, keeping at least %d seconds of logs everywhere"
+                    .formatted(budget / (1024.0 * 1024.0), count, minRetention / 1000));
+        }
+        overBudget = over;
+
+        if (time - lastReport >= REPORT_INTERVAL) {
+            lastReport = time;
+            Logger.debug(this);
+        }
+    }
+
+    /**
+     * Finds the largest factor that fits the budget, so that every station gets retention proportional to its priority.
+     */
+    private static double findFactor(double[] priorities, double[] rates, double available, long minRetention, long maxRetention) {
+        double high = maxRetention / MIN_PRIORITY;
+        if (getUsage(priorities, rates, high, minRetention, maxRetention) <= available) {
+            return high;
+        }
+
+        double low = 0;
+        for (int iteration = 0; iteration < 40; iteration++) {
+            double mid = (low + high) / 2;
+            if (getUsage(priorities, rates, mid, minRetention, maxRetention) <= available) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    private static double getUsage(double[] priorities, double[] rates, double factor, long minRetention, long maxRetention) {
+        double usage = 0;
+        for (int i = 0; i < priorities.length; i++) {
+            if (priorities[i] >= 0) {
+                usage += rates[i] * getRetention(factor * priorities[i], minRetention, maxRetention);
+            }
+        }
+        return usage;
+    }
+
+    private static long getRetention(double retention, long minRetention, long maxRetention) {
+        return (long) Math.max(minRetention, Math.min(maxRetention, retention));
+    }
+
+    /**
+     * @return priority between {@link #MIN_PRIORITY} and 1, lower for the quiet stations and the ones far from the clusters
+     */
+    static double getPriority(AbstractStation station, List<double[]> roots) {
+        double activity = Math.max(0, Math.min(1, (station.getMaxRatio5M() - 1.0) / (BetterAnalysis.EVENT_THRESHOLD - 1.0)));
+
+        double proximity = 1.0;
+        if (!roots.isEmpty()) {
+            double distance = Double.MAX_VALUE;
+            for (double[] root : roots) {
+                distance = Math.min(distance, GeoUtils.greatCircleDistance(root[0], root[1], station.getLatitude(), station.getLongitude()));
+            }
+            proximity = Math.max(0.25, Math.min(1.0, NEAR_DISTANCE / distance));
+        }
+
+        return Math.max(MIN_PRIORITY, (0.25 + 0.75 * activity) * proximity);
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    public int getProtectedStations() {
+        return protectedStations;
+    }
+
+    public int getShortenedStations() {
+        return shortenedStations;
+    }
+
+    /**
+     * @return the shortest retention given to any station in ms
+     */
+    public long getLowestRetention() {
+        return lowestRetention;
+    }
+
+    public boolean isOverBudget() {
+        return overBudget;
+    }
+
+    @Override
+    public String toString() {
+        return "Waveform logs: %.1f / %.1f MB, %d stations with full history, %d shortened down to %d s".formatted(
+                retainedBytes / (1024.0 * 1024.0), budget / (1024.0 * 1024.0), protectedStations, shortenedStations, lowestRetention / 1000);
+    }
+}
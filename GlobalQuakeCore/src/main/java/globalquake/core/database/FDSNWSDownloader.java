@@ -7,27 +7,36 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
 
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.StringReader;
+import java.io.PushbackInputStream;
 import java.math.BigDecimal;
 import java.net.HttpURLConnection;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class FDSNWSDownloader {
 
     private static final DateTimeFormatter format1 = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss").withZone(ZoneId.systemDefault());
     private static final int TIMEOUT_SECONDS = 120;
 
+    // longitude shards of one source that are downloaded at the same time
+    private static final int MAX_PARALLEL_DOWNLOADS = 4;
+    private static final int SPLIT_PARTS = 4;
+
     public static final List<Character> SUPPORTED_BANDS = List.of('E', 'S', 'H', 'B', 'C');
     public static final List<Character> SUPPORTED_INSTRUMENTS = List.of('H', 'L', 'G', 'M', 'N');
 
@@ -58,21 +67,51 @@ public class FDSNWSDownloader {
 
     public static List<Network> downloadFDSNWS(StationSource stationSource) throws Exception {
         List<Network> result = new ArrayList<>();
-        downloadFDSNWS(stationSource, result, -180, 180);
+        boolean endAfter = downloadWadl(stationSource).contains("endafter");
+
+        ExecutorService executor = Executors.newFixedThreadPool(MAX_PARALLEL_DOWNLOADS);
+        Queue<Future<?>> pending = new ConcurrentLinkedQueue<>();
+        AtomicLong downloaded = new AtomicLong();
+        try {
+            submitShard(executor, pending, stationSource, endAfter, result, downloaded, -180, 180);
+
+            // shards that were split submit their parts before they finish, so the queue only drains once everything is done
+            Future<?> future;
+            while ((future = pending.poll()) != null) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception cause) {
+                        throw cause;
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
         Logger.info("%d Networks downloaded".formatted(result.size()));
         return result;
     }
 
-    public static void downloadFDSNWS(StationSource stationSource, List<Network> result, double minLon, double maxLon) throws Exception {
-        List<String> supportedAttributes = downloadWadl(stationSource);
+    private static void submitShard(ExecutorService executor, Queue<Future<?>> pending, StationSource stationSource, boolean endAfter,
+                                    List<Network> result, AtomicLong downloaded, double minLon, double maxLon) {
+        pending.add(executor.submit(() -> {
+            downloadShard(executor, pending, stationSource, endAfter, result, downloaded, minLon, maxLon);
+            return null;
+        }));
+    }
+
+    private static void downloadShard(ExecutorService executor, Queue<Future<?>> pending, StationSource stationSource, boolean endAfter,
+                                      List<Network> result, AtomicLong downloaded, double minLon, double maxLon) throws Exception {
         URL url;
-        if(supportedAttributes.contains("endafter")){
+        if(endAfter){
             url = new URL("%squery?minlongitude=%s&maxlongitude=%s&level=channel&endafter=%s&format=xml&channel=??Z".formatted(stationSource.getUrl(), minLon, maxLon, format1.format(Instant.now())));
         } else {
             url = new URL("%squery?minlongitude=%s&maxlongitude=%s&level=channel&format=xml&channel=??Z".formatted(stationSource.getUrl(), minLon, maxLon));
         }
 
-
         Logger.info("Connecting to " + url);
 
         HttpURLConnection con = (HttpURLConnection) url.openConnection();
@@ -88,67 +127,231 @@ public class FDSNWSDownloader {
                 return;
             }
 
-            downloadFDSNWS(stationSource, result, minLon, (minLon + maxLon) / 2.0);
-            downloadFDSNWS(stationSource, result, (minLon + maxLon) / 2.0, maxLon);
+            double step = (maxLon - minLon) / SPLIT_PARTS;
+            for (int i = 0; i < SPLIT_PARTS; i++) {
+                submitShard(executor, pending, stationSource, endAfter, result, downloaded,
+                        minLon + i * step, i == SPLIT_PARTS - 1 ? maxLon : minLon + (i + 1) * step);
+            }
         } else if(response / 100 == 2) {
-            InputStream inp = con.getInputStream();
-            downloadFDSNWS(stationSource, result, inp);
+            final CountInputStream in = new CountInputStream(con.getInputStream());
+            in.setEvent(() -> stationSource.getStatus().setString("Downloading %dkB".formatted((downloaded.get() + in.getCount()) / 1024)));
+
+            List<Network> networks = new ArrayList<>();
+            try (in) {
+                parseStationXML(stationSource, networks, in);
+            } finally {
+                downloaded.addAndGet(in.getCount());
+            }
+
+            synchronized (result) {
+                mergeNetworks(result, networks, stationSource);
+            }
         } else {
             throw new FdnwsDownloadException("HTTP Status %d!".formatted(response));
         }
     }
 
-    private static void downloadFDSNWS(StationSource stationSource, List<Network> result, InputStream inp) throws Exception {
-        DocumentBuilderFactory f = DocumentBuilderFactory.newInstance();
-        f.setNamespaceAware(false);
-        f.setValidating(false);
-        final CountInputStream in = new CountInputStream(inp);
+    private static void mergeNetworks(List<Network> result, List<Network> networks, StationSource stationSource) {
+        for (Network network : networks) {
+            for (Station station : network.getStations()) {
+                for (Channel channel : station.getChannels()) {
+                    addChannel(result, stationSource, network.getNetworkCode(), network.getDescription(),
+                            station.getStationCode(), station.getStationSite(), channel.getCode(), channel.getLocationCode(),
+                            channel.getLatitude(), channel.getLongitude(), channel.getElevation(), channel.getSampleRate(),
+                            station.getLatitude(), station.getLongitude(), station.getAlt(), channel.getSensitivity(), channel.getInputType());
+                }
+            }
+        }
+    }
 
-        in.setEvent(() ->  stationSource.getStatus().setString("Downloading %dkB".formatted(in.getCount() / 1024)));
+    private static final class StationInfo {
+        private String code;
+        private String site = "";
+        private double lat;
+        private double lon;
+        private double alt;
+        private final List<ChannelInfo> channels = new ArrayList<>();
+    }
 
-        String text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    private static final class ChannelInfo {
+        private String code;
+        private String locationCode;
+        private String startDate;
+        private String endDate;
+        private double lat;
+        private double lon;
+        private double alt;
+        private double sampleRate = -1;
+        private String sensitivity;
+        private String inputUnits;
+    }
 
+    /**
+     * Parses StationXML as it is being read, only the station that is currently being parsed is kept in memory
+     * besides the resulting networks.
+     */
+    static void parseStationXML(StationSource stationSource, List<Network> result, InputStream inp) throws IOException, XMLStreamException {
+        PushbackInputStream in = new PushbackInputStream(inp);
+        int first = in.read();
         // some FDSNWS providers send empty document if no stations found by given parameters
-        if(text.isEmpty()){
+        if (first == -1) {
             return;
         }
+        in.unread(first);
 
-        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(new StringReader(text)));
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
 
-        doc.getDocumentElement().normalize();
-
-        Element root = doc.getDocumentElement();
-        parseNetworks(result, stationSource, root);
+        XMLStreamReader reader = factory.createXMLStreamReader(in);
+        try {
+            Deque<String> path = new ArrayDeque<>();
+            StringBuilder text = new StringBuilder();
+            StringBuilder siteText = new StringBuilder();
+            int siteDepth = 0;
+
+            String networkCode = null;
+            String networkDescription = "";
+            StationInfo station = null;
+            ChannelInfo channel = null;
+
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    String parent = path.peek();
+                    path.push(name);
+                    text.setLength(0);
+                    if (siteDepth > 0) {
+                        siteDepth++;
+                    }
+
+                    switch (name) {
+                        case "Network" -> {
+                            networkCode = reader.getAttributeValue(null, "code");
+                            networkDescription = "";
+                            if (networkCode == null) {
+                                Logger.debug("ERR: no network code wtf.");
+                            }
+                        }
+                        case "Station" -> {
+                            station = null;
+                            if ("Network".equals(parent) && networkCode != null) {
+                                station = new StationInfo();
+                                station.code = reader.getAttributeValue(null, "code");
+                            }
+                        }
+                        case "Channel" -> {
+                            channel = null;
+                            if ("Station".equals(parent) && station != null) {
+                                channel = new ChannelInfo();
+                                channel.code = reader.getAttributeValue(null, "code");
+                                channel.locationCode = Objects.requireNonNullElse(reader.getAttributeValue(null, "locationCode"), "");
+                                channel.startDate = reader.getAttributeValue(null, "startDate");
+                                channel.endDate = reader.getAttributeValue(null, "endDate");
+                            }
+                        }
+                        case "Site" -> {
+                            if ("Station".equals(parent)) {
+                                siteDepth = 1;
+                                siteText.setLength(0);
+                            }
+                        }
+                    }
+                } else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+                    text.append(reader.getText());
+                    if (siteDepth > 0) {
+                        siteText.append(reader.getText());
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    String name = path.pop();
+                    String parent = path.peek();
+                    if (siteDepth > 0) {
+                        siteDepth--;
+                    }
+
+                    if ("Network".equals(parent) && name.equals("Description")) {
+                        networkDescription = text.toString();
+                    } else if ("Station".equals(parent) && station != null) {
+                        switch (name) {
+                            case "Site" -> station.site = siteText.toString();
+                            case "Latitude" -> station.lat = Double.parseDouble(text.toString());
+                            case "Longitude" -> station.lon = Double.parseDouble(text.toString());
+                            case "Elevation" -> station.alt = Double.parseDouble(text.toString());
+                        }
+                    } else if ("Channel".equals(parent) && channel != null) {
+                        switch (name) {
+                            case "Latitude" -> channel.lat = Double.parseDouble(text.toString());
+                            case "Longitude" -> channel.lon = Double.parseDouble(text.toString());
+                            case "Elevation" -> channel.alt = Double.parseDouble(text.toString());
+                            case "SampleRate" -> channel.sampleRate = Double.parseDouble(text.toString());
+                        }
+                    } else if ("InstrumentSensitivity".equals(parent) && channel != null) {
+                        if (name.equals("Value") && channel.sensitivity == null) {
+                            channel.sensitivity = text.toString();
+                        }
+                    } else if ("InputUnits".equals(parent) && channel != null && name.equals("Name") && channel.inputUnits == null) {
+                        Iterator<String> ancestors = path.iterator();
+                        ancestors.next();
+                        if (ancestors.hasNext() && ancestors.next().equals("InstrumentSensitivity")) {
+                            channel.inputUnits = text.toString();
+                        }
+                    }
+
+                    switch (name) {
+                        case "Channel" -> {
+                            if (channel != null && station != null) {
+                                station.channels.add(channel);
+                            }
+                            channel = null;
+                        }
+                        case "Station" -> {
+                            if (station != null && networkCode != null) {
+                                addStation(result, stationSource, networkCode, networkDescription, station);
+                            }
+                            station = null;
+                        }
+                        case "Network" -> networkCode = null;
+                    }
+                    text.setLength(0);
+                }
+            }
+        } finally {
+            reader.close();
+        }
     }
 
-    private static void parseNetworks(List<Network> result, StationSource stationSource, Element root) {
-        NodeList networks = root.getElementsByTagName("Network");
-        for (int i = 0; i < networks.getLength(); i++) {
-            String networkCode = obtainAttribute(networks.item(i), "code", "unknown");
-            if (networkCode.equalsIgnoreCase("unknown")) {
-                Logger.debug("ERR: no network code wtf.");
+    private static void addStation(List<Network> result, StationSource stationSource, String networkCode, String networkDescription, StationInfo station) {
+        if (station.code == null) {
+            Logger.debug("Station without code in network %s @ %s".formatted(networkCode, stationSource.getUrl()));
+            return;
+        }
+
+        for (ChannelInfo channel : station.channels) {
+            if (channel.code == null || !isWithinDateRange(channel.startDate, channel.endDate)) {
+                continue;
+            }
+
+            double sensitivity = -1;
+            InputType inputType = InputType.UNKNOWN;
+            if (channel.sensitivity != null) {
+                sensitivity = new BigDecimal(channel.sensitivity.trim()).doubleValue();
+                if (channel.inputUnits != null) {
+                    sensitivity *= getInputUnitsMultiplier(channel.inputUnits);
+                    inputType = getInputType(channel.inputUnits);
+                }
+            } else {
+                Logger.debug(
+                        "No Sensitivity!!!! " + station.code + " " + networkCode + " " + channel.code + " @ " + stationSource.getUrl());
+            }
+
+            if(!isSupported(channel.code)){
                 continue;
             }
-            String networkDescription = obtainElement(networks.item(i), "Description", "");
-            parseStations(result, stationSource, networks, i, networkCode, networkDescription);
-        }
-    }
 
-    private static void parseStations(List<Network> result, StationSource stationSource, NodeList networks, int i, String networkCode, String networkDescription) {
-        NodeList stations = ((Element) networks.item(i)).getElementsByTagName("Station");
-        for (int j = 0; j < stations.getLength(); j++) {
-            Node stationNode = stations.item(j);
-            String stationCode = stationNode.getAttributes().getNamedItem("code").getNodeValue();
-            String stationSite = ((Element) stationNode).getElementsByTagName("Site").item(0).getTextContent();
-
-            double lat = Double.parseDouble(
-                    ((Element) stationNode).getElementsByTagName("Latitude").item(0).getTextContent());
-            double lon = Double.parseDouble(
-                    ((Element) stationNode).getElementsByTagName("Longitude").item(0).getTextContent());
-            double alt = Double.parseDouble(
-                    ((Element) stationNode).getElementsByTagName("Elevation").item(0).getTextContent());
-
-            parseChannels(result, stationSource, networkCode, networkDescription, (Element) stationNode, stationCode, stationSite, lat, lon, alt);
+            addChannel(result, stationSource, networkCode, networkDescription, station.code, station.site, channel.code,
+                    channel.locationCode, channel.lat, channel.lon, channel.alt, channel.sampleRate,
+                    station.lat, station.lon, station.alt, sensitivity, inputType);
         }
     }
 
@@ -188,75 +391,7 @@ public class FDSNWSDownloader {
         throw new ParseException("Unparseable date: " + dateString, 0);
     }
 
-    private static void parseChannels(
-            List<Network> result, StationSource stationSource, String networkCode, String networkDescription,
-            Element stationNode, String stationCode, String stationSite,
-            double stationLat, double stationLon, double stationAlt) {
-        NodeList channels = stationNode.getElementsByTagName("Channel");
-        for (int k = 0; k < channels.getLength(); k++) {
-                // Necessary values: lat lon alt sampleRate, Other can fail
-
-            Node channelNode = channels.item(k);
-            String channel = channelNode.getAttributes().getNamedItem("code").getNodeValue();
-
-            String startDateStr = channelNode.getAttributes().getNamedItem("startDate") != null ?
-                    channelNode.getAttributes().getNamedItem("startDate").getNodeValue() : null;
-
-            // Get the "endDate" attribute if available
-            String endDateStr = channelNode.getAttributes().getNamedItem("endDate") != null ?
-                    channelNode.getAttributes().getNamedItem("endDate").getNodeValue() : null;
-
-            if(!isWithinDateRange(startDateStr, endDateStr)){
-                continue;
-            }
-
-            String locationCode = channelNode.getAttributes().getNamedItem("locationCode")
-                    .getNodeValue();
-            double lat = Double.parseDouble(
-                    ((Element) channelNode).getElementsByTagName("Latitude").item(0).getTextContent());
-            double lon = Double.parseDouble(
-                    ((Element) channelNode).getElementsByTagName("Longitude").item(0).getTextContent());
-            double alt = Double.parseDouble(
-                    ((Element) channelNode).getElementsByTagName("Elevation").item(0).getTextContent());
-
-            double sensitivity = -1;
-            InputType inputType = InputType.UNKNOWN;
-            try {
-                sensitivity = new BigDecimal(((Element) ((Element) (channelNode.getChildNodes()))
-                        .getElementsByTagName("InstrumentSensitivity").item(0))
-                        .getElementsByTagName("Value").item(0).getTextContent()).doubleValue();
-
-                String inputUnits = ((Element)((Element) ((Element) (channelNode.getChildNodes()))
-                        .getElementsByTagName("InstrumentSensitivity").item(0))
-                        .getElementsByTagName("InputUnits").item(0)).getElementsByTagName("Name").item(0).getTextContent();
-
-                sensitivity *= getInputUnitsMultiplier(inputUnits);
-                inputType = getInputType(inputUnits);
-            } catch (NullPointerException e) {
-                Logger.debug(
-                        "No Sensitivity!!!! " + stationCode + " " + networkCode + " " + channel+" @ "+stationSource.getUrl());
-            }
-
-            var item = ((Element) channelNode)
-                    .getElementsByTagName("SampleRate").item(0);
-
-            // sample rate is not actually required as it is provided by the seedlink protocol itself
-            double sampleRate = -1;
-            if(item != null){
-                sampleRate = Double.parseDouble(((Element) channelNode)
-                        .getElementsByTagName("SampleRate").item(0).getTextContent());
-            }
-
-            if(!isSupported(channel)){
-                continue;
-            }
-
-            addChannel(result, stationSource, networkCode, networkDescription, stationCode, stationSite, channel,
-                    locationCode, lat, lon, alt, sampleRate, stationLat, stationLon, stationAlt, sensitivity, inputType);
-        }
-    }
-
-    private static final Set<String> unknownUnits = new HashSet<>();
+    private static final Set<String> unknownUnits = ConcurrentHashMap.newKeySet();
 
     private static final Map<String, InputType> unitTypeMap = new HashMap<>();
     private static final Map<String, Double> unitMultiplierMap = new HashMap<>();
@@ -292,8 +427,9 @@ public class FDSNWSDownloader {
         InputType inputType = unitTypeMap.getOrDefault(inputUnits.toLowerCase(), InputType.UNKNOWN);
 
         if (inputType == InputType.UNKNOWN) {
-            unknownUnits.add(inputUnits.toLowerCase());
-            Logger.debug("Unknown input units: %s".formatted(Arrays.toString(unknownUnits.toArray())));
+            if (unknownUnits.add(inputUnits.toLowerCase())) {
+                Logger.debug("Unknown input units: %s".formatted(Arrays.toString(unknownUnits.toArray())));
+            }
         }
 
         return inputType;
@@ -324,20 +460,4 @@ public class FDSNWSDownloader {
         StationDatabase.getOrCreateChannel(station, channelCode, locationCode, lat, lon, alt, sampleRate, stationSource, sensitivity, inputType);
     }
 
-    public static String obtainElement(Node item, String name, String defaultValue) {
-        try {
-            return ((Element) item).getElementsByTagName(name).item(0).getTextContent();
-        } catch (Exception e) {
-            return defaultValue;
-        }
-    }
-
-    public static String obtainAttribute(Node item, String name, String defaultValue) {
-        try {
-            return item.getAttributes().getNamedItem(name).getNodeValue();
-        } catch (Exception e) {
-            return defaultValue;
-        }
-    }
-
 }
@@ -3,17 +3,23 @@ package globalquake.core.database;
 import edu.sc.seis.seisFile.seedlink.SeedlinkReader;
 import gqserver.api.packets.station.InputType;
 import org.tinylog.Logger;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
+import java.net.SocketTimeoutException;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class SeedlinkCommunicator {
 
@@ -22,102 +28,222 @@ public class SeedlinkCommunicator {
     private static final ThreadLocal<SimpleDateFormat> FORMAT_UTC_LONG = new ThreadLocal<>();
     private static final long MAX_DELAY_MS = 1000 * 60 * 60 * 24L;
 
-    public static void runAvailabilityCheck(SeedlinkNetwork seedlinkNetwork, StationDatabase stationDatabase) throws Exception {
+    /**
+     * Downloads and parses the list of streams provided by the seedlink server, without touching the database
+     *
+     * @param watchdog closes the connection if the whole download takes longer than the timeout of the seedlink network
+     */
+    public static List<AvailableChannel> downloadAvailability(SeedlinkNetwork seedlinkNetwork, ScheduledExecutorService watchdog) throws Exception {
         seedlinkNetwork.setStatus(0, "Connecting...");
         SeedlinkReader reader = new SeedlinkReader(seedlinkNetwork.getHost(), seedlinkNetwork.getPort(), seedlinkNetwork.getTimeout(), false);
 
-        seedlinkNetwork.setStatus(33, "Downloading...");
-        String infoString = reader.getInfoString(SeedlinkReader.INFO_STREAMS).trim().replaceAll("[^\\u0009\\u000a\\u000d\\u0020-\\uD7FF\\uE000-\\uFFFD]", " ");
+        AtomicBoolean timedOut = new AtomicBoolean(false);
+        ScheduledFuture<?> timeout = watchdog.schedule(() -> {
+            timedOut.set(true);
+            reader.close();
+        }, seedlinkNetwork.getTimeout(), TimeUnit.SECONDS);
 
-        seedlinkNetwork.setStatus(66, "Parsing...");
-        parseAvailability(infoString, stationDatabase, seedlinkNetwork);
+        String infoString;
+        try {
+            seedlinkNetwork.setStatus(33, "Downloading...");
+            infoString = reader.getInfoString(SeedlinkReader.INFO_STREAMS);
+        } catch (Exception e) {
+            if (timedOut.get()) {
+                throw new SocketTimeoutException("Availability check timed out after %d seconds".formatted(seedlinkNetwork.getTimeout()));
+            }
+            throw e;
+        } finally {
+            timeout.cancel(false);
+            reader.close();
+        }
 
-        seedlinkNetwork.setStatus(80, "Finishing...");
-        reader.close();
+        seedlinkNetwork.setStatus(66, "Parsing...");
+        List<AvailableChannel> availableChannels = parseAvailability(infoString, seedlinkNetwork);
+        Logger.info("Found %d available streams in seedlink %s".formatted(availableChannels.size(), seedlinkNetwork.getName()));
 
-        seedlinkNetwork.setStatus(99, "Done");
+        return availableChannels;
     }
 
-    private static void parseAvailability(String infoString, StationDatabase stationDatabase, SeedlinkNetwork seedlinkNetwork) throws Exception {
-        seedlinkNetwork.availableStations = 0;
-
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-        DocumentBuilder db = dbf.newDocumentBuilder();
-        Document doc = db.parse(new InputSource(new StringReader(infoString)));
-        doc.getDocumentElement().normalize();
-        NodeList nodeList = doc.getElementsByTagName("station");
-        Logger.info("Found %d available stations in seedlink %s".formatted(nodeList.getLength(), seedlinkNetwork.getName()));
-        for (int itr = 0; itr < nodeList.getLength(); itr++) {
-            Node node = nodeList.item(itr);
-            String stationCode = node.getAttributes().getNamedItem("name").getTextContent();
-            String networkCode = node.getAttributes().getNamedItem("network").getTextContent();
-            NodeList channelList = ((Element) node).getElementsByTagName("stream");
-            for (int k = 0; k < channelList.getLength(); k++) {
-                Node channel = channelList.item(k);
-                String locationCode = channel.getAttributes().getNamedItem("location").getTextContent();
-                String channelName = channel.getAttributes().getNamedItem("seedname").getTextContent();
-                String endDate = channel.getAttributes().getNamedItem("end_time").getTextContent();
-
-                long delay = UNKNOWN_DELAY;
-
-                try {
-                    if(FORMAT_UTC_LONG.get() == null || FORMAT_UTC_SHORT.get() == null){
-                        FORMAT_UTC_SHORT.set(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss"));
-                        FORMAT_UTC_SHORT.get().setTimeZone(TimeZone.getTimeZone("UTC"));
-
-                        FORMAT_UTC_LONG.set(new SimpleDateFormat("yyyy/MM/dd HH:mm:ss.SSSS"));
-                        FORMAT_UTC_LONG.get().setTimeZone(TimeZone.getTimeZone("UTC"));
+    static List<AvailableChannel> parseAvailability(String infoString, SeedlinkNetwork seedlinkNetwork) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        List<AvailableChannel> availableChannels = new ArrayList<>();
+        XMLStreamReader reader = factory.createXMLStreamReader(new XmlTextReader(new StringReader(infoString)));
+        try {
+            String networkCode = null;
+            String stationCode = null;
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+
+                if (reader.getLocalName().equals("station")) {
+                    stationCode = reader.getAttributeValue(null, "name");
+                    networkCode = reader.getAttributeValue(null, "network");
+                } else if (reader.getLocalName().equals("stream") && stationCode != null && networkCode != null) {
+                    String locationCode = reader.getAttributeValue(null, "location");
+                    String channelName = reader.getAttributeValue(null, "seedname");
+                    String endDate = reader.getAttributeValue(null, "end_time");
+                    if (locationCode == null || channelName == null) {
+                        continue;
                     }
 
-                    Calendar end = Calendar.getInstance();
-                    end.setTime(endDate.contains("-") ? FORMAT_UTC_SHORT.get().parse(endDate) : FORMAT_UTC_LONG.get().parse(endDate));
+                    long delay = UNKNOWN_DELAY;
 
-                    delay = System.currentTimeMillis() - end.getTimeInMillis();
+                    if (endDate != null) {
+                        try {
+                            delay = System.currentTimeMillis() - parseEndTime(endDate);
 
-                    if (delay > MAX_DELAY_MS) {
-                        continue;
+                            if (delay > MAX_DELAY_MS) {
+                                continue;
+                            }
+                        } catch (NumberFormatException | ParseException e) {
+                            Logger.warn(new RuntimeException("Failed to get delay from %s, %s: %s".formatted(stationCode, seedlinkNetwork.getName(), e.getMessage())));
+                        }
                     }
 
-                } catch(NumberFormatException e){
-                    Logger.warn(new RuntimeException("Failed to get delay from %s, %s: %s".formatted(stationCode, seedlinkNetwork.getName(), e.getMessage())));
+                    availableChannels.add(new AvailableChannel(networkCode, stationCode, channelName, locationCode, delay));
                 }
+            }
+        } finally {
+            reader.close();
+        }
 
-                addAvailableChannel(networkCode, stationCode, channelName, locationCode, delay, seedlinkNetwork, stationDatabase);
+        return availableChannels;
+    }
+
+    private static long parseEndTime(String endDate) throws ParseException {
+        if(FORMAT_UTC_LONG.get() == null || FORMAT_UTC_SHORT.get() == null){
+            FORMAT_UTC_SHORT.set(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss"));
+            FORMAT_UTC_SHORT.get().setTimeZone(TimeZone.getTimeZone("UTC"));
+
+            FORMAT_UTC_LONG.set(new SimpleDateFormat("yyyy/MM/dd HH:mm:ss.SSSS"));
+            FORMAT_UTC_LONG.get().setTimeZone(TimeZone.getTimeZone("UTC"));
+        }
+
+        return (endDate.contains("-") ? FORMAT_UTC_SHORT.get().parse(endDate) : FORMAT_UTC_LONG.get().parse(endDate)).getTime();
+    }
+
+    /**
+     * Replaces characters that are not allowed in XML with spaces and drops leading whitespace,
+     * some servers send both
+     */
+    private static final class XmlTextReader extends FilterReader {
+
+        private boolean started = false;
+
+        private XmlTextReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            char[] c = new char[1];
+            return read(c, 0, 1) == -1 ? -1 : c[0];
+        }
+
+        @Override
+        public int read(char[] buffer, int off, int len) throws IOException {
+            while (true) {
+                int count = super.read(buffer, off, len);
+                if (count <= 0) {
+                    return count;
+                }
+
+                int start = off;
+                if (!started) {
+                    while (start < off + count && Character.isWhitespace(buffer[start])) {
+                        start++;
+                    }
+                    if (start == off + count) {
+                        continue;
+                    }
+                    started = true;
+                    System.arraycopy(buffer, start, buffer, off, off + count - start);
+                    count -= start - off;
+                }
+
+                for (int i = off; i < off + count; i++) {
+                    char c = buffer[i];
+                    if (!(c == 0x9 || c == 0xA || c == 0xD || (c >= 0x20 && c <= 0xD7FF) || (c >= 0xE000 && c <= 0xFFFD))) {
+                        buffer[i] = ' ';
+                    }
+                }
+                return count;
             }
         }
     }
 
-    private static void addAvailableChannel(String networkCode, String stationCode, String channelName, String locationCode, long delay, SeedlinkNetwork seedlinkNetwork, StationDatabase stationDatabase) {
-        locationCode = locationCode.trim();
+    record AvailableChannel(String networkCode, String stationCode, String channelName, String locationCode, long delay) {
+    }
+
+    /**
+     * Replaces the availability of the given seedlink network in the database, all in one write lock
+     */
+    public static void mergeAvailability(List<AvailableChannel> availableChannels, SeedlinkNetwork seedlinkNetwork, StationDatabase stationDatabase) {
         stationDatabase.getDatabaseWriteLock().lock();
         try {
-            Station station = StationDatabase.getStation(stationDatabase.getNetworks(), networkCode, stationCode);
-            if(station == null){
-                return; // :(
-            }
+            seedlinkNetwork.availableStations = 0;
 
-            Channel channel = StationDatabase.getChannel(stationDatabase.getNetworks(), networkCode, stationCode, channelName, locationCode);
+            // the response is the complete list, so streams this server no longer provides are forgotten
+            for (Network network : stationDatabase.getNetworks()) {
+                for (Station station : network.getStations()) {
+                    for (Channel channel : station.getChannels()) {
+                        channel.getSeedlinkNetworks().remove(seedlinkNetwork);
+                    }
+                }
+            }
 
-            if(channel == null){
-                channel = findChannelButDontUseLocationCode(station, channelName);
+            for (AvailableChannel availableChannel : availableChannels) {
+                addAvailableChannel(availableChannel, seedlinkNetwork, stationDatabase);
+            }
 
-                if(channel != null){
-                    var any = channel.getStationSources().stream().findAny();
-                    Channel newChannel = StationDatabase.getOrCreateChannel(station, channelName, locationCode, channel.getLatitude(), channel.getLongitude(), channel.getElevation(), channel.getSampleRate(), any.orElse(null), -1, InputType.UNKNOWN);
-                    Logger.warn("Did not find exact match for [%s %s %s `%s`], assuming the location code is `%s`".formatted(networkCode, stationCode, channelName, locationCode, channel.getLocationCode()));
-                    channel = newChannel;
+            // same as when a seedlink network is removed, a selected channel must stay available
+            for (Network network : stationDatabase.getNetworks()) {
+                for (Station station : network.getStations()) {
+                    if (station.getSelectedChannel() != null && !station.getSelectedChannel().isAvailable()) {
+                        station.selectBestAvailableChannel();
+                    }
                 }
             }
+        } finally {
+            stationDatabase.getDatabaseWriteLock().unlock();
+        }
+    }
+
+    private static void addAvailableChannel(AvailableChannel availableChannel, SeedlinkNetwork seedlinkNetwork, StationDatabase stationDatabase) {
+        String networkCode = availableChannel.networkCode();
+        String stationCode = availableChannel.stationCode();
+        String channelName = availableChannel.channelName();
+        String locationCode = availableChannel.locationCode().trim();
 
-            if (channel == null) {
-                return;
+        Station station = stationDatabase.findStation(networkCode, stationCode);
+        if(station == null){
+            return; // :(
+        }
+
+        Channel channel = stationDatabase.findChannel(networkCode, stationCode, channelName, locationCode);
+
+        if(channel == null){
+            channel = findChannelButDontUseLocationCode(station, channelName);
+
+            if(channel != null){
+                var any = channel.getStationSources().stream().findAny();
+                Channel newChannel = new Channel(channelName, locationCode, channel.getSampleRate(), channel.getLatitude(), channel.getLongitude(), channel.getElevation(), any.orElse(null), -1, InputType.UNKNOWN);
+                stationDatabase.acceptChannel(stationDatabase.findNetwork(networkCode), station, newChannel);
+                Logger.warn("Did not find exact match for [%s %s %s `%s`], assuming the location code is `%s`".formatted(networkCode, stationCode, channelName, locationCode, channel.getLocationCode()));
+                channel = newChannel;
             }
+        }
 
-            seedlinkNetwork.availableStations++;
-            channel.getSeedlinkNetworks().put(seedlinkNetwork, delay);
-        }finally {
-            stationDatabase.getDatabaseWriteLock().unlock();
+        if (channel == null) {
+            return;
         }
+
+        seedlinkNetwork.availableStations++;
+        channel.getSeedlinkNetworks().put(seedlinkNetwork, availableChannel.delay());
     }
 
     private static Channel findChannelButDontUseLocationCode(Station station, String channelName) {
@@ -12,7 +12,10 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -36,6 +39,10 @@ public class StationDatabase implements Serializable {
     private transient Lock databaseReadLock = databaseLock.readLock();
     private transient Lock databaseWriteLock = databaseLock.writeLock();
 
+    // case-insensitive lookups by network code, network + station and full NSLC
+    private transient Map<String, Network> networkIndex = new HashMap<>();
+    private transient Map<String, Station> stationIndex = new HashMap<>();
+    private transient Map<String, Channel> channelIndex = new HashMap<>();
 
     @Serial
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
@@ -45,7 +52,60 @@ public class StationDatabase implements Serializable {
         databaseReadLock = databaseLock.readLock();
         databaseWriteLock = databaseLock.writeLock();
 
+        networkIndex = new HashMap<>();
+        stationIndex = new HashMap<>();
+        channelIndex = new HashMap<>();
+
         convert();
+        rebuildIndexes();
+    }
+
+    /**
+     * Has to be called after the networks, stations or channels were modified directly instead of through {@link #acceptChannel}
+     */
+    public void rebuildIndexes() {
+        networkIndex.clear();
+        stationIndex.clear();
+        channelIndex.clear();
+        networks.forEach(this::index);
+    }
+
+    private void index(Network network) {
+        networkIndex.putIfAbsent(networkKey(network.getNetworkCode()), network);
+        for (Station station : network.getStations()) {
+            index(network.getNetworkCode(), station);
+        }
+    }
+
+    private void index(String networkCode, Station station) {
+        stationIndex.putIfAbsent(stationKey(networkCode, station.getStationCode()), station);
+        for (Channel channel : station.getChannels()) {
+            channelIndex.putIfAbsent(channelKey(networkCode, station.getStationCode(), channel.getCode(), channel.getLocationCode()), channel);
+        }
+    }
+
+    private static String networkKey(String networkCode) {
+        return networkCode.toUpperCase(Locale.ROOT);
+    }
+
+    private static String stationKey(String networkCode, String stationCode) {
+        return (networkCode + "." + stationCode).toUpperCase(Locale.ROOT);
+    }
+
+    private static String channelKey(String networkCode, String stationCode, String channelCode, String locationCode) {
+        return (networkCode + "." + stationCode + "." + locationCode + "." + channelCode).toUpperCase(Locale.ROOT);
+    }
+
+    public Network findNetwork(String networkCode) {
+        return networkIndex.get(networkKey(networkCode));
+    }
+
+    public Station findStation(String networkCode, String stationCode) {
+        return stationIndex.get(stationKey(networkCode, stationCode));
+    }
+
+    public Channel findChannel(String networkCode, String stationCode, String channelCode, String locationCode) {
+        return channelIndex.get(channelKey(networkCode, stationCode, channelCode, locationCode));
     }
 
     private void convert() {
@@ -60,7 +120,22 @@ public class StationDatabase implements Serializable {
     }
 
     public StationDatabase() {
-        addDefaults();
+        this(true);
+    }
+
+    StationDatabase(boolean addDefaults) {
+        if (addDefaults) {
+            addDefaults();
+        }
+    }
+
+    /**
+     * Called once the content was filled in by {@link StationDatabaseSnapshot}
+     */
+    void afterLoad(int version) {
+        this.version = version;
+        convert();
+        rebuildIndexes();
     }
 
     @SuppressWarnings("HttpUrlsUsage")
@@ -285,13 +360,28 @@ public class StationDatabase implements Serializable {
 
     @SuppressWarnings("UnusedReturnValue")
     public Channel acceptChannel(Network network, Station station, Channel channel) {
-        Network networkFound = getOrInsertNetwork(networks, network);
-        Station stationFound = getOrInsertStation(networkFound, station);
-        Channel channelFound = getChannel(stationFound, channel.getCode(), channel.getLocationCode());
+        Network networkFound = findNetwork(network.getNetworkCode());
+        if (networkFound == null) {
+            networks.add(network);
+            index(network);
+            networkFound = network;
+        }
+
+        String networkCode = networkFound.getNetworkCode();
+        Station stationFound = findStation(networkCode, station.getStationCode());
+        if (stationFound == null) {
+            networkFound.getStations().add(station);
+            index(networkCode, station);
+            stationFound = station;
+        }
+
+        String key = channelKey(networkCode, stationFound.getStationCode(), channel.getCode(), channel.getLocationCode());
+        Channel channelFound = channelIndex.get(key);
         if(channelFound != null) {
             channelFound.merge(channel);
         } else {
             stationFound.getChannels().add(channel);
+            channelIndex.put(key, channel);
         }
 
         return channel;
@@ -9,10 +9,14 @@ import java.io.*;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
-import java.util.Iterator;
-import java.util.List;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class StationDatabaseManager {
 
@@ -24,6 +28,33 @@ public class StationDatabaseManager {
     private final List<Runnable> statusListeners = new CopyOnWriteArrayList<>();
     private boolean updating = false;
 
+    private final ExecutorService saveService = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Station Database Save");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // availability checks mostly wait for the network, but too many at once would only compete for bandwidth
+    private static final int MAX_PARALLEL_CHECKS = 8;
+    private final ExecutorService availabilityService = Executors.newFixedThreadPool(MAX_PARALLEL_CHECKS, runnable -> {
+        Thread thread = new Thread(runnable, "Seedlink Availability Check");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ScheduledExecutorService availabilityWatchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Seedlink Availability Watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private record SaveRequest(long generation, StationDatabaseSnapshot snapshot) {
+    }
+
+    private final AtomicLong snapshotGeneration = new AtomicLong();
+    private final AtomicReference<SaveRequest> pendingSave = new AtomicReference<>();
+    private StationDatabaseSnapshot lastSaved;
+    private long lastSavedGeneration = -1;
+    private byte[] lastSavedData;
+
     public StationDatabaseManager() {
     }
 
@@ -39,13 +70,25 @@ public class StationDatabaseManager {
             }
         }
 
+        File legacyFile = getLegacyDatabaseFile();
         if (file.exists()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                StationDatabaseSnapshot snapshot = StationDatabaseSnapshot.read(in);
+                stationDatabase = snapshot.toDatabase();
+                lastSaved = snapshot;
+
+                Logger.info("Database load successfull (%d channels)".formatted(snapshot.getChannelCount()));
+            } catch (IOException | RuntimeException e) {
+                GlobalQuake.getErrorHandler().handleException(
+                        new FatalIOException("Unable to load station database, it probably got corrupted!", e));
+            }
+        } else if (legacyFile.exists()) {
             try {
-                ObjectInputStream in = new ObjectInputStream(new FileInputStream(file));
+                ObjectInputStream in = new ObjectInputStream(new FileInputStream(legacyFile));
                 stationDatabase = (StationDatabase) in.readObject();
                 in.close();
 
-                Logger.info("Database load successfull");
+                Logger.info("Database load successfull, it will be converted to the new format on the next save");
             } catch (ClassNotFoundException | IOException e) {
                 GlobalQuake.getErrorHandler().handleException(
                         new FatalIOException("Unable to load station database, it probably got corrupted!", e));
@@ -57,33 +100,126 @@ public class StationDatabaseManager {
             stationDatabase = new StationDatabase();
         }
 
+        countAvailableStations();
     }
 
-    public void save() throws FatalIOException {
-        File file = getDatabaseFile();
-        if (!file.getParentFile().exists()) {
-            if (!file.getParentFile().mkdirs()) {
-                throw new FatalIOException("Unable to create database file directory!", null);
+    /**
+     * The availability is stored with the database, but the counts shown for each seedlink network are not
+     */
+    private void countAvailableStations() {
+        stationDatabase.getDatabaseReadLock().lock();
+        try {
+            Map<SeedlinkNetwork, Integer> counts = new HashMap<>();
+            for (Network network : stationDatabase.getNetworks()) {
+                for (Station station : network.getStations()) {
+                    for (Channel channel : station.getChannels()) {
+                        for (SeedlinkNetwork seedlinkNetwork : channel.getSeedlinkNetworks().keySet()) {
+                            counts.merge(seedlinkNetwork, 1, Integer::sum);
+                        }
+                    }
+                }
+            }
+
+            for (SeedlinkNetwork seedlinkNetwork : stationDatabase.getSeedlinkNetworks()) {
+                seedlinkNetwork.availableStations = counts.getOrDefault(seedlinkNetwork, 0);
             }
+        } finally {
+            stationDatabase.getDatabaseReadLock().unlock();
         }
+    }
 
-        if (stationDatabase == null) {
+    public void save() throws FatalIOException {
+        SaveRequest request = takeSnapshot();
+        if (request == null) {
             return;
         }
 
-        stationDatabase.getDatabaseReadLock().lock();
         try {
-            ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file));
-            out.writeObject(stationDatabase);
-            out.close();
-            Logger.info("Station database saved sucessfully");
+            write(request);
         } catch (IOException e) {
             throw new FatalIOException("Unable to save station database!", e);
+        }
+    }
+
+    /**
+     * Takes a snapshot of the database and writes it on the background thread, so the database is locked only
+     * while the snapshot is copied. Requests made while a write is pending are merged into one write.
+     */
+    public void saveInBackground() {
+        SaveRequest request = takeSnapshot();
+        if (request == null || pendingSave.getAndSet(request) != null) {
+            return;
+        }
+
+        saveService.submit(() -> {
+            try {
+                write(pendingSave.getAndSet(null));
+            } catch (Exception e) {
+                Logger.error(new FatalIOException("Unable to save station database!", e));
+            }
+        });
+    }
+
+    private SaveRequest takeSnapshot() {
+        if (stationDatabase == null) {
+            return null;
+        }
+
+        stationDatabase.getDatabaseReadLock().lock();
+        try {
+            // the generation is taken under the lock, so a higher generation never holds older content
+            return new SaveRequest(snapshotGeneration.incrementAndGet(), StationDatabaseSnapshot.of(stationDatabase));
         } finally {
             stationDatabase.getDatabaseReadLock().unlock();
         }
     }
 
+    /**
+     * Always rewrites the whole file. It is at most a few megabytes and is replaced atomically, which a partial
+     * update in place could not do without a journal.
+     */
+    private synchronized void write(SaveRequest request) throws IOException {
+        if (request.generation() <= lastSavedGeneration) {
+            Logger.debug("A newer station database snapshot is already saved");
+            return;
+        }
+
+        StationDatabaseSnapshot snapshot = request.snapshot();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            snapshot.write(out);
+        }
+
+        byte[] data = bytes.toByteArray();
+        if (Arrays.equals(data, lastSavedData)) {
+            lastSavedGeneration = request.generation();
+            Logger.debug("Station database unchanged, not saving");
+            return;
+        }
+
+        if (lastSaved != null) {
+            Logger.info("Station database changes since the last save: %s".formatted(snapshot.diff(lastSaved)));
+        }
+
+        File file = getDatabaseFile();
+        if (!file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
+            throw new IOException("Unable to create database file directory!");
+        }
+
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        Files.write(temp.toPath(), data);
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        lastSaved = snapshot;
+        lastSavedGeneration = request.generation();
+        lastSavedData = data;
+        Logger.info("Station database saved sucessfully");
+    }
+
     public void addUpdateListener(Runnable runnable) {
         this.updateListeners.add(runnable);
     }
@@ -157,6 +293,7 @@ public class StationDatabaseManager {
             });
 
             this.updating = false;
+            saveInBackground();
             fireStatusChangeEvent();
             if (onFinish != null) {
                 onFinish.run();
@@ -180,6 +317,10 @@ public class StationDatabaseManager {
     }
 
     private static File getDatabaseFile() {
+        return new File(getStationsFolder(), "database.bin");
+    }
+
+    private static File getLegacyDatabaseFile() {
         return new File(getStationsFolder(), "database.dat");
     }
 
@@ -196,18 +337,29 @@ public class StationDatabaseManager {
         toBeUpdated.forEach(seedlinkNetwork -> seedlinkNetwork.setStatus(0, "Queued..."));
         fireStatusChangeEvent();
 
-        final Object statusSync = new Object();
+        // seedlink networks with the same address share one download
+        Map<String, List<SeedlinkNetwork>> byAddress = new LinkedHashMap<>();
+        for (SeedlinkNetwork seedlinkNetwork : toBeUpdated) {
+            byAddress.computeIfAbsent("%s:%d".formatted(seedlinkNetwork.getHost().toLowerCase(), seedlinkNetwork.getPort()),
+                    ignored -> new ArrayList<>()).add(seedlinkNetwork);
+        }
 
         new Thread(() -> {
-            toBeUpdated.parallelStream().forEach(seedlinkNetwork -> {
-                        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
-                            if(runSeedlinkUpdate(seedlinkNetwork, statusSync)){
-                                break;
-                            }
-                        }
-                    }
-            );
+            List<Future<?>> futures = new ArrayList<>();
+            for (List<SeedlinkNetwork> group : byAddress.values()) {
+                futures.add(availabilityService.submit(() -> runSeedlinkUpdate(group)));
+            }
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException | ExecutionException e) {
+                    Logger.error(e);
+                }
+            }
+
             this.updating = false;
+            saveInBackground();
             fireStatusChangeEvent();
             if (onFinish != null) {
                 onFinish.run();
@@ -215,63 +367,34 @@ public class StationDatabaseManager {
         }).start();
     }
 
-    private boolean runSeedlinkUpdate(SeedlinkNetwork seedlinkNetwork, Object statusSync) {
-        synchronized (statusSync) {
-            seedlinkNetwork.setStatus(0, "Updating...");
-        }
-
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-
-        Callable<Boolean> task = () -> {
+    private void runSeedlinkUpdate(List<SeedlinkNetwork> group) {
+        SeedlinkNetwork first = group.get(0);
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            group.forEach(seedlinkNetwork -> seedlinkNetwork.setStatus(0, "Updating..."));
             try {
-                SeedlinkCommunicator.runAvailabilityCheck(seedlinkNetwork, stationDatabase);
-            } catch (SocketException | SocketTimeoutException | UnknownHostException ce) {
-                Logger.warn("Unable to fetch station data from seedlink server `%s`: %s".formatted(seedlinkNetwork.getName(), ce.getMessage()));
-                synchronized (statusSync) {
-                    seedlinkNetwork.setStatus(0, "Network error: " + ce.getMessage());
+                List<SeedlinkCommunicator.AvailableChannel> availableChannels = SeedlinkCommunicator.downloadAvailability(first, availabilityWatchdog);
+
+                for (SeedlinkNetwork seedlinkNetwork : group) {
+                    seedlinkNetwork.setStatus(80, "Finishing...");
+                    SeedlinkCommunicator.mergeAvailability(availableChannels, seedlinkNetwork, stationDatabase);
+                    seedlinkNetwork.setStatus(100, "Done");
                 }
 
-                return false;
+                fireUpdateEvent();
+                return;
+            } catch (SocketTimeoutException e) {
+                Logger.warn("Task timed out for: %s".formatted(first.getName()));
+                group.forEach(seedlinkNetwork -> seedlinkNetwork.setStatus(0, "Timeout occurred"));
+            } catch (SocketException | UnknownHostException ce) {
+                Logger.warn("Unable to fetch station data from seedlink server `%s`: %s".formatted(first.getName(), ce.getMessage()));
+                group.forEach(seedlinkNetwork -> seedlinkNetwork.setStatus(0, "Network error: " + ce.getMessage()));
             } catch (Exception e) {
                 Logger.error(e);
-                synchronized (statusSync) {
-                    seedlinkNetwork.setStatus(0, "Unknown error occurred");
-                }
-                return false;
+                group.forEach(seedlinkNetwork -> seedlinkNetwork.setStatus(0, "Unknown error occurred"));
             }
 
-            return true;
-        };
-
-        Future<Boolean> future = executor.submit(task);
-
-        boolean success = false;
-
-        try {
-            success = future.get(seedlinkNetwork.getTimeout(), TimeUnit.SECONDS);
-
-            if (success) {
-                synchronized (statusSync) {
-                    seedlinkNetwork.setStatus(100, "Done");
-                }
-            }
-        } catch (InterruptedException | ExecutionException e) {
-            Logger.error("Error executing task for: %s".formatted(seedlinkNetwork.getName()), e);
-            synchronized (statusSync) {
-                seedlinkNetwork.setStatus(0, "Error during execution: " + e.getMessage());
-            }
-        } catch (TimeoutException e) {
-            Logger.warn("Task timed out for: %s".formatted(seedlinkNetwork.getName()));
-            synchronized (statusSync) {
-                future.cancel(true);
-                seedlinkNetwork.setStatus(0, "Timeout occurred");
-            }
-        } finally {
-            executor.shutdown();
+            fireUpdateEvent();
         }
-
-        fireUpdateEvent();
-        return success;
     }
 
     @SuppressWarnings("BooleanMethodIsAlwaysInverted")
@@ -333,6 +456,7 @@ public class StationDatabaseManager {
         }
 
         getStationDatabase().getStationSources().removeAll(toBeRemoved);
+        getStationDatabase().rebuildIndexes();
 
         fireUpdateEvent();
     }
@@ -0,0 +1,557 @@
+package globalquake.core.database;
+
+import gqserver.api.packets.station.InputType;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Immutable columnar copy of a {@link StationDatabase}. All codes and names are stored once in a string table,
+ * coordinates and other per channel values in primitive arrays, and the availability in each seedlink network
+ * as a bitmap over the channels.
+ * <p>
+ * Taking a snapshot only copies memory, so the database lock is held shortly and the snapshot can be
+ * written or compared with another one afterwards without any locking.
+ * <p>
+ * Loading always reads all columns and builds the whole database. The station selection at startup
+ * and the database editor walk every channel, so columns read on demand wouldn't be read any later.
+ */
+public final class StationDatabaseSnapshot {
+
+    private static final int MAGIC = 0x47515344; // GQSD
+    private static final int FORMAT_VERSION = 1;
+
+    public record Diff(List<String> addedChannels, List<String> removedChannels, List<String> availabilityChanged) {
+
+        public boolean isEmpty() {
+            return addedChannels.isEmpty() && removedChannels.isEmpty() && availabilityChanged.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "+%d -%d channels, %d availability changes".formatted(addedChannels.size(), removedChannels.size(), availabilityChanged.size());
+        }
+    }
+
+    private int databaseVersion;
+    private String[] strings;
+
+    private int[] sourceName;
+    private int[] sourceUrl;
+    private long[] sourceLastUpdate;
+
+    private int[] seedlinkName;
+    private int[] seedlinkHost;
+    private int[] seedlinkPort;
+    private int[] seedlinkTimeout;
+
+    private int[] networkCode;
+    private int[] networkDescription;
+    private int[] networkStations;
+
+    private int[] stationCode;
+    private int[] stationSite;
+    private double[] stationLat;
+    private double[] stationLon;
+    private double[] stationAlt;
+    private int[] stationChannels;
+    private int[] stationSelected;
+
+    private int[] channelCode;
+    private int[] channelLocation;
+    private int[] channelInputType;
+    private double[] channelSensitivity;
+    private double[] channelSampleRate;
+    private double[] channelLat;
+    private double[] channelLon;
+    private double[] channelElevation;
+
+    // one bit per station source, the last bit marks a channel without a known source
+    private long[][] channelSources;
+
+    private long[][] availability;
+    private long[][] delays;
+
+    private StationDatabaseSnapshot() {
+    }
+
+    /**
+     * Has to be called with at least the database read lock held
+     */
+    public static StationDatabaseSnapshot of(StationDatabase database) {
+        StationDatabaseSnapshot snapshot = new StationDatabaseSnapshot();
+        Map<String, Integer> strings = new LinkedHashMap<>();
+
+        snapshot.databaseVersion = StationDatabase.VERSION;
+
+        List<StationSource> sources = database.getStationSources();
+        Map<StationSource, Integer> sourceIndices = new HashMap<>();
+        snapshot.sourceName = new int[sources.size()];
+        snapshot.sourceUrl = new int[sources.size()];
+        snapshot.sourceLastUpdate = new long[sources.size()];
+        for (int i = 0; i < sources.size(); i++) {
+            StationSource source = sources.get(i);
+            sourceIndices.putIfAbsent(source, i);
+            snapshot.sourceName[i] = string(strings, source.getName());
+            snapshot.sourceUrl[i] = string(strings, source.getUrl());
+            snapshot.sourceLastUpdate[i] = source.getLastUpdate() == null ? Long.MIN_VALUE :
+                    source.getLastUpdate().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+
+        List<SeedlinkNetwork> seedlinks = database.getSeedlinkNetworks();
+        snapshot.seedlinkName = new int[seedlinks.size()];
+        snapshot.seedlinkHost = new int[seedlinks.size()];
+        snapshot.seedlinkPort = new int[seedlinks.size()];
+        snapshot.seedlinkTimeout = new int[seedlinks.size()];
+        for (int i = 0; i < seedlinks.size(); i++) {
+            SeedlinkNetwork seedlink = seedlinks.get(i);
+            snapshot.seedlinkName[i] = string(strings, seedlink.getName());
+            snapshot.seedlinkHost[i] = string(strings, seedlink.getHost());
+            snapshot.seedlinkPort[i] = seedlink.getPort();
+            snapshot.seedlinkTimeout[i] = seedlink.getTimeout();
+        }
+
+        List<Network> networks = database.getNetworks();
+        int stationCount = 0;
+        int channelCount = 0;
+        for (Network network : networks) {
+            stationCount += network.getStations().size();
+            for (Station station : network.getStations()) {
+                channelCount += station.getChannels().size();
+            }
+        }
+
+        snapshot.networkCode = new int[networks.size()];
+        snapshot.networkDescription = new int[networks.size()];
+        snapshot.networkStations = new int[networks.size()];
+
+        snapshot.stationCode = new int[stationCount];
+        snapshot.stationSite = new int[stationCount];
+        snapshot.stationLat = new double[stationCount];
+        snapshot.stationLon = new double[stationCount];
+        snapshot.stationAlt = new double[stationCount];
+        snapshot.stationChannels = new int[stationCount];
+        snapshot.stationSelected = new int[stationCount];
+
+        snapshot.channelCode = new int[channelCount];
+        snapshot.channelLocation = new int[channelCount];
+        snapshot.channelInputType = new int[channelCount];
+        snapshot.channelSensitivity = new double[channelCount];
+        snapshot.channelSampleRate = new double[channelCount];
+        snapshot.channelLat = new double[channelCount];
+        snapshot.channelLon = new double[channelCount];
+        snapshot.channelElevation = new double[channelCount];
+        snapshot.channelSources = new long[channelCount][];
+
+        long[][] availability = new long[seedlinks.size()][words(channelCount)];
+        List<List<Long>> delays = new ArrayList<>();
+        for (int i = 0; i < seedlinks.size(); i++) {
+            delays.add(new ArrayList<>());
+        }
+
+        int s = 0;
+        int c = 0;
+        for (int n = 0; n < networks.size(); n++) {
+            Network network = networks.get(n);
+            snapshot.networkCode[n] = string(strings, network.getNetworkCode());
+            snapshot.networkDescription[n] = string(strings, network.getDescription());
+            snapshot.networkStations[n] = network.getStations().size();
+
+            for (Station station : network.getStations()) {
+                snapshot.stationCode[s] = string(strings, station.getStationCode());
+                snapshot.stationSite[s] = string(strings, station.getStationSite());
+                snapshot.stationLat[s] = station.getLatitude();
+                snapshot.stationLon[s] = station.getLongitude();
+                snapshot.stationAlt[s] = station.getAlt();
+                snapshot.stationChannels[s] = station.getChannels().size();
+                snapshot.stationSelected[s] = station.getChannels().indexOf(station.getSelectedChannel());
+                s++;
+
+                for (Channel channel : station.getChannels()) {
+                    snapshot.channelCode[c] = string(strings, channel.getCode());
+                    snapshot.channelLocation[c] = string(strings, channel.getLocationCode());
+                    snapshot.channelInputType[c] = string(strings, channel.getInputType() == null ? null : channel.getInputType().name());
+                    snapshot.channelSensitivity[c] = channel.getSensitivity();
+                    snapshot.channelSampleRate[c] = channel.getSampleRate();
+                    snapshot.channelLat[c] = channel.getLatitude();
+                    snapshot.channelLon[c] = channel.getLongitude();
+                    snapshot.channelElevation[c] = channel.getElevation();
+
+                    long[] channelSources = new long[words(sources.size() + 1)];
+                    for (StationSource source : channel.getStationSources()) {
+                        Integer index = source == null ? Integer.valueOf(sources.size()) : sourceIndices.get(source);
+                        if (index != null) {
+                            set(channelSources, index);
+                        }
+                    }
+                    snapshot.channelSources[c] = channelSources;
+
+                    for (int sl = 0; sl < seedlinks.size(); sl++) {
+                        Long delay = channel.getSeedlinkNetworks().get(seedlinks.get(sl));
+                        if (delay != null) {
+                            set(availability[sl], c);
+                            delays.get(sl).add(delay);
+                        }
+                    }
+                    c++;
+                }
+            }
+        }
+
+        snapshot.availability = availability;
+        snapshot.delays = new long[seedlinks.size()][];
+        for (int i = 0; i < seedlinks.size(); i++) {
+            snapshot.delays[i] = delays.get(i).stream().mapToLong(Long::longValue).toArray();
+        }
+
+        snapshot.strings = strings.keySet().toArray(new String[0]);
+        return snapshot;
+    }
+
+    public StationDatabase toDatabase() {
+        StationDatabase database = new StationDatabase(false);
+
+        List<StationSource> sources = new ArrayList<>();
+        for (int i = 0; i < sourceName.length; i++) {
+            StationSource source = new StationSource(str(sourceName[i]), str(sourceUrl[i]));
+            if (sourceLastUpdate[i] != Long.MIN_VALUE) {
+                source.setLastUpdate(LocalDateTime.ofInstant(Instant.ofEpochMilli(sourceLastUpdate[i]), ZoneId.systemDefault()));
+            }
+            sources.add(source);
+        }
+        database.getStationSources().addAll(sources);
+
+        List<SeedlinkNetwork> seedlinks = new ArrayList<>();
+        for (int i = 0; i < seedlinkName.length; i++) {
+            seedlinks.add(new SeedlinkNetwork(str(seedlinkName[i]), str(seedlinkHost[i]), seedlinkPort[i], seedlinkTimeout[i]));
+        }
+        database.getSeedlinkNetworks().addAll(seedlinks);
+
+        int[] delayIndex = new int[seedlinks.size()];
+        int s = 0;
+        int c = 0;
+        for (int n = 0; n < networkCode.length; n++) {
+            Network network = new Network(str(networkCode[n]), str(networkDescription[n]));
+            database.getNetworks().add(network);
+
+            for (int ns = 0; ns < networkStations[n]; ns++, s++) {
+                Station station = new Station(network, str(stationCode[s]), str(stationSite[s]), stationLat[s], stationLon[s], stationAlt[s]);
+                network.getStations().add(station);
+
+                for (int sc = 0; sc < stationChannels[s]; sc++, c++) {
+                    String inputType = str(channelInputType[c]);
+                    Channel channel = new Channel(str(channelCode[c]), str(channelLocation[c]), channelSampleRate[c],
+                            channelLat[c], channelLon[c], channelElevation[c], null, channelSensitivity[c],
+                            inputType == null ? InputType.UNKNOWN : InputType.valueOf(inputType));
+
+                    channel.getStationSources().clear();
+                    for (int i = 0; i <= sources.size(); i++) {
+                        if (get(channelSources[c], i)) {
+                            channel.getStationSources().add(i == sources.size() ? null : sources.get(i));
+                        }
+                    }
+
+                    for (int sl = 0; sl < seedlinks.size(); sl++) {
+                        if (get(availability[sl], c)) {
+                            channel.getSeedlinkNetworks().put(seedlinks.get(sl), delays[sl][delayIndex[sl]++]);
+                        }
+                    }
+
+                    station.getChannels().add(channel);
+                }
+
+                if (stationSelected[s] >= 0) {
+                    station.setSelectedChannel(station.getChannels().get(stationSelected[s]));
+                }
+            }
+        }
+
+        database.afterLoad(databaseVersion);
+        return database;
+    }
+
+    public int getChannelCount() {
+        return channelCode.length;
+    }
+
+    /**
+     * @return channels that were added or removed since the previous snapshot, and channels whose set of seedlink networks changed
+     */
+    public Diff diff(StationDatabaseSnapshot previous) {
+        Map<String, Set<String>> current = channelAvailability();
+        Map<String, Set<String>> old = previous.channelAvailability();
+
+        List<String> added = new ArrayList<>();
+        List<String> changed = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> entry : current.entrySet()) {
+            Set<String> before = old.get(entry.getKey());
+            if (before == null) {
+                added.add(entry.getKey());
+            } else if (!before.equals(entry.getValue())) {
+                changed.add(entry.getKey());
+            }
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (String key : old.keySet()) {
+            if (!current.containsKey(key)) {
+                removed.add(key);
+            }
+        }
+
+        return new Diff(added, removed, changed);
+    }
+
+    private Map<String, Set<String>> channelAvailability() {
+        Map<String, Set<String>> result = new HashMap<>();
+        int s = 0;
+        int c = 0;
+        for (int n = 0; n < networkCode.length; n++) {
+            for (int ns = 0; ns < networkStations[n]; ns++, s++) {
+                for (int sc = 0; sc < stationChannels[s]; sc++, c++) {
+                    String key = "%s.%s.%s.%s".formatted(str(networkCode[n]), str(stationCode[s]), str(channelLocation[c]), str(channelCode[c]));
+                    Set<String> seedlinks = new HashSet<>();
+                    for (int sl = 0; sl < availability.length; sl++) {
+                        if (get(availability[sl], c)) {
+                            seedlinks.add(str(seedlinkHost[sl]) + ":" + seedlinkPort[sl]);
+                        }
+                    }
+                    result.putIfAbsent(key, seedlinks);
+                }
+            }
+        }
+        return result;
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(databaseVersion);
+
+        out.writeInt(strings.length);
+        for (String str : strings) {
+            out.writeUTF(str);
+        }
+
+        out.writeInt(sourceName.length);
+        writeInts(out, sourceName);
+        writeInts(out, sourceUrl);
+        writeLongs(out, sourceLastUpdate);
+
+        out.writeInt(seedlinkName.length);
+        writeInts(out, seedlinkName);
+        writeInts(out, seedlinkHost);
+        writeInts(out, seedlinkPort);
+        writeInts(out, seedlinkTimeout);
+
+        out.writeInt(networkCode.length);
+        writeInts(out, networkCode);
+        writeInts(out, networkDescription);
+        writeInts(out, networkStations);
+
+        out.writeInt(stationCode.length);
+        writeInts(out, stationCode);
+        writeInts(out, stationSite);
+        writeDoubles(out, stationLat);
+        writeDoubles(out, stationLon);
+        writeDoubles(out, stationAlt);
+        writeInts(out, stationChannels);
+        writeInts(out, stationSelected);
+
+        out.writeInt(channelCode.length);
+        writeInts(out, channelCode);
+        writeInts(out, channelLocation);
+        writeInts(out, channelInputType);
+        writeDoubles(out, channelSensitivity);
+        writeDoubles(out, channelSampleRate);
+        writeDoubles(out, channelLat);
+        writeDoubles(out, channelLon);
+        writeDoubles(out, channelElevation);
+        for (long[] sources : channelSources) {
+            writeLongs(out, sources);
+        }
+
+        for (int i = 0; i < availability.length; i++) {
+            writeLongs(out, availability[i]);
+            out.writeInt(delays[i].length);
+            writeLongs(out, delays[i]);
+        }
+    }
+
+    public static StationDatabaseSnapshot read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a station database!");
+        }
+
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported station database format version: %d".formatted(version));
+        }
+
+        StationDatabaseSnapshot snapshot = new StationDatabaseSnapshot();
+        snapshot.databaseVersion = in.readInt();
+
+        snapshot.strings = new String[in.readInt()];
+        for (int i = 0; i < snapshot.strings.length; i++) {
+            snapshot.strings[i] = in.readUTF();
+        }
+
+        int sources = in.readInt();
+        snapshot.sourceName = readInts(in, sources);
+        snapshot.sourceUrl = readInts(in, sources);
+        snapshot.sourceLastUpdate = readLongs(in, sources);
+
+        int seedlinks = in.readInt();
+        snapshot.seedlinkName = readInts(in, seedlinks);
+        snapshot.seedlinkHost = readInts(in, seedlinks);
+        snapshot.seedlinkPort = readInts(in, seedlinks);
+        snapshot.seedlinkTimeout = readInts(in, seedlinks);
+
+        int networks = in.readInt();
+        snapshot.networkCode = readInts(in, networks);
+        snapshot.networkDescription = readInts(in, networks);
+        snapshot.networkStations = readInts(in, networks);
+
+        int stations = in.readInt();
+        snapshot.stationCode = readInts(in, stations);
+        snapshot.stationSite = readInts(in, stations);
+        snapshot.stationLat = readDoubles(in, stations);
+        snapshot.stationLon = readDoubles(in, stations);
+        snapshot.stationAlt = readDoubles(in, stations);
+        snapshot.stationChannels = readInts(in, stations);
+        snapshot.stationSelected = readInts(in, stations);
+
+        int channels = in.readInt();
+        snapshot.channelCode = readInts(in, channels);
+        snapshot.channelLocation = readInts(in, channels);
+        snapshot.channelInputType = readInts(in, channels);
+        snapshot.channelSensitivity = readDoubles(in, channels);
+        snapshot.channelSampleRate = readDoubles(in, channels);
+        snapshot.channelLat = readDoubles(in, channels);
+        snapshot.channelLon = readDoubles(in, channels);
+        snapshot.channelElevation = readDoubles(in, channels);
+        snapshot.channelSources = new long[channels][];
+        for (int i = 0; i < channels; i++) {
+            snapshot.channelSources[i] = readLongs(in, words(sources + 1));
+        }
+
+        snapshot.availability = new long[seedlinks][];
+        snapshot.delays = new long[seedlinks][];
+        for (int i = 0; i < seedlinks; i++) {
+            snapshot.availability[i] = readLongs(in, words(channels));
+            snapshot.delays[i] = readLongs(in, in.readInt());
+        }
+
+        snapshot.validate();
+        return snapshot;
+    }
+
+    private void validate() throws IOException {
+        if (Arrays.stream(networkStations).sum() != stationCode.length || Arrays.stream(stationChannels).sum() != channelCode.length) {
+            throw new IOException("Corrupted station database: inconsistent counts");
+        }
+
+        for (int[] column : List.of(sourceName, sourceUrl, seedlinkName, seedlinkHost, networkCode, networkDescription,
+                stationCode, stationSite, channelCode, channelLocation, channelInputType)) {
+            for (int index : column) {
+                if (index < -1 || index >= strings.length) {
+                    throw new IOException("Corrupted station database: invalid string index %d".formatted(index));
+                }
+            }
+        }
+
+        for (int i = 0; i < stationSelected.length; i++) {
+            if (stationSelected[i] >= stationChannels[i]) {
+                throw new IOException("Corrupted station database: invalid selected channel");
+            }
+        }
+
+        for (int i = 0; i < availability.length; i++) {
+            int count = 0;
+            for (long word : availability[i]) {
+                count += Long.bitCount(word);
+            }
+            if (count != delays[i].length) {
+                throw new IOException("Corrupted station database: availability doesn't match delays");
+            }
+        }
+    }
+
+    private String str(int index) {
+        return index < 0 ? null : strings[index];
+    }
+
+    private static int string(Map<String, Integer> strings, String str) {
+        if (str == null) {
+            return -1;
+        }
+        return strings.computeIfAbsent(str, ignored -> strings.size());
+    }
+
+    private static int words(int bits) {
+        return (bits + 63) / 64;
+    }
+
+    private static void set(long[] bitmap, int bit) {
+        bitmap[bit >>> 6] |= 1L << bit;
+    }
+
+    private static boolean get(long[] bitmap, int bit) {
+        return (bitmap[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    private static void writeLongs(DataOutputStream out, long[] values) throws IOException {
+        for (long value : values) {
+            out.writeLong(value);
+        }
+    }
+
+    private static void writeDoubles(DataOutputStream out, double[] values) throws IOException {
+        for (double value : values) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static int[] readInts(DataInputStream in, int count) throws IOException {
+        int[] values = new int[checkCount(count)];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    private static long[] readLongs(DataInputStream in, int count) throws IOException {
+        long[] values = new long[checkCount(count)];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readLong();
+        }
+        return values;
+    }
+
+    private static double[] readDoubles(DataInputStream in, int count) throws IOException {
+        double[] values = new double[checkCount(count)];
+        for (int i = 0; i < count; i++) {
+            values[i] = in.readDouble();
+        }
+        return values;
+    }
+
+    private static int checkCount(int count) throws IOException {
+        if (count < 0) {
+            throw new IOException("Corrupted station database: negative count");
+        }
+        return count;
+    }
+
+}
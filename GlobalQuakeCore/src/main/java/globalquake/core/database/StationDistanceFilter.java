@@ -0,0 +1,73 @@
+package globalquake.core.database;
+
+import globalquake.core.station.StationIndex;
+import globalquake.ui.ProgressUpdateFunction;
+
+import java.util.*;
+
+/**
+ * Thins out the selected stations so that no two of them are closer than the given distance.
+ * Stations are visited from the smallest data delay and each one is kept only if no already kept station
+ * lies within the distance. The neighbours are found in a {@link StationIndex} of the selected stations,
+ * so the whole selection is processed in O(n log n) instead of repeated all-pairs passes.
+ */
+public class StationDistanceFilter {
+
+    /**
+     * Deselects selected available stations that are closer than minDist to a station with smaller delay.
+     * Has to be called with the database write lock held.
+     *
+     * @param progressUpdateFunction can be null
+     * @return number of stations that were deselected
+     */
+    public static int apply(StationDatabase stationDatabase, double minDist, ProgressUpdateFunction progressUpdateFunction) {
+        List<Station> selected = new ArrayList<>();
+        for (Network network : stationDatabase.getNetworks()) {
+            for (Station station : network.getStations()) {
+                if (station.getSelectedChannel() != null && station.getSelectedChannel().isAvailable()) {
+                    selected.add(station);
+                }
+            }
+        }
+
+        StationIndex<Station> index = new StationIndex<>(selected, Station::getLatitude, Station::getLongitude);
+
+        List<Station> priority = new ArrayList<>(selected);
+        Map<Station, Long> delays = new IdentityHashMap<>();
+        for (Station station : priority) {
+            delays.put(station, getDelay(station.getSelectedChannel()));
+        }
+        priority.sort(Comparator.comparingLong(delays::get));
+
+        Set<Station> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        int removed = 0;
+        int step = Math.max(1, priority.size() / 100);
+        for (int i = 0; i < priority.size(); i++) {
+            Station station = priority.get(i);
+            if (index.anyCloserThan(station.getLatitude(), station.getLongitude(), minDist, kept::contains)) {
+                station.setSelectedChannel(null);
+                removed++;
+            } else {
+                kept.add(station);
+            }
+
+            if (progressUpdateFunction != null && i % step == 0) {
+                progressUpdateFunction.update("Filtering stations... %d/%d".formatted(i, priority.size()), (int) (i * 100.0 / priority.size()));
+            }
+        }
+
+        if (progressUpdateFunction != null) {
+            progressUpdateFunction.update("Deselected %d stations".formatted(removed), 100);
+        }
+
+        return removed;
+    }
+
+    private static long getDelay(Channel channel) {
+        return channel.getSeedlinkNetworks().values().stream()
+                .filter(delay -> delay != SeedlinkCommunicator.UNKNOWN_DELAY)
+                .mapToLong(Math::abs)
+                .min().orElse(Long.MAX_VALUE);
+    }
+
+}
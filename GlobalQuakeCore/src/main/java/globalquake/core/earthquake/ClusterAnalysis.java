@@ -12,12 +12,16 @@ import globalquake.core.earthquake.data.*;
 import globalquake.core.analysis.Event;
 import globalquake.core.station.NearbyStationDistanceInfo;
 import globalquake.utils.GeoUtils;
+import globalquake.utils.LockStatistics;
+import globalquake.utils.monitorable.MonitorableCopyOnWriteArrayList;
 import org.tinylog.Logger;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -26,11 +30,18 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 public class ClusterAnalysis {
 
     private static final int MIN_CLUSTER_SIZE = 4;
+
+    // held only while clusters are added, merged or removed, the events of a cluster are guarded by its own lock
     private final ReadWriteLock clustersLock = new ReentrantReadWriteLock();
 
     private final Lock clustersReadLock = clustersLock.readLock();
     private final Lock clustersWriteLock = clustersLock.writeLock();
 
+    private final LockStatistics structureReadStatistics = new LockStatistics("Cluster structure lock, readers");
+    private final LockStatistics structureWriteStatistics = new LockStatistics("Cluster structure lock, writers");
+    private final LockStatistics clusterLockStatistics = new LockStatistics("Cluster locks, other threads");
+    private final LockStatistics analysisClusterLockStatistics = new LockStatistics("Cluster locks, cluster analysis");
+
     private final List<Cluster> clusters;
     private final List<Earthquake> earthquakes;
     private final List<AbstractStation> stations;
@@ -40,29 +51,75 @@ public class ClusterAnalysis {
     public ClusterAnalysis(List<Earthquake> earthquakes, List<AbstractStation> stations) {
         this.earthquakes = earthquakes;
         this.stations = stations;
-        clusters = new ArrayList<>();
+        clusters = new MonitorableCopyOnWriteArrayList<>();
     }
 
     public ClusterAnalysis() {
         this(GlobalQuake.instance.getEarthquakeAnalysis().getEarthquakes(), GlobalQuake.instance.getStationManager().getStations());
     }
 
-    public Lock getClustersReadLock() {
-        return clustersReadLock;
+    /**
+     * Prevents clusters, and with them their earthquakes, from being created, merged or removed.
+     * Iterating {@link #getClusters()} doesn't need it, the list can be read while it changes.
+     * It has to be taken before the lock of any cluster.
+     */
+    public void lockStructure() {
+        structureReadStatistics.lock(clustersReadLock);
     }
 
-    public void run() {
-        clustersWriteLock.lock();
-        try {
-            clearSWaves();
-            //assignEventsToExistingEarthquakeClusters(); VERY CONTROVERSIAL
-            expandExistingClusters();
-            createNewClusters();
-            stealEvents();
-            mergeClusters();
-            updateClusters();
-        } finally {
-            clustersWriteLock.unlock();
+    public void unlockStructure() {
+        clustersReadLock.unlock();
+    }
+
+    public void lockCluster(Cluster cluster) {
+        clusterLockStatistics.lock(cluster.getLock());
+    }
+
+    public LockStatistics getStructureReadStatistics() {
+        return structureReadStatistics;
+    }
+
+    public LockStatistics getStructureWriteStatistics() {
+        return structureWriteStatistics;
+    }
+
+    public LockStatistics getClusterLockStatistics() {
+        return clusterLockStatistics;
+    }
+
+    public LockStatistics getAnalysisClusterLockStatistics() {
+        return analysisClusterLockStatistics;
+    }
+
+    private void lockStructureForWriting() {
+        structureWriteStatistics.lock(clustersWriteLock);
+    }
+
+    private void lockOwnCluster(Cluster cluster) {
+        analysisClusterLockStatistics.lock(cluster.getLock());
+    }
+
+    public synchronized void run() {
+        clearSWaves();
+        //assignEventsToExistingEarthquakeClusters(); VERY CONTROVERSIAL
+        expandExistingClusters();
+        createNewClusters();
+        stealEvents();
+        mergeClusters();
+        updateClusters();
+    }
+
+    private void lockClusters(List<Cluster> toLock) {
+        // always in the same order, so two passes over the same clusters can't deadlock
+        toLock.sort(Comparator.comparingInt(cluster -> cluster.id));
+        for (Cluster cluster : toLock) {
+            lockOwnCluster(cluster);
+        }
+    }
+
+    private void unlockClusters(List<Cluster> toUnlock) {
+        for (int i = toUnlock.size() - 1; i >= 0; i--) {
+            toUnlock.get(i).getLock().unlock();
         }
     }
 
@@ -74,15 +131,16 @@ public class ClusterAnalysis {
     private void stealEvents() {
         java.util.Map<Event, EventIntensityInfo> map = new HashMap<>();
         for(Cluster cluster : clusters) {
-            if (cluster.getEarthquake() == null) {
+            Earthquake earthquake = cluster.getEarthquake();
+            if (earthquake == null) {
                 continue;
             }
 
             for (AbstractStation station : stations) {
                 for (Event event : station.getAnalysis().getDetectedEvents()) {
-                    if (event.isValid() && event.isSWave() && !couldBeArrival(event, cluster.getEarthquake(), true, false, true)) {
-                        double distGC = GeoUtils.greatCircleDistance(event.getLatFromStation(), event.getLonFromStation(), cluster.getEarthquake().getLat(), cluster.getEarthquake().getLon());
-                        double expectedIntensity = IntensityTable.getIntensity(cluster.getEarthquake().getMag(), GeoUtils.gcdToGeo(distGC));
+                    if (event.isValid() && event.isSWave() && !couldBeArrival(event, earthquake, true, false, true)) {
+                        double distGC = GeoUtils.greatCircleDistance(event.getLatFromStation(), event.getLonFromStation(), earthquake.getLat(), earthquake.getLon());
+                        double expectedIntensity = IntensityTable.getIntensity(earthquake.getMag(), GeoUtils.gcdToGeo(distGC));
                         EventIntensityInfo eventIntensityInfo = new EventIntensityInfo(cluster, station, expectedIntensity);
                         EventIntensityInfo old = map.putIfAbsent(event, eventIntensityInfo);
                         if(old != null && eventIntensityInfo.expectedIntensity > old.expectedIntensity){
@@ -99,31 +157,48 @@ public class ClusterAnalysis {
             AbstractStation station = entry.getValue().station();
             Cluster cluster = entry.getValue().cluster();
 
-            if(!cluster.getAssignedEvents().containsKey(station)){
-                if(event.assignedCluster != null){
-                    event.assignedCluster.getAssignedEvents().remove(station);
-                }
+            List<Cluster> involved = new ArrayList<>();
+            involved.add(cluster);
+            Cluster previous = event.assignedCluster;
+            if (previous != null && previous != cluster) {
+                involved.add(previous);
+            }
 
-                event.assignedCluster = cluster;
-                cluster.getAssignedEvents().put(station, event);
+            lockClusters(involved);
+            try {
+                if(!cluster.isRemoved() && !cluster.getAssignedEvents().containsKey(station)){
+                    if(event.assignedCluster != null){
+                        event.assignedCluster.getAssignedEvents().remove(station);
+                    }
+
+                    event.assignedCluster = cluster;
+                    cluster.getAssignedEvents().put(station, event);
+                }
+            } finally {
+                unlockClusters(involved);
             }
         }
     }
 
     private void clearSWaves() {
+        List<Event> cleared = new ArrayList<>();
         for(Cluster cluster : clusters) {
-            if(cluster.getEarthquake() == null){
+            // the earthquake analysis can remove the earthquake meanwhile
+            Earthquake earthquake = cluster.getEarthquake();
+            if(earthquake == null){
                 continue;
             }
 
             for (AbstractStation station : stations) {
                 for (Event event : station.getAnalysis().getDetectedEvents()) {
-                    if (event.isValid() && event.isSWave() && !couldBeSArrival(event, cluster.getEarthquake())) {
-                        event.setAsSWave(false);
+                    if (event.isValid() && event.isSWave() && !couldBeSArrival(event, earthquake)) {
+                        cleared.add(event);
                     }
                 }
             }
         }
+
+        setAsSWave(cleared, false);
     }
 
     private void mergeClusters() {
@@ -151,22 +226,43 @@ public class ClusterAnalysis {
 
     private void merge(Earthquake earthquake, List<Cluster> toMerge) {
         Cluster target = earthquake.getCluster();
-        for (Cluster cluster : toMerge) {
-            for (Entry<AbstractStation, Event> entry : cluster.getAssignedEvents().entrySet()) {
-                if (target.getAssignedEvents().putIfAbsent(entry.getKey(), entry.getValue()) == null) {
-                    entry.getValue().assignedCluster = target;
+        List<Cluster> involved = new ArrayList<>(toMerge);
+        involved.add(target);
+
+        lockStructureForWriting();
+        try {
+            lockClusters(involved);
+            try {
+                if (target.isRemoved()) {
+                    return;
                 }
-            }
 
-            Earthquake earthquake1 = cluster.getEarthquake();
+                for (Cluster cluster : toMerge) {
+                    for (Entry<AbstractStation, Event> entry : cluster.getAssignedEvents().entrySet()) {
+                        if (target.getAssignedEvents().putIfAbsent(entry.getKey(), entry.getValue()) == null) {
+                            entry.getValue().assignedCluster = target;
+                        }
+                    }
 
-            if (earthquake1 != null) {
-                earthquakes.remove(earthquake1);
-                GlobalQuake.instance.getEventHandler().fireEvent(new QuakeRemoveEvent(earthquake1));
+                    Earthquake earthquake1 = cluster.getEarthquake();
+
+                    if (earthquake1 != null) {
+                        earthquakes.remove(earthquake1);
+                        if (GlobalQuake.instance != null) {
+                            GlobalQuake.instance.getEventHandler().fireEvent(new QuakeRemoveEvent(earthquake1));
+                        }
+                    }
+
+                    cluster.markRemoved();
+                }
+
+                clusters.removeAll(toMerge);
+            } finally {
+                unlockClusters(involved);
             }
+        } finally {
+            clustersWriteLock.unlock();
         }
-
-        clusters.removeAll(toMerge);
     }
 
     private boolean canMerge(Earthquake earthquake, Cluster cluster) {
@@ -341,7 +437,23 @@ public class ClusterAnalysis {
 
     private void expandExistingClusters() {
         for (Cluster c : clusters) {
-            expandCluster(c);
+            Earthquake earthquake = null;
+            lockOwnCluster(c);
+            try {
+                if (!c.isRemoved()) {
+                    expandCluster(c);
+                    if (c.getEarthquake() != null && c.getPreviousHypocenter() != null && c.getPreviousHypocenter().correctEvents > 6) {
+                        earthquake = c.getEarthquake();
+                    }
+                }
+            } finally {
+                c.getLock().unlock();
+            }
+
+            // the events can belong to other clusters, which are locked one after another
+            if (earthquake != null) {
+                markPossibleSWaves(earthquake);
+            }
         }
     }
 
@@ -350,10 +462,6 @@ public class ClusterAnalysis {
             if(cluster.getPreviousHypocenter().correctEvents > 7) {
                 expandPWaves(cluster);
             }
-
-            if(cluster.getPreviousHypocenter().correctEvents > 6) {
-                markPossibleSWaves(cluster);
-            }
         }
 
         ArrayList<Event> list = new ArrayList<>(cluster.getAssignedEvents().values());
@@ -385,14 +493,45 @@ public class ClusterAnalysis {
         }
     }
 
-    private void markPossibleSWaves(Cluster cluster) {
+    private void markPossibleSWaves(Earthquake earthquake) {
+        List<Event> sWaves = new ArrayList<>();
         for (AbstractStation station : stations) {
             for (Event event : station.getAnalysis().getDetectedEvents()) {
-                if (event.isValid() && couldBeSArrival(event, cluster.getEarthquake())) {
-                    event.setAsSWave(true);
+                if (event.isValid() && couldBeSArrival(event, earthquake)) {
+                    sWaves.add(event);
                 }
             }
         }
+
+        setAsSWave(sWaves, true);
+    }
+
+    /**
+     * The earthquake analysis reads the S waves of the events of a cluster under its lock, so each event is updated
+     * under the lock of its cluster. Events are assigned to clusters only by this thread, and nobody else
+     * reads the unassigned ones.
+     */
+    private void setAsSWave(List<Event> events, boolean sWave) {
+        Map<Cluster, List<Event>> byCluster = new HashMap<>();
+        for (Event event : events) {
+            Cluster cluster = event.assignedCluster;
+            if (cluster == null) {
+                event.setAsSWave(sWave);
+            } else {
+                byCluster.computeIfAbsent(cluster, k -> new ArrayList<>()).add(event);
+            }
+        }
+
+        for (Entry<Cluster, List<Event>> entry : byCluster.entrySet()) {
+            lockOwnCluster(entry.getKey());
+            try {
+                for (Event event : entry.getValue()) {
+                    event.setAsSWave(sWave);
+                }
+            } finally {
+                entry.getKey().getLock().unlock();
+            }
+        }
     }
 
     private void expandPWaves(Cluster cluster) {
@@ -461,7 +600,13 @@ public class ClusterAnalysis {
                     // so no we have a list of all nearby events that could be earthquake
                     if (validEvents.size() >= MIN_CLUSTER_SIZE) {
                         validEvents.add(event);
-                        expandCluster(createCluster(validEvents));
+                        Cluster cluster = createCluster(validEvents);
+                        lockOwnCluster(cluster);
+                        try {
+                            expandCluster(cluster);
+                        } finally {
+                            cluster.getLock().unlock();
+                        }
                     }
                 }
             }
@@ -470,42 +615,66 @@ public class ClusterAnalysis {
     }
 
     private void updateClusters() {
-        Iterator<Cluster> it = clusters.iterator();
         List<Cluster> toBeRemoved = new ArrayList<>();
-        while (it.hasNext()) {
-            Cluster cluster = it.next();
-            int numberOfActiveEvents = 0;
-            int minimum = (int) Math.max(2, cluster.getAssignedEvents().size() * 0.12);
-            for (Iterator<Event> iterator = cluster.getAssignedEvents().values().iterator(); iterator.hasNext(); ) {
-                Event event = iterator.next();
-                if (!event.isValid()) {
-                    event.assignedCluster = null;
-                    iterator.remove();
-                } else if (!event.hasEnded()) {
-                    numberOfActiveEvents++;
+        for (Cluster cluster : clusters) {
+            lockOwnCluster(cluster);
+            try {
+                if (updateCluster(cluster)) {
+                    cluster.markRemoved();
+                    toBeRemoved.add(cluster);
                 }
+            } finally {
+                cluster.getLock().unlock();
+            }
+        }
+
+        if (!toBeRemoved.isEmpty()) {
+            lockStructureForWriting();
+            try {
+                clusters.removeAll(toBeRemoved);
+            } finally {
+                clustersWriteLock.unlock();
             }
+        }
+    }
 
-            Earthquake earthquake = cluster.getEarthquake();
+    /**
+     * @return true if the cluster should be removed
+     */
+    private boolean updateCluster(Cluster cluster) {
+        int numberOfActiveEvents = 0;
+        int minimum = (int) Math.max(2, cluster.getAssignedEvents().size() * 0.12);
+        for (Iterator<Event> iterator = cluster.getAssignedEvents().values().iterator(); iterator.hasNext(); ) {
+            Event event = iterator.next();
+            if (!event.isValid()) {
+                event.assignedCluster = null;
+                iterator.remove();
+            } else if (!event.hasEnded()) {
+                numberOfActiveEvents++;
+            }
+        }
 
-            boolean notEnoughEvents = cluster.getAssignedEvents().size() < MIN_CLUSTER_SIZE;
-            boolean eqRemoved = earthquake != null && EarthquakeAnalysis.shouldRemove(earthquake, 0);
-            boolean tooOld = earthquake == null && numberOfActiveEvents < minimum && System.currentTimeMillis() - cluster.getLastUpdate() > 2 * 60 * 1000;
+        Earthquake earthquake = cluster.getEarthquake();
 
-            if ( notEnoughEvents || eqRemoved || tooOld) {
-                Logger.tag("Hypocs").debug("Cluster #" + cluster.id + " marked for removal");
-                toBeRemoved.add(cluster);
-            } else {
-                cluster.tick();
-                if(cluster.getLevel() != cluster.lastLevel || cluster.lastLastUpdate != cluster.getLastUpdate()){
+        boolean notEnoughEvents = cluster.getAssignedEvents().size() < MIN_CLUSTER_SIZE;
+        boolean eqRemoved = earthquake != null && EarthquakeAnalysis.shouldRemove(earthquake, 0);
+        boolean tooOld = earthquake == null && numberOfActiveEvents < minimum && System.currentTimeMillis() - cluster.getLastUpdate() > 2 * 60 * 1000;
+
+        if ( notEnoughEvents || eqRemoved || tooOld) {
+            Logger.tag("Hypocs").debug("Cluster #" + cluster.id + " marked for removal");
+            return true;
+        } else {
+            cluster.tick();
+            if(cluster.getLevel() != cluster.lastLevel || cluster.lastLastUpdate != cluster.getLastUpdate()){
+                if(GlobalQuake.instance != null) {
                     GlobalQuake.instance.getEventHandler().fireEvent(new ClusterLevelUpEvent(cluster));
-                    cluster.lastLevel = cluster.getLevel();
-                    cluster.lastLastUpdate = cluster.getLastUpdate();
                 }
+                cluster.lastLevel = cluster.getLevel();
+                cluster.lastLastUpdate = cluster.getLastUpdate();
             }
         }
 
-        clusters.removeAll(toBeRemoved);
+        return false;
     }
 
     private Cluster createCluster(ArrayList<Event> validEvents) {
@@ -521,7 +690,13 @@ public class ClusterAnalysis {
 
         Logger.tag("Hypocs").debug("New Cluster #" + cluster.id + " Has been created. It contains "
                 + cluster.getAssignedEvents().size() + " events");
-        clusters.add(cluster);
+
+        lockStructureForWriting();
+        try {
+            clusters.add(cluster);
+        } finally {
+            clustersWriteLock.unlock();
+        }
 
         if(GlobalQuake.instance != null){
             GlobalQuake.instance.getEventHandler().fireEvent(new ClusterCreateEvent(cluster));
@@ -13,6 +13,7 @@ import globalquake.core.events.specific.QuakeUpdateEvent;
 import globalquake.core.geo.taup.TauPTravelTimeCalculator;
 import globalquake.core.intensity.IntensityTable;
 import globalquake.core.station.AbstractStation;
+import globalquake.core.station.StationIndex;
 import globalquake.core.station.StationState;
 import globalquake.utils.GeoUtils;
 import globalquake.utils.Point2DGQ;
@@ -20,6 +21,8 @@ import globalquake.utils.monitorable.MonitorableCopyOnWriteArrayList;
 import org.tinylog.Logger;
 
 import java.util.*;
+import java.util.function.DoubleFunction;
+import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -65,11 +68,28 @@ public class EarthquakeAnalysis {
                 clusterAnalysis = GlobalQuake.instance.getClusterAnalysis();
             }
         }
-        clusterAnalysis.getClustersReadLock().lock();
-        try {
-            clusterAnalysis.getClusters().parallelStream().forEach(cluster -> processCluster(cluster, createListOfPickedEvents(cluster)));
-        } finally {
-            clusterAnalysis.getClustersReadLock().unlock();
+        // the search itself runs without any lock, so cluster analysis can go on in the meantime
+        clusterAnalysis.getClusters().parallelStream().forEach(cluster -> processCluster(cluster, createListOfPickedEvents(cluster)));
+    }
+
+    // no cluster can be merged while its earthquake is created or removed
+    private void lockStructure() {
+        if (clusterAnalysis != null) {
+            clusterAnalysis.lockStructure();
+        }
+    }
+
+    private void unlockStructure() {
+        if (clusterAnalysis != null) {
+            clusterAnalysis.unlockStructure();
+        }
+    }
+
+    private void lockCluster(Cluster cluster) {
+        if (clusterAnalysis != null) {
+            clusterAnalysis.lockCluster(cluster);
+        } else {
+            cluster.getLock().lock();
         }
     }
 
@@ -78,23 +98,33 @@ public class EarthquakeAnalysis {
             return;
         }
 
-        // Calculation starts only if number of events increases by some %
-        if (cluster.getEarthquake() != null) {
-            int count = pickedEvents.size();
-            if (Settings.reduceRevisions) {
-                if (count <= cluster.getEarthquake().nextReportEventCount) {
-                    return;
+        lockCluster(cluster);
+        try {
+            if (cluster.isRemoved()) {
+                return;
+            }
+
+            // Calculation starts only if number of events increases by some %
+            Earthquake earthquake = cluster.getEarthquake();
+            if (earthquake != null) {
+                int count = pickedEvents.size();
+                if (Settings.reduceRevisions) {
+                    if (count <= earthquake.nextReportEventCount) {
+                        return;
+                    }
+                    earthquake.nextReportEventCount = (int) (count * 1.2);
+                    Logger.tag("Hypocs").debug("Next report will be at " + earthquake.nextReportEventCount + " assigns");
                 }
-                cluster.getEarthquake().nextReportEventCount = (int) (count * 1.2);
-                Logger.tag("Hypocs").debug("Next report will be at " + cluster.getEarthquake().nextReportEventCount + " assigns");
             }
-        }
 
-        if (cluster.lastEpicenterUpdate * (Settings.reduceRevisions ? 1.1 : 1.0) >= cluster.updateCount) {
-            return;
-        }
+            if (cluster.lastEpicenterUpdate * (Settings.reduceRevisions ? 1.1 : 1.0) >= cluster.updateCount) {
+                return;
+            }
 
-        cluster.lastEpicenterUpdate = cluster.updateCount;
+            cluster.lastEpicenterUpdate = cluster.updateCount;
+        } finally {
+            cluster.getLock().unlock();
+        }
 
 
         pickedEvents.sort(Comparator.comparing(PickedEvent::maxRatio));
@@ -136,10 +166,15 @@ public class EarthquakeAnalysis {
 
     private List<PickedEvent> createListOfPickedEvents(Cluster cluster) {
         List<PickedEvent> result = new ArrayList<>();
-        for (Event event : cluster.getAssignedEvents().values()) {
-            if (event.isValid() && !event.isSWave()) {
-                result.add(new PickedEvent(event.getpWave(), event.getLatFromStation(), event.getLonFromStation(), event.getElevationFromStation(), event.maxRatio));
+        lockCluster(cluster);
+        try {
+            for (Event event : cluster.getAssignedEvents().values()) {
+                if (event.isValid() && !event.isSWave()) {
+                    result.add(new PickedEvent(event.getpWave(), event.getLatFromStation(), event.getLonFromStation(), event.getElevationFromStation(), event.maxRatio));
+                }
             }
+        } finally {
+            cluster.getLock().unlock();
         }
 
         return result;
@@ -349,6 +384,17 @@ public class EarthquakeAnalysis {
     }
 
     private DepthConfidenceInterval calculateDepthConfidenceInterval(List<PickedEvent> selectedEvents, PreliminaryHypocenter bestHypocenter, HypocenterFinderSettings finderSettings) {
+        if (bestHypocenter.depthProfile != null && bestHypocenter.depthProfile.size() > 0) {
+            return calculateDepthConfidenceInterval(selectedEvents, bestHypocenter, finderSettings, bestHypocenter.depthProfile);
+        }
+
+        return sweepDepthConfidenceInterval(selectedEvents, bestHypocenter, finderSettings);
+    }
+
+    /**
+     * Evaluates all the depths at the epicenter with the resolution of the search.
+     */
+    public DepthConfidenceInterval sweepDepthConfidenceInterval(List<PickedEvent> selectedEvents, PreliminaryHypocenter bestHypocenter, HypocenterFinderSettings finderSettings) {
         double upperBound = bestHypocenter.depth;
         double lowerBound = bestHypocenter.depth;
 
@@ -371,14 +417,84 @@ public class EarthquakeAnalysis {
         return new DepthConfidenceInterval(upperBound, lowerBound);
     }
 
+    /**
+     * Finds the same interval as {@link #sweepDepthConfidenceInterval} on the same grid of depths, but starts from
+     * the depths that the search has already evaluated at the epicenter. Each bound is searched from the outer end
+     * of the grid towards the outermost sample inside the interval, first every few steps and then step by step
+     * in the gap before the first depth inside, so most of the depths outside are never evaluated.
+     * Only a detached range of depths inside the interval narrower than the coarse step can be missed.
+     */
+    public DepthConfidenceInterval calculateDepthConfidenceInterval(List<PickedEvent> selectedEvents, PreliminaryHypocenter bestHypocenter,
+                                                                    HypocenterFinderSettings finderSettings, DepthProfile searchProfile) {
+        double limit = calculateHeuristic(bestHypocenter) / CONFIDENCE_LEVEL;
+        double resolution = 1.0 / getUniversalResolutionMultiplier(finderSettings);
+        int stride = Math.max(1, (int) (DEPTH_INTERVAL_COARSE_STEP / resolution));
+
+        PreliminaryHypocenter hypocenterA = new PreliminaryHypocenter();
+        HypocenterFinderThreadData threadData = new HypocenterFinderThreadData(selectedEvents.size());
+        List<ExactPickedEvent> pickedEvents = createListOfExactPickedEvents(selectedEvents);
+        calculateDistances(pickedEvents, bestHypocenter.lat, bestHypocenter.lon);
+
+        // the same depths as the sweep, which adds the resolution up
+        List<Double> grid = new ArrayList<>();
+        for (double depth = 0; depth < TauPTravelTimeCalculator.MAX_DEPTH; depth += resolution) {
+            grid.add(depth);
+        }
+
+        IntPredicate valid = index -> {
+            analyseHypocenter(hypocenterA, bestHypocenter.lat, bestHypocenter.lon, grid.get(index), pickedEvents, finderSettings, threadData);
+            return calculateHeuristic(hypocenterA) > limit;
+        };
+
+        // the samples inside the interval show how far the coarse steps have to go
+        double shallowest = bestHypocenter.depth;
+        double deepest = bestHypocenter.depth;
+        for (int i = 0; i < searchProfile.size(); i++) {
+            if (searchProfile.getHeuristic(i) > limit) {
+                shallowest = Math.min(shallowest, searchProfile.getDepth(i));
+                deepest = Math.max(deepest, searchProfile.getDepth(i));
+            }
+        }
+
+        double upperBound = bestHypocenter.depth;
+        int first = 0;
+        while (first + stride < grid.size() && grid.get(first + stride) < shallowest && !valid.test(first + stride)) {
+            first += stride;
+        }
+        for (int i = first; i < grid.size() && grid.get(i) < bestHypocenter.depth; i++) {
+            if (valid.test(i)) {
+                upperBound = grid.get(i);
+                break;
+            }
+        }
+
+        double lowerBound = bestHypocenter.depth;
+        int last = grid.size() - 1;
+        while (last - stride >= 0 && grid.get(last - stride) > deepest && !valid.test(last - stride)) {
+            last -= stride;
+        }
+        for (int i = last; i >= 0 && grid.get(i) > bestHypocenter.depth; i--) {
+            if (valid.test(i)) {
+                lowerBound = grid.get(i);
+                break;
+            }
+        }
+
+        return new DepthConfidenceInterval(upperBound, lowerBound);
+    }
+
     private static final int CONFIDENCE_POLYGON_EDGES = 64;
     private static final double CONFIDENCE_POLYGON_OFFSET = 0;
     private static final double CONFIDENCE_POLYGON_STEP = 10;
     private static final double CONFIDENCE_POLYGON_MIN_STEP = 0.25;
     private static final double CONFIDENCE_POLYGON_MAX_DIST = 5000;
+    private static final double[] CONFIDENCE_POLYGON_THRESHOLDS = {3.0, 2.0, 1.5, 1.25};
 
     private static final double CONFIDENCE_LEVEL = 1.2;
 
+    // km between the depths tried first when searching for the ends of the depth interval
+    private static final double DEPTH_INTERVAL_COARSE_STEP = 4.0;
+
     public Earthquake getEarthquake(UUID uuid) {
         for (Earthquake earthquake : getEarthquakes()) {
             if (earthquake.getUuid().equals(uuid)) {
@@ -392,20 +508,25 @@ public class EarthquakeAnalysis {
     record PolygonConfidenceResult(double dist, long minOrigin, long maxOrigin) {
     }
 
-    private PolygonConfidenceInterval calculatePolygonConfidenceInterval(List<PickedEvent> selectedEvents,
-                                                                         PreliminaryHypocenter bestHypocenter, HypocenterFinderSettings finderSettings, double confidenceThreshold) {
+    record PolygonConfidenceSample(double heuristic, long origin) {
+    }
+
+    /**
+     * Marches along the rays once and finds the contour of every threshold from the same samples.
+     * The contour distances are the same as with a separate march for each threshold, but a distance that
+     * is visited by more marches is evaluated only once.
+     */
+    private List<PolygonConfidenceInterval> calculatePolygonConfidenceIntervals(List<PickedEvent> selectedEvents,
+                                                                               PreliminaryHypocenter bestHypocenter, HypocenterFinderSettings finderSettings, double[] confidenceThresholds) {
+        double bestHeuristic = calculateHeuristic(bestHypocenter);
         List<Integer> integerList = IntStream.range(0, CONFIDENCE_POLYGON_EDGES).boxed().toList();
-        List<PolygonConfidenceResult> results = (Settings.parallelHypocenterLocations ? integerList.parallelStream() : integerList.stream()).map(ray -> {
+        List<PolygonConfidenceResult[]> results = (Settings.parallelHypocenterLocations ? integerList.parallelStream() : integerList.stream()).map(ray -> {
             double ang = CONFIDENCE_POLYGON_OFFSET + (ray / (double) CONFIDENCE_POLYGON_EDGES) * 360.0;
-            double dist = CONFIDENCE_POLYGON_STEP;
-            double step = CONFIDENCE_POLYGON_STEP;
-
-            long minOrigin = Long.MAX_VALUE;
-            long maxOrigin = Long.MIN_VALUE;
 
             List<ExactPickedEvent> pickedEvents = createListOfExactPickedEvents(selectedEvents);
             HypocenterFinderThreadData threadData = new HypocenterFinderThreadData(pickedEvents.size());
-            while (step > CONFIDENCE_POLYGON_MIN_STEP && dist < CONFIDENCE_POLYGON_MAX_DIST) {
+
+            return marchConfidenceRay(confidenceThresholds, bestHeuristic, dist -> {
                 double[] latLon = GeoUtils.moveOnGlobe(bestHypocenter.lat, bestHypocenter.lon, dist, ang);
                 double lat = latLon[0];
                 double lon = latLon[1];
@@ -416,14 +537,51 @@ public class EarthquakeAnalysis {
 
                 calculateDistances(pickedEvents, lat, lon);
                 getBestAtDepth(12, TauPTravelTimeCalculator.MAX_DEPTH, finderSettings, 0, lat, lon, pickedEvents, threadData);
-                boolean stillValid = calculateHeuristic(threadData.bestHypocenter) > calculateHeuristic(bestHypocenter) / confidenceThreshold;
-                if (stillValid) {
+                return new PolygonConfidenceSample(calculateHeuristic(threadData.bestHypocenter), threadData.bestHypocenter.origin);
+            });
+        }).toList();
+
+        List<PolygonConfidenceInterval> intervals = new ArrayList<>();
+        for (int i = 0; i < confidenceThresholds.length; i++) {
+            final int index = i;
+            List<Double> lengths = results.stream().map(rayResults -> rayResults[index].dist).toList();
+
+            long minOrigin = results.stream().map(rayResults -> rayResults[index].minOrigin).min(Long::compareTo).orElse(0L);
+            long maxOrigin = results.stream().map(rayResults -> rayResults[index].maxOrigin).max(Long::compareTo).orElse(0L);
+
+            intervals.add(new PolygonConfidenceInterval(CONFIDENCE_POLYGON_EDGES, CONFIDENCE_POLYGON_OFFSET, lengths, minOrigin, maxOrigin));
+        }
+
+        return intervals;
+    }
+
+    /**
+     * Finds the distance along one ray where each threshold stops being satisfied.
+     * The sampler is called at most once for every distance.
+     */
+    static PolygonConfidenceResult[] marchConfidenceRay(double[] confidenceThresholds, double bestHeuristic,
+                                                        DoubleFunction<PolygonConfidenceSample> sampler) {
+        // the visited distances are sums of halved steps, so they are exact and can be used as keys
+        Map<Double, PolygonConfidenceSample> samples = new HashMap<>();
+        PolygonConfidenceResult[] results = new PolygonConfidenceResult[confidenceThresholds.length];
+
+        for (int i = 0; i < confidenceThresholds.length; i++) {
+            double limit = bestHeuristic / confidenceThresholds[i];
+            double dist = CONFIDENCE_POLYGON_STEP;
+            double step = CONFIDENCE_POLYGON_STEP;
+
+            long minOrigin = Long.MAX_VALUE;
+            long maxOrigin = Long.MIN_VALUE;
+
+            while (step > CONFIDENCE_POLYGON_MIN_STEP && dist < CONFIDENCE_POLYGON_MAX_DIST) {
+                PolygonConfidenceSample sample = samples.computeIfAbsent(dist, sampler::apply);
+                if (sample.heuristic() > limit) {
                     dist += step;
-                    if (threadData.bestHypocenter.origin > maxOrigin) {
-                        maxOrigin = threadData.bestHypocenter.origin;
+                    if (sample.origin() > maxOrigin) {
+                        maxOrigin = sample.origin();
                     }
-                    if (threadData.bestHypocenter.origin < minOrigin) {
-                        minOrigin = threadData.bestHypocenter.origin;
+                    if (sample.origin() < minOrigin) {
+                        minOrigin = sample.origin();
                     }
                 } else {
                     step /= 2.0;
@@ -431,15 +589,10 @@ public class EarthquakeAnalysis {
                 }
             }
 
-            return new PolygonConfidenceResult(dist, minOrigin, maxOrigin);
-        }).toList();
-
-        List<Double> lengths = results.stream().map(polygonConfidenceResult -> polygonConfidenceResult.dist).toList();
-
-        long minOrigin = results.stream().map(polygonConfidenceResult -> polygonConfidenceResult.minOrigin).min(Long::compareTo).orElse(0L);
-        long maxOrigin = results.stream().map(polygonConfidenceResult -> polygonConfidenceResult.maxOrigin).max(Long::compareTo).orElse(0L);
+            results[i] = new PolygonConfidenceResult(dist, minOrigin, maxOrigin);
+        }
 
-        return new PolygonConfidenceInterval(CONFIDENCE_POLYGON_EDGES, CONFIDENCE_POLYGON_OFFSET, lengths, minOrigin, maxOrigin);
+        return results;
     }
 
 
@@ -505,46 +658,58 @@ public class EarthquakeAnalysis {
             return;
         }
 
-        Hypocenter previousHypocenter = cluster.getPreviousHypocenter();
+        // the cluster may have been merged or removed while the search was running
+        lockStructure();
+        lockCluster(cluster);
+        try {
+            if (cluster.isRemoved()) {
+                return;
+            }
 
-        bestHypocenter.usedEvents = selectedEvents.size();
-        bestHypocenter.reducedEvents = correctSelectedEvents.size();
-        bestHypocenter.totalEvents = cluster.getAssignedEvents().size();
+            Hypocenter previousHypocenter = cluster.getPreviousHypocenter();
 
-        calculateActualCorrectEvents(selectedEvents, bestHypocenter);
-        calculateObviousArrivals(bestHypocenter);
+            bestHypocenter.usedEvents = selectedEvents.size();
+            bestHypocenter.reducedEvents = correctSelectedEvents.size();
+            bestHypocenter.totalEvents = cluster.getAssignedEvents().size();
 
-        bestHypocenter.calculateQuality();
+            calculateActualCorrectEvents(selectedEvents, bestHypocenter);
+            calculateObviousArrivals(bestHypocenter);
 
-        Logger.tag("Hypocs").debug(bestHypocenter);
+            bestHypocenter.calculateQuality();
 
-        double obviousCorrectPct = 1.0;
-        if (bestHypocenter.obviousArrivalsInfo != null && bestHypocenter.obviousArrivalsInfo.total() > 8) {
-            obviousCorrectPct = (bestHypocenter.obviousArrivalsInfo.total() - bestHypocenter.obviousArrivalsInfo.wrong()) / (double) bestHypocenter.obviousArrivalsInfo.total();
-        }
+            Logger.tag("Hypocs").debug(bestHypocenter);
 
-        double pct = 100 * bestHypocenter.getCorrectness();
-        boolean valid = pct >= finderSettings.correctnessThreshold() && bestHypocenter.correctEvents >= finderSettings.minStations() && obviousCorrectPct >= OBVIOUS_CORRECT_THRESHOLD;
-        if (!valid) {
-            boolean remove = pct < finderSettings.correctnessThreshold() * 0.75 || bestHypocenter.correctEvents < finderSettings.minStations() * 0.75 || obviousCorrectPct < OBVIOUS_CORRECT_THRESHOLD * 0.75;
-            Earthquake earthquake1 = cluster.getEarthquake();
-            if (remove && earthquake1 != null) {
-                getEarthquakes().remove(earthquake1);
-                if (GlobalQuake.instance != null) {
-                    GlobalQuake.instance.getEventHandler().fireEvent(new QuakeRemoveEvent(earthquake1));
-                }
-                cluster.setEarthquake(null);
-                cluster.resetAnchor();
+            double obviousCorrectPct = 1.0;
+            if (bestHypocenter.obviousArrivalsInfo != null && bestHypocenter.obviousArrivalsInfo.total() > 8) {
+                obviousCorrectPct = (bestHypocenter.obviousArrivalsInfo.total() - bestHypocenter.obviousArrivalsInfo.wrong()) / (double) bestHypocenter.obviousArrivalsInfo.total();
             }
-            Logger.tag("Hypocs").debug("Hypocenter not valid, remove = %s, pct=%.2f/%.2f, was %s".formatted(remove, pct, finderSettings.correctnessThreshold(), bestHypocenter));
-        } else {
-            HypocenterCondition result;
-            if ((result = checkConditions(selectedEvents, bestHypocenter, previousHypocenter, cluster, finderSettings)) == HypocenterCondition.OK) {
-                updateHypocenter(cluster, bestHypocenter);
+
+            double pct = 100 * bestHypocenter.getCorrectness();
+            boolean valid = pct >= finderSettings.correctnessThreshold() && bestHypocenter.correctEvents >= finderSettings.minStations() && obviousCorrectPct >= OBVIOUS_CORRECT_THRESHOLD;
+            if (!valid) {
+                boolean remove = pct < finderSettings.correctnessThreshold() * 0.75 || bestHypocenter.correctEvents < finderSettings.minStations() * 0.75 || obviousCorrectPct < OBVIOUS_CORRECT_THRESHOLD * 0.75;
+                Earthquake earthquake1 = cluster.getEarthquake();
+                if (remove && earthquake1 != null) {
+                    getEarthquakes().remove(earthquake1);
+                    if (GlobalQuake.instance != null) {
+                        GlobalQuake.instance.getEventHandler().fireEvent(new QuakeRemoveEvent(earthquake1));
+                    }
+                    cluster.setEarthquake(null);
+                    cluster.resetAnchor();
+                }
+                Logger.tag("Hypocs").debug("Hypocenter not valid, remove = %s, pct=%.2f/%.2f, was %s".formatted(remove, pct, finderSettings.correctnessThreshold(), bestHypocenter));
             } else {
-                updateMagnitudeOnly(cluster, bestHypocenter);
-                Logger.tag("Hypocs").trace("Not updating because: %s".formatted(result));
+                HypocenterCondition result;
+                if ((result = checkConditions(selectedEvents, bestHypocenter, previousHypocenter, cluster, finderSettings)) == HypocenterCondition.OK) {
+                    updateHypocenter(cluster, bestHypocenter);
+                } else {
+                    updateMagnitudeOnly(cluster, bestHypocenter);
+                    Logger.tag("Hypocs").trace("Not updating because: %s".formatted(result));
+                }
             }
+        } finally {
+            cluster.getLock().unlock();
+            unlockStructure();
         }
 
         Logger.tag("Hypocs").trace("Hypocenter finding finished in: %d ms".formatted(System.currentTimeMillis() - startTime));
@@ -641,14 +806,7 @@ public class EarthquakeAnalysis {
     }
 
     private List<PolygonConfidenceInterval> calculatePolygonConfidenceIntervals(List<PickedEvent> selectedEvents, PreliminaryHypocenter bestHypocenterPrelim, HypocenterFinderSettings finderSettings) {
-        List<PolygonConfidenceInterval> result = new ArrayList<>();
-
-        result.add(calculatePolygonConfidenceInterval(selectedEvents, bestHypocenterPrelim, finderSettings, 3.0));
-        result.add(calculatePolygonConfidenceInterval(selectedEvents, bestHypocenterPrelim, finderSettings, 2.0));
-        result.add(calculatePolygonConfidenceInterval(selectedEvents, bestHypocenterPrelim, finderSettings, 1.5));
-        result.add(calculatePolygonConfidenceInterval(selectedEvents, bestHypocenterPrelim, finderSettings, 1.25));
-
-        return result;
+        return calculatePolygonConfidenceIntervals(selectedEvents, bestHypocenterPrelim, finderSettings, CONFIDENCE_POLYGON_THRESHOLDS);
     }
 
     private void calculateActualCorrectEvents(List<PickedEvent> selectedEvents, Hypocenter bestHypocenter) {
@@ -671,8 +829,11 @@ public class EarthquakeAnalysis {
         int total = 0;
         int wrong = 0;
 
-        for (AbstractStation station : GlobalQuake.instance.getStationManager().getStations()) {
-            double distGC = GeoUtils.greatCircleDistance(bestHypocenter.lat, bestHypocenter.lon, station.getLatitude(), station.getLongitude());
+        double maxDist = getObviousArrivalsDistance(bestHypocenter.magnitude);
+        for (StationIndex.StationDistance<AbstractStation> stationDistance : GlobalQuake.instance.getStationManager().getStationIndex()
+                .getStationsWithin(bestHypocenter.lat, bestHypocenter.lon, maxDist)) {
+            AbstractStation station = stationDistance.station();
+            double distGC = stationDistance.distance();
             double angle = TauPTravelTimeCalculator.toAngle(distGC);
 
             double rawTravelP = TauPTravelTimeCalculator.getPWaveTravelTime(bestHypocenter.depth, angle);
@@ -700,6 +861,29 @@ public class EarthquakeAnalysis {
         bestHypocenter.obviousArrivalsInfo = new ObviousArrivalsInfo(total, wrong);
     }
 
+    /**
+     * @return great circle distance beyond which the expected intensity is below the obvious arrival threshold
+     */
+    public static double getObviousArrivalsDistance(double magnitude) {
+        double inside = 0;
+        double outside = GeoUtils.EARTH_CIRCUMFERENCE / 2.0;
+        if (IntensityTable.getIntensity(magnitude, GeoUtils.gcdToGeo(outside)) >= OBVIOUS_CORRECT_INTENSITY_THRESHOLD) {
+            return outside;
+        }
+
+        // the intensity only decreases with distance
+        while (outside - inside > 1.0) {
+            double mid = (inside + outside) / 2.0;
+            if (IntensityTable.getIntensity(magnitude, GeoUtils.gcdToGeo(mid)) >= OBVIOUS_CORRECT_INTENSITY_THRESHOLD) {
+                inside = mid;
+            } else {
+                outside = mid;
+            }
+        }
+
+        return outside;
+    }
+
     public static final double PHI = 1.61803398875;
 
     private PreliminaryHypocenter scanArea(List<PickedEvent> events, double maxDist, int points, double _lat, double _lon, int depthIterations,
@@ -811,8 +995,13 @@ public class EarthquakeAnalysis {
         double depthA = lowerBound + (upperBound - lowerBound) * (1 / 3.0);
         double depthB = lowerBound + (upperBound - lowerBound) * (2 / 3.0);
 
+        DepthProfile profile = threadData.depthProfile;
+        profile.clear();
+
         analyseHypocenter(threadData.hypocenterA, lat, lon, depthA, pickedEvents, finderSettings, threadData);
+        profile.add(depthA, calculateHeuristic(threadData.hypocenterA));
         analyseHypocenter(threadData.hypocenterB, lat, lon, depthB, pickedEvents, finderSettings, threadData);
+        profile.add(depthB, calculateHeuristic(threadData.hypocenterB));
 
         PreliminaryHypocenter upperHypocenter = threadData.hypocenterA;
         PreliminaryHypocenter lowerHypocenter = threadData.hypocenterB;
@@ -830,21 +1019,30 @@ public class EarthquakeAnalysis {
                 depthA = lowerBound + (upperBound - lowerBound) * (1 / 3.0);
 
                 analyseHypocenter(upperHypocenter, lat, lon, depthA, pickedEvents, finderSettings, threadData);
+                profile.add(depthA, calculateHeuristic(upperHypocenter));
                 threadData.setBest(selectBetterHypocenter(threadData.bestHypocenter, upperHypocenter));
             } else {
                 lowerBound = (upperBound + lowerBound) / 2.0;
                 depthB = lowerBound + (upperBound - lowerBound) * (2 / 3.0);
 
                 analyseHypocenter(lowerHypocenter, lat, lon, depthB, pickedEvents, finderSettings, threadData);
+                profile.add(depthB, calculateHeuristic(lowerHypocenter));
                 threadData.setBest(selectBetterHypocenter(threadData.bestHypocenter, lowerHypocenter));
             }
         }
 
         // additionally check 0km and 10 km
         analyseHypocenter(threadData.hypocenterA, lat, lon, 0, pickedEvents, finderSettings, threadData);
+        profile.add(0, calculateHeuristic(threadData.hypocenterA));
         threadData.setBest(selectBetterHypocenter(threadData.bestHypocenter, threadData.hypocenterA));
         analyseHypocenter(threadData.hypocenterA, lat, lon, 10, pickedEvents, finderSettings, threadData);
+        profile.add(10, calculateHeuristic(threadData.hypocenterA));
         threadData.setBest(selectBetterHypocenter(threadData.bestHypocenter, threadData.hypocenterA));
+
+        // the best hypocenter remembers the depths of its own epicenter
+        if (threadData.bestHypocenter.lat == lat && threadData.bestHypocenter.lon == lon) {
+            threadData.bestHypocenter.depthProfile.set(profile);
+        }
     }
 
     public static void analyseHypocenter(PreliminaryHypocenter hypocenter, double lat, double lon, double depth, List<ExactPickedEvent> events, HypocenterFinderSettings finderSettings, HypocenterFinderThreadData threadData) {
@@ -917,7 +1115,7 @@ public class EarthquakeAnalysis {
 
     }
 
-    private double getUniversalResolutionMultiplier(HypocenterFinderSettings finderSettings) {
+    double getUniversalResolutionMultiplier(HypocenterFinderSettings finderSettings) {
         // 30% when 0.0 (min) selected
         // 100% when 40.0 (default) selected
         // 550% when 100 (max) selected
@@ -13,6 +13,7 @@ import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class Cluster implements Warnable {
 
@@ -23,8 +24,12 @@ public class Cluster implements Warnable {
 	public int updateCount;
 	private long lastUpdate;
 
-	private Earthquake earthquake;
-	private Hypocenter previousHypocenter;
+	private volatile Earthquake earthquake;
+	private volatile Hypocenter previousHypocenter;
+
+	// guards the assigned events and the hypocenter updates of this cluster
+	private final ReentrantLock lock = new ReentrantLock();
+	private volatile boolean removed;
 
 	private int level;
 
@@ -82,6 +87,21 @@ public class Cluster implements Warnable {
 		this.previousHypocenter = previousHypocenter;
 	}
 
+	public ReentrantLock getLock() {
+		return lock;
+	}
+
+	/**
+	 * @return true once the cluster was merged into another one or removed from the analysis
+	 */
+	public boolean isRemoved() {
+		return removed;
+	}
+
+	public void markRemoved() {
+		removed = true;
+	}
+
 	public UUID getUuid() {
 		return uuid;
 	}
@@ -0,0 +1,62 @@
+package globalquake.core.earthquake.data;
+
+import java.util.Arrays;
+
+/**
+ * Depths evaluated at one epicenter during the depth search, with the heuristic reached at each of them.
+ */
+public class DepthProfile {
+
+    private double[] depths = new double[16];
+    private double[] heuristics = new double[16];
+    private int size;
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(double depth, double heuristic) {
+        if (size == depths.length) {
+            depths = Arrays.copyOf(depths, size * 2);
+            heuristics = Arrays.copyOf(heuristics, size * 2);
+        }
+
+        depths[size] = depth;
+        heuristics[size] = heuristic;
+        size++;
+    }
+
+    public void set(DepthProfile other) {
+        clear();
+        for (int i = 0; i < other.size; i++) {
+            add(other.depths[i], other.heuristics[i]);
+        }
+    }
+
+    public void sortByDepth() {
+        for (int i = 1; i < size; i++) {
+            double depth = depths[i];
+            double heuristic = heuristics[i];
+            int j = i - 1;
+            while (j >= 0 && depths[j] > depth) {
+                depths[j + 1] = depths[j];
+                heuristics[j + 1] = heuristics[j];
+                j--;
+            }
+            depths[j + 1] = depth;
+            heuristics[j + 1] = heuristic;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public double getDepth(int index) {
+        return depths[index];
+    }
+
+    public double getHeuristic(int index) {
+        return heuristics[index];
+    }
+}
@@ -1,21 +1,19 @@
 package globalquake.core.earthquake.data;
 
 import globalquake.core.alert.Warnable;
-import globalquake.core.intensity.CityIntensity;
+import globalquake.core.intensity.CityIntensities;
 import globalquake.core.regions.RegionUpdater;
 import globalquake.core.regions.Regional;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.UUID;
 
 public class Earthquake implements Regional, Warnable {
 
 	private final UUID uuid;
-	public List<CityIntensity> cityIntensities = new ArrayList<>();
+	private volatile CityIntensities cityIntensities = CityIntensities.EMPTY;
     private long lastUpdate;
 	private final Cluster cluster;
 	public int nextReportEventCount;
@@ -147,4 +145,12 @@ public class Earthquake implements Regional, Warnable {
 	public UUID getUuid() {
 		return uuid;
 	}
+
+	public CityIntensities getCityIntensities() {
+		return cityIntensities;
+	}
+
+	public void setCityIntensities(CityIntensities cityIntensities) {
+		this.cityIntensities = cityIntensities;
+	}
 }
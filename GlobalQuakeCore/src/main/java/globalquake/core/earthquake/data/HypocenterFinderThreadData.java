@@ -8,11 +8,15 @@ public class HypocenterFinderThreadData {
     public final PreliminaryHypocenter hypocenterB;
     public final PreliminaryHypocenter bestHypocenter;
 
+    public final DepthProfile depthProfile;
+
     public HypocenterFinderThreadData(int size) {
         origins = new long[size];
         hypocenterA = new PreliminaryHypocenter();
         hypocenterB = new PreliminaryHypocenter();
         bestHypocenter = new PreliminaryHypocenter();
+        depthProfile = new DepthProfile();
+        bestHypocenter.depthProfile = new DepthProfile();
     }
 
     public void setBest(PreliminaryHypocenter preliminaryHypocenter) {
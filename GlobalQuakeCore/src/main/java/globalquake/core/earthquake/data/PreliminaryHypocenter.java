@@ -14,6 +14,9 @@ public class PreliminaryHypocenter {
     public double err = 0;
     public int correctStations = 0;
 
+    // depths evaluated at this epicenter by the search, null if not known
+    public DepthProfile depthProfile;
+
     public PreliminaryHypocenter(double lat, double lon, double depth, long origin, double totalErr, int correctStations) {
         this.lat = lat;
         this.lon = lon;
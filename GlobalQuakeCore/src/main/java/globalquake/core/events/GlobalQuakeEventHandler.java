@@ -3,27 +3,34 @@ package globalquake.core.events;
 import globalquake.core.GlobalQuake;
 import globalquake.core.events.specific.GlobalQuakeEvent;
 import globalquake.core.events.specific.SeedlinkEvent;
+import globalquake.core.metrics.Metrics;
 import org.tinylog.Logger;
 
+import java.util.Map;
 import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.*;
 
 public class GlobalQuakeEventHandler {
 
     private Queue<GlobalQuakeEventListener> eventListeners;
 
-    private ExecutorService defaultExecutor;
-    private ExecutorService seedlinkExecutor;
+    private ThreadPoolExecutor defaultExecutor;
+    private ThreadPoolExecutor seedlinkExecutor;
 
     public GlobalQuakeEventHandler runHandler() {
         eventListeners = new ConcurrentLinkedQueue<>();
-        defaultExecutor = Executors.newSingleThreadExecutor();
-        seedlinkExecutor = Executors.newSingleThreadExecutor();
+        defaultExecutor = createExecutor();
+        seedlinkExecutor = createExecutor();
+        Metrics.REGISTRY.gauge("gq_event_queue_depth", "Events waiting to be delivered to the listeners", "queue",
+                () -> Map.of("default", defaultExecutor.getQueue().size(), "seedlink", seedlinkExecutor.getQueue().size()));
         return this;
     }
 
+    private static ThreadPoolExecutor createExecutor() {
+        // same as Executors.newSingleThreadExecutor(), but the queue can be inspected
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    }
+
     public void stopHandler(){
         GlobalQuake.instance.stopService(defaultExecutor);
         GlobalQuake.instance.stopService(seedlinkExecutor);
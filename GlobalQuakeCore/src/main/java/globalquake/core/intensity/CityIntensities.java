@@ -0,0 +1,16 @@
+package globalquake.core.intensity;
+
+import java.util.List;
+
+/**
+ * Cities with the strongest shaking, sorted from the strongest, together with the estimated felt population.
+ */
+public record CityIntensities(List<CityIntensity> cities, long feltPopulation, long strongFeltPopulation) {
+
+    public static final CityIntensities EMPTY = new CityIntensities(List.of(), 0, 0);
+
+    public CityIntensities {
+        cities = List.copyOf(cities);
+    }
+
+}
@@ -0,0 +1,143 @@
+package globalquake.core.intensity;
+
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Precomputed values of an intensity function over magnitude and distance, together with its inverse
+ * over intensity and distance. Values between the nodes are interpolated bilinearly, intensities are stored
+ * as log10 and distances on a square root axis, so the nodes are dense where the function changes quickly.
+ * Arguments outside the tables fall back to the function itself.
+ */
+class IntensityLookupTable {
+
+    private final DoubleBinaryOperator function;
+
+    private final double minMag;
+    private final double maxMag;
+    private final double magStep;
+    private final int magCount;
+
+    private final double maxDist;
+    private final double sqrtDistStep;
+    private final int distCount;
+
+    private final double minLog;
+    private final double logStep;
+    private final int logCount;
+
+    // [dist][mag]
+    private final float[] logIntensities;
+
+    // [dist][log10 intensity], NaN where the magnitude is out of the range
+    private final float[] magnitudes;
+
+    IntensityLookupTable(DoubleBinaryOperator function, double minMag, double maxMag, int magCount,
+                         double maxDist, int distCount, int logCount) {
+        this.function = function;
+        this.minMag = minMag;
+        this.maxMag = maxMag;
+        this.magCount = magCount;
+        this.magStep = (maxMag - minMag) / (magCount - 1);
+        this.maxDist = maxDist;
+        this.distCount = distCount;
+        this.sqrtDistStep = Math.sqrt(maxDist) / (distCount - 1);
+        this.logCount = logCount;
+
+        logIntensities = new float[distCount * magCount];
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        double[] column = new double[magCount];
+
+        for (int d = 0; d < distCount; d++) {
+            double dist = getDist(d);
+            for (int m = 0; m < magCount; m++) {
+                double value = Math.log10(function.applyAsDouble(getMag(m), dist));
+                logIntensities[d * magCount + m] = (float) value;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+        }
+
+        this.minLog = min;
+        this.logStep = (max - min) / (logCount - 1);
+
+        magnitudes = new float[distCount * logCount];
+        for (int d = 0; d < distCount; d++) {
+            for (int m = 0; m < magCount; m++) {
+                column[m] = logIntensities[d * magCount + m];
+            }
+
+            int m = 0;
+            for (int l = 0; l < logCount; l++) {
+                double log = minLog + l * logStep;
+                float magnitude = Float.NaN;
+                if (log >= column[0] && log <= column[magCount - 1]) {
+                    // the function grows with magnitude, so the nodes are visited in order
+                    while (m < magCount - 2 && column[m + 1] < log) {
+                        m++;
+                    }
+                    double span = column[m + 1] - column[m];
+                    double t = span <= 0 ? 0 : (log - column[m]) / span;
+                    magnitude = (float) (getMag(m) + Math.max(0, Math.min(1, t)) * magStep);
+                }
+                magnitudes[d * logCount + l] = magnitude;
+            }
+        }
+    }
+
+    private double getMag(int index) {
+        return minMag + index * magStep;
+    }
+
+    private double getDist(int index) {
+        double sqrtDist = index * sqrtDistStep;
+        return sqrtDist * sqrtDist;
+    }
+
+    double getIntensity(double mag, double dist) {
+        if (!(mag >= minMag && mag <= maxMag && dist >= 0 && dist <= maxDist)) {
+            return function.applyAsDouble(mag, dist);
+        }
+
+        double fd = Math.sqrt(dist) / sqrtDistStep;
+        double fm = (mag - minMag) / magStep;
+        int d = Math.min((int) fd, distCount - 2);
+        int m = Math.min((int) fm, magCount - 2);
+        fd -= d;
+        fm -= m;
+
+        int index = d * magCount + m;
+        double a = logIntensities[index] + (logIntensities[index + 1] - logIntensities[index]) * fm;
+        double b = logIntensities[index + magCount] + (logIntensities[index + magCount + 1] - logIntensities[index + magCount]) * fm;
+
+        return Math.pow(10, a + (b - a) * fd);
+    }
+
+    /**
+     * @return magnitude at which the function reaches the intensity at the distance, or NaN if it is not in the table
+     */
+    double getMagnitude(double dist, double intensity) {
+        if (!(dist >= 0 && dist <= maxDist && intensity > 0)) {
+            return Double.NaN;
+        }
+
+        double fl = (Math.log10(intensity) - minLog) / logStep;
+        if (!(fl >= 0 && fl <= logCount - 1)) {
+            return Double.NaN;
+        }
+
+        double fd = Math.sqrt(dist) / sqrtDistStep;
+        int d = Math.min((int) fd, distCount - 2);
+        int l = Math.min((int) fl, logCount - 2);
+        fd -= d;
+        fl -= l;
+
+        int index = d * logCount + l;
+        double a = magnitudes[index] + (magnitudes[index + 1] - magnitudes[index]) * fl;
+        double b = magnitudes[index + logCount] + (magnitudes[index + logCount + 1] - magnitudes[index + logCount]) * fl;
+
+        // NaN when any of the corners is out of the range
+        return a + (b - a) * fd;
+    }
+
+}
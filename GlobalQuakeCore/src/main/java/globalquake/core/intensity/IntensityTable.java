@@ -2,26 +2,60 @@ package globalquake.core.intensity;
 
 public class IntensityTable {
 
-    // old, only for unknown sensors
-    private static double getIntensityFromRatio(double mag, double dist) {
-        mag = 1.2 * mag - 0.022 * mag * mag - 1;
+    private static final double MAX_DIST = 20100;
+
+    // the tables are indexed by the reduced distance, which is smooth unlike the kink in the reduction
+    private static final IntensityLookupTable intensityTable = new IntensityLookupTable(
+            IntensityTable::calculateReducedIntensity, -0.5, 10.0, 211, reduceDistance(MAX_DIST), 513, 512);
+
+    private static final IntensityLookupTable ratioTable = new IntensityLookupTable(
+            IntensityTable::calculateReducedIntensityFromRatio, -2.0, 10.0, 241, reduceRatioDistance(MAX_DIST), 513, 512);
+
+    private static double reduceRatioDistance(double dist) {
         if (dist > 1200) {
             dist = 1200 + Math.pow(dist - 1200, 0.4) * 22.0;
         }
+        return dist;
+    }
+
+    // old, only for unknown sensors
+    static double calculateIntensityFromRatio(double mag, double dist) {
+        return calculateReducedIntensityFromRatio(mag, reduceRatioDistance(dist));
+    }
+
+    private static double calculateReducedIntensityFromRatio(double mag, double dist) {
+        mag = 1.2 * mag - 0.022 * mag * mag - 1;
         return (Math.pow(15, mag * 0.92 + 4.0)) / (5 * Math.pow(dist, 2.1 + 0.07 * mag) + 1000 + 1 * Math.pow(5, mag));
 
     }
 
     public static double getIntensity(double mag, double dist) {
-        mag = 1.25 * mag - (0.010) * mag * mag - 0.9;
+        return intensityTable.getIntensity(mag, reduceDistance(dist));
+    }
+
+    private static double reduceDistance(double dist) {
         if (dist > 3000) {
             dist = 3000 + Math.pow(dist - 3000, 0.4) * 22;
         }
+        return dist;
+    }
+
+    static double calculateIntensity(double mag, double dist) {
+        return calculateReducedIntensity(mag, reduceDistance(dist));
+    }
+
+    private static double calculateReducedIntensity(double mag, double dist) {
+        mag = 1.25 * mag - (0.010) * mag * mag - 0.9;
         return (Math.pow(15, mag * 0.92 + 4.0)) / (5 * Math.pow(dist + 1000 / Math.pow(mag + 3.0, 3), 2.0 + 0.122 * mag) + 2000 + 1 * Math.pow(5, mag));
 
     }
 
     public static double getMagnitude(double dist, double intensity) {
+        double magnitude = intensityTable.getMagnitude(reduceDistance(dist), intensity);
+        return Double.isNaN(magnitude) ? calculateMagnitude(dist, intensity) : magnitude;
+    }
+
+    static double calculateMagnitude(double dist, double intensity) {
         double epsilon = 1e-6; // Tolerance for floating-point comparison
         double low = -2.0;
         double high = 10.0;
@@ -29,7 +63,7 @@ public class IntensityTable {
         // Perform binary search
         while (low <= high) {
             double mid = low + (high - low) / 2;
-            double currentIntensity = getIntensity(mid, dist);
+            double currentIntensity = calculateIntensity(mid, dist);
 
             if (Math.abs(currentIntensity - intensity) < epsilon) {
                 // Found a close enough match
@@ -47,6 +81,11 @@ public class IntensityTable {
     }
 
     public static double getMagnitudeByRatio(double dist, double intensity) {
+        double magnitude = ratioTable.getMagnitude(reduceRatioDistance(dist), intensity);
+        return Double.isNaN(magnitude) ? calculateMagnitudeByRatio(dist, intensity) : magnitude;
+    }
+
+    static double calculateMagnitudeByRatio(double dist, double intensity) {
         double epsilon = 1e-6; // Tolerance for floating-point comparison
         double low = -2.0;
         double high = 10.0;
@@ -54,7 +93,7 @@ public class IntensityTable {
         // Perform binary search
         while (low <= high) {
             double mid = low + (high - low) / 2;
-            double currentIntensity = getIntensityFromRatio(mid, dist);
+            double currentIntensity = calculateIntensityFromRatio(mid, dist);
 
             if (Math.abs(currentIntensity - intensity) < epsilon) {
                 // Found a close enough match
@@ -0,0 +1,68 @@
+package globalquake.core.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Histogram implements MetricsRegistry.Metric {
+
+    private final String name;
+    private final String help;
+    private final double[] bounds;
+
+    // the last one counts the values above all bounds
+    private final LongAdder[] counts;
+    private final DoubleAdder sum = new DoubleAdder();
+
+    Histogram(String name, String help, double... bounds) {
+        if (bounds.length == 0) {
+            throw new IllegalArgumentException("Histogram %s has no buckets".formatted(name));
+        }
+
+        this.name = name;
+        this.help = help;
+        this.bounds = bounds.clone();
+        Arrays.sort(this.bounds);
+        this.counts = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void observe(double value) {
+        int bucket = 0;
+        while (bucket < bounds.length && value > bounds[bucket]) {
+            bucket++;
+        }
+
+        counts[bucket].increment();
+        sum.add(value);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder adder : counts) {
+            count += adder.sum();
+        }
+        return count;
+    }
+
+    public double getSum() {
+        return sum.sum();
+    }
+
+    @Override
+    public void write(StringBuilder out) {
+        MetricsRegistry.writeHeader(out, name, help, "histogram");
+
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i].sum();
+            String bound = i < bounds.length ? MetricsRegistry.formatValue(bounds[i]) : "+Inf";
+            out.append(name).append("_bucket{le=\"").append(bound).append("\"} ").append(cumulative).append('\n');
+        }
+
+        out.append(name).append("_sum ").append(MetricsRegistry.formatValue(getSum())).append('\n');
+        out.append(name).append("_count ").append(cumulative).append('\n');
+    }
+}
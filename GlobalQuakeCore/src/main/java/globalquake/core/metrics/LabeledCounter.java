@@ -0,0 +1,37 @@
+package globalquake.core.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LabeledCounter implements MetricsRegistry.Metric {
+
+    private final String name;
+    private final String help;
+    private final String label;
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    LabeledCounter(String name, String help, String label) {
+        this.name = name;
+        this.help = help;
+        this.label = label;
+    }
+
+    public void increment(String value) {
+        counters.computeIfAbsent(value, k -> new LongAdder()).increment();
+    }
+
+    public long get(String value) {
+        LongAdder adder = counters.get(value);
+        return adder == null ? 0 : adder.sum();
+    }
+
+    @Override
+    public void write(StringBuilder out) {
+        MetricsRegistry.writeHeader(out, name, help, "counter");
+        new ConcurrentSkipListMap<>(counters).forEach((value, adder) ->
+                MetricsRegistry.writeSample(out, name, label, value, adder.sum()));
+    }
+}
@@ -0,0 +1,38 @@
+package globalquake.core.metrics;
+
+/**
+ * Metrics of the core analysis, shared by everything running in this JVM.
+ * The loop durations are in seconds, with a bucket at the 100 ms cadence of the station analysis,
+ * so falling behind it shows up directly in the bucket counts.
+ */
+public final class Metrics {
+
+    private static final double[] LOOP_BUCKETS = {0.005, 0.01, 0.025, 0.05, 0.075, 0.1, 0.15, 0.25, 0.5, 1, 2.5, 5, 10};
+
+    public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    public static final Histogram STATION_ANALYSIS = REGISTRY.histogram("gq_station_analysis_seconds",
+            "Duration of the station analysis loop, scheduled every 100 ms", LOOP_BUCKETS);
+
+    public static final Histogram SECOND_LOOP = REGISTRY.histogram("gq_second_loop_seconds",
+            "Duration of the 1-second loop", LOOP_BUCKETS);
+
+    public static final Histogram CLUSTER_ANALYSIS = REGISTRY.histogram("gq_cluster_analysis_seconds",
+            "Duration of the cluster analysis pass", LOOP_BUCKETS);
+
+    public static final Histogram HYPOCENTER_ANALYSIS = REGISTRY.histogram("gq_hypocenter_analysis_seconds",
+            "Duration of the hypocenter location pass", LOOP_BUCKETS);
+
+    public static final LabeledCounter SEEDLINK_PACKETS = REGISTRY.counter("gq_seedlink_packets_total",
+            "Packets received from each seedlink network", "network");
+
+    static {
+        REGISTRY.gauge("gq_jvm_memory_used_bytes", "Used heap memory",
+                () -> Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory());
+        REGISTRY.gauge("gq_jvm_memory_max_bytes", "Maximum heap memory",
+                () -> Runtime.getRuntime().maxMemory());
+    }
+
+    private Metrics() {
+    }
+}
@@ -0,0 +1,118 @@
+package globalquake.core.metrics;
+
+import org.tinylog.Logger;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * Collects the metrics and renders them in the Prometheus text exposition format.
+ * Registering a metric under an existing name replaces the previous one, so components that are restarted
+ * can simply register their gauges again.
+ */
+public class MetricsRegistry {
+
+    public interface Metric {
+        void write(StringBuilder out);
+    }
+
+    private static final Pattern NAME_PATTERN = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+
+    private final Map<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+    public Histogram histogram(String name, String help, double... bounds) {
+        return register(name, new Histogram(name, help, bounds));
+    }
+
+    public LabeledCounter counter(String name, String help, String label) {
+        checkName(label);
+        return register(name, new LabeledCounter(name, help, label));
+    }
+
+    public void counter(String name, String help, DoubleSupplier value) {
+        register(name, out -> {
+            writeHeader(out, name, help, "counter");
+            writeSample(out, name, null, null, value.getAsDouble());
+        });
+    }
+
+    public void gauge(String name, String help, DoubleSupplier value) {
+        register(name, out -> {
+            writeHeader(out, name, help, "gauge");
+            writeSample(out, name, null, null, value.getAsDouble());
+        });
+    }
+
+    public void gauge(String name, String help, String label, Supplier<Map<String, ? extends Number>> values) {
+        checkName(label);
+        register(name, out -> {
+            writeHeader(out, name, help, "gauge");
+            new TreeMap<>(values.get()).forEach((value, number) ->
+                    writeSample(out, name, label, value, number.doubleValue()));
+        });
+    }
+
+    public void remove(String name) {
+        metrics.remove(name);
+    }
+
+    private <T extends Metric> T register(String name, T metric) {
+        checkName(name);
+        metrics.put(name, metric);
+        return metric;
+    }
+
+    private static void checkName(String name) {
+        if (name == null || !NAME_PATTERN.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid metric name %s".formatted(name));
+        }
+    }
+
+    public String scrape() {
+        StringBuilder out = new StringBuilder();
+        for (Metric metric : metrics.values()) {
+            int length = out.length();
+            try {
+                metric.write(out);
+            } catch (Exception e) {
+                // one broken supplier shouldn't take down the whole endpoint
+                out.setLength(length);
+                Logger.trace(e);
+            }
+        }
+        return out.toString();
+    }
+
+    static void writeHeader(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ')
+                .append(help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    static void writeSample(StringBuilder out, String name, String label, String labelValue, double value) {
+        out.append(name);
+        if (label != null) {
+            out.append('{').append(label).append("=\"")
+                    .append(labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"))
+                    .append("\"}");
+        }
+        out.append(' ').append(formatValue(value)).append('\n');
+    }
+
+    static String formatValue(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
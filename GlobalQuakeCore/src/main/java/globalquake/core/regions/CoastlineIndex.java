@@ -0,0 +1,69 @@
+package globalquake.core.regions;
+
+import globalquake.utils.SphereKdTree;
+
+import java.util.List;
+
+/**
+ * Spatial index over the outer ring vertices of a list of regions.
+ * The vertex with the smallest chord distance is also the closest one by great circle distance,
+ * so nearest-shoreline queries visit only a handful of vertices instead of every polygon.
+ */
+public class CoastlineIndex {
+
+    public record Vertex(double lat, double lon, Region region) {
+    }
+
+    private final double[] lats;
+    private final double[] lons;
+    private final int[] owners;
+    private final Region[] regions;
+    private final SphereKdTree tree;
+
+    public CoastlineIndex(List<Region> regions) {
+        this.regions = regions.toArray(new Region[0]);
+
+        int count = 0;
+        for (Region region : regions) {
+            for (GeoPolygon polygon : region.raws()) {
+                count += polygon.size();
+            }
+        }
+
+        lats = new double[count];
+        lons = new double[count];
+        owners = new int[count];
+
+        int i = 0;
+        for (int r = 0; r < this.regions.length; r++) {
+            for (GeoPolygon polygon : this.regions[r].raws()) {
+                for (int v = 0; v < polygon.size(); v++) {
+                    lats[i] = polygon.getLat(v);
+                    lons[i] = polygon.getLon(v);
+                    owners[i] = r;
+                    i++;
+                }
+            }
+        }
+
+        tree = new SphereKdTree(lats, lons);
+    }
+
+    public int size() {
+        return lats.length;
+    }
+
+    /**
+     * @return the closest vertex, or null if the index is empty.
+     * Ties go to the vertex that comes first in the region list, like a linear scan would.
+     */
+    public Vertex nearest(double lat, double lon) {
+        int best = tree.nearest(lat, lon);
+        if (best < 0) {
+            return null;
+        }
+
+        return new Vertex(lats[best], lons[best], regions[owners[best]]);
+    }
+
+}
@@ -0,0 +1,54 @@
+package globalquake.core.regions;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.nio.FloatBuffer;
+
+/**
+ * Outer ring of a polygon stored as packed lon/lat float pairs, usually a view into the mapped {@link GeometryBundle}.
+ */
+public final class GeoPolygon {
+
+    private final FloatBuffer coords;
+    private final Rectangle2D bounds;
+
+    public GeoPolygon(FloatBuffer coords, Rectangle2D bounds) {
+        this.coords = coords;
+        this.bounds = bounds;
+    }
+
+    public int size() {
+        return coords.limit() / 2;
+    }
+
+    public double getLon(int index) {
+        return coords.get(index * 2);
+    }
+
+    public double getLat(int index) {
+        return coords.get(index * 2 + 1);
+    }
+
+    public Rectangle2D getBounds() {
+        return bounds;
+    }
+
+    public Path2D toPath() {
+        int size = size();
+        Path2D.Float path = new Path2D.Float(Path2D.WIND_NON_ZERO, size + 1);
+        for (int i = 0; i < size; i++) {
+            float x = coords.get(i * 2);
+            float y = coords.get(i * 2 + 1);
+            if (i > 0) {
+                path.lineTo(x, y);
+            } else {
+                path.moveTo(x, y);
+            }
+        }
+
+        path.closePath();
+
+        return path;
+    }
+
+}
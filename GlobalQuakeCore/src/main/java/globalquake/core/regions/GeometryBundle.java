@@ -0,0 +1,374 @@
+package globalquake.core.regions;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.geojson.*;
+import org.tinylog.Logger;
+
+import java.awt.geom.Rectangle2D;
+import java.io.*;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * All polygon layers used by {@link Regions} and the globe renderer, converted once from GeoJSON into a single binary file
+ * of float lon/lat arrays with precomputed bounds. The file is memory mapped, so the coordinates are shared
+ * between region lookup and rendering and do not live on the heap.
+ * <p>
+ * The bundle is normally generated at build time by running {@link #main(String[])}. The cached copy is checked
+ * against the fingerprint stored in the bundled file, so the GeoJSON resources are only read and hashed
+ * when no bundle was generated. Then the bundle is built from them and cached in the given file.
+ */
+public class GeometryBundle {
+
+    public static final String RESOURCE_PATH = "polygons/geometry.bin";
+
+    private static final int MAGIC = 0x47514742; // GQGB
+    private static final int VERSION = 1;
+
+    public record Source(String layer, String path, List<String> remove) {
+    }
+
+    public record Feature(String name, List<GeoPolygon> polygons) {
+    }
+
+    private final Map<String, List<Feature>> layers;
+
+    private GeometryBundle(Map<String, List<Feature>> layers) {
+        this.layers = layers;
+    }
+
+    public List<Feature> getLayer(String name) throws IOException {
+        List<Feature> layer = layers.get(name);
+        if (layer == null) {
+            throw new IOException("Geometry bundle doesn't contain layer %s".formatted(name));
+        }
+        return layer;
+    }
+
+    /**
+     * @param sources GeoJSON files the bundle should be made of
+     * @param cache   file that is memory mapped, or null to keep the bundle on the heap
+     */
+    public static GeometryBundle load(List<Source> sources, File cache) throws IOException {
+        URL resource = ClassLoader.getSystemClassLoader().getResource(RESOURCE_PATH);
+
+        // the bundled file is generated from the sources of the same build, so its fingerprint is trusted
+        // and the GeoJSON files are only hashed when there is no bundled file to compare with
+        Long bundledFingerprint = resource == null ? null : readFingerprint(resource);
+        long fingerprint = bundledFingerprint != null ? bundledFingerprint : fingerprint(sources);
+
+        if (cache != null && cache.exists()) {
+            try {
+                return read(map(cache), fingerprint);
+            } catch (IOException e) {
+                Logger.warn("Cached geometry bundle is outdated or invalid, it will be rebuilt: %s".formatted(e.getMessage()));
+            }
+        }
+
+        if (bundledFingerprint != null) {
+            try {
+                if (cache == null) {
+                    try (InputStream stream = resource.openStream()) {
+                        return read(ByteBuffer.wrap(stream.readAllBytes()), fingerprint);
+                    }
+                }
+
+                copy(resource, cache);
+                return read(map(cache), fingerprint);
+            } catch (IOException e) {
+                Logger.warn("Bundled geometry is invalid, it will be rebuilt: %s".formatted(e.getMessage()));
+            }
+
+            fingerprint = fingerprint(sources);
+        }
+
+        Logger.info("Building geometry bundle from %d GeoJSON files...".formatted(sources.size()));
+        long start = System.currentTimeMillis();
+        byte[] data = build(sources, fingerprint);
+        Logger.info("Geometry bundle built in %d ms (%d kB)".formatted(System.currentTimeMillis() - start, data.length / 1024));
+
+        if (cache != null) {
+            try {
+                write(data, cache);
+                return read(map(cache), fingerprint);
+            } catch (IOException e) {
+                Logger.error("Unable to cache geometry bundle in %s".formatted(cache.getAbsolutePath()));
+                Logger.error(e);
+            }
+        }
+
+        return read(ByteBuffer.wrap(data), fingerprint);
+    }
+
+    public static byte[] build(List<Source> sources) throws IOException {
+        return build(sources, fingerprint(sources));
+    }
+
+    private static byte[] build(List<Source> sources, long fingerprint) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint);
+            out.writeInt(sources.size());
+
+            for (Source source : sources) {
+                writeString(out, source.layer());
+                writeLayer(out, source);
+            }
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return fingerprint stored in the header of the bundle, or null if it isn't a bundle of this version
+     */
+    private static Long readFingerprint(URL resource) {
+        try (DataInputStream in = new DataInputStream(resource.openStream())) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            return in.readLong();
+        } catch (IOException e) {
+            Logger.warn("Unable to read the bundled geometry: %s".formatted(e.getMessage()));
+            return null;
+        }
+    }
+
+    private static void writeLayer(DataOutputStream out, Source source) throws IOException {
+        URL resource = ClassLoader.getSystemClassLoader().getResource(source.path());
+        if (resource == null) {
+            throw new IOException("Unable to load polygons: %s".formatted(source.path()));
+        }
+
+        FeatureCollection featureCollection;
+        try (InputStream stream = resource.openStream()) {
+            featureCollection = new ObjectMapper().readValue(stream, FeatureCollection.class);
+        }
+
+        List<org.geojson.Feature> features = new ArrayList<>();
+        for (org.geojson.Feature f : featureCollection.getFeatures()) {
+            String name = Regions.fetchName(f);
+            if (name == null) {
+                Logger.error("Error: found polygons with no name in " + source.path());
+            }
+            if (name != null && source.remove().contains(name)) {
+                continue;
+            }
+            if (f.getGeometry() instanceof org.geojson.Polygon || f.getGeometry() instanceof MultiPolygon) {
+                features.add(f);
+            }
+        }
+
+        out.writeInt(features.size());
+        for (org.geojson.Feature f : features) {
+            writeString(out, Regions.fetchName(f));
+
+            if (f.getGeometry() instanceof org.geojson.Polygon pol) {
+                out.writeInt(1);
+                writeRing(out, pol.getCoordinates().get(0));
+            } else if (f.getGeometry() instanceof MultiPolygon mp) {
+                out.writeInt(mp.getCoordinates().size());
+                for (List<List<LngLatAlt>> polygon : mp.getCoordinates()) {
+                    writeRing(out, polygon.get(0));
+                }
+            }
+        }
+    }
+
+    private static void writeRing(DataOutputStream out, List<LngLatAlt> ring) throws IOException {
+        float minLon = Float.MAX_VALUE;
+        float minLat = Float.MAX_VALUE;
+        float maxLon = -Float.MAX_VALUE;
+        float maxLat = -Float.MAX_VALUE;
+        for (LngLatAlt pos : ring) {
+            float lon = (float) pos.getLongitude();
+            float lat = (float) pos.getLatitude();
+            minLon = Math.min(minLon, lon);
+            minLat = Math.min(minLat, lat);
+            maxLon = Math.max(maxLon, lon);
+            maxLat = Math.max(maxLat, lat);
+        }
+
+        out.writeFloat(minLon);
+        out.writeFloat(minLat);
+        out.writeFloat(maxLon);
+        out.writeFloat(maxLat);
+        out.writeInt(ring.size());
+        for (LngLatAlt pos : ring) {
+            out.writeFloat((float) pos.getLongitude());
+            out.writeFloat((float) pos.getLatitude());
+        }
+    }
+
+    private static GeometryBundle read(ByteBuffer buffer, long fingerprint) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a geometry bundle");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported geometry bundle version %d".formatted(version));
+            }
+            if (buffer.getLong() != fingerprint) {
+                throw new IOException("Geometry bundle was built from different sources");
+            }
+
+            Map<String, List<Feature>> layers = new LinkedHashMap<>();
+            int layerCount = buffer.getInt();
+            for (int l = 0; l < layerCount; l++) {
+                String layerName = readString(buffer);
+                int featureCount = buffer.getInt();
+                List<Feature> features = new ArrayList<>(featureCount);
+
+                for (int f = 0; f < featureCount; f++) {
+                    String name = readString(buffer);
+                    int polygonCount = buffer.getInt();
+                    List<GeoPolygon> polygons = new ArrayList<>(polygonCount);
+
+                    for (int p = 0; p < polygonCount; p++) {
+                        float minLon = buffer.getFloat();
+                        float minLat = buffer.getFloat();
+                        float maxLon = buffer.getFloat();
+                        float maxLat = buffer.getFloat();
+                        int size = buffer.getInt();
+                        int length = size * 2 * Float.BYTES;
+
+                        polygons.add(new GeoPolygon(buffer.slice(buffer.position(), length).asFloatBuffer(),
+                                new Rectangle2D.Double(minLon, minLat, (double) maxLon - minLon, (double) maxLat - minLat)));
+                        buffer.position(buffer.position() + length);
+                    }
+
+                    features.add(new Feature(name, List.copyOf(polygons)));
+                }
+
+                layers.put(layerName, features);
+            }
+
+            return new GeometryBundle(layers);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupted geometry bundle", e);
+        }
+    }
+
+    /**
+     * Hashes the content of the source files, so that any edit of them invalidates the bundle.
+     */
+    private static long fingerprint(List<Source> sources) {
+        long hash = VERSION;
+        for (Source source : sources) {
+            hash = hash * 31 + source.toString().hashCode();
+
+            URL resource = ClassLoader.getSystemClassLoader().getResource(source.path());
+            if (resource != null) {
+                CRC32 crc = new CRC32();
+                try (InputStream stream = resource.openStream()) {
+                    byte[] buffer = new byte[1 << 16];
+                    int read;
+                    while ((read = stream.read(buffer)) != -1) {
+                        crc.update(buffer, 0, read);
+                    }
+                } catch (IOException e) {
+                    Logger.error(e);
+                }
+                hash = hash * 31 + crc.getValue();
+            }
+        }
+        return hash;
+    }
+
+    private static MappedByteBuffer map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private static void copy(URL resource, File target) throws IOException {
+        createParent(target);
+        File temp = getTempFile(target);
+        try (InputStream stream = resource.openStream()) {
+            Files.copy(stream, temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        replace(temp, target);
+    }
+
+    private static void write(byte[] data, File target) throws IOException {
+        createParent(target);
+        File temp = getTempFile(target);
+        Files.write(temp.toPath(), data);
+        replace(temp, target);
+    }
+
+    private static File getTempFile(File target) {
+        return new File(target.getAbsoluteFile().getParentFile(), target.getName() + ".tmp");
+    }
+
+    // never overwrite a file that might still be mapped by another process
+    private static void replace(File temp, File target) throws IOException {
+        try {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void createParent(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory %s".formatted(parent.getAbsolutePath()));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        if (str == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Build time entry point, writes the bundle of {@link Regions#SOURCES} into the given file.
+     * A failure doesn't break the build, the bundle is then created on the first start instead.
+     */
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: GeometryBundle <output file>");
+            System.exit(1);
+        }
+
+        File output = new File(args[0]);
+        try {
+            write(build(Regions.SOURCES), output);
+            System.out.printf("Geometry bundle written to %s (%d kB)%n", output.getAbsolutePath(), output.length() / 1024);
+        } catch (IOException e) {
+            System.err.printf("Geometry bundle was not created, it will be built at runtime instead: %s%n", e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+package globalquake.core.regions;
+
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lat/lon grid over a list of regions. Each cell keeps only the paths that overlap it and cells lying
+ * completely inside a polygon (or outside all of them) are answered without any polygon test.
+ * Cells are classified lazily on first access and give the same result as a linear scan.
+ */
+public class RegionIndex {
+
+    public static final double DEFAULT_CELL_SIZE = 0.5;
+
+    private static final double EPSILON = 1e-9;
+
+    private static final Cell OCEAN = new Cell(new Path2D[0], new Region[0], null);
+
+    private final List<Region> regions;
+    private final double cellSize;
+    private final int rows;
+    private final int cols;
+    private final AtomicReferenceArray<Cell> cells;
+
+    /**
+     * @param regions   candidates, searched in list order like {@link Regions#getName(double, double, List)}
+     * @param cellSize  cell size in degrees
+     */
+    public RegionIndex(List<Region> regions, double cellSize) {
+        this.regions = List.copyOf(regions);
+        this.cellSize = cellSize;
+        this.rows = (int) Math.ceil(180.0 / cellSize);
+        this.cols = (int) Math.ceil(360.0 / cellSize);
+        this.cells = new AtomicReferenceArray<>(rows * cols);
+    }
+
+    public RegionIndex(List<Region> regions) {
+        this(regions, DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * @return the first region containing the point, or null if there is none
+     */
+    public Region find(double lat, double lon) {
+        if (lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+            return findLinear(lat, lon);
+        }
+
+        int row = row(lat);
+        int col = col(lon);
+        int index = row * cols + col;
+
+        Cell cell = cells.get(index);
+        if (cell == null) {
+            cell = classify(row, col);
+            cells.set(index, cell);
+        }
+
+        return cell.find(lon, lat);
+    }
+
+    public boolean isOcean(double lat, double lon) {
+        return find(lat, lon) == null;
+    }
+
+    private Region findLinear(double lat, double lon) {
+        for (Region region : regions) {
+            int i = 0;
+            for (Path2D path : region.paths()) {
+                if (region.bounds().get(i++).contains(lon, lat) && path.contains(lon, lat)) {
+                    return region;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private int row(double lat) {
+        return Math.max(0, Math.min(rows - 1, (int) ((lat + 90.0) / cellSize)));
+    }
+
+    private int col(double lon) {
+        return Math.max(0, Math.min(cols - 1, (int) ((lon + 180.0) / cellSize)));
+    }
+
+    private Cell classify(int row, int col) {
+        // slightly enlarged so that points lying exactly on the cell edge are never missed
+        double x = -180.0 + col * cellSize - EPSILON;
+        double y = -90.0 + row * cellSize - EPSILON;
+        double size = cellSize + 2 * EPSILON;
+        Rectangle2D rect = new Rectangle2D.Double(x, y, size, size);
+
+        List<Path2D> paths = new ArrayList<>();
+        List<Region> owners = new ArrayList<>();
+        Region fallback = null;
+
+        search:
+        for (Region region : regions) {
+            int i = 0;
+            for (Path2D path : region.paths()) {
+                Rectangle2D bounds = region.bounds().get(i++);
+                if (!bounds.intersects(rect) || !path.intersects(rect)) {
+                    continue;
+                }
+
+                if (path.contains(rect)) {
+                    // nothing after this polygon can ever be reached in a linear scan
+                    fallback = region;
+                    break search;
+                }
+
+                paths.add(path);
+                owners.add(region);
+            }
+        }
+
+        if (paths.isEmpty() && fallback == null) {
+            return OCEAN;
+        }
+
+        return new Cell(paths.toArray(new Path2D[0]), owners.toArray(new Region[0]), fallback);
+    }
+
+    private record Cell(Path2D[] paths, Region[] owners, Region fallback) {
+
+        Region find(double x, double y) {
+            for (int i = 0; i < paths.length; i++) {
+                if (paths[i].contains(x, y)) {
+                    return owners[i];
+                }
+            }
+
+            return fallback;
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+package globalquake.core.regions;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.stream.IntStream;
+
+/**
+ * Regular lat/lon grid of distances to the closest shoreline in km, zero on land.
+ */
+public class ShorelineLookupTable {
+
+    public static final double DEFAULT_STEP = 0.5;
+
+    private static final int MAGIC = 0x47514C54; // GQLT
+    private static final int VERSION = 1;
+
+    private final double step;
+    private final int rows;
+    private final int cols;
+    private final float[] distances;
+
+    private ShorelineLookupTable(double step, int rows, int cols, float[] distances) {
+        this.step = step;
+        this.rows = rows;
+        this.cols = cols;
+        this.distances = distances;
+    }
+
+    public static ShorelineLookupTable generate(double step) {
+        int rows = (int) Math.round(180.0 / step) + 1;
+        int cols = (int) Math.round(360.0 / step) + 1;
+        float[] distances = new float[rows * cols];
+
+        IntStream.range(0, rows).parallel().forEach(row -> {
+            double lat = -90.0 + row * step;
+            for (int col = 0; col < cols; col++) {
+                double lon = -180.0 + col * step;
+                distances[row * cols + col] = (float) Regions.getShorelineDistance(lat, lon);
+            }
+        });
+
+        return new ShorelineLookupTable(step, rows, cols, distances);
+    }
+
+    /**
+     * Bilinear interpolation between the four surrounding grid nodes
+     *
+     * @return interpolated distance in km, or -1 if the point lies outside the grid
+     */
+    public double interpolate(double lat, double lon) {
+        double y = (lat + 90.0) / step;
+        double x = (lon + 180.0) / step;
+        if (!(y >= 0 && y <= rows - 1 && x >= 0 && x <= cols - 1)) {
+            return -1;
+        }
+
+        int row = Math.min((int) y, rows - 2);
+        int col = Math.min((int) x, cols - 2);
+        double fy = y - row;
+        double fx = x - col;
+
+        int i = row * cols + col;
+        double f00 = distances[i];
+        double f01 = distances[i + 1];
+        double f10 = distances[i + cols];
+        double f11 = distances[i + cols + 1];
+
+        double r0 = f00 + (f01 - f00) * fx;
+        double r1 = f10 + (f11 - f10) * fx;
+
+        return r0 + (r1 - r0) * fy;
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeDouble(step);
+        out.writeInt(rows);
+        out.writeInt(cols);
+        ByteBuffer buffer = ByteBuffer.allocate(distances.length * Float.BYTES);
+        buffer.asFloatBuffer().put(distances);
+        out.write(buffer.array());
+    }
+
+    public static ShorelineLookupTable read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a shoreline lookup table!");
+        }
+
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported lookup table version: %d".formatted(version));
+        }
+
+        double step = in.readDouble();
+        int rows = in.readInt();
+        int cols = in.readInt();
+        if (rows < 2 || cols < 2) {
+            throw new IOException("Invalid lookup table dimensions: %dx%d".formatted(rows, cols));
+        }
+
+        float[] distances = new float[rows * cols];
+        byte[] bytes = new byte[distances.length * Float.BYTES];
+        in.readFully(bytes);
+        ByteBuffer.wrap(bytes).asFloatBuffer().get(distances);
+
+        return new ShorelineLookupTable(step, rows, cols, distances);
+    }
+
+}
@@ -5,14 +5,18 @@ import edu.sc.seis.seisFile.mseed.SeedFormatException;
 import edu.sc.seis.seisFile.seedlink.SeedlinkPacket;
 import edu.sc.seis.seisFile.seedlink.SeedlinkReader;
 import globalquake.core.GlobalQuake;
+import globalquake.core.Settings;
 import globalquake.core.database.SeedlinkNetwork;
 import globalquake.core.database.SeedlinkStatus;
+import globalquake.core.metrics.Metrics;
 import globalquake.core.station.AbstractStation;
 import globalquake.core.station.GlobalStation;
 import org.tinylog.Logger;
 
+import java.io.IOException;
 import java.net.SocketException;
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
@@ -30,6 +34,8 @@ public class SeedlinkNetworksReader {
 
 	private final Queue<SeedlinkReader> activeReaders = new ConcurrentLinkedQueue<>();
 
+	private volatile SeedlinkRecorder recorder;
+
 	public static void main(String[] args) throws Exception{
 		SeedlinkReader reader = new SeedlinkReader("rtserve.iris.washington.edu", 18000);
 		reader.select("AK", "D25K", "", "BHZ");
@@ -71,7 +77,7 @@ public class SeedlinkNetworksReader {
 
 	private final Map<String, GlobalStation> stationCache = new HashMap<>();
 
-	private void createCache() {
+	protected void createCache() {
 		for (AbstractStation s : GlobalQuake.instance.getStationManager().getStations()) {
 			if (s instanceof GlobalStation) {
 				stationCache.put("%s %s".formatted(s.getNetworkCode(), s.getStationCode()), (GlobalStation) s);
@@ -119,6 +125,7 @@ public class SeedlinkNetworksReader {
 			while (reader.hasNext()) {
 				SeedlinkPacket slp = reader.readPacket();
 				try {
+					record(slp.getMseedBytes());
 					newPacket(slp.getMiniSeed());
 				} catch(SocketException | SeedFormatException se){
 					Logger.trace(se);
@@ -159,7 +166,21 @@ public class SeedlinkNetworksReader {
 		seedlinkReaderService.submit(() -> runSeedlinkThread(seedlinkNetwork, finalReconnectDelay));
 	}
 
-	private void newPacket(DataRecord dr) {
+	// the bytes as they came over the network, not the record serialised again
+	private void record(byte[] miniSeed) {
+		SeedlinkRecorder recorder = this.recorder;
+		if (recorder != null) {
+			try {
+				recorder.record(miniSeed);
+			} catch (IOException e) {
+				Logger.error("Unable to record seedlink data, recording stopped");
+				Logger.error(e);
+				this.recorder = null;
+			}
+		}
+	}
+
+	protected void newPacket(DataRecord dr) {
 		if (lastData == null || dr.getLastSampleBtime().toInstant().isAfter(lastData)) {
 			lastData = dr.getLastSampleBtime().toInstant();
 		}
@@ -170,6 +191,8 @@ public class SeedlinkNetworksReader {
 		if(globalStation == null){
 			Logger.trace("Seedlink sent data for %s %s, but that was never selected!".formatted(network, station));
 		}else {
+			SeedlinkNetwork seedlinkNetwork = globalStation.getSeedlinkNetwork();
+			Metrics.SEEDLINK_PACKETS.increment(seedlinkNetwork == null ? "unknown" : seedlinkNetwork.getName());
 			globalStation.addRecord(dr);
 		}
 	}
@@ -179,11 +202,33 @@ public class SeedlinkNetworksReader {
     }
 
     public void logRecord(long time) {
-        if (time > lastReceivedRecord && time <= System.currentTimeMillis()) {
+        if (time > lastReceivedRecord && time <= now().toEpochMilli()) {
             lastReceivedRecord = time;
         }
     }
 
+	/**
+	 * @return the time that the received data are compared with, the replay can run ahead of the real time
+	 */
+	public Instant now() {
+		return Instant.now();
+	}
+
+	public boolean isTimeValid(Instant recordStart) {
+		Instant now = now();
+		Instant latest = now.plus(16, ChronoUnit.SECONDS);
+		Instant earliest = now.minus(Settings.logsStoreTimeMinutes, ChronoUnit.MINUTES);
+		return recordStart.isAfter(earliest) && recordStart.isBefore(latest);
+	}
+
+	public void setRecorder(SeedlinkRecorder recorder) {
+		this.recorder = recorder;
+	}
+
+	public SeedlinkRecorder getRecorder() {
+		return recorder;
+	}
+
 	public void stop() {
 		if(seedlinkReaderService != null) {
 			seedlinkReaderService.shutdownNow();
@@ -0,0 +1,92 @@
+package globalquake.core.seedlink;
+
+import org.tinylog.Logger;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes every received miniSEED record together with the time it arrived, so the traffic can be replayed
+ * later by {@link SeedlinkReplayReader}.
+ * The records are stored as they came over the network, followed by a sparse index of arrival times
+ * that is written when the recorder is closed. A recording that was not closed properly can still be read,
+ * only without the index.
+ */
+public class SeedlinkRecorder implements Closeable {
+
+    private final File file;
+    private final DataOutputStream out;
+    private final List<SeedlinkRecording.IndexEntry> index = new ArrayList<>();
+
+    private long offset;
+    private long lastIndexedArrival;
+    private long lastArrival = Long.MIN_VALUE;
+    private long count;
+    private boolean closed;
+
+    public SeedlinkRecorder(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory %s".formatted(parent.getAbsolutePath()));
+        }
+
+        this.file = file;
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        out.writeInt(SeedlinkRecording.MAGIC);
+        out.writeInt(SeedlinkRecording.VERSION);
+        offset = SeedlinkRecording.HEADER_SIZE;
+
+        Logger.info("Recording seedlink data to %s".formatted(file.getAbsolutePath()));
+    }
+
+    public void record(byte[] miniSeed) throws IOException {
+        write(System.currentTimeMillis(), miniSeed);
+    }
+
+    public synchronized void write(long arrival, byte[] data) throws IOException {
+        if (closed) {
+            return;
+        }
+
+        // packets from more seedlink threads can be written in a slightly different order than they arrived
+        arrival = Math.max(arrival, lastArrival);
+        lastArrival = arrival;
+
+        if (index.isEmpty() || arrival - lastIndexedArrival >= SeedlinkRecording.INDEX_INTERVAL) {
+            index.add(new SeedlinkRecording.IndexEntry(arrival, offset));
+            lastIndexedArrival = arrival;
+        }
+
+        out.writeLong(arrival);
+        out.writeInt(data.length);
+        out.write(data);
+        offset += SeedlinkRecording.ENTRY_HEADER_SIZE + data.length;
+        count++;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        long indexOffset = offset;
+        out.writeInt(SeedlinkRecording.INDEX_MAGIC);
+        out.writeInt(index.size());
+        for (SeedlinkRecording.IndexEntry entry : index) {
+            out.writeLong(entry.arrival());
+            out.writeLong(entry.offset());
+        }
+        out.writeLong(indexOffset);
+        out.writeInt(SeedlinkRecording.MAGIC);
+        out.close();
+
+        Logger.info("Recorded %d seedlink packets to %s".formatted(count, file.getAbsolutePath()));
+    }
+}
@@ -0,0 +1,169 @@
+package globalquake.core.seedlink;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads packets written by {@link SeedlinkRecorder} in the order they arrived.
+ * The file starts with a header, then every packet is stored as its arrival time, length and the raw record.
+ * A closed recording ends with an index of the arrival times and a footer pointing at it.
+ */
+public class SeedlinkRecording implements Closeable {
+
+    static final int MAGIC = 0x47515352;
+    static final int INDEX_MAGIC = 0x47515349;
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 8;
+    static final int ENTRY_HEADER_SIZE = 12;
+    static final int FOOTER_SIZE = 12;
+
+    // arrival time between two index entries in ms
+    static final long INDEX_INTERVAL = 10 * 1000;
+
+    private static final int MAX_PACKET_SIZE = 1 << 20;
+
+    record IndexEntry(long arrival, long offset) {
+    }
+
+    public record Packet(long arrival, byte[] data) {
+    }
+
+    private final FileInputStream fileInput;
+    private final List<IndexEntry> index;
+    private final long end;
+
+    private DataInputStream in;
+    private long position;
+    private Packet pending;
+
+    public SeedlinkRecording(File file) throws IOException {
+        List<IndexEntry> index = new ArrayList<>();
+        long end;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            long length = randomAccessFile.length();
+            if (length < HEADER_SIZE || randomAccessFile.readInt() != MAGIC) {
+                throw new IOException("%s is not a seedlink recording".formatted(file.getName()));
+            }
+
+            int version = randomAccessFile.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported seedlink recording version %d".formatted(version));
+            }
+
+            end = readIndex(randomAccessFile, length, index);
+        }
+
+        this.index = Collections.unmodifiableList(index);
+        this.end = end;
+        this.fileInput = new FileInputStream(file);
+        moveTo(HEADER_SIZE);
+    }
+
+    /**
+     * @return offset where the packets end, the whole file if the recording has no index
+     */
+    private static long readIndex(RandomAccessFile file, long length, List<IndexEntry> index) throws IOException {
+        if (length < HEADER_SIZE + FOOTER_SIZE) {
+            return length;
+        }
+
+        file.seek(length - FOOTER_SIZE);
+        long indexOffset = file.readLong();
+        if (file.readInt() != MAGIC || indexOffset < HEADER_SIZE || indexOffset > length - FOOTER_SIZE - 8) {
+            return length;
+        }
+
+        file.seek(indexOffset);
+        if (file.readInt() != INDEX_MAGIC) {
+            return length;
+        }
+
+        int count = file.readInt();
+        if (count < 0 || indexOffset + 8 + count * 16L + FOOTER_SIZE != length) {
+            return length;
+        }
+
+        for (int i = 0; i < count; i++) {
+            index.add(new IndexEntry(file.readLong(), file.readLong()));
+        }
+
+        return indexOffset;
+    }
+
+    private void moveTo(long offset) throws IOException {
+        fileInput.getChannel().position(offset);
+        in = new DataInputStream(new BufferedInputStream(fileInput, 1 << 16));
+        position = offset;
+        pending = null;
+    }
+
+    /**
+     * @return the next packet, or null at the end of the recording
+     */
+    public Packet next() throws IOException {
+        if (pending != null) {
+            Packet packet = pending;
+            pending = null;
+            return packet;
+        }
+
+        if (position + ENTRY_HEADER_SIZE > end) {
+            return null;
+        }
+
+        try {
+            long arrival = in.readLong();
+            int length = in.readInt();
+            if (length < 0 || length > MAX_PACKET_SIZE) {
+                throw new IOException("Corrupted seedlink recording at offset %d".formatted(position));
+            }
+            if (position + ENTRY_HEADER_SIZE + length > end) {
+                position = end;
+                return null;
+            }
+
+            byte[] data = new byte[length];
+            in.readFully(data);
+            position += ENTRY_HEADER_SIZE + length;
+            return new Packet(arrival, data);
+        } catch (EOFException e) {
+            // the recording was interrupted in the middle of a packet
+            position = end;
+            return null;
+        }
+    }
+
+    /**
+     * Moves to the first packet that arrived at the given time or later.
+     */
+    public void seek(long arrival) throws IOException {
+        long offset = HEADER_SIZE;
+        for (IndexEntry entry : index) {
+            if (entry.arrival() > arrival) {
+                break;
+            }
+            offset = entry.offset();
+        }
+
+        moveTo(offset);
+
+        // at most one index interval of packets is skipped
+        Packet packet = next();
+        while (packet != null && packet.arrival() < arrival) {
+            packet = next();
+        }
+        pending = packet;
+    }
+
+    public boolean hasIndex() {
+        return !index.isEmpty();
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileInput.close();
+    }
+}
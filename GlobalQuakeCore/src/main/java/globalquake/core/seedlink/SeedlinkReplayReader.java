@@ -0,0 +1,188 @@
+package globalquake.core.seedlink;
+
+import edu.sc.seis.seisFile.mseed.DataRecord;
+import org.tinylog.Logger;
+
+import java.io.File;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Feeds a recording made by {@link SeedlinkRecorder} through the same path as the live seedlink data.
+ * The recording is moved to the present, so every record is shifted by the time between the start
+ * of the recording and the start of the replay.
+ * With a speed above 1 the replay clock runs ahead of the real time and the received data are validated
+ * against it instead. {@link #AS_FAST_AS_POSSIBLE} doesn't wait at all, which is meant for measuring throughput.
+ */
+public class SeedlinkReplayReader extends SeedlinkNetworksReader {
+
+    public static final double AS_FAST_AS_POSSIBLE = 0;
+
+    // offset of the start time in the fixed header of a miniSEED record
+    private static final int START_TIME_OFFSET = 20;
+
+    private final File file;
+    private final double speed;
+
+    private volatile long replayTime = Long.MIN_VALUE;
+
+    private final AtomicLong packets = new AtomicLong();
+    private volatile long maxLag;
+
+    private Thread replayThread;
+
+    public SeedlinkReplayReader(File file, double speed) {
+        if (speed < 0 || Double.isNaN(speed)) {
+            throw new IllegalArgumentException("Invalid replay speed %s".formatted(speed));
+        }
+        this.file = file;
+        this.speed = speed;
+    }
+
+    @Override
+    public void run() {
+        createCache();
+        replayThread = new Thread(this::replay, "Seedlink Replay");
+        replayThread.setDaemon(true);
+        replayThread.start();
+    }
+
+    private void replay() {
+        Logger.info("Replaying seedlink recording %s at %s".formatted(file.getAbsolutePath(),
+                speed == AS_FAST_AS_POSSIBLE ? "maximal speed" : "%.2fx speed".formatted(speed)));
+
+        long bytes = 0;
+        long lagSum = 0;
+        long start = System.currentTimeMillis();
+        try (SeedlinkRecording recording = new SeedlinkRecording(file)) {
+            SeedlinkRecording.Packet packet = recording.next();
+            if (packet == null) {
+                Logger.warn("Seedlink recording %s is empty".formatted(file.getName()));
+                return;
+            }
+
+            long firstArrival = packet.arrival();
+            long shift = start - firstArrival;
+
+            while (packet != null) {
+                long elapsed = packet.arrival() - firstArrival;
+                if (speed != AS_FAST_AS_POSSIBLE) {
+                    long due = start + (long) (elapsed / speed);
+                    long wait = due - System.currentTimeMillis();
+                    if (wait > 0) {
+                        Thread.sleep(wait);
+                    } else {
+                        lagSum -= wait;
+                        maxLag = Math.max(maxLag, -wait);
+                    }
+                }
+
+                replayTime = packet.arrival() + shift;
+
+                byte[] data = packet.data();
+                shiftStartTime(data, shift);
+                try {
+                    newPacket((DataRecord) DataRecord.read(data));
+                } catch (Exception e) {
+                    Logger.trace(e);
+                }
+
+                bytes += data.length;
+                packets.incrementAndGet();
+                packet = recording.next();
+            }
+        } catch (InterruptedException e) {
+            Logger.warn("Seedlink replay interrupted");
+            return;
+        } catch (Exception e) {
+            Logger.error("Seedlink replay of %s failed".formatted(file.getName()));
+            Logger.error(e);
+            return;
+        }
+
+        long count = packets.get();
+        double seconds = Math.max(1, System.currentTimeMillis() - start) / 1000.0;
+        Logger.info("Seedlink replay finished: %d packets, %.1f MB in %.1f s, %.0f packets/s, lag avg %.1f ms max %d ms".formatted(
+                count, bytes / (1024.0 * 1024.0), seconds, count / seconds, lagSum / (double) count, maxLag));
+    }
+
+    @Override
+    public Instant now() {
+        Instant now = Instant.now();
+        long replayTime = this.replayTime;
+        return replayTime > now.toEpochMilli() ? Instant.ofEpochMilli(replayTime) : now;
+    }
+
+    @Override
+    public void stop() {
+        if (replayThread != null) {
+            replayThread.interrupt();
+            try {
+                replayThread.join(10_000);
+            } catch (InterruptedException e) {
+                Logger.error(e);
+            }
+            replayThread = null;
+        }
+        super.stop();
+    }
+
+    public long getReplayedPackets() {
+        return packets.get();
+    }
+
+    /**
+     * @return how much the replay fell behind the recorded timing at worst, in ms
+     */
+    public long getMaxLag() {
+        return maxLag;
+    }
+
+    /**
+     * Moves the start time in the fixed header of a raw miniSEED record.
+     * The year is used to tell the byte order, as the record readers do.
+     */
+    static void shiftStartTime(byte[] record, long shiftMillis) {
+        boolean bigEndian = isBigEndian(record);
+        LocalDateTime time = LocalDateTime.ofInstant(readStartTime(record).plusMillis(shiftMillis), ZoneOffset.UTC);
+
+        writeShort(record, START_TIME_OFFSET, time.getYear(), bigEndian);
+        writeShort(record, START_TIME_OFFSET + 2, time.getDayOfYear(), bigEndian);
+        record[START_TIME_OFFSET + 4] = (byte) time.getHour();
+        record[START_TIME_OFFSET + 5] = (byte) time.getMinute();
+        record[START_TIME_OFFSET + 6] = (byte) time.getSecond();
+        writeShort(record, START_TIME_OFFSET + 8, time.getNano() / 100_000, bigEndian);
+    }
+
+    static Instant readStartTime(byte[] record) {
+        boolean bigEndian = isBigEndian(record);
+        return LocalDate.ofYearDay(readShort(record, START_TIME_OFFSET, bigEndian), readShort(record, START_TIME_OFFSET + 2, bigEndian))
+                .atStartOfDay()
+                .plusHours(record[START_TIME_OFFSET + 4] & 0xff)
+                .plusMinutes(record[START_TIME_OFFSET + 5] & 0xff)
+                .plusSeconds(record[START_TIME_OFFSET + 6] & 0xff)
+                .plusNanos(readShort(record, START_TIME_OFFSET + 8, bigEndian) * 100_000L)
+                .toInstant(ZoneOffset.UTC);
+    }
+
+    private static boolean isBigEndian(byte[] record) {
+        int year = readShort(record, START_TIME_OFFSET, true);
+        return year >= 1900 && year <= 2500;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean bigEndian) {
+        int a = data[offset] & 0xff;
+        int b = data[offset + 1] & 0xff;
+        return bigEndian ? (a << 8) | b : (b << 8) | a;
+    }
+
+    private static void writeShort(byte[] data, int offset, int value, boolean bigEndian) {
+        byte high = (byte) (value >> 8);
+        byte low = (byte) value;
+        data[offset] = bigEndian ? high : low;
+        data[offset + 1] = bigEndian ? low : high;
+    }
+}
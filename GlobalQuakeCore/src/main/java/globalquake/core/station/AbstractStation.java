@@ -4,12 +4,10 @@ import globalquake.core.analysis.Analysis;
 import globalquake.core.analysis.BetterAnalysis;
 import globalquake.core.analysis.Event;
 import globalquake.core.database.SeedlinkNetwork;
+import globalquake.utils.SlidingWindowExtremes;
 import gqserver.api.packets.station.InputType;
 
 import java.util.ArrayList;
-import java.util.Deque;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.LinkedBlockingDeque;
 
 public abstract class AbstractStation {
 
@@ -17,6 +15,7 @@ public abstract class AbstractStation {
 	public static final long INTERVAL_MAX_GAP = 5 * 1000;
 
 	private static final int RATIO_HISTORY_SECONDS = 60;
+	private static final int RATIO_HISTORY_LONG_SECONDS = 5 * 60;
 	private final String networkCode;
 	private final String stationCode;
 	private final String channelName;
@@ -28,12 +27,12 @@ public abstract class AbstractStation {
 	private final int id;
 	private final SeedlinkNetwork seedlinkNetwork;
 
-	private final Deque<Double> ratioHistory = new LinkedBlockingDeque<>();
+	private final SlidingWindowExtremes ratioHistory = new SlidingWindowExtremes(RATIO_HISTORY_SECONDS, RATIO_HISTORY_LONG_SECONDS);
 	private final double sensitivity;
 	public boolean disabled = false;
 	private ArrayList<NearbyStationDistanceInfo> nearbyStations;
 
-	private final Deque<StationInterval> intervals = new ConcurrentLinkedDeque<>();
+	private final StationIntervalHistory intervals = new StationIntervalHistory();
 
 	public AbstractStation(String networkCode, String stationCode, String channelName,
 						   String locationCode, double lat, double lon, double alt,
@@ -52,12 +51,7 @@ public abstract class AbstractStation {
 	}
 
 	public StationState getStateAt(long time) {
-		for(StationInterval interval : intervals) {
-			if(time >= interval.getStart() && time < interval.getEnd()){
-				return interval.getState();
-			}
-		}
-		return StationState.UNKNOWN;
+		return intervals.getStateAt(time);
 	}
 
 	public Event getEventAt(long time, long tolerance){
@@ -78,9 +72,7 @@ public abstract class AbstractStation {
 	}
 
 	public void reportState(StationState state, long time) {
-		while(intervals.peekFirst() != null && time - intervals.peekFirst().getEnd() > INTERVAL_STORAGE_TIME){
-			intervals.removeFirst();
-		}
+		intervals.removeEndedBefore(time - INTERVAL_STORAGE_TIME);
 		StationInterval lastInterval = getIntervals().peekLast();
 		if(lastInterval == null){
 			getIntervals().add(new StationInterval(time, time, state));
@@ -92,14 +84,14 @@ public abstract class AbstractStation {
 			return;
 		}
 
-		lastInterval.setEnd(time);
+		getIntervals().setLastEnd(time);
 
 		if(lastInterval.getState() != state){
 			getIntervals().add(new StationInterval(time, time, state));
 		}
 	}
 
-	public Deque<StationInterval> getIntervals() {
+	public StationIntervalHistory getIntervals() {
 		return intervals;
 	}
 
@@ -149,18 +141,19 @@ public abstract class AbstractStation {
 		if (getAnalysis()._maxRatio > 0) {
 			ratioHistory.add(getAnalysis()._maxRatio);
 			getAnalysis()._maxRatioReset = true;
-
-			if (ratioHistory.size() >= RATIO_HISTORY_SECONDS) {
-				ratioHistory.remove();
-			}
 		}
 
 		getAnalysis().second(time);
 	}
 
 	public double getMaxRatio60S() {
-		var opt = ratioHistory.stream().max(Double::compareTo);
-		return opt.orElse(0.0);
+		double max = ratioHistory.getMax(RATIO_HISTORY_SECONDS);
+		return Double.isNaN(max) ? 0.0 : max;
+	}
+
+	public double getMaxRatio5M() {
+		double max = ratioHistory.getMax(RATIO_HISTORY_LONG_SECONDS);
+		return Double.isNaN(max) ? 0.0 : max;
 	}
 
 	public void reset() {
@@ -2,7 +2,6 @@ package globalquake.core.station;
 
 import edu.sc.seis.seisFile.mseed.DataRecord;
 import globalquake.core.GlobalQuake;
-import globalquake.core.Settings;
 import globalquake.core.analysis.Event;
 import globalquake.core.database.SeedlinkNetwork;
 import globalquake.core.events.specific.SeedlinkDataEvent;
@@ -85,16 +84,14 @@ public class GlobalStation extends AbstractStation {
 			return;
 		}
 
-		getAnalysis().analyse(record);
+		getAnalysis().analyse(record, GlobalQuake.instance.getSeedlinkReader().now().toEpochMilli());
 		GlobalQuake.instance.getEventHandler().fireEvent(new SeedlinkDataEvent(this, record));
 		GlobalQuake.instance.getSeedlinkReader().logRecord(record.getLastSampleBtime().toInstant().toEpochMilli());
 	}
 
 
 	private boolean isTimeValid(DataRecord record) {
-		Instant latest = Instant.now().plus(16, ChronoUnit.SECONDS);
-		Instant earliest = Instant.now().minus(Settings.logsStoreTimeMinutes, ChronoUnit.MINUTES);
-		return record.getStartBtime().toInstant().isAfter(earliest) & record.getStartBtime().toInstant().isBefore(latest);
+		return GlobalQuake.instance.getSeedlinkReader().isTimeValid(record.getStartBtime().toInstant());
 	}
 
 	@Override
@@ -19,6 +19,8 @@ public class GlobalStationManager {
     private final AtomicInteger nextID = new AtomicInteger(0);
     protected UUID indexing;
 
+    private volatile StationIndex<AbstractStation> stationIndex;
+
     public void initStations(StationDatabaseManager databaseManager) {
         if(databaseManager == null){
             return;
@@ -45,6 +47,7 @@ public class GlobalStationManager {
         }
 
         createListOfClosestStations(stations);
+        invalidateStationIndex();
         Logger.info("Initialized " + stations.size() + " Stations.");
     }
 
@@ -113,6 +116,29 @@ public class GlobalStationManager {
         return stations;
     }
 
+    /**
+     * Spatial index of the current stations. It is rebuilt after {@link #invalidateStationIndex()}
+     * or when the number of stations changes.
+     */
+    public StationIndex<AbstractStation> getStationIndex() {
+        List<AbstractStation> stations = getStations();
+        StationIndex<AbstractStation> index = stationIndex;
+        if (index == null || index.size() != stations.size()) {
+            synchronized (this) {
+                index = stationIndex;
+                if (index == null || index.size() != stations.size()) {
+                    stationIndex = index = StationIndex.of(stations);
+                }
+            }
+        }
+
+        return index;
+    }
+
+    public void invalidateStationIndex() {
+        stationIndex = null;
+    }
+
     public static AbstractStation getStationById(List<AbstractStation> stations, int id) {
         return stations.get(id);
     }
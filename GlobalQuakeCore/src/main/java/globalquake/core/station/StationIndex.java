@@ -0,0 +1,88 @@
+package globalquake.core.station;
+
+import globalquake.utils.GeoUtils;
+import globalquake.utils.SphereKdTree;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Static spatial index of station positions, answering which stations are within a given distance of a point
+ * without visiting all of them. It is used for the running stations as well as for the stations in the database.
+ */
+public class StationIndex<S> {
+
+    private final List<S> stations;
+    private final double[] lats;
+    private final double[] lons;
+    private final SphereKdTree tree;
+
+    public record StationDistance<S>(S station, double distance) {
+
+    }
+
+    public StationIndex(Collection<? extends S> stationCollection, ToDoubleFunction<S> latitude, ToDoubleFunction<S> longitude) {
+        this.stations = new ArrayList<>(stationCollection);
+        int count = stations.size();
+        this.lats = new double[count];
+        this.lons = new double[count];
+        for (int i = 0; i < count; i++) {
+            lats[i] = latitude.applyAsDouble(stations.get(i));
+            lons[i] = longitude.applyAsDouble(stations.get(i));
+        }
+
+        this.tree = new SphereKdTree(lats, lons);
+    }
+
+    public static StationIndex<AbstractStation> of(Collection<? extends AbstractStation> stations) {
+        return new StationIndex<>(stations, AbstractStation::getLatitude, AbstractStation::getLongitude);
+    }
+
+    public int size() {
+        return stations.size();
+    }
+
+    /**
+     * @param maxDist great circle distance in km
+     * @return stations within the distance from the point, from the closest one
+     */
+    public List<StationDistance<S>> getStationsWithin(double lat, double lon, double maxDist) {
+        List<StationDistance<S>> result = new ArrayList<>();
+        if (maxDist < 0) {
+            return result;
+        }
+
+        tree.forEachWithin(lat, lon, getChordSquared(maxDist), index -> {
+            double distance = GeoUtils.greatCircleDistance(lat, lon, lats[index], lons[index]);
+            if (distance <= maxDist) {
+                result.add(new StationDistance<>(stations.get(index), distance));
+            }
+        });
+
+        result.sort(Comparator.comparingDouble(StationDistance::distance));
+        return result;
+    }
+
+    /**
+     * @param minDist great circle distance in km
+     * @return true if any station accepted by the predicate is closer than minDist to the point
+     */
+    public boolean anyCloserThan(double lat, double lon, double minDist, Predicate<S> predicate) {
+        if (minDist <= 0) {
+            return false;
+        }
+
+        return tree.anyWithin(lat, lon, getChordSquared(minDist), index ->
+                GeoUtils.greatCircleDistance(lat, lon, lats[index], lons[index]) < minDist && predicate.test(stations.get(index)));
+    }
+
+    private static double getChordSquared(double distance) {
+        // small margin, the great circle distance doesn't use exactly the same radius
+        return SphereKdTree.toChordSquared(distance * 1.01 + 1e-3);
+    }
+
+}
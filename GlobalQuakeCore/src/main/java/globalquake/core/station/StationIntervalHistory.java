@@ -0,0 +1,172 @@
+package globalquake.core.station;
+
+import java.util.Arrays;
+
+/**
+ * State intervals of a station kept sorted by their start, so that the state at a given time
+ * is found by a binary search instead of walking the whole history.
+ * Every position also stores the maximal end of all intervals up to it, which bounds how far back
+ * an overlapping interval can be. Intervals are expected to be added in time order, which makes adding
+ * and expiring the oldest ones amortised O(1), but out of order intervals are handled as well.
+ * If more intervals contain the same time, the one added first wins.
+ */
+public class StationIntervalHistory {
+
+    private StationInterval[] intervals;
+    private long[] sequences;
+    private long[] maxEnds;
+
+    private int head;
+    private int tail;
+    private int lastIndex = -1;
+    private long nextSequence;
+
+    public StationIntervalHistory() {
+        this(16);
+    }
+
+    public StationIntervalHistory(int capacity) {
+        capacity = Math.max(1, capacity);
+        intervals = new StationInterval[capacity];
+        sequences = new long[capacity];
+        maxEnds = new long[capacity];
+    }
+
+    public synchronized void add(StationInterval interval) {
+        ensureCapacity();
+
+        int index = upperBound(interval.getStart());
+        if (index < tail) {
+            System.arraycopy(intervals, index, intervals, index + 1, tail - index);
+            System.arraycopy(sequences, index, sequences, index + 1, tail - index);
+            System.arraycopy(maxEnds, index, maxEnds, index + 1, tail - index);
+        }
+
+        intervals[index] = interval;
+        sequences[index] = nextSequence++;
+        tail++;
+        lastIndex = index;
+
+        for (int i = index; i < tail; i++) {
+            long previous = i > head ? maxEnds[i - 1] : Long.MIN_VALUE;
+            maxEnds[i] = Math.max(previous, intervals[i].getEnd());
+        }
+    }
+
+    /**
+     * @return the interval that was added the last, or null if there is none
+     */
+    public synchronized StationInterval peekLast() {
+        if (isEmpty()) {
+            return null;
+        }
+
+        return lastIndex == -1 ? intervals[tail - 1] : intervals[lastIndex];
+    }
+
+    /**
+     * Moves the end of the interval that was added the last.
+     */
+    public synchronized void setLastEnd(long end) {
+        if (isEmpty()) {
+            return;
+        }
+
+        int index = lastIndex == -1 ? tail - 1 : lastIndex;
+        intervals[index].setEnd(end);
+
+        // the stored maximums only have to stay above the real ones
+        for (int i = index; i < tail && maxEnds[i] < end; i++) {
+            maxEnds[i] = end;
+        }
+    }
+
+    /**
+     * Removes the oldest intervals as long as they ended before the given time.
+     */
+    public synchronized void removeEndedBefore(long time) {
+        while (head < tail && intervals[head].getEnd() < time) {
+            if (lastIndex == head) {
+                lastIndex = -1;
+            }
+            intervals[head++] = null;
+        }
+
+        if (head == tail) {
+            head = tail = 0;
+            lastIndex = -1;
+        }
+    }
+
+    public synchronized StationState getStateAt(long time) {
+        StationInterval result = null;
+        long resultSequence = Long.MAX_VALUE;
+
+        for (int i = upperBound(time) - 1; i >= head && maxEnds[i] > time; i--) {
+            StationInterval interval = intervals[i];
+            if (time >= interval.getStart() && time < interval.getEnd() && sequences[i] < resultSequence) {
+                result = interval;
+                resultSequence = sequences[i];
+            }
+        }
+
+        return result == null ? StationState.UNKNOWN : result.getState();
+    }
+
+    public synchronized int size() {
+        return tail - head;
+    }
+
+    public synchronized boolean isEmpty() {
+        return head == tail;
+    }
+
+    /**
+     * @return index of the first interval that starts after the given time
+     */
+    private int upperBound(long time) {
+        int lo = head;
+        int hi = tail;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (intervals[mid].getStart() <= time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void ensureCapacity() {
+        if (tail < intervals.length) {
+            return;
+        }
+
+        int size = tail - head;
+        if (size * 2 <= intervals.length) {
+            // enough room was freed by the expired intervals at the start
+            System.arraycopy(intervals, head, intervals, 0, size);
+            System.arraycopy(sequences, head, sequences, 0, size);
+            System.arraycopy(maxEnds, head, maxEnds, 0, size);
+            Arrays.fill(intervals, size, tail, null);
+        } else {
+            StationInterval[] newIntervals = new StationInterval[intervals.length * 2];
+            long[] newSequences = new long[intervals.length * 2];
+            long[] newMaxEnds = new long[intervals.length * 2];
+            System.arraycopy(intervals, head, newIntervals, 0, size);
+            System.arraycopy(sequences, head, newSequences, 0, size);
+            System.arraycopy(maxEnds, head, newMaxEnds, 0, size);
+            intervals = newIntervals;
+            sequences = newSequences;
+            maxEnds = newMaxEnds;
+        }
+
+        if (lastIndex != -1) {
+            lastIndex -= head;
+        }
+        tail = size;
+        head = 0;
+    }
+
+}
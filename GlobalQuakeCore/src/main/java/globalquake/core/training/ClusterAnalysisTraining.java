@@ -45,7 +45,7 @@ public class ClusterAnalysisTraining {
     }
 
     @SuppressWarnings("unused")
-    static final class SimulatedEarthquake {
+    public static final class SimulatedEarthquake {
         private final double lat;
         private final double lon;
         private final double depth;
@@ -139,21 +139,7 @@ public class ClusterAnalysisTraining {
 
         Random r = new Random(0);
 
-        List<AbstractStation> stations = new ArrayList<>();
-
-        double maxDist = 180;
-
-        for(int i  = 0; i < numStations; i++){
-            double dist = r.nextDouble() * maxDist / 360.0 * GeoUtils.EARTH_CIRCUMFERENCE;
-            double[] vals = GeoUtils.moveOnGlobe(0, 0, dist, r.nextDouble() * 360.0);
-
-            SimulatedStation simulatedStation = new SimulatedStation(vals[0], vals[1], 0);
-            simulatedStation.sensitivityMultiplier = Math.pow(r.nextDouble(), 2);
-
-            stations.add(simulatedStation);
-        }
-
-        GlobalStationManager.createListOfClosestStations(stations);
+        List<AbstractStation> stations = createStations(r, numStations);
 
         List<Earthquake> earthquakes = new CopyOnWriteArrayList<>();
 
@@ -183,12 +169,7 @@ public class ClusterAnalysisTraining {
         while (simulatedQuakesCount < MAX_QUAKES) {
 
             if(allSimulatedEarthquakes.size() < MAX_QUAKES && r.nextDouble() < 0.2){
-                double dist = r.nextDouble() * maxDist / 360.0 * GeoUtils.EARTH_CIRCUMFERENCE;
-                double[] vals = GeoUtils.moveOnGlobe(0, 0, dist, r.nextDouble() * 360.0);
-                double depth = r.nextDouble() * 600.0;
-                double mag = 5.0 + r.nextDouble() * 4.0;
-
-                SimulatedEarthquake earthquake = new SimulatedEarthquake(vals[0], vals[1], depth, time, mag);
+                SimulatedEarthquake earthquake = createEarthquake(r, time);
                 simulatedEarthquakes.add(earthquake);
                 allSimulatedEarthquakes.add(earthquake);
             }
@@ -263,9 +244,43 @@ public class ClusterAnalysisTraining {
         }
     }
 
+    private static final double MAX_DIST = 180;
+
+    /**
+     * Stations spread randomly over the whole globe, with random sensitivities.
+     */
+    public static List<AbstractStation> createStations(Random r, int numStations) {
+        List<AbstractStation> stations = new ArrayList<>();
+
+        for(int i  = 0; i < numStations; i++){
+            double dist = r.nextDouble() * MAX_DIST / 360.0 * GeoUtils.EARTH_CIRCUMFERENCE;
+            double[] vals = GeoUtils.moveOnGlobe(0, 0, dist, r.nextDouble() * 360.0);
+
+            SimulatedStation simulatedStation = new SimulatedStation(vals[0], vals[1], 0);
+            simulatedStation.sensitivityMultiplier = Math.pow(r.nextDouble(), 2);
+
+            stations.add(simulatedStation);
+        }
+
+        GlobalStationManager.createListOfClosestStations(stations);
+        return stations;
+    }
+
+    public static SimulatedEarthquake createEarthquake(Random r, long origin) {
+        double dist = r.nextDouble() * MAX_DIST / 360.0 * GeoUtils.EARTH_CIRCUMFERENCE;
+        double[] vals = GeoUtils.moveOnGlobe(0, 0, dist, r.nextDouble() * 360.0);
+        double depth = r.nextDouble() * 600.0;
+        double mag = 5.0 + r.nextDouble() * 4.0;
+
+        return new SimulatedEarthquake(vals[0], vals[1], depth, origin, mag);
+    }
+
     private static int eventC = 0;
 
-    private static void createEvents(List<AbstractStation> stations, List<SimulatedEarthquake> earthquakes, long time, Random r) {
+    /**
+     * Adds the P wave arrivals that have reached the stations by the given time.
+     */
+    public static void createEvents(List<AbstractStation> stations, List<SimulatedEarthquake> earthquakes, long time, Random r) {
         for (SimulatedEarthquake earthquake : earthquakes) {
             for (AbstractStation abstractStation : stations) {
                 SimulatedStation station = (SimulatedStation) abstractStation;
@@ -0,0 +1,88 @@
+package globalquake.core.training;
+
+import globalquake.core.earthquake.EarthquakeAnalysis;
+import globalquake.core.earthquake.data.Cluster;
+import globalquake.core.earthquake.data.HypocenterFinderSettings;
+import globalquake.core.earthquake.data.PickedEvent;
+import globalquake.core.earthquake.data.PreliminaryHypocenter;
+import globalquake.core.earthquake.interval.DepthConfidenceInterval;
+import globalquake.core.geo.taup.TauPTravelTimeCalculator;
+import globalquake.utils.GeoUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the time spent in the depth confidence interval by the full depth sweep and by the search
+ * from the depth profile, on the same scenarios as {@link EarthquakeAnalysisTraining}.
+ */
+@SuppressWarnings("unused")
+public class ConfidenceIntervalTraining {
+
+    private static final int SCENARIOS = 100;
+
+    public static void main(String[] args) throws Exception {
+        TauPTravelTimeCalculator.init();
+        EarthquakeAnalysis earthquakeAnalysis = new EarthquakeAnalysis();
+        earthquakeAnalysis.testing = true;
+        HypocenterFinderSettings finderSettings = new HypocenterFinderSettings(4000.0, 50.0, 40.0, 5);
+
+        long sweep = 0;
+        long profile = 0;
+        int differ = 0;
+        for (int i = 0; i < SCENARIOS; i++) {
+            Random r = new Random(888 + i);
+            List<PickedEvent> pickedEvents = createPickedEvents(r, i % 2 == 0 ? 200 : 15);
+
+            Cluster cluster = new Cluster();
+            cluster.updateRoot(pickedEvents.stream().mapToDouble(PickedEvent::lat).average().orElseThrow(),
+                    pickedEvents.stream().mapToDouble(PickedEvent::lon).average().orElseThrow());
+            cluster.resetAnchor();
+
+            PreliminaryHypocenter best = earthquakeAnalysis.runHypocenterFinder(pickedEvents, cluster, finderSettings, true);
+            if (best == null) {
+                continue;
+            }
+
+            long a = System.nanoTime();
+            DepthConfidenceInterval swept = earthquakeAnalysis.sweepDepthConfidenceInterval(pickedEvents, best, finderSettings);
+            long b = System.nanoTime();
+            DepthConfidenceInterval searched = earthquakeAnalysis.calculateDepthConfidenceInterval(pickedEvents, best, finderSettings, best.depthProfile);
+            long c = System.nanoTime();
+
+            sweep += b - a;
+            profile += c - b;
+            if (!swept.equals(searched)) {
+                differ++;
+            }
+        }
+
+        System.err.println("============================================");
+        System.err.printf("DEPTH SWEEP   = %,d ms%n", sweep / 1_000_000);
+        System.err.printf("DEPTH PROFILE = %,d ms%n", profile / 1_000_000);
+        System.err.printf("DIFFERENT     = %d%n", differ);
+        System.err.println("============================================");
+        System.exit(0);
+    }
+
+    private static List<PickedEvent> createPickedEvents(Random r, double depth) {
+        double quakeLat = r.nextDouble() * 10;
+        double quakeLon = r.nextDouble() * 10;
+
+        List<PickedEvent> pickedEvents = new ArrayList<>();
+        for (int station = 0; station < EarthquakeAnalysisTraining.STATIONS; station++) {
+            double[] latLon = GeoUtils.moveOnGlobe(0, 0, r.nextDouble() * EarthquakeAnalysisTraining.DIST, r.nextDouble() * 360.0);
+            double distGC = GeoUtils.greatCircleDistance(quakeLat, quakeLon, latLon[0], latLon[1]);
+            double travelTime = TauPTravelTimeCalculator.getPWaveTravelTime(depth, TauPTravelTimeCalculator.toAngle(distGC));
+
+            long time = (long) (travelTime * 1000.0) + (long) ((r.nextDouble() - 0.5) * EarthquakeAnalysisTraining.INACCURACY);
+            if (r.nextDouble() < 0.4) {
+                time += (long) ((r.nextDouble() * 10.0 - 5.0) * EarthquakeAnalysisTraining.INACCURACY);
+            }
+            pickedEvents.add(new PickedEvent(time, latLon[0], latLon[1], 0, 100));
+        }
+
+        return pickedEvents;
+    }
+}
@@ -0,0 +1,76 @@
+package globalquake.core.training;
+
+import globalquake.core.earthquake.EarthquakeAnalysis;
+import globalquake.core.intensity.IntensityTable;
+import globalquake.core.station.AbstractStation;
+import globalquake.core.station.GlobalStation;
+import globalquake.core.station.StationIndex;
+import globalquake.utils.GeoUtils;
+import gqserver.api.packets.station.InputType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares visiting all the stations with the station index when looking for stations
+ * that should obviously see an earthquake, at global station counts.
+ */
+@SuppressWarnings("unused")
+public class StationIndexTraining {
+
+    private static final double THRESHOLD = 256.0;
+    private static final int QUERIES = 500;
+
+    public static void main(String[] args) {
+        for (int count : new int[]{5000, 20000, 50000}) {
+            Random random = new Random(0);
+            List<AbstractStation> stations = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                double lat = Math.toDegrees(Math.asin(random.nextDouble() * 2 - 1));
+                double lon = random.nextDouble() * 360 - 180;
+                stations.add(new GlobalStation("", "", "", "", lat, lon, 0, i, null, -1, InputType.UNKNOWN));
+            }
+
+            long a = System.nanoTime();
+            StationIndex<AbstractStation> index = StationIndex.of(stations);
+            long build = System.nanoTime() - a;
+
+            // twice, the first round is a warm up
+            for (int round = 0; round < 2; round++) {
+                random = new Random(1);
+                long all = 0;
+                long indexed = 0;
+                long found = 0;
+                for (int q = 0; q < QUERIES; q++) {
+                    double lat = random.nextDouble() * 180 - 90;
+                    double lon = random.nextDouble() * 360 - 180;
+                    double mag = 3 + random.nextDouble() * 5;
+
+                    a = System.nanoTime();
+                    for (AbstractStation station : stations) {
+                        double dist = GeoUtils.greatCircleDistance(lat, lon, station.getLatitude(), station.getLongitude());
+                        if (IntensityTable.getIntensity(mag, GeoUtils.gcdToGeo(dist)) >= THRESHOLD) {
+                            found++;
+                        }
+                    }
+                    all += System.nanoTime() - a;
+
+                    a = System.nanoTime();
+                    double maxDist = EarthquakeAnalysis.getObviousArrivalsDistance(mag);
+                    for (StationIndex.StationDistance<AbstractStation> stationDistance : index.getStationsWithin(lat, lon, maxDist)) {
+                        if (IntensityTable.getIntensity(mag, GeoUtils.gcdToGeo(stationDistance.distance())) >= THRESHOLD) {
+                            found--;
+                        }
+                    }
+                    indexed += System.nanoTime() - a;
+                }
+
+                if (round == 1) {
+                    System.err.printf("%,d stations: build %.1f ms, all %.1f us/query, index %.1f us/query, mismatch %d%n",
+                            count, build / 1e6, all / 1e3 / QUERIES, indexed / 1e3 / QUERIES, found);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package globalquake.core.training;
+
+import globalquake.core.station.StationInterval;
+import globalquake.core.station.StationIntervalHistory;
+import globalquake.core.station.StationState;
+
+import java.util.Deque;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Compares the linear walk over the station state intervals with the sorted history,
+ * from a stable station with a few intervals to a flapping one that fills the whole storage time.
+ */
+@SuppressWarnings("unused")
+public class StationIntervalTraining {
+
+    private static final int QUERIES = 2_000_000;
+
+    public static void main(String[] args) {
+        for (int count : new int[]{4, 30, 180, 1000, 5000}) {
+            Random random = new Random(0);
+            Deque<StationInterval> list = new ConcurrentLinkedDeque<>();
+            StationIntervalHistory history = new StationIntervalHistory();
+
+            long time = 0;
+            for (int i = 0; i < count; i++) {
+                long length = 1000 + random.nextInt(10_000);
+                StationInterval interval = new StationInterval(time, time + length, i % 2 == 0 ? StationState.ACTIVE : StationState.INACTIVE);
+                list.add(interval);
+                history.add(interval);
+                time += length + random.nextInt(6000);
+            }
+
+            // twice, the first round is a warm up
+            for (int round = 0; round < 2; round++) {
+                random = new Random(1);
+                long[] queries = new long[QUERIES];
+                for (int q = 0; q < QUERIES; q++) {
+                    queries[q] = (long) (random.nextDouble() * time);
+                }
+
+                int mismatch = 0;
+                long a = System.nanoTime();
+                for (long query : queries) {
+                    StationState state = StationState.UNKNOWN;
+                    for (StationInterval interval : list) {
+                        if (query >= interval.getStart() && query < interval.getEnd()) {
+                            state = interval.getState();
+                            break;
+                        }
+                    }
+                    mismatch += state.ordinal();
+                }
+                long linear = System.nanoTime() - a;
+
+                a = System.nanoTime();
+                for (long query : queries) {
+                    mismatch -= history.getStateAt(query).ordinal();
+                }
+                long sorted = System.nanoTime() - a;
+
+                if (round == 1) {
+                    System.err.printf("%,d intervals: linear %.1f ns/query, history %.1f ns/query, mismatch %d%n",
+                            count, linear / (double) QUERIES, sorted / (double) QUERIES, mismatch);
+                }
+            }
+        }
+    }
+}
@@ -1,9 +1,6 @@
 package globalquake.ui.globe;
 
 import globalquake.core.Settings;
-import globalquake.core.regions.Regions;
-import globalquake.ui.globe.feature.FeatureGeoPolygons;
-import globalquake.ui.globe.feature.FeatureHorizon;
 import globalquake.ui.globe.feature.RenderEntity;
 import globalquake.utils.GeoUtils;
 import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
@@ -184,17 +181,7 @@ public class GlobePanel extends JPanel implements GeoUtils {
 
         });
 
-        renderer.addFeature(new FeatureHorizon(new Point2D(centerLat, centerLon), 1));
-
-        renderer.addFeature(new FeatureGeoPolygons(Regions.raw_polygonsMD, 0.5, Double.MAX_VALUE));
-        renderer.addFeature(new FeatureGeoPolygons(Regions.raw_polygonsHDFiltered, 0.25, 0.5));
-        renderer.addFeature(new FeatureGeoPolygons(Regions.raw_polygonsUHDFiltered, 0, 0.25));
-        renderer.addFeature(new FeatureGeoPolygons(Regions.raw_polygonsUS, 0, 0.5));
-        renderer.addFeature(new FeatureGeoPolygons(Regions.raw_polygonsAK, 0, 0.5));
-        renderer.addFeature(new FeatureGeoPolygons(Regions.raw_polygonsJP, 0, 0.5));
-        renderer.addFeature(new FeatureGeoPolygons(Regions.raw_polygonsNZ, 0, 0.5));
-        renderer.addFeature(new FeatureGeoPolygons(Regions.raw_polygonsHW, 0, 0.5));
-        renderer.addFeature(new FeatureGeoPolygons(Regions.raw_polygonsIT, 0, 0.20));
+        renderer.addBaseFeatures(new Point2D(centerLat, centerLon));
     }
 
     private void animationThread() {
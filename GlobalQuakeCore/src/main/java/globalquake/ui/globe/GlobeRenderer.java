@@ -1,17 +1,27 @@
 package globalquake.ui.globe;
 
+import globalquake.core.Settings;
+import globalquake.core.regions.Regions;
+import globalquake.ui.globe.feature.FeatureGeoPolygons;
+import globalquake.ui.globe.feature.FeatureHorizon;
 import globalquake.ui.globe.feature.RenderFeature;
 import globalquake.utils.GeoUtils;
 import globalquake.utils.Point2DGQ;
 import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
 import org.apache.commons.math3.geometry.euclidean.twod.Vector2D;
 import org.apache.commons.math3.util.FastMath;
+import org.tinylog.Logger;
 
 import java.awt.*;
 import java.awt.event.MouseEvent;
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class GlobeRenderer {
 
@@ -43,6 +53,24 @@ public class GlobeRenderer {
     private final List<RenderFeature<?>> renderFeatures;
     private Point lastMouse;
 
+    // static features at the bottom are rendered only once per camera state
+    private BufferedImage staticLayer;
+    private RenderProperties staticLayerProperties;
+    private int staticLayerSettings;
+    private int staticLayerRedraws;
+
+    private static final int PROCESS_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private static final int PARALLEL_THRESHOLD = 256;
+    private static final int CHUNK_SIZE = 64;
+
+    private static final ExecutorService processService = Executors.newFixedThreadPool(PROCESS_THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "Globe Renderer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<RenderFeature<?>> frameFeatures = new ArrayList<>();
+
     public GlobeRenderer(){
         renderFeatures = new ArrayList<>();
     }
@@ -98,28 +126,41 @@ public class GlobeRenderer {
         return point2D;
     }
 
+    public void projectPoint(Point2D result, double x, double y, double z, RenderProperties renderProperties) {
+        project(result, x, y, z,
+                GeoUtils.EARTH_RADIUS + renderProperties.getRenderPrecomputedValues().camera_altitude,
+                renderProperties.width, renderProperties.height, renderProperties);
+    }
+
     public boolean project3D(Path2D.Float result, Polygon3D polygon3D, boolean canClip, RenderProperties renderProperties) {
-        if(polygon3D == null || polygon3D.getBoundingBoxCorner(0) == null){
+        if(polygon3D == null || !polygon3D.isFinished()){
             return false;
         }
+        RenderPrecomputedValues precomputed = renderProperties.getRenderPrecomputedValues();
         Point2D point2D = new Point2D();
 
         boolean init = false;
         if (canClip) {
+            // whole polygon is on the far side of the globe
+            if (polygon3D.isBeyond(precomputed.cameraDirX, precomputed.cameraDirY, precomputed.cameraDirZ,
+                    precomputed.maxAngle, precomputed.cosMaxAngle, precomputed.sinMaxAngle)) {
+                return false;
+            }
+
             boolean onPlane = false;
             int totalMask = 0xFFFF;
 
             for (int i = 0; i < 8; i++) {
-                Vector3D point = polygon3D.getBoundingBoxCorner(i);
+                double x = polygon3D.getBoundingBoxX(i);
+                double y = polygon3D.getBoundingBoxY(i);
+                double z = polygon3D.getBoundingBoxZ(i);
 
-                project(point2D, point.getX(), point.getY(), point.getZ(),
-                        GeoUtils.EARTH_RADIUS + renderProperties.getRenderPrecomputedValues().camera_altitude,
-                        renderProperties.width, renderProperties.height, renderProperties);
+                projectPoint(point2D, x, y, z, renderProperties);
 
                 int mask = get_mask(point2D.x, point2D.y, renderProperties);
                 totalMask &= mask;
 
-                if (isAboveHorizon(point, renderProperties)) {
+                if (isAboveHorizon(x, y, z, renderProperties)) {
                     onPlane = true;
                 }
             }
@@ -129,39 +170,38 @@ public class GlobeRenderer {
             }
         }
 
-
-        Vector3D bowStart = null;
-        Vector3D bowEnd = null;
-        Vector3D firstStart = null;
+        int bowStart = -1;
+        int bowEnd = -1;
+        int firstStart = -1;
 
         boolean last = false;
         int mask = 0xFFFF;
-
-        for (int i = 0; i < polygon3D.getPoints().size(); i++) {
-            Vector3D point = polygon3D.getPoints().get(i);
-            if (!isAboveHorizon(point, renderProperties) && canClip) {
-                if (bowStart != null) {
-                    bowEnd = point;
+        int size = polygon3D.size();
+
+        for (int i = 0; i < size; i++) {
+            double x = polygon3D.getX(i);
+            double y = polygon3D.getY(i);
+            double z = polygon3D.getZ(i);
+            if (canClip && !isAboveHorizon(x, y, z, renderProperties)) {
+                if (bowStart != -1) {
+                    bowEnd = i;
                 }
                 if (last) {
                     break;
                 }
                 continue;
             } else {
-                if (firstStart == null) {
-                    firstStart = point;
+                if (firstStart == -1) {
+                    firstStart = i;
                 }
-                if (bowEnd != null) {
-                    bowAlgorithm(point2D, result, bowStart, point, true, renderProperties);
-                    bowEnd = null;
+                if (bowEnd != -1) {
+                    bowAlgorithm(point2D, result, polygon3D, bowStart, i, true, renderProperties);
+                    bowEnd = -1;
                 }
-                bowStart = point;
+                bowStart = i;
             }
 
-            project(point2D, point.getX(), point.getY(), point.getZ(),
-                    GeoUtils.EARTH_RADIUS + renderProperties.getRenderPrecomputedValues().camera_altitude,
-                    renderProperties.width, renderProperties.height, renderProperties
-            );
+            projectPoint(point2D, x, y, z, renderProperties);
 
             if (!init) {
                 result.moveTo(point2D.x, point2D.y);
@@ -171,7 +211,7 @@ public class GlobeRenderer {
             mask &= get_mask(point2D.x, point2D.y, renderProperties);
             result.lineTo(point2D.x, point2D.y);
 
-            if (point == polygon3D.getPoints().get(polygon3D.getPoints().size() - 1)) {
+            if (i == size - 1 && !last) {
                 i = 0;
                 last = true;
                 continue;
@@ -186,8 +226,8 @@ public class GlobeRenderer {
             return false;
         }
 
-        if (bowEnd != null) {
-            bowAlgorithm(point2D, result, bowStart, firstStart, true, renderProperties);
+        if (bowEnd != -1) {
+            bowAlgorithm(point2D, result, polygon3D, bowStart, firstStart, true, renderProperties);
         }
 
         return true;
@@ -216,21 +256,15 @@ public class GlobeRenderer {
     }
 
     @SuppressWarnings("SameParameterValue")
-    private void bowAlgorithm(Point2D point2D, Path2D.Float result, Vector3D bowStart, Vector3D bowEnd, boolean bow, RenderProperties renderProperties) {
-        project(point2D, bowStart.getX(), bowStart.getY(), bowStart.getZ(),
-                GeoUtils.EARTH_RADIUS + renderProperties.getRenderPrecomputedValues().camera_altitude,
-                renderProperties.width, renderProperties.height, renderProperties
-        );
+    private void bowAlgorithm(Point2D point2D, Path2D.Float result, Polygon3D polygon3D, int bowStart, int bowEnd, boolean bow, RenderProperties renderProperties) {
+        projectPoint(point2D, polygon3D.getX(bowStart), polygon3D.getY(bowStart), polygon3D.getZ(bowStart), renderProperties);
 
         ground(point2D, renderProperties);
 
         double startX = point2D.x;
         double startY = point2D.y;
 
-        project(point2D, bowEnd.getX(), bowEnd.getY(), bowEnd.getZ(),
-                GeoUtils.EARTH_RADIUS + renderProperties.getRenderPrecomputedValues().camera_altitude,
-                renderProperties.width, renderProperties.height, renderProperties
-        );
+        projectPoint(point2D, polygon3D.getX(bowEnd), polygon3D.getY(bowEnd), polygon3D.getZ(bowEnd), renderProperties);
 
 
         ground(point2D, renderProperties);
@@ -280,8 +314,15 @@ public class GlobeRenderer {
     }
 
     public boolean isAboveHorizon(Vector3D point, RenderProperties renderProperties) {
-        double cameraToPoint = renderProperties.getRenderPrecomputedValues().cameraPoint.distance(point);
-        return cameraToPoint <= renderProperties.getRenderPrecomputedValues().maxDistance;
+        return isAboveHorizon(point.getX(), point.getY(), point.getZ(), renderProperties);
+    }
+
+    public boolean isAboveHorizon(double x, double y, double z, RenderProperties renderProperties) {
+        RenderPrecomputedValues precomputed = renderProperties.getRenderPrecomputedValues();
+        double dx = x - precomputed.cameraX;
+        double dy = y - precomputed.cameraY;
+        double dz = z - precomputed.cameraZ;
+        return dx * dx + dy * dy + dz * dz <= precomputed.maxDistanceSquared;
     }
 
     public static double getX_3D(double lat, double lon, double alt) {
@@ -301,16 +342,174 @@ public class GlobeRenderer {
     public synchronized void render(Graphics2D graphics, RenderProperties props) {
         graphics.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
 
-        renderFeatures.stream().filter(renderFeature -> renderFeature.isEnabled(props)).forEach(feature -> {
-            feature.process(this, props);
-            feature.renderAll(this, graphics, props);
-        });
+        int staticCount = 0;
+        while (staticCount < renderFeatures.size() && renderFeatures.get(staticCount).isStatic()) {
+            staticCount++;
+        }
+
+        boolean redrawStatic = staticCount > 0 && prepareStaticLayer(graphics, props);
+
+        frameFeatures.clear();
+        int frameStaticCount = 0;
+        for (int i = redrawStatic ? 0 : staticCount; i < renderFeatures.size(); i++) {
+            RenderFeature<?> feature = renderFeatures.get(i);
+            if (feature.isEnabled(props)) {
+                frameFeatures.add(feature);
+                if (i < staticCount) {
+                    frameStaticCount++;
+                }
+            }
+        }
+
+        processFeatures(props);
+
+        if (redrawStatic) {
+            redrawStaticLayer(graphics, props, staticCount);
+        }
+
+        if (staticCount > 0 && staticLayer != null) {
+            graphics.drawImage(staticLayer, 0, 0, props.width, props.height, null);
+        }
+
+        for (int i = frameStaticCount; i < frameFeatures.size(); i++) {
+            frameFeatures.get(i).renderAll(this, graphics, props);
+        }
+    }
+
+    /**
+     * Creates and projects everything that changed in all features of this frame at once.
+     * The work is split into chunks of entity slots that run on a dedicated pool, the calling thread takes part as well.
+     */
+    private void processFeatures(RenderProperties props) {
+        int total = 0;
+        for (RenderFeature<?> feature : frameFeatures) {
+            total += feature.prepare(props);
+        }
+
+        if (total == 0) {
+            return;
+        }
+
+        if (total < PARALLEL_THRESHOLD) {
+            for (RenderFeature<?> feature : frameFeatures) {
+                feature.process(this, props, 0, feature.getEntities().size());
+            }
+            return;
+        }
+
+        List<Runnable> chunks = new ArrayList<>();
+        for (RenderFeature<?> feature : frameFeatures) {
+            int size = feature.getEntities().size();
+            int chunkSize = Math.max(CHUNK_SIZE, size / (PROCESS_THREADS * 4) + 1);
+            for (int from = 0; from < size; from += chunkSize) {
+                int start = from;
+                int end = Math.min(size, from + chunkSize);
+                chunks.add(() -> feature.process(this, props, start, end));
+            }
+        }
+
+        CountDownLatch latch = new CountDownLatch(chunks.size() - 1);
+        for (int i = 1; i < chunks.size(); i++) {
+            Runnable chunk = chunks.get(i);
+            processService.execute(() -> {
+                try {
+                    chunk.run();
+                } catch (Exception e) {
+                    Logger.error(e);
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        try {
+            chunks.get(0).run();
+        } finally {
+            // the pool tasks write into the same entities, so they must finish even if this chunk fails
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    latch.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return true if the static layer has to be redrawn in this frame
+     */
+    private boolean prepareStaticLayer(Graphics2D graphics, RenderProperties props) {
+        // render in device pixels so that the layer stays sharp on scaled displays
+        AffineTransform transform = graphics.getTransform();
+        int width = (int) Math.ceil(props.width * transform.getScaleX());
+        int height = (int) Math.ceil(props.height * transform.getScaleY());
+        if (width <= 0 || height <= 0) {
+            return false;
+        }
+
+        if (staticLayer == null || staticLayer.getWidth() != width || staticLayer.getHeight() != height) {
+            staticLayer = graphics.getDeviceConfiguration().createCompatibleImage(width, height);
+            staticLayerProperties = null;
+        }
+
+        return props != staticLayerProperties || Settings.changes != staticLayerSettings;
+    }
+
+    private void redrawStaticLayer(Graphics2D graphics, RenderProperties props, int count) {
+        AffineTransform transform = graphics.getTransform();
+        Graphics2D g = staticLayer.createGraphics();
+        try {
+            g.setColor(Color.black);
+            g.fillRect(0, 0, staticLayer.getWidth(), staticLayer.getHeight());
+            g.scale(transform.getScaleX(), transform.getScaleY());
+            g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+
+            for (RenderFeature<?> feature : renderFeatures.subList(0, count)) {
+                if (feature.isEnabled(props)) {
+                    feature.renderAll(this, g, props);
+                }
+            }
+        } finally {
+            g.dispose();
+        }
+
+        staticLayerProperties = props;
+        staticLayerSettings = Settings.changes;
+        staticLayerRedraws++;
+    }
+
+    int getStaticLayerRedraws() {
+        return staticLayerRedraws;
     }
 
     public synchronized void addFeature(RenderFeature<?> renderFeature){
         renderFeatures.add(renderFeature);
     }
 
+    /**
+     * Adds the horizon and the land and region polygons, which form the static base of every globe.
+     */
+    public void addBaseFeatures(Point2D center) {
+        addFeature(new FeatureHorizon(center, 1));
+
+        addFeature(new FeatureGeoPolygons(Regions.raw_polygonsMD, 0.5, Double.MAX_VALUE));
+        addFeature(new FeatureGeoPolygons(Regions.raw_polygonsHDFiltered, 0.25, 0.5));
+        addFeature(new FeatureGeoPolygons(Regions.raw_polygonsUHDFiltered, 0, 0.25));
+        addFeature(new FeatureGeoPolygons(Regions.raw_polygonsUS, 0, 0.5));
+        addFeature(new FeatureGeoPolygons(Regions.raw_polygonsAK, 0, 0.5));
+        addFeature(new FeatureGeoPolygons(Regions.raw_polygonsJP, 0, 0.5));
+        addFeature(new FeatureGeoPolygons(Regions.raw_polygonsNZ, 0, 0.5));
+        addFeature(new FeatureGeoPolygons(Regions.raw_polygonsHW, 0, 0.5));
+        addFeature(new FeatureGeoPolygons(Regions.raw_polygonsIT, 0, 0.20));
+    }
+
     public static Vector3D createVec3D(Vector2D latLon, double alt) {
         double x = getX_3D(latLon.getX(), latLon.getY(), alt);
         double y = getY_3D(latLon.getX(), latLon.getY(), alt);
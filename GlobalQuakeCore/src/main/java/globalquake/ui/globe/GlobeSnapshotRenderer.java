@@ -0,0 +1,148 @@
+package globalquake.ui.globe;
+
+import org.tinylog.Logger;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Renders the globe into images without any window, so it works on a headless server as well.
+ * Every worker thread keeps its own {@link GlobeRenderer} with the base features, so the simplified polygons
+ * are reused between snapshots. The camera is centered on a grid node near the requested position,
+ * so the revisions of an earthquake and nearby earthquakes share the camera and the cached static layer.
+ */
+public class GlobeSnapshotRenderer {
+
+    public static final double DEFAULT_SCROLL = 0.2;
+    public static final String DEFAULT_FORMAT = "png";
+
+    private static final int THREADS = 2;
+
+    // degrees, small enough that the requested position stays near the center at the default scroll
+    static final double CAMERA_GRID = 2.0;
+
+    public interface Overlay {
+        void draw(Graphics2D graphics, GlobeRenderer renderer, RenderProperties renderProperties);
+    }
+
+    private static final ExecutorService renderService = Executors.newFixedThreadPool(THREADS, runnable -> {
+        Thread thread = new Thread(runnable, "Globe Snapshot Renderer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final ThreadLocal<SnapshotContext> contexts = ThreadLocal.withInitial(SnapshotContext::new);
+
+    private static final class SnapshotContext {
+        private final GlobeRenderer renderer = new GlobeRenderer();
+        private RenderProperties lastProperties;
+
+        private SnapshotContext() {
+            renderer.addBaseFeatures(new Point2D(0, 0));
+        }
+
+        private RenderProperties getProperties(int width, int height, double lat, double lon, double scroll) {
+            // the same camera keeps the same properties, so nothing has to be projected again
+            if (lastProperties == null || lastProperties.width != width || lastProperties.height != height
+                    || lastProperties.centerLat != lat || lastProperties.centerLon != lon || lastProperties.scroll != scroll) {
+                lastProperties = new RenderProperties(width, height, lat, lon, scroll);
+                renderer.updateCamera(lastProperties);
+            }
+            return lastProperties;
+        }
+    }
+
+    /**
+     * Renders the globe centered at the given coordinates on the snapshot pool.
+     *
+     * @param overlay drawn over the globe, can be null
+     */
+    public static CompletableFuture<BufferedImage> render(double lat, double lon, double scroll, int width, int height, Overlay overlay) {
+        return CompletableFuture.supplyAsync(() -> renderNow(lat, lon, scroll, width, height, overlay), renderService);
+    }
+
+    /**
+     * Renders the globe on the calling thread.
+     */
+    public static BufferedImage renderNow(double lat, double lon, double scroll, int width, int height, Overlay overlay) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid snapshot size %dx%d".formatted(width, height));
+        }
+
+        SnapshotContext context = contexts.get();
+        RenderProperties properties = context.getProperties(width, height, snapLat(lat), snapLon(lon), scroll);
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(Color.black);
+            graphics.fillRect(0, 0, width, height);
+            context.renderer.render(graphics, properties);
+
+            if (overlay != null) {
+                overlay.draw(graphics, context.renderer, properties);
+            }
+        } finally {
+            graphics.dispose();
+        }
+
+        return image;
+    }
+
+    static double snapLat(double lat) {
+        return Math.max(-90, Math.min(90, Math.round(lat / CAMERA_GRID) * CAMERA_GRID));
+    }
+
+    static double snapLon(double lon) {
+        double snapped = Math.round(lon / CAMERA_GRID) * CAMERA_GRID;
+        return snapped >= 180 ? snapped - 360 : snapped < -180 ? snapped + 360 : snapped;
+    }
+
+    /**
+     * Writes the image in the format given by the file extension. Formats that the installed
+     * image writers don't support, such as WebP without a plugin, fall back to PNG.
+     *
+     * @return the file that was actually written
+     */
+    public static File write(BufferedImage image, File file) throws IOException {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        String format = dot == -1 ? DEFAULT_FORMAT : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+
+        if (!ImageIO.getImageWritersBySuffix(format).hasNext()) {
+            Logger.warn("Image format %s is not supported, %s will be used instead".formatted(format, DEFAULT_FORMAT));
+            format = DEFAULT_FORMAT;
+            file = new File(file.getParentFile(), (dot == -1 ? name : name.substring(0, dot)) + "." + DEFAULT_FORMAT);
+        }
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Unable to create directory %s".formatted(parent.getAbsolutePath()));
+        }
+
+        // readers of the published file never see it half written
+        File temp = new File(parent, file.getName() + ".tmp");
+        if (!ImageIO.write(image, format, temp)) {
+            throw new IOException("No image writer for %s".formatted(format));
+        }
+
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        return file;
+    }
+
+}
@@ -3,88 +3,251 @@ package globalquake.ui.globe;
 import globalquake.utils.GeoUtils;
 import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
+/**
+ * Points of a polygon packed as x, y, z triplets, together with its bounding box and the bounding cap,
+ * the smallest cone around the centre of the Earth that was found to contain all the points.
+ */
 public class Polygon3D {
-    private final List<Vector3D> points;
 
-    private Vector3D minPoint;
-    private Vector3D maxPoint;
-    private Vector3D[] bbox;
+    private double[] coords;
+    private int size;
+
+    private double minX, minY, minZ;
+    private double maxX, maxY, maxZ;
+
+    private final double[] bbox = new double[8 * 3];
+    private boolean finished;
+
+    private double capX, capY, capZ;
+    private double capAngle = Math.PI;
+    private double capCos = -1;
+    private double capSin = 0;
 
     public Polygon3D() {
-        points = new ArrayList<>();
-        minPoint = new Vector3D(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
-        maxPoint = new Vector3D(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
+        this(16);
     }
 
-    public static Vector3D min(Vector3D v1, Vector3D v2) {
-        double minX = Math.min(v1.getX(), v2.getX());
-        double minY = Math.min(v1.getY(), v2.getY());
-        double minZ = Math.min(v1.getZ(), v2.getZ());
-        return new Vector3D(minX, minY, minZ);
+    public Polygon3D(int capacity) {
+        coords = new double[Math.max(1, capacity) * 3];
+        resetBounds();
     }
 
-    public static Vector3D max(Vector3D v1, Vector3D v2) {
-        double maxX = Math.max(v1.getX(), v2.getX());
-        double maxY = Math.max(v1.getY(), v2.getY());
-        double maxZ = Math.max(v1.getZ(), v2.getZ());
-        return new Vector3D(maxX, maxY, maxZ);
+    private void resetBounds() {
+        minX = minY = minZ = Double.POSITIVE_INFINITY;
+        maxX = maxY = maxZ = Double.NEGATIVE_INFINITY;
     }
 
-    Vector3D ground(Vector3D space) {
-        double dist = space.distance(GlobeRenderer.CENTER);
-        double mul = GeoUtils.EARTH_RADIUS / dist;
+    public void addPoint(Vector3D point) {
+        addPoint(point.getX(), point.getY(), point.getZ());
+    }
 
-        return new Vector3D(space.getX() * mul, space.getY() * mul, space.getZ() * mul);
+    public void addPoint(double x, double y, double z) {
+        if (size * 3 == coords.length) {
+            coords = Arrays.copyOf(coords, coords.length * 2);
+        }
+
+        coords[size * 3] = x;
+        coords[size * 3 + 1] = y;
+        coords[size * 3 + 2] = z;
+        size++;
+
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        minZ = Math.min(minZ, z);
+        maxX = Math.max(maxX, x);
+        maxY = Math.max(maxY, y);
+        maxZ = Math.max(maxZ, z);
     }
 
     public void finish() {
-        bbox = new Vector3D[]{
-                ground(getBoundingBoxTempCorner(0)),
-                ground(getBoundingBoxTempCorner(1)),
-                ground(getBoundingBoxTempCorner(2)),
-                ground(getBoundingBoxTempCorner(3)),
-                ground(getBoundingBoxTempCorner(4)),
-                ground(getBoundingBoxTempCorner(5)),
-                ground(getBoundingBoxTempCorner(6)),
-                ground(getBoundingBoxTempCorner(7))
-        };
+        for (int i = 0; i < 8; i++) {
+            double x = (i & 1) == 0 ? minX : maxX;
+            double y = (i & 2) == 0 ? minY : maxY;
+            double z = (i & 4) == 0 ? minZ : maxZ;
+
+            // corners are moved to the ground
+            double mul = GeoUtils.EARTH_RADIUS / Math.sqrt(x * x + y * y + z * z);
+            bbox[i * 3] = x * mul;
+            bbox[i * 3 + 1] = y * mul;
+            bbox[i * 3 + 2] = z * mul;
+        }
+
+        computeCap();
+        finished = true;
     }
 
-    public void addPoint(Vector3D point) {
-        points.add(point);
-        minPoint = min(minPoint, point);
-        maxPoint = max(maxPoint, point);
+    private void computeCap() {
+        double sumX = 0, sumY = 0, sumZ = 0;
+        for (int i = 0; i < size; i++) {
+            double len = length(i);
+            if (len > 0) {
+                sumX += getX(i) / len;
+                sumY += getY(i) / len;
+                sumZ += getZ(i) / len;
+            }
+        }
+
+        double sumLen = Math.sqrt(sumX * sumX + sumY * sumY + sumZ * sumZ);
+        if (sumLen < 1e-9) {
+            capAngle = Math.PI;
+            capCos = -1;
+            capSin = 0;
+            return;
+        }
+
+        capX = sumX / sumLen;
+        capY = sumY / sumLen;
+        capZ = sumZ / sumLen;
+
+        double minDot = 1;
+        for (int i = 0; i < size; i++) {
+            double len = length(i);
+            if (len > 0) {
+                minDot = Math.min(minDot, (getX(i) * capX + getY(i) * capY + getZ(i) * capZ) / len);
+            }
+        }
+
+        capCos = Math.max(-1, Math.min(1, minDot));
+        capSin = Math.sqrt(1 - capCos * capCos);
+        capAngle = Math.acos(capCos);
+    }
+
+    private double length(int index) {
+        double x = getX(index);
+        double y = getY(index);
+        double z = getZ(index);
+        return Math.sqrt(x * x + y * y + z * z);
+    }
+
+    /**
+     * @return true if the whole polygon lies further from the direction than the given angle, whatever its altitude
+     */
+    boolean isBeyond(double dirX, double dirY, double dirZ, double angle, double cosAngle, double sinAngle) {
+        if (angle + capAngle >= Math.PI) {
+            return false;
+        }
+
+        // cos(angle + cap angle)
+        double limit = cosAngle * capCos - sinAngle * capSin;
+        return dirX * capX + dirY * capY + dirZ * capZ < limit;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public int size() {
+        return size;
     }
 
-    public List<Vector3D> getPoints() {
-        return points;
+    public double getX(int index) {
+        return coords[index * 3];
     }
 
-    public Vector3D getBoundingBoxCorner(int index) {
-        if (index < 0 || index > 7) {
-            throw new IllegalArgumentException("Index must be between 0 and 7");
+    public double getY(int index) {
+        return coords[index * 3 + 1];
+    }
+
+    public double getZ(int index) {
+        return coords[index * 3 + 2];
+    }
+
+    double getBoundingBoxX(int corner) {
+        return bbox[corner * 3];
+    }
+
+    double getBoundingBoxY(int corner) {
+        return bbox[corner * 3 + 1];
+    }
+
+    double getBoundingBoxZ(int corner) {
+        return bbox[corner * 3 + 2];
+    }
+
+    /**
+     * Douglas–Peucker simplification of the points, keeping the first and the last one.
+     *
+     * @param tolerance maximal distance in km of a removed point from the simplified line
+     */
+    public Polygon3D simplify(double tolerance) {
+        if (size <= 3 || tolerance <= 0) {
+            Polygon3D copy = new Polygon3D(size);
+            copy.addAll(this, null);
+            copy.finish();
+            return copy;
         }
-        return bbox == null ? null : bbox[index];
+
+        boolean[] keep = new boolean[size];
+        keep[0] = true;
+        keep[size - 1] = true;
+
+        double toleranceSquared = tolerance * tolerance;
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = size - 1;
+
+        int kept = 2;
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+
+            int farthest = -1;
+            double maxDistance = toleranceSquared;
+            for (int i = first + 1; i < last; i++) {
+                double distance = segmentDistanceSquared(i, first, last);
+                if (distance > maxDistance) {
+                    maxDistance = distance;
+                    farthest = i;
+                }
+            }
+
+            if (farthest != -1) {
+                keep[farthest] = true;
+                kept++;
+                if (top + 4 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[top++] = first;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = last;
+            }
+        }
+
+        Polygon3D result = new Polygon3D(kept);
+        result.addAll(this, keep);
+        result.finish();
+        return result;
     }
 
-    private Vector3D getBoundingBoxTempCorner(int index) {
-        if (index < 0 || index > 7) {
-            throw new IllegalArgumentException("Index must be between 0 and 7");
+    private void addAll(Polygon3D other, boolean[] keep) {
+        for (int i = 0; i < other.size; i++) {
+            if (keep == null || keep[i]) {
+                addPoint(other.getX(i), other.getY(i), other.getZ(i));
+            }
         }
+    }
+
+    private double segmentDistanceSquared(int point, int start, int end) {
+        double ax = getX(start), ay = getY(start), az = getZ(start);
+        double dx = getX(end) - ax, dy = getY(end) - ay, dz = getZ(end) - az;
+        double px = getX(point) - ax, py = getY(point) - ay, pz = getZ(point) - az;
 
-        double x = (index & 1) == 0 ? minPoint.getX() : maxPoint.getX();
-        double y = (index & 2) == 0 ? minPoint.getY() : maxPoint.getY();
-        double z = (index & 4) == 0 ? minPoint.getZ() : maxPoint.getZ();
+        double lengthSquared = dx * dx + dy * dy + dz * dz;
+        double t = lengthSquared == 0 ? 0 : Math.max(0, Math.min(1, (px * dx + py * dy + pz * dz) / lengthSquared));
 
-        return new Vector3D(x, y, z);
+        double ex = px - t * dx;
+        double ey = py - t * dy;
+        double ez = pz - t * dz;
+        return ex * ex + ey * ey + ez * ez;
     }
 
     public void reset() {
-        getPoints().clear();
-        minPoint = new Vector3D(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
-        maxPoint = new Vector3D(Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
+        size = 0;
+        finished = false;
+        resetBounds();
     }
 }
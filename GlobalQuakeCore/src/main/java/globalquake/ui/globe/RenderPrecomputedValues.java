@@ -14,6 +14,15 @@ public class RenderPrecomputedValues {
     public double oneDegPx;
     public double maxAngle;
     public double maxDistance;
+    public double maxDistanceSquared;
+    public double cosMaxAngle;
+    public double sinMaxAngle;
+    public final double cameraX;
+    public final double cameraY;
+    public final double cameraZ;
+    public final double cameraDirX;
+    public final double cameraDirY;
+    public final double cameraDirZ;
     public final double cosYaw;
     public final double sinYaw;
     public final double cosPitch;
@@ -34,6 +43,15 @@ public class RenderPrecomputedValues {
         cameraPoint = new Vector3D(getX_3D(renderProperties.centerLat, renderProperties.centerLon, camera_altitude * 1000),
                 getY_3D(renderProperties.centerLat, renderProperties.centerLon, camera_altitude * 1000),
                 GlobeRenderer.getZ_3D(renderProperties.centerLat, renderProperties.centerLon, camera_altitude * 1000));
+
+        cameraX = cameraPoint.getX();
+        cameraY = cameraPoint.getY();
+        cameraZ = cameraPoint.getZ();
+
+        double cameraDist = cameraPoint.getNorm();
+        cameraDirX = cameraX / cameraDist;
+        cameraDirY = cameraY / cameraDist;
+        cameraDirZ = cameraZ / cameraDist;
      }
 
     public void part2(GlobeRenderer renderer, RenderProperties renderProperties){
@@ -52,12 +70,15 @@ public class RenderPrecomputedValues {
 
         double centerToCamera = GlobeRenderer.CENTER.distance(cameraPoint);
         maxAngle = FastMath.acos(GeoUtils.EARTH_RADIUS / centerToCamera);
+        cosMaxAngle = FastMath.cos(maxAngle);
+        sinMaxAngle = FastMath.sin(maxAngle);
 
         double[] data1 = GeoUtils.moveOnGlobe(renderProperties.centerLat, renderProperties.centerLon, GeoUtils.EARTH_CIRCUMFERENCE * (maxAngle / (2.0 * Math.PI)), 0);
         Vector3D horizonPoint = new Vector3D(getX_3D(data1[0], data1[1], 0),
                 getY_3D(data1[0], data1[1], 0), GlobeRenderer.getZ_3D(data1[0], data1[1], 0));
 
         maxDistance = horizonPoint.distance(cameraPoint);
+        maxDistanceSquared = maxDistance * maxDistance;
 
         Point2D point2D = new Point2D();
 
@@ -1,29 +1,34 @@
 package globalquake.ui.globe.feature;
 
+import globalquake.core.regions.GeoPolygon;
 import globalquake.ui.globe.GlobeRenderer;
 import globalquake.ui.globe.Point2D;
 import globalquake.ui.globe.Polygon3D;
 import globalquake.ui.globe.RenderProperties;
-import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
-import org.apache.commons.math3.geometry.euclidean.twod.Vector2D;
-import org.geojson.LngLatAlt;
-import org.geojson.Polygon;
 
 import java.awt.*;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class FeatureGeoPolygons extends RenderFeature<Polygon> {
+public class FeatureGeoPolygons extends RenderFeature<GeoPolygon> {
 
     public static final Color oceanColor = new Color(5, 20, 30);
     public static final Color landColor = new Color(15, 47, 68);
     public static final Color borderColor = new Color(153, 153, 153);
 
-    private final List<Polygon> polygonList;
+    // Douglas-Peucker tolerances in km, a level is used once its error is below half a pixel
+    private static final double[] LOD_TOLERANCES = {0, 0.25, 1, 4, 16};
+    private static final double MAX_ERROR_PX = 0.5;
+
+    private final List<GeoPolygon> polygonList;
+    // shared by all globes, the levels are never modified once created
+    private static final Map<GeoPolygon, Polygon3D[]> levels = new ConcurrentHashMap<>();
     private final double minScroll;
     private final double maxScroll;
 
-    public FeatureGeoPolygons(List<Polygon> polygonList, double minScroll, double maxScroll){
+    public FeatureGeoPolygons(List<GeoPolygon> polygonList, double minScroll, double maxScroll){
         super(1);
         this.polygonList = polygonList;
         this.minScroll = minScroll;
@@ -31,7 +36,7 @@ public class FeatureGeoPolygons extends RenderFeature<Polygon> {
     }
 
     @Override
-    public Collection<Polygon> getElements() {
+    public Collection<GeoPolygon> getElements() {
         return polygonList;
     }
 
@@ -40,36 +45,68 @@ public class FeatureGeoPolygons extends RenderFeature<Polygon> {
         return properties.scroll >=minScroll && properties.scroll < maxScroll;
     }
 
+    @Override
+    public boolean isStatic() {
+        return true;
+    }
+
     @Override
     public boolean needsUpdateEntities() {
         return false;
     }
 
     @Override
-    public boolean needsProject(RenderEntity<Polygon> entity, boolean propertiesChanged) {
+    public boolean needsProject(RenderEntity<GeoPolygon> entity, boolean propertiesChanged) {
         return propertiesChanged;
     }
 
     @Override
-    public boolean needsCreatePolygon(RenderEntity<Polygon> entity, boolean propertiesChanged) {
+    public boolean needsCreatePolygon(RenderEntity<GeoPolygon> entity, boolean propertiesChanged) {
         return false;
     }
 
     @Override
-    public void createPolygon(GlobeRenderer renderer, RenderEntity<Polygon> entity, RenderProperties renderProperties) {
-        Polygon3D result_pol = new Polygon3D();
-        for (LngLatAlt pos : entity.getOriginal().getCoordinates().get(0)) {
-            Vector3D vec = GlobeRenderer.createVec3D(new Vector2D(pos.getLatitude(), pos.getLongitude()), 0);
-            result_pol.addPoint(vec);
+    public void createPolygon(GlobeRenderer renderer, RenderEntity<GeoPolygon> entity, RenderProperties renderProperties) {
+        levels.computeIfAbsent(entity.getOriginal(), FeatureGeoPolygons::createLevels);
+    }
+
+    private static Polygon3D[] createLevels(GeoPolygon polygon) {
+        Polygon3D full = new Polygon3D(polygon.size());
+        for (int i = 0; i < polygon.size(); i++) {
+            double lat = polygon.getLat(i);
+            double lon = polygon.getLon(i);
+            full.addPoint(GlobeRenderer.getX_3D(lat, lon, 0), GlobeRenderer.getY_3D(lat, lon, 0), GlobeRenderer.getZ_3D(lat, lon, 0));
         }
+        full.finish();
 
-        result_pol.finish();
-        entity.getRenderElement(0).setPolygon(result_pol);
+        Polygon3D[] result = new Polygon3D[LOD_TOLERANCES.length];
+        result[0] = full;
+        for (int level = 1; level < LOD_TOLERANCES.length; level++) {
+            // simplifying the previous level is much cheaper and the error stays within the sum of both tolerances
+            result[level] = result[level - 1].simplify(LOD_TOLERANCES[level] - LOD_TOLERANCES[level - 1]);
+        }
+
+        return result;
+    }
+
+    private static Polygon3D selectLevel(Polygon3D[] polygons, RenderProperties renderProperties) {
+        double kmPerPx = 1.0 / renderProperties.getRenderPrecomputedValues().oneDegPx;
+        int level = 0;
+        while (level + 1 < polygons.length && LOD_TOLERANCES[level + 1] <= kmPerPx * MAX_ERROR_PX) {
+            level++;
+        }
+        return polygons[level];
     }
 
     @Override
-    public void project(GlobeRenderer renderer, RenderEntity<Polygon> entity, RenderProperties renderProperties) {
+    public void project(GlobeRenderer renderer, RenderEntity<GeoPolygon> entity, RenderProperties renderProperties) {
         RenderElement element = entity.getRenderElement(0);
+        Polygon3D[] polygons = levels.get(entity.getOriginal());
+        if (polygons != null) {
+            element.setPolygon(selectLevel(polygons, renderProperties));
+        }
+
+        // the path keeps its buffers after reset, so they are reused for every camera change
         element.getShape().reset();
         element.shouldDraw = renderer.project3D(element.getShape(), element.getPolygon(), true, renderProperties);
     }
@@ -80,7 +117,7 @@ public class FeatureGeoPolygons extends RenderFeature<Polygon> {
     }
 
     @Override
-    public void render(GlobeRenderer renderer, Graphics2D graphics, RenderEntity<Polygon> entity, RenderProperties renderProperties) {
+    public void render(GlobeRenderer renderer, Graphics2D graphics, RenderEntity<GeoPolygon> entity, RenderProperties renderProperties) {
         RenderElement element = entity.getRenderElement(0);
         if(!element.shouldDraw){
             return;
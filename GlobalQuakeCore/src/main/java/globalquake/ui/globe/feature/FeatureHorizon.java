@@ -43,6 +43,11 @@ public class FeatureHorizon extends RenderFeature<Point2D>{
         return true;
     }
 
+    @Override
+    public boolean isStatic() {
+        return true;
+    }
+
     @Override
     public boolean needsUpdateEntities() {
         return false;
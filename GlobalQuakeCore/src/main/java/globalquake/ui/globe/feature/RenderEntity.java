@@ -6,6 +6,10 @@ public class RenderEntity<E> {
 
     private final RenderElement[] renderElements;
 
+    // set by RenderFeature.prepare for the current frame
+    boolean needsCreate;
+    boolean needsProject;
+
     public RenderEntity(E original, int renderElements){
         this.original = original;
         this.renderElements = new RenderElement[renderElements];
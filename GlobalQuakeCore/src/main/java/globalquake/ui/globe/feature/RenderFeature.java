@@ -7,65 +7,103 @@ import globalquake.ui.globe.RenderProperties;
 import globalquake.utils.monitorable.Monitorable;
 
 import java.awt.*;
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.*;
+import java.util.List;
 
 public abstract class RenderFeature<E> {
 
     private final int renderElements;
-    private int lastHash = -651684313; // random
+    private int lastVersion = -651684313; // random
     private RenderProperties lastProperties;
     private int settingsChanges = 0;
 
     public abstract Collection<E> getElements();
 
-    private ConcurrentHashMap<E, RenderEntity<E>> entities = new ConcurrentHashMap<>();
-    private ConcurrentHashMap<E, RenderEntity<E>> entities_temp = new ConcurrentHashMap<>();
+    // entities keep their slot as long as their element stays in the collection
+    private volatile List<RenderEntity<E>> entities = List.of();
+    private Map<E, RenderEntity<E>> entityIndex = new HashMap<>();
+    private Map<E, RenderEntity<E>> entityIndexTemp = new HashMap<>();
 
     public RenderFeature(int renderElements){
         this.renderElements = renderElements;
     }
 
-    private void swapEntities(){
-        var entities3 = entities;
-        entities = entities_temp;
-        entities_temp = entities3;
+    /**
+     * Change version of the elements. {@link Monitorable} collections report it directly,
+     * other collections have to be hashed.
+     */
+    protected int getElementsVersion() {
+        Collection<E> elements = getElements();
+        if(elements instanceof Monitorable monitorable){
+            return monitorable.getMonitorState();
+        }
+        return elements.hashCode();
     }
 
     public final boolean updateEntities(){
-        int hash;
-        if(getElements() instanceof Monitorable){
-            hash = ((Monitorable) getElements()).getMonitorState();
-        }else {
-            hash = getElements().hashCode();
+        int version = getElementsVersion();
+        if(version == lastVersion) {
+            return false;
         }
-        if(hash != lastHash) {
-            entities_temp.clear();
-            getElements().parallelStream().forEach(element -> entities_temp.put(element, entities.getOrDefault(element, new RenderEntity<>(element, renderElements))));
-            swapEntities();
 
-            lastHash = hash;
-            return true;
+        Collection<E> elements = getElements();
+        List<RenderEntity<E>> result = new ArrayList<>(elements.size());
+        entityIndexTemp.clear();
+        for (E element : elements) {
+            RenderEntity<E> entity = entityIndex.get(element);
+            if (entity == null) {
+                entity = new RenderEntity<>(element, renderElements);
+            }
+            if (entityIndexTemp.putIfAbsent(element, entity) == null) {
+                result.add(entity);
+            }
         }
 
-        return false;
+        var index = entityIndex;
+        entityIndex = entityIndexTemp;
+        entityIndexTemp = index;
+        entityIndexTemp.clear();
+
+        entities = result;
+        lastVersion = version;
+        return true;
     }
 
     public boolean isEnabled(RenderProperties renderProperties){
         return true;
     }
 
+    /**
+     * Static features only change together with the camera. If they are added before all other features,
+     * they are rendered into a cached image that is reused until the {@link RenderProperties} change.
+     */
+    public boolean isStatic() {
+        return false;
+    }
+
     public boolean needsUpdateEntities() {
         return getEntities().isEmpty();
     }
 
     public boolean needsCreatePolygon(RenderEntity<E> entity, boolean propertiesChanged){
-        return Arrays.stream(entity.getRenderElements()).anyMatch(renderElement -> renderElement.getPolygon() == null);
+        for (RenderElement renderElement : entity.getRenderElements()) {
+            if (renderElement.getPolygon() == null) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public boolean needsProject(RenderEntity<E> entity, boolean propertiesChanged){
-        return propertiesChanged || Arrays.stream(entity.getRenderElements()).anyMatch(renderElement -> renderElement.getShape() == null);
+        if (propertiesChanged) {
+            return true;
+        }
+        for (RenderElement renderElement : entity.getRenderElements()) {
+            if (renderElement.getShape() == null) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public final boolean propertiesChanged(RenderProperties properties){
@@ -74,7 +112,12 @@ public abstract class RenderFeature<E> {
         return result;
     }
 
-    public final void process(GlobeRenderer renderer, RenderProperties renderProperties) {
+    /**
+     * Updates the entities and marks those that have to be created or projected in this frame.
+     *
+     * @return number of marked entities
+     */
+    public final int prepare(RenderProperties renderProperties) {
         boolean entitiesUpdated = false;
         boolean settingsChanged = Settings.changes != settingsChanges;
         settingsChanges = Settings.changes;
@@ -83,18 +126,41 @@ public abstract class RenderFeature<E> {
         }
 
         boolean propertiesChanged = propertiesChanged(renderProperties) || settingsChanged;
+        boolean all = entitiesUpdated || settingsChanged;
+
+        int dirty = 0;
+        for (RenderEntity<E> entity : entities) {
+            entity.needsCreate = all || needsCreatePolygon(entity, propertiesChanged);
+            entity.needsProject = all || needsProject(entity, propertiesChanged);
+            if (entity.needsCreate || entity.needsProject) {
+                dirty++;
+            }
+        }
 
-        boolean finalEntitiesUpdated = entitiesUpdated;
-        getEntities().parallelStream().forEach(entity -> {
-            if(finalEntitiesUpdated || settingsChanged || needsCreatePolygon(entity, propertiesChanged))
+        return dirty;
+    }
+
+    /**
+     * Creates and projects the entities marked by {@link #prepare(RenderProperties)} in the given range of slots.
+     * Disjoint ranges can be processed in parallel.
+     */
+    public final void process(GlobeRenderer renderer, RenderProperties renderProperties, int from, int to) {
+        List<RenderEntity<E>> entities = this.entities;
+        for (int i = from; i < Math.min(to, entities.size()); i++) {
+            RenderEntity<E> entity = entities.get(i);
+            if (entity.needsCreate) {
                 createPolygon(renderer, entity, renderProperties);
-            if(finalEntitiesUpdated || settingsChanged || needsProject(entity, propertiesChanged))
+                entity.needsCreate = false;
+            }
+            if (entity.needsProject) {
                 project(renderer, entity, renderProperties);
-        });
+                entity.needsProject = false;
+            }
+        }
     }
 
     public final Collection<RenderEntity<E>> getEntities() {
-        return entities.values();
+        return entities;
     }
 
     public abstract void createPolygon(GlobeRenderer renderer, RenderEntity<E> entity, RenderProperties renderProperties);
@@ -106,10 +172,12 @@ public abstract class RenderFeature<E> {
     public boolean isEntityVisible(RenderEntity<?> entity) {return true;}
 
     public void renderAll(GlobeRenderer renderer, Graphics2D graphics, RenderProperties properties) {
-        getEntities().stream().filter(this::isEntityVisible).forEach(entity -> {
-            graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-            render(renderer, graphics, entity, properties);
-        });
+        for (RenderEntity<E> entity : entities) {
+            if (isEntityVisible(entity)) {
+                graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+                render(renderer, graphics, entity, properties);
+            }
+        }
     }
 
     public abstract Point2D getCenterCoords(RenderEntity<?> entity);
@@ -14,6 +14,7 @@ public class PerformanceSettingsPanel extends SettingsPanel {
     private JSlider sliderResolution;
     private JCheckBox chkBoxParalell;
     private JSlider sliderStoreTime;
+    private JSlider sliderMemoryBudget;
     private JCheckBox chkBoxRecalibrateOnLauch;
 
     public PerformanceSettingsPanel() {
@@ -21,6 +22,7 @@ public class PerformanceSettingsPanel extends SettingsPanel {
 
         add(createSettingAccuracy());
         add(createSettingStoreTime());
+        add(createSettingMemoryBudget());
         add(createSettingParalell());
     }
 
@@ -39,8 +41,29 @@ public class PerformanceSettingsPanel extends SettingsPanel {
         return HypocenterAnalysisSettingsPanel.createCoolLayout(sliderStoreTime, label, "5",
                 """
                         In GlobalQuake, waveform data poses the highest demand on your system's RAM.
-                        If you're encountering memory constraints, you have two options:
-                        either reduce the number of selected stations or lower this specific value.
+                        This is the storage time of the stations involved in an earthquake,
+                        quiet and distant stations may keep less to fit the memory budget below.
+                        """);
+    }
+
+    private Component createSettingMemoryBudget() {
+        sliderMemoryBudget = HypocenterAnalysisSettingsPanel.createSettingsSlider(5, 90, 10, 5);
+
+        JLabel label = new JLabel();
+        ChangeListener changeListener = changeEvent -> label.setText("Waveform data memory budget (%% of RAM): %d".formatted(
+                sliderMemoryBudget.getValue()));
+
+        sliderMemoryBudget.addChangeListener(changeListener);
+
+        sliderMemoryBudget.setValue(Settings.logsMemoryBudgetPercent);
+        changeListener.stateChanged(null);
+
+        return HypocenterAnalysisSettingsPanel.createCoolLayout(sliderMemoryBudget, label, "40",
+                """
+                        The share of the memory available to GlobalQuake that waveform data can take.
+                        When the budget is reached, the storage time of quiet and distant stations
+                        is shortened first. If you're encountering memory constraints,
+                        either reduce the number of selected stations or lower this value.
                         """);
     }
 
@@ -73,6 +96,7 @@ public class PerformanceSettingsPanel extends SettingsPanel {
         Settings.hypocenterDetectionResolution = (double) sliderResolution.getValue();
         Settings.parallelHypocenterLocations = chkBoxParalell.isSelected();
         Settings.logsStoreTimeMinutes = sliderStoreTime.getValue();
+        Settings.logsMemoryBudgetPercent = sliderMemoryBudget.getValue();
         Settings.recalibrateOnLaunch = chkBoxRecalibrateOnLauch.isSelected();
     }
 
@@ -1,17 +1,11 @@
 package globalquake.ui.stationselect.action;
 
-import globalquake.core.database.Network;
-import globalquake.core.database.Station;
 import globalquake.core.database.StationDatabaseManager;
-import globalquake.utils.GeoUtils;
+import globalquake.core.database.StationDistanceFilter;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Objects;
 
 public class DistanceFilterAction extends AbstractAction {
@@ -68,81 +62,20 @@ public class DistanceFilterAction extends AbstractAction {
     }
 
     private void runAlgorithm(double minDist){
+        ProgressMonitor progressMonitor = new ProgressMonitor(parent, "Applying distance filter", "", 0, 100);
+        progressMonitor.setMillisToDecideToPopup(200);
+
         stationDatabaseManager.getStationDatabase().getDatabaseWriteLock().lock();
         try{
-
-            List<FilterChannel> selectedAvailableChannels = new ArrayList<>();
-            for(Network network : stationDatabaseManager.getStationDatabase().getNetworks()){
-                for(Station station: network.getStations()){
-                    if(station.getSelectedChannel() != null && station.getSelectedChannel().isAvailable()){
-                        selectedAvailableChannels.add(new FilterChannel(station));
-                    }
-                }
-            }
-
-            selectedAvailableChannels.parallelStream().forEach(filterChannel -> filterChannel.calculateClosestChannel(new ArrayList<>(selectedAvailableChannels)));
-            selectedAvailableChannels.sort(Comparator.comparingDouble(FilterChannel::getClosestChannel));
-
-            while(true) {
-                boolean removed = false;
-                for (Iterator<FilterChannel> iterator = selectedAvailableChannels.iterator(); iterator.hasNext(); ) {
-                    FilterChannel filterChannel = iterator.next();
-
-                    if (filterChannel.getClosestChannel() < minDist) {
-                        filterChannel.getStation().setSelectedChannel(null);
-                        iterator.remove();
-                        removed = true;
-                        for(int i = 0; i < 2; i++){
-                            if(!iterator.hasNext()){
-                                break;
-                            }
-                            iterator.next();
-                        }
-                    }
-                }
-                if(!removed){
-                    break;
-                }
-
-                selectedAvailableChannels.parallelStream().filter(filterChannel -> filterChannel.getClosestChannel() <= minDist).forEach(filterChannel -> filterChannel.calculateClosestChannel(new ArrayList<>(selectedAvailableChannels)));
-                selectedAvailableChannels.sort(Comparator.comparingDouble(FilterChannel::getClosestChannel));
-            }
-
+            StationDistanceFilter.apply(stationDatabaseManager.getStationDatabase(), minDist,
+                    (status, value) -> SwingUtilities.invokeLater(() -> {
+                        progressMonitor.setNote(status);
+                        progressMonitor.setProgress(value);
+                    }));
             stationDatabaseManager.fireUpdateEvent();
         }finally {
             stationDatabaseManager.getStationDatabase().getDatabaseWriteLock().unlock();
+            SwingUtilities.invokeLater(progressMonitor::close);
         }
     }
-
-    private static class FilterChannel {
-        private final Station station;
-        private double closestChannel = 999999;
-
-        public FilterChannel(Station station) {
-            this.station = station;
-        }
-
-        public Station getStation() {
-            return station;
-        }
-
-        public double getClosestChannel() {
-            return closestChannel;
-        }
-
-        public void calculateClosestChannel(List<FilterChannel> filterChannels){
-            double closest = 99999999;
-            for(FilterChannel filterChannel : filterChannels){
-                if(filterChannel.equals(this)){
-                    continue;
-                }
-                double dist = GeoUtils.greatCircleDistance(station.getLatitude(), station.getLongitude(), filterChannel.getStation().getLatitude(), filterChannel.getStation().getLongitude());
-                if(dist  < closest){
-                    closest = dist;
-                }
-            }
-            this.closestChannel = closest;
-        }
-
-    }
 }
@@ -168,6 +168,25 @@ public interface GeoUtils {
 		return Math.pow(10, mag * 0.575) / (0.36 * Math.pow(distKm, 1.25 + mag / 22.0) + 10);
 	}
 
+	/**
+	 * Inverse of {@link #pgaFunction(double, double, double)} with respect to distance
+	 *
+	 * @return the largest distance in km at which the given pga is still reached, or -1 if it is never reached
+	 */
+	static double inversePgaFunction(double mag, double pga, double depth) {
+		double correction = EarthquakeAnalysis.getDepthCorrection(depth);
+		double dist = inversePgaFunctionGen2(mag + correction, pga);
+		return dist < 0 ? dist : dist * (1.0 + 2.2 * correction);
+	}
+
+	static double inversePgaFunctionGen2(double mag, double pga) {
+		double a = Math.pow(10, mag * 0.575) / pga - 10;
+		if (a < 0) {
+			return -1;
+		}
+		return Math.pow(a / 0.36, 1.0 / (1.25 + mag / 22.0));
+	}
+
 	@Deprecated
 	static double pgaFunctionGen1(double mag, double distKm){
 		distKm = FastMath.abs(distKm);
@@ -0,0 +1,53 @@
+package globalquake.utils;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Acquires locks while counting how often and how long the callers had to wait for them.
+ */
+public class LockStatistics {
+
+    private final String name;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder contended = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+
+    public LockStatistics(String name) {
+        this.name = name;
+    }
+
+    public void lock(Lock lock) {
+        acquisitions.increment();
+        if (lock.tryLock()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        lock.lock();
+        contended.increment();
+        waitNanos.add(System.nanoTime() - start);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    public long getContended() {
+        return contended.sum();
+    }
+
+    public long getWaitNanos() {
+        return waitNanos.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "%s: %d acquisitions, %d contended, %.1f ms waited".formatted(name, getAcquisitions(), getContended(), getWaitNanos() / 1e6);
+    }
+}
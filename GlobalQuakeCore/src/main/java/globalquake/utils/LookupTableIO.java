@@ -2,32 +2,25 @@ package globalquake.utils;
 
 import java.io.*;
 import java.net.URL;
-import java.util.HashMap;
-import java.util.List;
 
 import globalquake.core.regions.Regions;
+import globalquake.core.regions.ShorelineLookupTable;
 
 public class LookupTableIO {
-    public static boolean exportLookupTableToFile() {
-        List<HashMap<String, Double>> lookupTables = Regions.generateLookupTablesInParallel();
-        HashMap<String, Double> lookupTable = new HashMap<>();
-        for(HashMap<String, Double> singleLT : lookupTables) {
-            lookupTable.putAll(singleLT);
-        }
 
-        return performExport(lookupTable);
+    public static final String FILE_NAME = "lookupTable.dat";
+
+    public static boolean exportLookupTableToFile() {
+        return performExport(Regions.generateLookupTable());
     }
 
-    public static boolean exportLookupTableToFile(HashMap<String, Double> lookupTable) {
+    public static boolean exportLookupTableToFile(ShorelineLookupTable lookupTable) {
         return performExport(lookupTable);
     }
 
-    private static boolean performExport(HashMap<String, Double> lookupTable) {
-
-        try{
-            ObjectOutputStream output = new ObjectOutputStream(new FileOutputStream("lookupTable.dat"));
-            output.writeObject(lookupTable);
-            output.close();
+    private static boolean performExport(ShorelineLookupTable lookupTable) {
+        try(DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(FILE_NAME)))){
+            lookupTable.write(output);
         } catch (Exception e){
             System.err.println("Unable to save a lookup table! " + e);
             return false;
@@ -36,24 +29,28 @@ public class LookupTableIO {
         return true;
     }
 
-    @SuppressWarnings("unchecked")
-    public static HashMap<String, Double> importLookupTableFromFile() throws IOException {
-        String path = "lookup/lookupTable.dat";
+    public static ShorelineLookupTable importLookupTableFromFile() throws IOException {
+        File exported = new File(FILE_NAME);
+        if(exported.exists()) {
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(exported)))) {
+                return ShorelineLookupTable.read(input);
+            } catch (IOException e) {
+                System.err.println("Unable to load exported lookup table, ignoring it! " + e);
+            }
+        }
+
+        String path = "lookup/" + FILE_NAME;
         URL resource = ClassLoader.getSystemClassLoader().getResource(path);
 
         if (resource == null) {
-            System.err.printf("Unable to load a lookup table: %s", path);
+            System.err.printf("Unable to load a lookup table: %s%n", path);
             return null;
         }
 
-        HashMap<String, Double> lookupTable;
-        try{
-            ObjectInput input = new ObjectInputStream(resource.openStream());
-            lookupTable = (HashMap<String, Double>) input.readObject();
-        } catch (IOException | ClassNotFoundException e) {
+        try(DataInputStream input = new DataInputStream(new BufferedInputStream(resource.openStream()))){
+            return ShorelineLookupTable.read(input);
+        } catch (IOException e) {
             throw new IOException("Unable to load stream of a lookup table! ", e);
         }
-
-        return lookupTable;
     }
 }
@@ -0,0 +1,93 @@
+package globalquake.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongFunction;
+
+/**
+ * Bounded least recently used cache with long keys, split into independently locked segments
+ * so that it can be used from parallel streams. Each segment evicts its own least recently used entries,
+ * so the cache never holds more than the given capacity and a full cache keeps its working set.
+ */
+public class LruCache<V> {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment<V>[] segments;
+
+    @SuppressWarnings("unchecked")
+    public LruCache(int capacity) {
+        if (capacity < SEGMENTS) {
+            throw new IllegalArgumentException("Capacity must be at least %d".formatted(SEGMENTS));
+        }
+
+        segments = new Segment[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>(capacity / SEGMENTS);
+        }
+    }
+
+    /**
+     * The value is computed outside the lock, so it can occasionally be computed twice for the same key.
+     */
+    public V computeIfAbsent(long key, LongFunction<V> function) {
+        Segment<V> segment = getSegment(key);
+        synchronized (segment) {
+            V value = segment.get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+
+        V value = function.apply(key);
+        synchronized (segment) {
+            V previous = segment.putIfAbsent(key, value);
+            return previous != null ? previous : value;
+        }
+    }
+
+    public V get(long key) {
+        Segment<V> segment = getSegment(key);
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    private Segment<V> getSegment(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return segments[(int) (hash >>> 60) & (SEGMENTS - 1)];
+    }
+
+    private static class Segment<V> extends LinkedHashMap<Long, V> {
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, V> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package globalquake.utils;
+
+import java.util.Arrays;
+
+/**
+ * Maximum and minimum of the last N added values, for several window lengths at once.
+ * Values are kept in a primitive ring buffer as long as the longest window and every window has its own
+ * monotonic queues of sample indices, so adding a value is amortised O(number of windows)
+ * and reading an extreme is O(1).
+ */
+public class SlidingWindowExtremes {
+
+    private final int[] windows;
+    private final double[] values;
+
+    private final MonotonicQueue[] maxQueues;
+    private final MonotonicQueue[] minQueues;
+
+    private long count;
+
+    public SlidingWindowExtremes(int... windows) {
+        if (windows.length == 0) {
+            throw new IllegalArgumentException("At least one window is needed");
+        }
+
+        this.windows = windows.clone();
+        int capacity = 0;
+        for (int window : windows) {
+            if (window <= 0) {
+                throw new IllegalArgumentException("Invalid window length %d".formatted(window));
+            }
+            capacity = Math.max(capacity, window);
+        }
+
+        values = new double[capacity];
+        maxQueues = new MonotonicQueue[windows.length];
+        minQueues = new MonotonicQueue[windows.length];
+        for (int i = 0; i < windows.length; i++) {
+            maxQueues[i] = new MonotonicQueue(windows[i]);
+            minQueues[i] = new MonotonicQueue(windows[i]);
+        }
+    }
+
+    public synchronized void add(double value) {
+        long index = count++;
+        values[(int) (index % values.length)] = value;
+
+        // expired indices are dropped first, so the queue never needs more room than the window
+        for (int i = 0; i < windows.length; i++) {
+            long oldest = index - windows[i];
+
+            MonotonicQueue max = maxQueues[i];
+            while (!max.isEmpty() && max.peekFirst() <= oldest) {
+                max.removeFirst();
+            }
+            while (!max.isEmpty() && valueAt(max.peekLast()) <= value) {
+                max.removeLast();
+            }
+            max.addLast(index);
+
+            MonotonicQueue min = minQueues[i];
+            while (!min.isEmpty() && min.peekFirst() <= oldest) {
+                min.removeFirst();
+            }
+            while (!min.isEmpty() && valueAt(min.peekLast()) >= value) {
+                min.removeLast();
+            }
+            min.addLast(index);
+        }
+    }
+
+    /**
+     * @return maximum of the last window values, or NaN if nothing was added
+     */
+    public synchronized double getMax(int window) {
+        MonotonicQueue queue = maxQueues[indexOf(window)];
+        return queue.isEmpty() ? Double.NaN : valueAt(queue.peekFirst());
+    }
+
+    /**
+     * @return minimum of the last window values, or NaN if nothing was added
+     */
+    public synchronized double getMin(int window) {
+        MonotonicQueue queue = minQueues[indexOf(window)];
+        return queue.isEmpty() ? Double.NaN : valueAt(queue.peekFirst());
+    }
+
+    /**
+     * @return number of values in the longest window
+     */
+    public synchronized int size() {
+        return (int) Math.min(count, values.length);
+    }
+
+    public synchronized boolean isEmpty() {
+        return count == 0;
+    }
+
+    public synchronized void clear() {
+        count = 0;
+        for (int i = 0; i < windows.length; i++) {
+            maxQueues[i].clear();
+            minQueues[i].clear();
+        }
+    }
+
+    private double valueAt(long index) {
+        return values[(int) (index % values.length)];
+    }
+
+    private int indexOf(int window) {
+        for (int i = 0; i < windows.length; i++) {
+            if (windows[i] == window) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Window %d is not tracked, available are %s".formatted(window, Arrays.toString(windows)));
+    }
+
+    /**
+     * Ring of sample indices that never holds more entries than the window length.
+     */
+    private static final class MonotonicQueue {
+
+        private final long[] indices;
+        private int head;
+        private int size;
+
+        private MonotonicQueue(int capacity) {
+            indices = new long[capacity];
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+
+        private long peekFirst() {
+            return indices[head];
+        }
+
+        private long peekLast() {
+            return indices[(head + size - 1) % indices.length];
+        }
+
+        private void addLast(long index) {
+            indices[(head + size) % indices.length] = index;
+            size++;
+        }
+
+        private void removeFirst() {
+            head = (head + 1) % indices.length;
+            size--;
+        }
+
+        private void removeLast() {
+            size--;
+        }
+
+        private void clear() {
+            head = 0;
+            size = 0;
+        }
+    }
+
+}
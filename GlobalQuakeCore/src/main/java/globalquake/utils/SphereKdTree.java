@@ -0,0 +1,234 @@
+package globalquake.utils;
+
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Static 3D k-d tree of points on the unit sphere. The chord between two unit vectors grows monotonically
+ * with the great circle distance, so both radius and nearest point queries can be answered in the tree
+ * without visiting all the points. Points are reported by their index in the arrays the tree was built from.
+ */
+public class SphereKdTree {
+
+    // unit vectors in tree order, so that the search walks memory sequentially
+    private final double[][] coords;
+    private final int[] indices;
+
+    public SphereKdTree(double[] lats, double[] lons) {
+        int count = lats.length;
+        double[][] coords = new double[3][count];
+        for (int i = 0; i < count; i++) {
+            toUnitVector(lats[i], lons[i], coords, i);
+        }
+
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+
+        build(order, coords, 0, count, 0);
+
+        this.coords = new double[3][count];
+        for (int i = 0; i < count; i++) {
+            for (int axis = 0; axis < 3; axis++) {
+                this.coords[axis][i] = coords[axis][order[i]];
+            }
+        }
+        this.indices = order;
+    }
+
+    private static void toUnitVector(double lat, double lon, double[][] coords, int index) {
+        double latRad = Math.toRadians(lat);
+        double lonRad = Math.toRadians(lon);
+        coords[0][index] = Math.cos(latRad) * Math.cos(lonRad);
+        coords[1][index] = Math.cos(latRad) * Math.sin(lonRad);
+        coords[2][index] = Math.sin(latRad);
+    }
+
+    public int size() {
+        return indices.length;
+    }
+
+    /**
+     * @param distance great circle distance in km
+     * @return squared chord between two unit vectors that are the given distance apart
+     */
+    public static double toChordSquared(double distance) {
+        double angle = distance / GeoUtils.EARTH_RADIUS;
+        if (angle >= Math.PI) {
+            return Double.MAX_VALUE;
+        }
+
+        double chord = 2 * Math.sin(angle / 2);
+        return chord * chord;
+    }
+
+    /**
+     * Visits the index of every point whose squared chord from the given position is at most chordSquared.
+     */
+    public void forEachWithin(double lat, double lon, double chordSquared, IntConsumer consumer) {
+        anyWithin(lat, lon, chordSquared, index -> {
+            consumer.accept(index);
+            return false;
+        });
+    }
+
+    /**
+     * @return true as soon as the predicate accepts the index of a point whose squared chord from the given position
+     * is at most chordSquared
+     */
+    public boolean anyWithin(double lat, double lon, double chordSquared, IntPredicate predicate) {
+        if (size() == 0) {
+            return false;
+        }
+
+        double[][] query = new double[3][1];
+        toUnitVector(lat, lon, query, 0);
+        return anyWithin(query[0][0], query[1][0], query[2][0], chordSquared, predicate, 0, size(), 0);
+    }
+
+    private boolean anyWithin(double x, double y, double z, double chordSquared, IntPredicate predicate, int lo, int hi, int axis) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+
+            double dx = x - coords[0][mid];
+            double dy = y - coords[1][mid];
+            double dz = z - coords[2][mid];
+            if (dx * dx + dy * dy + dz * dz <= chordSquared && predicate.test(indices[mid])) {
+                return true;
+            }
+
+            double diff = (axis == 0 ? x : axis == 1 ? y : z) - coords[axis][mid];
+            int next = (axis + 1) % 3;
+
+            if (diff < 0) {
+                if (anyWithin(x, y, z, chordSquared, predicate, lo, mid, next)) {
+                    return true;
+                }
+                if (diff * diff > chordSquared) {
+                    return false;
+                }
+                lo = mid + 1;
+            } else {
+                if (anyWithin(x, y, z, chordSquared, predicate, mid + 1, hi, next)) {
+                    return true;
+                }
+                if (diff * diff > chordSquared) {
+                    return false;
+                }
+                hi = mid;
+            }
+            axis = next;
+        }
+
+        return false;
+    }
+
+    /**
+     * @return index of the closest point, the lowest one if more are equally close, or -1 if the tree is empty
+     */
+    public int nearest(double lat, double lon) {
+        if (size() == 0) {
+            return -1;
+        }
+
+        double[][] query = new double[3][1];
+        toUnitVector(lat, lon, query, 0);
+        Search search = new Search(query[0][0], query[1][0], query[2][0]);
+        nearest(search, 0, size(), 0);
+        return indices[search.best];
+    }
+
+    private void nearest(Search search, int lo, int hi, int axis) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+
+            double dx = search.x - coords[0][mid];
+            double dy = search.y - coords[1][mid];
+            double dz = search.z - coords[2][mid];
+            double dist = dx * dx + dy * dy + dz * dz;
+
+            if (search.best < 0 || dist < search.bestDist || (dist == search.bestDist && indices[mid] < indices[search.best])) {
+                search.bestDist = dist;
+                search.best = mid;
+            }
+
+            double diff = (axis == 0 ? search.x : axis == 1 ? search.y : search.z) - coords[axis][mid];
+            int next = (axis + 1) % 3;
+
+            if (diff < 0) {
+                nearest(search, lo, mid, next);
+                if (diff * diff > search.bestDist) {
+                    return;
+                }
+                lo = mid + 1;
+            } else {
+                nearest(search, mid + 1, hi, next);
+                if (diff * diff > search.bestDist) {
+                    return;
+                }
+                hi = mid;
+            }
+            axis = next;
+        }
+    }
+
+    private static void build(int[] order, double[][] coords, int lo, int hi, int axis) {
+        if (hi - lo <= 1) {
+            return;
+        }
+
+        int mid = (lo + hi) >>> 1;
+        select(order, coords[axis], lo, hi - 1, mid);
+
+        int next = (axis + 1) % 3;
+        build(order, coords, lo, mid, next);
+        build(order, coords, mid + 1, hi, next);
+    }
+
+    private static void select(int[] order, double[] values, int left, int right, int k) {
+        while (right > left) {
+            double pivot = values[order[k]];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[order[i]] < pivot) {
+                    i++;
+                }
+                while (values[order[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int tmp = order[i];
+                    order[i] = order[j];
+                    order[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static final class Search {
+        private final double x;
+        private final double y;
+        private final double z;
+        private double bestDist = Double.MAX_VALUE;
+        private int best = -1;
+
+        private Search(double x, double y, double z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+    }
+
+}
@@ -1,11 +1,21 @@
 package globalquake.utils.monitorable;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serial;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 public class MonitorableCopyOnWriteArrayList<E> extends CopyOnWriteArrayList<E> implements Monitorable {
 
+    @Serial
+    private static final long serialVersionUID = 2942357210028318215L;
+
+    private transient AtomicInteger version = new AtomicInteger();
+
     @SuppressWarnings("unused")
     public MonitorableCopyOnWriteArrayList(List<E> tmpList) {
         super(tmpList);
@@ -17,43 +27,109 @@ public class MonitorableCopyOnWriteArrayList<E> extends CopyOnWriteArrayList<E>
 
     @Override
     public boolean add(E e) {
-        noteChange();
-        return super.add(e);
+        try {
+            return super.add(e);
+        } finally {
+            noteChange();
+        }
     }
 
     @Override
     public void add(int index, E element) {
-        noteChange();
         super.add(index, element);
+        noteChange();
     }
 
     @Override
     public boolean addAll(Collection<? extends E> c) {
-        noteChange();
-        return super.addAll(c);
+        try {
+            return super.addAll(c);
+        } finally {
+            noteChange();
+        }
     }
 
     @Override
     public boolean addAll(int index, Collection<? extends E> c) {
-        noteChange();
-        return super.addAll(index, c);
+        try {
+            return super.addAll(index, c);
+        } finally {
+            noteChange();
+        }
     }
 
     @Override
     public void clear() {
-        noteChange();
         super.clear();
+        noteChange();
     }
 
     @Override
     public boolean remove(Object o) {
-        noteChange();
-        return super.remove(o);
+        try {
+            return super.remove(o);
+        } finally {
+            noteChange();
+        }
     }
 
     @Override
     public E set(int index, E element) {
-        noteChange();
-        return super.set(index, element);
+        try {
+            return super.set(index, element);
+        } finally {
+            noteChange();
+        }
+    }
+
+    @Override
+    public E remove(int index) {
+        try {
+            return super.remove(index);
+        } finally {
+            noteChange();
+        }
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        try {
+            return super.removeAll(c);
+        } finally {
+            noteChange();
+        }
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        try {
+            return super.retainAll(c);
+        } finally {
+            noteChange();
+        }
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super E> filter) {
+        try {
+            return super.removeIf(filter);
+        } finally {
+            noteChange();
+        }
+    }
+
+    @Override
+    public int getMonitorState() {
+        return version.get();
+    }
+
+    public void noteChange() {
+        version.incrementAndGet();
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        version = new AtomicInteger();
     }
 }
@@ -0,0 +1,301 @@
+package globalquake.core.analysis;
+
+import edu.sc.seis.seisFile.mseed.DataRecord;
+import globalquake.core.earthquake.data.Cluster;
+import globalquake.core.seedlink.SeedlinkReplayReader;
+import globalquake.core.seedlink.SeedlinkTestRecording;
+import globalquake.core.station.AbstractStation;
+import globalquake.core.station.GlobalStation;
+import gqserver.api.packets.station.InputType;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class RetentionManagerTest {
+
+    private static final long MAX_RETENTION = 5 * 60 * 1000;
+
+    // a recording longer than the full retention, so that the full retention is reached too
+    private static final long SOAK_MAX_RETENTION = 3 * 60 * 1000;
+
+    // one record of each station can be added before the next trim
+    private static final long SOAK_SLACK = (long) SeedlinkTestRecording.STATIONS * SeedlinkTestRecording.SAMPLE_RATE
+            * SeedlinkTestRecording.RECORD_SECONDS * RetentionManager.LOG_BYTES;
+
+    private static final int RECORD_LENGTH = 512;
+    private static final int DATA_OFFSET = 64;
+
+    private static GlobalStation createStation(int id, double lat, double lon) {
+        GlobalStation station = new GlobalStation("XX", "S%d".formatted(id), "HHZ", "", lat, lon, 0, id, null, -1, InputType.UNKNOWN);
+        station.getAnalysis().setRetention(MAX_RETENTION);
+        return station;
+    }
+
+    /**
+     * Minimal miniSEED record with one blockette 1000 and uncompressed 32-bit samples,
+     * so the analysis gets its sample rate from the record header as it does with seedlink data.
+     */
+    private static DataRecord createRecord(AbstractStation station, long start, int sampleRate, int[] samples) throws Exception {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_LENGTH);
+        buffer.put("000001D ".getBytes(StandardCharsets.US_ASCII));
+        buffer.put("%-5s%-2s%-3s%-2s".formatted(station.getStationCode(), station.getLocationCode(),
+                station.getChannelName(), station.getNetworkCode()).getBytes(StandardCharsets.US_ASCII));
+
+        ZonedDateTime time = Instant.ofEpochMilli(start).atZone(ZoneOffset.UTC);
+        buffer.putShort((short) time.getYear());
+        buffer.putShort((short) time.getDayOfYear());
+        buffer.put((byte) time.getHour());
+        buffer.put((byte) time.getMinute());
+        buffer.put((byte) time.getSecond());
+        buffer.put((byte) 0);
+        buffer.putShort((short) (time.getNano() / 100_000));
+
+        buffer.putShort((short) samples.length);
+        buffer.putShort((short) sampleRate);
+        buffer.putShort((short) 1);
+        buffer.put(new byte[3]); // activity, io and quality flags
+        buffer.put((byte) 1); // number of blockettes
+        buffer.putInt(0); // time correction
+        buffer.putShort((short) DATA_OFFSET);
+        buffer.putShort((short) 48);
+
+        // blockette 1000: 32-bit integers, big endian, 2^9 bytes long record
+        buffer.putShort((short) 1000);
+        buffer.putShort((short) 0);
+        buffer.put((byte) 3);
+        buffer.put((byte) 1);
+        buffer.put((byte) 9);
+        buffer.put((byte) 0);
+
+        buffer.position(DATA_OFFSET);
+        for (int sample : samples) {
+            buffer.putInt(sample);
+        }
+
+        return (DataRecord) DataRecord.read(buffer.array());
+    }
+
+    /**
+     * The record is received right after its last sample.
+     */
+    private static void feed(AbstractStation station, long start, int sampleRate, int[] samples) throws Exception {
+        station.getAnalysis().analyse(createRecord(station, start, sampleRate, samples), start + 1000L * samples.length / sampleRate);
+    }
+
+    private static long getUsage(List<AbstractStation> stations) {
+        long usage = 0;
+        for (AbstractStation station : stations) {
+            usage += (long) (station.getAnalysis().getSampleRate() * RetentionManager.LOG_BYTES / 1000.0 * station.getAnalysis().getRetention());
+        }
+        return usage;
+    }
+
+    @Test
+    public void testAllocation() throws Exception {
+        AbstractStation inCluster = createStation(0, 0, 0);
+        AbstractStation near = createStation(1, 5, 5);
+        AbstractStation far = createStation(2, 0, 150);
+        List<AbstractStation> stations = List.of(inCluster, near, far);
+
+        long start = SeedlinkTestRecording.START;
+        for (AbstractStation station : stations) {
+            feed(station, start, 100, new int[100]);
+            assertEquals(100, station.getAnalysis().getSampleRate(), 1e-6);
+        }
+
+        Cluster cluster = new Cluster();
+        cluster.updateRoot(0, 0);
+        cluster.getAssignedEvents().put(inCluster, new Event(inCluster.getAnalysis()));
+
+        long full = (long) (100 * RetentionManager.LOG_BYTES / 1000.0 * MAX_RETENTION);
+        AtomicLong budget = new AtomicLong(full * 3);
+        RetentionManager manager = new RetentionManager(budget::get, () -> MAX_RETENTION);
+
+        manager.update(stations, List.of(cluster), 0);
+        assertEquals(0, manager.getShortenedStations());
+
+        budget.set(full * 2);
+        manager.update(stations, List.of(cluster), 0);
+        assertEquals(MAX_RETENTION, inCluster.getAnalysis().getRetention());
+        assertTrue(near.getAnalysis().getRetention() > far.getAnalysis().getRetention());
+        assertTrue(far.getAnalysis().getRetention() >= RetentionManager.MIN_RETENTION);
+        assertTrue(getUsage(stations) <= budget.get());
+        assertEquals(1, manager.getProtectedStations());
+        assertEquals(2, manager.getShortenedStations());
+        assertFalse(manager.isOverBudget());
+
+        RetentionManager tiny = new RetentionManager(() -> full / 2, () -> MAX_RETENTION);
+        tiny.update(stations, List.of(cluster), 0);
+        assertTrue(tiny.isOverBudget());
+        assertEquals(RetentionManager.MIN_RETENTION, far.getAnalysis().getRetention());
+    }
+
+    /**
+     * The budget is only as good as the estimated size of one log.
+     */
+    @Test
+    public void testLogBytes() {
+        int count = 500_000;
+        long before = getUsedHeap();
+        ArrayList<Log> logs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            logs.add(new Log(i, i, i, i, i, i, i, i, AnalysisStatus.IDLE));
+        }
+        logs.trimToSize();
+        double bytes = (getUsedHeap() - before) / (double) count;
+        assertEquals(count, logs.size());
+
+        // 60 bytes with compressed references and 64 without, the lists keep some spare capacity on top of that
+        assertTrue("%.1f bytes per log".formatted(bytes), bytes <= RetentionManager.LOG_BYTES * 1.25);
+        assertTrue("%.1f bytes per log".formatted(bytes), bytes >= RetentionManager.LOG_BYTES / 2.0);
+    }
+
+    /**
+     * Replays the test recording to its stations as fast as possible, with the shaking stations in one cluster
+     * while they shake, and checks the retained logs against the budget every second of the replay clock.
+     */
+    private static class SoakReader extends SeedlinkReplayReader {
+
+        private final Map<String, AbstractStation> stations = new HashMap<>();
+        private final RetentionManager manager;
+        private final long budget;
+        private final Cluster cluster = new Cluster();
+
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private long shift = Long.MIN_VALUE;
+        private long lastSecond = Long.MIN_VALUE;
+        private volatile long maxRetained;
+
+        SoakReader(File file, List<AbstractStation> stations, long budget) {
+            super(file, AS_FAST_AS_POSSIBLE);
+            for (AbstractStation station : stations) {
+                this.stations.put(station.getStationCode(), station);
+            }
+            this.budget = budget;
+            cluster.updateRoot(0, 0);
+            manager = new RetentionManager(() -> budget, () -> SOAK_MAX_RETENTION);
+        }
+
+        @Override
+        protected void createCache() {
+        }
+
+        @Override
+        protected void newPacket(DataRecord dr) {
+            try {
+                process(dr);
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+
+        private void process(DataRecord dr) {
+            long time = now().toEpochMilli();
+            if (time / 1000 > lastSecond) {
+                lastSecond = time / 1000;
+                second(time);
+            }
+
+            long start = dr.getStartBtime().toInstant().toEpochMilli();
+            if (shift == Long.MIN_VALUE) {
+                shift = start - SeedlinkTestRecording.START;
+            }
+
+            AbstractStation station = stations.get(dr.getHeader().getStationIdentifier().trim());
+            assertNotNull(station);
+            station.getAnalysis().analyse(dr, time);
+
+            int index = station.getId();
+            long recordedStart = start - shift;
+            if (index < SeedlinkTestRecording.SHAKING_STATIONS
+                    && recordedStart >= SeedlinkTestRecording.SHAKING_START && recordedStart < SeedlinkTestRecording.SHAKING_END) {
+                cluster.getAssignedEvents().putIfAbsent(station, new Event(station.getAnalysis()));
+            }
+        }
+
+        private void second(long time) {
+            boolean quake = !cluster.getAssignedEvents().isEmpty()
+                    && time - shift < SeedlinkTestRecording.getArrival(SeedlinkTestRecording.STATIONS - 1, SeedlinkTestRecording.SHAKING_END);
+            List<AbstractStation> stations = List.copyOf(this.stations.values());
+            manager.update(stations, quake ? List.of(cluster) : List.of(), time);
+            for (AbstractStation station : stations) {
+                station.second(time);
+            }
+
+            long retained = getRetained(stations);
+            maxRetained = Math.max(maxRetained, retained);
+            assertTrue("%d bytes retained at %d".formatted(retained, time), retained <= budget + SOAK_SLACK);
+
+            if (quake) {
+                for (AbstractStation station : cluster.getAssignedEvents().keySet()) {
+                    assertEquals(SOAK_MAX_RETENTION, station.getAnalysis().getRetention());
+                }
+            }
+        }
+    }
+
+    private static long getRetained(List<AbstractStation> stations) {
+        long retained = 0;
+        for (AbstractStation station : stations) {
+            retained += station.getAnalysis().getRetainedBytes();
+        }
+        return retained;
+    }
+
+    private static long getUsedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    @Test
+    public void testSoak() throws Exception {
+        // the shaking stations close to each other, the quiet ones around the world
+        List<AbstractStation> stations = new ArrayList<>();
+        for (int i = 0; i < SeedlinkTestRecording.STATIONS; i++) {
+            stations.add(i < SeedlinkTestRecording.SHAKING_STATIONS ? createStation(i, i * 0.5, 0) : createStation(i, -60 + i * 10, i * 30 - 180));
+        }
+
+        // the full retention of all stations would take 2.3 MB, the shaking ones alone 0.9 MB
+        long budget = 2L * 1024 * 1024;
+        SoakReader reader = new SoakReader(SeedlinkTestRecording.getFile(), stations, budget);
+
+        long heap = getUsedHeap();
+        reader.run();
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (reader.getReplayedPackets() < SeedlinkTestRecording.getRecordCount() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        reader.stop();
+
+        if (reader.failure.get() != null) {
+            throw new AssertionError(reader.failure.get());
+        }
+        assertEquals(SeedlinkTestRecording.getRecordCount(), reader.getReplayedPackets());
+
+        // what the stations actually hold on the heap, with a generous margin for everything else the replay left behind
+        long heapGrowth = getUsedHeap() - heap;
+        long retained = getRetained(stations);
+        assertTrue("heap grew by %d bytes".formatted(heapGrowth), heapGrowth <= 2 * budget);
+        assertTrue(retained <= budget + SOAK_SLACK);
+
+        // the budget was actually reached, otherwise the test proves nothing
+        assertFalse(reader.cluster.getAssignedEvents().isEmpty());
+        assertTrue(reader.manager.getShortenedStations() > 0);
+        assertTrue(reader.maxRetained > budget / 2);
+    }
+
+}
@@ -0,0 +1,93 @@
+package globalquake.core.database;
+
+import gqserver.api.packets.station.InputType;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FDSNWSDownloaderTest {
+
+    private static final String STATION_XML = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <FDSNStationXML xmlns="http://www.fdsn.org/xml/station/1" schemaVersion="1.1">
+              <Source>test</Source>
+              <Network code="XX" startDate="2000-01-01T00:00:00">
+                <Description>Test Network</Description>
+                <Station code="ABC" startDate="2000-01-01T00:00:00">
+                  <Latitude>50.5</Latitude>
+                  <Longitude>14.25</Longitude>
+                  <Elevation>300</Elevation>
+                  <Site><Name>Test Site</Name></Site>
+                  <Channel code="HHZ" locationCode="00" startDate="2000-01-01T00:00:00">
+                    <Latitude>50.6</Latitude>
+                    <Longitude>14.3</Longitude>
+                    <Elevation>310</Elevation>
+                    <SampleRate>100</SampleRate>
+                    <Response>
+                      <InstrumentSensitivity>
+                        <Value>1.5E9</Value>
+                        <Frequency>1</Frequency>
+                        <InputUnits><Name>m/s</Name></InputUnits>
+                        <OutputUnits><Name>counts</Name></OutputUnits>
+                      </InstrumentSensitivity>
+                    </Response>
+                  </Channel>
+                  <Channel code="HHZ" locationCode="10" startDate="2000-01-01T00:00:00" endDate="2001-01-01T00:00:00">
+                    <Latitude>50.6</Latitude>
+                    <Longitude>14.3</Longitude>
+                    <Elevation>310</Elevation>
+                  </Channel>
+                  <Channel code="LDZ" locationCode="00" startDate="2000-01-01T00:00:00">
+                    <Latitude>50.6</Latitude>
+                    <Longitude>14.3</Longitude>
+                    <Elevation>310</Elevation>
+                  </Channel>
+                </Station>
+              </Network>
+            </FDSNStationXML>
+            """;
+
+    @Test
+    public void testParseStationXML() throws Exception {
+        StationSource source = new StationSource("test", "http://localhost/");
+        List<Network> networks = new ArrayList<>();
+        FDSNWSDownloader.parseStationXML(source, networks, new ByteArrayInputStream(STATION_XML.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(1, networks.size());
+        Network network = networks.get(0);
+        assertEquals("XX", network.getNetworkCode());
+        assertEquals("Test Network", network.getDescription());
+
+        assertEquals(1, network.getStations().size());
+        Station station = network.getStations().get(0);
+        assertEquals("ABC", station.getStationCode());
+        assertEquals("Test Site", station.getStationSite());
+        assertEquals(50.5, station.getLatitude(), 1e-9);
+        assertEquals(14.25, station.getLongitude(), 1e-9);
+        assertEquals(300, station.getAlt(), 1e-9);
+
+        // the expired channel and the unsupported one are skipped
+        assertEquals(1, station.getChannels().size());
+        Channel channel = station.getChannels().get(0);
+        assertEquals("HHZ", channel.getCode());
+        assertEquals("00", channel.getLocationCode());
+        assertEquals(50.6, channel.getLatitude(), 1e-9);
+        assertEquals(100, channel.getSampleRate(), 1e-9);
+        assertEquals(1.5E9, channel.getSensitivity(), 1);
+        assertEquals(InputType.VELOCITY, channel.getInputType());
+    }
+
+    @Test
+    public void testParseEmptyDocument() throws Exception {
+        List<Network> networks = new ArrayList<>();
+        FDSNWSDownloader.parseStationXML(new StationSource("test", "http://localhost/"), networks, new ByteArrayInputStream(new byte[0]));
+
+        assertTrue(networks.isEmpty());
+    }
+
+}
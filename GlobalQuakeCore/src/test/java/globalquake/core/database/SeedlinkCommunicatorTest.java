@@ -0,0 +1,75 @@
+package globalquake.core.database;
+
+import gqserver.api.packets.station.InputType;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+public class SeedlinkCommunicatorTest {
+
+    private static final String INFO = """
+            \s
+            <?xml version="1.0"?>
+            <seedlink software="SeedLink v3.3" organization="Test \u0001 Org" started="2023/01/01 00:00:00.0000">
+              <station name="ABC" network="XX" description="Test">
+                <stream location="00" seedname="HHZ" type="D" begin_time="2023/01/01 00:00:00.0000" end_time="%s"/>
+                <stream location="00" seedname="HHN" type="D" begin_time="2023/01/01 00:00:00.0000" end_time="2000/01/01 00:00:00.0000"/>
+              </station>
+              <station name="DEF" network="YY" description="Test">
+                <stream location="" seedname="BHZ" type="D" begin_time="2023-01-01 00:00:00" end_time="invalid"/>
+              </station>
+            </seedlink>
+            """;
+
+    @Test
+    public void testParseAvailability() throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss.SSSS");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        String info = INFO.formatted(format.format(new Date()));
+
+        SeedlinkNetwork seedlinkNetwork = new SeedlinkNetwork("test", "localhost", 18000);
+        List<SeedlinkCommunicator.AvailableChannel> channels = SeedlinkCommunicator.parseAvailability(info, seedlinkNetwork);
+
+        // the stream that ended long ago is skipped
+        assertEquals(2, channels.size());
+        assertEquals("XX", channels.get(0).networkCode());
+        assertEquals("ABC", channels.get(0).stationCode());
+        assertEquals("HHZ", channels.get(0).channelName());
+        assertTrue(channels.get(0).delay() < 60_000);
+        assertEquals("BHZ", channels.get(1).channelName());
+        assertEquals(SeedlinkCommunicator.UNKNOWN_DELAY, channels.get(1).delay());
+    }
+
+    @Test
+    public void testMergeAvailability() {
+        StationDatabase stationDatabase = new StationDatabase();
+        SeedlinkNetwork seedlinkNetwork = new SeedlinkNetwork("test", "localhost", 18000);
+
+        Network network = new Network("XX", "");
+        Station station = new Station(network, "ABC", "", 0, 0, 0);
+        Channel channel = new Channel("HHZ", "00", 100, 0, 0, 0, null, -1, InputType.UNKNOWN);
+        Channel stale = new Channel("HHN", "00", 100, 0, 0, 0, null, -1, InputType.UNKNOWN);
+        stale.getSeedlinkNetworks().put(seedlinkNetwork, 0L);
+        stationDatabase.acceptChannel(network, station, channel);
+        stationDatabase.acceptChannel(network, station, stale);
+        station.setSelectedChannel(stale);
+
+        SeedlinkCommunicator.mergeAvailability(List.of(
+                new SeedlinkCommunicator.AvailableChannel("XX", "ABC", "HHZ", "00", 100),
+                new SeedlinkCommunicator.AvailableChannel("XX", "ABC", "HHE", "10", 100),
+                new SeedlinkCommunicator.AvailableChannel("XX", "XYZ", "HHZ", "00", 100)), seedlinkNetwork, stationDatabase);
+
+        assertEquals(Long.valueOf(100), channel.getSeedlinkNetworks().get(seedlinkNetwork));
+        assertFalse(stale.isAvailable());
+        assertEquals(1, seedlinkNetwork.getAvailableStations());
+
+        // the selected channel is no longer available, so the station switches to one that is
+        assertSame(channel, stationDatabase.findStation("XX", "ABC").getSelectedChannel());
+    }
+
+}
@@ -3,6 +3,10 @@ package globalquake.core.database;
 import gqserver.api.packets.station.InputType;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.List;
 import java.util.Optional;
 
@@ -242,5 +246,36 @@ public class StationDatabaseManagerTest {
         assertNull(dummyStation.getSelectedChannel());
     }
 
+    @Test
+    public void testIndexes() throws Exception {
+        StationSource stationSource = new StationSource("1", "");
+        Network dummyNetwork = new Network("coolNetwork", "");
+        Station dummyStation = new Station(dummyNetwork, "coolStation", "", 0, 0, 0);
+        Channel dummyChannel = new Channel("coolChannel", "00", 50, 0, 0, 0, stationSource, -1, InputType.UNKNOWN);
+
+        StationDatabase stationDatabase = new StationDatabase();
+        StationDatabaseManager stationDatabaseManager = new StationDatabaseManager(stationDatabase);
+        stationDatabase.acceptChannel(dummyNetwork, dummyStation, dummyChannel);
+
+        assertEquals(dummyNetwork, stationDatabase.findNetwork("COOLNETWORK"));
+        assertEquals(dummyStation, stationDatabase.findStation("coolnetwork", "COOLSTATION"));
+        assertEquals(dummyChannel, stationDatabase.findChannel("coolNetwork", "coolStation", "coolChannel", "00"));
+        assertNull(stationDatabase.findChannel("coolNetwork", "coolStation", "coolChannel", "10"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(stationDatabase);
+        }
+        StationDatabase deserialized;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            deserialized = (StationDatabase) in.readObject();
+        }
+        assertNotNull(deserialized.findChannel("coolNetwork", "coolStation", "coolChannel", "00"));
+
+        stationDatabaseManager.removeAllStationSources(List.of(stationSource));
+        assertNull(stationDatabase.findNetwork("coolNetwork"));
+        assertNull(stationDatabase.findStation("coolNetwork", "coolStation"));
+        assertNull(stationDatabase.findChannel("coolNetwork", "coolStation", "coolChannel", "00"));
+    }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,92 @@
+package globalquake.core.database;
+
+import gqserver.api.packets.station.InputType;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+
+import static org.junit.Assert.*;
+
+public class StationDatabaseSnapshotTest {
+
+    private static StationDatabaseSnapshot roundTrip(StationDatabaseSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            snapshot.write(out);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return StationDatabaseSnapshot.read(in);
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        StationDatabase database = new StationDatabase();
+        StationSource source = database.getStationSources().get(0);
+        source.setLastUpdate(LocalDateTime.of(2023, 10, 1, 12, 30));
+        SeedlinkNetwork seedlink = database.getSeedlinkNetworks().get(3);
+
+        Network network = new Network("XX", "Test Network");
+        Station station = new Station(network, "ABC", "Site", 50.5, 14.25, 300);
+        Channel channel = new Channel("HHZ", "00", 100, 50.6, 14.3, 310, source, 1.5E9, InputType.VELOCITY);
+        Channel channel2 = new Channel("BHZ", "", 20, 50.6, 14.3, 310, null, -1, InputType.UNKNOWN);
+        channel.getSeedlinkNetworks().put(seedlink, 1234L);
+        database.acceptChannel(network, station, channel);
+        database.acceptChannel(network, station, channel2);
+        station.setSelectedChannel(channel);
+
+        StationDatabase loaded = roundTrip(StationDatabaseSnapshot.of(database)).toDatabase();
+
+        assertEquals(database.getStationSources().size(), loaded.getStationSources().size());
+        assertEquals(source.getLastUpdate(), loaded.getStationSources().get(0).getLastUpdate());
+        assertEquals(database.getSeedlinkNetworks().size(), loaded.getSeedlinkNetworks().size());
+
+        Station loadedStation = loaded.findStation("XX", "ABC");
+        assertNotNull(loadedStation);
+        assertEquals("Test Network", loaded.findNetwork("XX").getDescription());
+        assertEquals("Site", loadedStation.getStationSite());
+        assertEquals(50.5, loadedStation.getLatitude(), 0);
+        assertEquals(2, loadedStation.getChannels().size());
+
+        Channel loadedChannel = loaded.findChannel("XX", "ABC", "HHZ", "00");
+        assertEquals(loadedChannel, loadedStation.getSelectedChannel());
+        assertEquals(1.5E9, loadedChannel.getSensitivity(), 0);
+        assertEquals(InputType.VELOCITY, loadedChannel.getInputType());
+        assertEquals(100, loadedChannel.getSampleRate(), 0);
+        assertTrue(loadedChannel.getStationSources().contains(loaded.getStationSources().get(0)));
+        assertEquals(Long.valueOf(1234L), loadedChannel.getSeedlinkNetworks().get(loaded.getSeedlinkNetworks().get(3)));
+
+        Channel loadedChannel2 = loaded.findChannel("XX", "ABC", "BHZ", "");
+        assertFalse(loadedChannel2.isAvailable());
+        assertTrue(loadedChannel2.getStationSources().contains(null));
+    }
+
+    @Test
+    public void testDiff() {
+        StationDatabase database = new StationDatabase();
+        SeedlinkNetwork seedlink = database.getSeedlinkNetworks().get(0);
+
+        Network network = new Network("XX", "");
+        Station station = new Station(network, "ABC", "", 0, 0, 0);
+        Channel channel = new Channel("HHZ", "00", 100, 0, 0, 0, null, -1, InputType.UNKNOWN);
+        database.acceptChannel(network, station, channel);
+
+        StationDatabaseSnapshot before = StationDatabaseSnapshot.of(database);
+        assertTrue(StationDatabaseSnapshot.of(database).diff(before).isEmpty());
+
+        channel.getSeedlinkNetworks().put(seedlink, 0L);
+        database.acceptChannel(network, station, new Channel("HHN", "00", 100, 0, 0, 0, null, -1, InputType.UNKNOWN));
+
+        StationDatabaseSnapshot.Diff diff = StationDatabaseSnapshot.of(database).diff(before);
+        assertEquals(1, diff.addedChannels().size());
+        assertEquals(0, diff.removedChannels().size());
+        assertEquals(1, diff.availabilityChanged().size());
+        assertEquals("XX.ABC.00.HHZ", diff.availabilityChanged().get(0));
+    }
+
+}
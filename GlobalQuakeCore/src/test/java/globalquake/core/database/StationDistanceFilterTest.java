@@ -0,0 +1,79 @@
+package globalquake.core.database;
+
+import globalquake.utils.GeoUtils;
+import gqserver.api.packets.station.InputType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StationDistanceFilterTest {
+
+    private static Station addStation(StationDatabase stationDatabase, SeedlinkNetwork seedlinkNetwork, String code, double lat, double lon, long delay) {
+        Network network = new Network("XX", "");
+        Station station = new Station(network, code, "", lat, lon, 0);
+        Channel channel = new Channel("HHZ", "00", 100, lat, lon, 0, null, -1, InputType.UNKNOWN);
+        channel.getSeedlinkNetworks().put(seedlinkNetwork, delay);
+        stationDatabase.acceptChannel(network, station, channel);
+
+        Station result = stationDatabase.findStation("XX", code);
+        result.setSelectedChannel(stationDatabase.findChannel("XX", code, "HHZ", "00"));
+        return result;
+    }
+
+    @Test
+    public void testLowerDelayIsKept() {
+        StationDatabase stationDatabase = new StationDatabase();
+        SeedlinkNetwork seedlinkNetwork = new SeedlinkNetwork("dummy", "D", 5);
+
+        Station slow = addStation(stationDatabase, seedlinkNetwork, "SLOW", 50, 14, 5000);
+        Station fast = addStation(stationDatabase, seedlinkNetwork, "FAST", 50, 14.1, 1000);
+        Station far = addStation(stationDatabase, seedlinkNetwork, "FAR", 10, 14, 9000);
+
+        assertEquals(1, StationDistanceFilter.apply(stationDatabase, 50, null));
+        assertNull(slow.getSelectedChannel());
+        assertNotNull(fast.getSelectedChannel());
+        assertNotNull(far.getSelectedChannel());
+    }
+
+    @Test
+    public void testMinimumDistance() {
+        StationDatabase stationDatabase = new StationDatabase();
+        SeedlinkNetwork seedlinkNetwork = new SeedlinkNetwork("dummy", "D", 5);
+        Random random = new Random(0);
+
+        List<Station> stations = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            double lat = Math.toDegrees(Math.asin(random.nextDouble() * 2 - 1));
+            double lon = random.nextDouble() * 360 - 180;
+            stations.add(addStation(stationDatabase, seedlinkNetwork, "S" + i, lat, lon, random.nextInt(10000)));
+        }
+
+        double minDist = 300;
+        StationDistanceFilter.apply(stationDatabase, minDist, null);
+
+        List<Station> kept = stations.stream().filter(station -> station.getSelectedChannel() != null).toList();
+        assertFalse(kept.isEmpty());
+
+        for (Station station : stations) {
+            boolean selected = station.getSelectedChannel() != null;
+            boolean hasNeighbour = false;
+            for (Station other : kept) {
+                if (other == station) {
+                    continue;
+                }
+                double dist = GeoUtils.greatCircleDistance(station.getLatitude(), station.getLongitude(), other.getLatitude(), other.getLongitude());
+                if (dist < minDist - 1e-6) {
+                    hasNeighbour = true;
+                }
+            }
+
+            // kept stations are far enough apart and every removed one had a reason to be removed
+            assertEquals(selected, !hasNeighbour);
+        }
+    }
+
+}
@@ -0,0 +1,200 @@
+package globalquake.core.earthquake;
+
+import globalquake.core.Settings;
+import globalquake.core.analysis.Event;
+import globalquake.core.earthquake.data.Cluster;
+import globalquake.core.earthquake.data.Earthquake;
+import globalquake.core.earthquake.data.Hypocenter;
+import globalquake.core.geo.taup.TauPTravelTimeCalculator;
+import globalquake.core.regions.Regions;
+import globalquake.core.station.AbstractStation;
+import globalquake.core.training.ClusterAnalysisTraining;
+import globalquake.core.training.ClusterAnalysisTraining.SimulatedEarthquake;
+import globalquake.utils.GeoUtils;
+import globalquake.utils.LockStatistics;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ClusterAnalysisStressTest {
+
+    private static final int STATIONS = 2000;
+    private static final int READERS = 4;
+    private static final int ITERATIONS = 60;
+    private static final long STEP = 5000;
+
+    // origins of the simulated earthquakes, the later ones arrive while the first is being located
+    private static final long[] ORIGINS = {0, 20_000, 40_000};
+
+    /**
+     * The scenario of {@link ClusterAnalysisTraining}: cluster analysis, earthquake analysis and readers of the clusters
+     * run the same number of iterations side by side. The arrivals are strong enough for the hypocenter search,
+     * so the searches run unlocked while clusters are created, merged, removed and their events stolen,
+     * and their results are applied to clusters that may have changed meanwhile.
+     */
+    @Test
+    public void testConcurrentAnalysis() throws Exception {
+        TauPTravelTimeCalculator.init();
+        Regions.enabled = false;
+        Settings.parallelHypocenterLocations = true;
+        Settings.hypocenterDetectionResolution = 40.0;
+        Settings.maxEvents = 30;
+
+        Random random = new Random(0);
+        List<AbstractStation> stations = ClusterAnalysisTraining.createStations(random, STATIONS);
+
+        List<Earthquake> earthquakes = new CopyOnWriteArrayList<>();
+        ClusterAnalysis clusterAnalysis = new ClusterAnalysis(earthquakes, stations);
+        EarthquakeAnalysis earthquakeAnalysis = new EarthquakeAnalysis(clusterAnalysis, earthquakes);
+
+        List<SimulatedEarthquake> simulatedEarthquakes = new ArrayList<>();
+        Set<Cluster> seenClusters = ConcurrentHashMap.newKeySet();
+
+        CyclicBarrier barrier = new CyclicBarrier(2 + READERS);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicLong readerLocks = new AtomicLong();
+
+        List<Thread> threads = new ArrayList<>();
+        threads.add(new Thread(() -> {
+            try {
+                for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+                    barrier.await();
+                    long time = iteration * STEP;
+                    for (long origin : ORIGINS) {
+                        if (origin == time) {
+                            simulatedEarthquakes.add(ClusterAnalysisTraining.createEarthquake(random, origin));
+                        }
+                    }
+
+                    ClusterAnalysisTraining.createEvents(stations, simulatedEarthquakes, time, random);
+                    clusterAnalysis.run();
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+                barrier.reset();
+            }
+        }, "Cluster Analysis"));
+
+        threads.add(new Thread(() -> {
+            try {
+                for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+                    barrier.await();
+                    earthquakeAnalysis.run();
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+                barrier.reset();
+            }
+        }, "Earthquake Analysis"));
+
+        for (int i = 0; i < READERS; i++) {
+            threads.add(new Thread(() -> {
+                try {
+                    for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+                        barrier.await();
+                        for (Cluster cluster : clusterAnalysis.getClusters()) {
+                            seenClusters.add(cluster);
+                            clusterAnalysis.lockStructure();
+                            clusterAnalysis.lockCluster(cluster);
+                            readerLocks.incrementAndGet();
+                            try {
+                                if (cluster.isRemoved()) {
+                                    continue;
+                                }
+
+                                // nobody else can move the events of a locked cluster
+                                for (Map.Entry<AbstractStation, Event> entry : cluster.getAssignedEvents().entrySet()) {
+                                    assertSame(cluster, entry.getValue().assignedCluster);
+                                    assertSame(entry.getKey(), entry.getValue().getAnalysis().getStation());
+                                }
+
+                                // an earthquake is created, removed or merged away together with its hypocenter
+                                Earthquake earthquake = cluster.getEarthquake();
+                                if (earthquake != null) {
+                                    assertSame(cluster, earthquake.getCluster());
+                                    assertNotNull(cluster.getPreviousHypocenter());
+                                    assertTrue(earthquakes.contains(earthquake));
+                                }
+                            } finally {
+                                cluster.getLock().unlock();
+                                clusterAnalysis.unlockStructure();
+                            }
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                    barrier.reset();
+                }
+            }, "Reader #" + i));
+        }
+
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join(10 * 60_000);
+            assertFalse(thread.isAlive());
+        }
+
+        if (failure.get() != null) {
+            throw new AssertionError(failure.get());
+        }
+
+        // the hypocenters that were applied belong to the simulated earthquakes
+        assertFalse(earthquakes.isEmpty());
+        Set<Cluster> earthquakeClusters = new HashSet<>();
+        for (Earthquake earthquake : earthquakes) {
+            Cluster cluster = earthquake.getCluster();
+            assertFalse(cluster.isRemoved());
+            assertTrue(clusterAnalysis.getClusters().contains(cluster));
+            assertSame(earthquake, cluster.getEarthquake());
+            assertTrue(earthquakeClusters.add(cluster));
+
+            Hypocenter hypocenter = cluster.getPreviousHypocenter();
+            assertNotNull(hypocenter);
+            assertTrue(hypocenter.toString(), simulatedEarthquakes.stream().anyMatch(simulated ->
+                    GeoUtils.greatCircleDistance(simulated.lat(), simulated.lon(), hypocenter.lat, hypocenter.lon) < 500
+                            && Math.abs(simulated.origin() - hypocenter.origin) < 60_000));
+        }
+
+        // every event is in at most one cluster, and knows which one
+        Set<Event> assignedEvents = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Cluster cluster : clusterAnalysis.getClusters()) {
+            assertFalse(cluster.isRemoved());
+            for (Map.Entry<AbstractStation, Event> entry : cluster.getAssignedEvents().entrySet()) {
+                assertSame(cluster, entry.getValue().assignedCluster);
+                assertTrue(assignedEvents.add(entry.getValue()));
+            }
+        }
+
+        for (Cluster cluster : seenClusters) {
+            if (cluster.isRemoved()) {
+                assertFalse(clusterAnalysis.getClusters().contains(cluster));
+                assertFalse(earthquakeClusters.contains(cluster));
+            }
+        }
+
+        LockStatistics structureWrites = clusterAnalysis.getStructureWriteStatistics();
+        assertTrue(structureWrites.getAcquisitions() > 0);
+        assertTrue(structureWrites.getContended() <= structureWrites.getAcquisitions());
+
+        // the readers and each applied hypocenter
+        LockStatistics structureReads = clusterAnalysis.getStructureReadStatistics();
+        assertTrue(structureReads.getAcquisitions() >= readerLocks.get() + earthquakes.size());
+        assertTrue(structureReads.getContended() <= structureReads.getAcquisitions());
+
+        LockStatistics analysisLocks = clusterAnalysis.getAnalysisClusterLockStatistics();
+        assertTrue(analysisLocks.getContended() <= analysisLocks.getAcquisitions());
+
+        LockStatistics clusterLocks = clusterAnalysis.getClusterLockStatistics();
+        assertTrue(clusterLocks.getAcquisitions() >= readerLocks.get() + earthquakes.size());
+        assertTrue(clusterLocks.getContended() <= clusterLocks.getAcquisitions());
+        assertTrue(clusterLocks.getWaitNanos() >= 0);
+    }
+
+}
@@ -0,0 +1,160 @@
+package globalquake.core.earthquake;
+
+import globalquake.core.earthquake.data.Cluster;
+import globalquake.core.earthquake.data.HypocenterFinderSettings;
+import globalquake.core.earthquake.data.PickedEvent;
+import globalquake.core.earthquake.data.PreliminaryHypocenter;
+import globalquake.core.earthquake.interval.DepthConfidenceInterval;
+import globalquake.core.geo.taup.TauPTravelTimeCalculator;
+import globalquake.utils.GeoUtils;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleFunction;
+
+import static org.junit.Assert.*;
+
+public class EarthquakeAnalysisTest {
+
+    private static final double[] THRESHOLDS = {3.0, 2.0, 1.5, 1.25};
+
+    // the march as it was done separately for each threshold
+    private static EarthquakeAnalysis.PolygonConfidenceResult marchSingle(double threshold, double bestHeuristic,
+                                                                         DoubleFunction<EarthquakeAnalysis.PolygonConfidenceSample> sampler) {
+        double dist = 10;
+        double step = 10;
+
+        long minOrigin = Long.MAX_VALUE;
+        long maxOrigin = Long.MIN_VALUE;
+
+        while (step > 0.25 && dist < 5000) {
+            EarthquakeAnalysis.PolygonConfidenceSample sample = sampler.apply(dist);
+            if (sample.heuristic() > bestHeuristic / threshold) {
+                dist += step;
+                maxOrigin = Math.max(maxOrigin, sample.origin());
+                minOrigin = Math.min(minOrigin, sample.origin());
+            } else {
+                step /= 2.0;
+                dist -= step;
+            }
+        }
+
+        return new EarthquakeAnalysis.PolygonConfidenceResult(dist, minOrigin, maxOrigin);
+    }
+
+    private static DoubleFunction<EarthquakeAnalysis.PolygonConfidenceSample> createField(Random random, AtomicInteger calls) {
+        double scale = 20 + random.nextDouble() * 500;
+        double ripple = random.nextDouble() * 0.3;
+        double wavelength = 5 + random.nextDouble() * 50;
+        return dist -> {
+            calls.incrementAndGet();
+            // decreasing misfit with ripples, so the contours are not always monotonic
+            double heuristic = 100.0 / (1 + dist / scale) * (1 + ripple * Math.sin(dist / wavelength));
+            return new EarthquakeAnalysis.PolygonConfidenceSample(heuristic, (long) (dist * 37) % 1000);
+        };
+    }
+
+    @Test
+    public void testSharedMarchMatchesSeparateMarches() {
+        Random random = new Random(5);
+        int sharedCalls = 0;
+        int separateCalls = 0;
+
+        for (int ray = 0; ray < 500; ray++) {
+            long seed = random.nextLong();
+            AtomicInteger calls = new AtomicInteger();
+
+            EarthquakeAnalysis.PolygonConfidenceResult[] shared = EarthquakeAnalysis.marchConfidenceRay(THRESHOLDS, 100,
+                    createField(new Random(seed), calls));
+            sharedCalls += calls.get();
+
+            for (int i = 0; i < THRESHOLDS.length; i++) {
+                calls.set(0);
+                EarthquakeAnalysis.PolygonConfidenceResult expected = marchSingle(THRESHOLDS[i], 100, createField(new Random(seed), calls));
+                separateCalls += calls.get();
+
+                assertEquals(expected, shared[i]);
+            }
+        }
+
+        assertTrue(sharedCalls * 3 < separateCalls * 2);
+    }
+
+    @Test
+    public void testRepeatedThresholdIsFree() {
+        AtomicInteger calls = new AtomicInteger();
+        EarthquakeAnalysis.PolygonConfidenceResult[] results = EarthquakeAnalysis.marchConfidenceRay(new double[]{2.0, 2.0}, 100,
+                createField(new Random(1), calls));
+
+        assertEquals(results[0], results[1]);
+
+        AtomicInteger single = new AtomicInteger();
+        marchSingle(2.0, 100, createField(new Random(1), single));
+        // even a single march can come back to a distance it has already visited
+        assertTrue(calls.get() <= single.get());
+    }
+
+    /**
+     * The same scenarios as {@link globalquake.core.training.EarthquakeAnalysisTraining}: 30 stations within 5000 km,
+     * picks with up to 5 s of noise and 40 % of them off by up to 25 s more.
+     * Both bounds searched from the depth profile must agree with the full sweep within one sweep step
+     * in every scenario.
+     */
+    @Test
+    public void testDepthProfileMatchesSweep() throws Exception {
+        TauPTravelTimeCalculator.init();
+        EarthquakeAnalysis earthquakeAnalysis = new EarthquakeAnalysis();
+        earthquakeAnalysis.testing = true;
+        HypocenterFinderSettings finderSettings = new HypocenterFinderSettings(4000.0, 50.0, 40.0, 5);
+        double tolerance = 1.0 / earthquakeAnalysis.getUniversalResolutionMultiplier(finderSettings);
+
+        int scenarios = 20;
+        List<String> mismatches = new ArrayList<>();
+        for (int i = 0; i < scenarios; i++) {
+            Random r = new Random(888 + i);
+            double quakeLat = r.nextDouble() * 10;
+            double quakeLon = r.nextDouble() * 10;
+            double quakeDepth = i % 2 == 0 ? 200 : 15;
+
+            List<PickedEvent> pickedEvents = new ArrayList<>();
+            double sumLat = 0;
+            double sumLon = 0;
+            for (int station = 0; station < 30; station++) {
+                double[] latLon = GeoUtils.moveOnGlobe(0, 0, r.nextDouble() * 5000, r.nextDouble() * 360.0);
+                sumLat += latLon[0];
+                sumLon += latLon[1];
+
+                double distGC = GeoUtils.greatCircleDistance(quakeLat, quakeLon, latLon[0], latLon[1]);
+                double travelTime = TauPTravelTimeCalculator.getPWaveTravelTime(quakeDepth, TauPTravelTimeCalculator.toAngle(distGC));
+                long time = (long) (travelTime * 1000.0) + (long) ((r.nextDouble() - 0.5) * 5000);
+                if (r.nextDouble() < 0.4) {
+                    time += (long) ((r.nextDouble() * 10.0 - 5.0) * 5000);
+                }
+                pickedEvents.add(new PickedEvent(time, latLon[0], latLon[1], 0, 100));
+            }
+
+            Cluster cluster = new Cluster();
+            cluster.updateRoot(sumLat / 30, sumLon / 30);
+            cluster.resetAnchor();
+
+            PreliminaryHypocenter best = earthquakeAnalysis.runHypocenterFinder(pickedEvents, cluster, finderSettings, true);
+            assertNotNull(best);
+            assertTrue(best.depthProfile.size() > 0);
+
+            DepthConfidenceInterval sweep = earthquakeAnalysis.sweepDepthConfidenceInterval(pickedEvents, best, finderSettings);
+            DepthConfidenceInterval profile = earthquakeAnalysis.calculateDepthConfidenceInterval(pickedEvents, best, finderSettings, best.depthProfile);
+
+            if (Math.abs(sweep.minDepth() - profile.minDepth()) > tolerance || Math.abs(sweep.maxDepth() - profile.maxDepth()) > tolerance) {
+                mismatches.add("#%d sweep %.1f-%.1f km, profile %.1f-%.1f km".formatted(i,
+                        sweep.minDepth(), sweep.maxDepth(), profile.minDepth(), profile.maxDepth()));
+            }
+        }
+
+        assertTrue("%d of %d scenarios differ by more than %.1f km: %s".formatted(mismatches.size(), scenarios, tolerance, mismatches),
+                mismatches.isEmpty());
+    }
+
+}
@@ -0,0 +1,58 @@
+package globalquake.core.intensity;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IntensityTableTest {
+
+    private static double randomDistance(Random random, double max) {
+        // more samples at short distances where the function changes the most
+        return random.nextDouble() * random.nextDouble() * max;
+    }
+
+    @Test
+    public void testIntensityAccuracy() {
+        Random random = new Random(0);
+        for (int i = 0; i < 200_000; i++) {
+            double mag = -0.5 + random.nextDouble() * 10.5;
+            double dist = randomDistance(random, 20100);
+            double expected = IntensityTable.calculateIntensity(mag, dist);
+            assertEquals(expected, IntensityTable.getIntensity(mag, dist), expected * 0.0015);
+        }
+    }
+
+    @Test
+    public void testMagnitudeAccuracy() {
+        Random random = new Random(1);
+        for (int i = 0; i < 50_000; i++) {
+            double mag = -0.4 + random.nextDouble() * 10.3;
+            double dist = randomDistance(random, 13000);
+            double intensity = IntensityTable.calculateIntensity(mag, dist) * Math.exp(random.nextGaussian() * 0.05);
+            assertEquals(IntensityTable.calculateMagnitude(dist, intensity), IntensityTable.getMagnitude(dist, intensity), 0.006);
+        }
+    }
+
+    @Test
+    public void testMagnitudeByRatioAccuracy() {
+        Random random = new Random(2);
+        for (int i = 0; i < 50_000; i++) {
+            double mag = -1.9 + random.nextDouble() * 11.8;
+            double dist = randomDistance(random, 13000);
+            // the binary search stops at an absolute tolerance, so it isn't exact for tiny intensities
+            assertEquals(mag, IntensityTable.getMagnitudeByRatio(dist, IntensityTable.calculateIntensityFromRatio(mag, dist)), 0.006);
+        }
+    }
+
+    @Test
+    public void testOutsideTables() {
+        assertEquals(IntensityTable.calculateIntensity(-1, 100), IntensityTable.getIntensity(-1, 100), 0);
+        assertEquals(IntensityTable.calculateIntensity(11, 100), IntensityTable.getIntensity(11, 100), 0);
+        assertEquals(IntensityTable.calculateIntensity(5, 30000), IntensityTable.getIntensity(5, 30000), 0);
+        assertEquals(IntensityTable.calculateMagnitude(100, 1e20), IntensityTable.getMagnitude(100, 1e20), 0);
+        assertEquals(IntensityTable.calculateMagnitude(100, 0), IntensityTable.getMagnitude(100, 0), 0);
+    }
+
+}
@@ -0,0 +1,72 @@
+package globalquake.core.metrics;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void testHistogram() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Histogram histogram = registry.histogram("test_seconds", "Test histogram", 0.1, 0.05, 1);
+
+        histogram.observe(0.01);
+        histogram.observe(0.05);
+        histogram.observe(0.2);
+        histogram.observe(5);
+
+        assertEquals(4, histogram.getCount());
+        assertEquals(5.26, histogram.getSum(), 1e-9);
+        assertEquals("""
+                # HELP test_seconds Test histogram
+                # TYPE test_seconds histogram
+                test_seconds_bucket{le="0.05"} 2
+                test_seconds_bucket{le="0.1"} 2
+                test_seconds_bucket{le="1"} 3
+                test_seconds_bucket{le="+Inf"} 4
+                test_seconds_sum 5.26
+                test_seconds_count 4
+                """, registry.scrape());
+    }
+
+    @Test
+    public void testLabelsAndGauges() {
+        MetricsRegistry registry = new MetricsRegistry();
+        LabeledCounter counter = registry.counter("test_packets_total", "Packets", "network");
+        counter.increment("b");
+        counter.increment("a \"quoted\"");
+        counter.increment("b");
+        registry.gauge("test_depth", "Queue depth", "queue", () -> Map.of("x", 3));
+        registry.gauge("test_broken", "Broken", () -> {
+            throw new IllegalStateException();
+        });
+
+        assertEquals(2, counter.get("b"));
+        assertEquals("""
+                # HELP test_depth Queue depth
+                # TYPE test_depth gauge
+                test_depth{queue="x"} 3
+                # HELP test_packets_total Packets
+                # TYPE test_packets_total counter
+                test_packets_total{network="a \\"quoted\\""} 1
+                test_packets_total{network="b"} 2
+                """, registry.scrape());
+
+        registry.remove("test_depth");
+        assertFalse(registry.scrape().contains("test_depth"));
+    }
+
+    @Test
+    public void testInvalidName() {
+        MetricsRegistry registry = new MetricsRegistry();
+        try {
+            registry.gauge("1 invalid", "", () -> 0);
+            fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+    }
+
+}
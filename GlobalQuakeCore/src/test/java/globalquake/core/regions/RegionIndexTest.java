@@ -0,0 +1,53 @@
+package globalquake.core.regions;
+
+import org.junit.Test;
+
+import java.awt.geom.Path2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RegionIndexTest {
+
+    private static Region createRegion(String name, double... coords) {
+        Path2D.Double path = new Path2D.Double();
+        path.moveTo(coords[0], coords[1]);
+        for (int i = 2; i < coords.length; i += 2) {
+            path.lineTo(coords[i], coords[i + 1]);
+        }
+        path.closePath();
+        return new Region(name, List.of(path), List.of(path.getBounds2D()), List.of());
+    }
+
+    @Test
+    public void matchesLinearScan() {
+        List<Region> regions = new ArrayList<>();
+        regions.add(createRegion("Triangle", 10, 10, 40, 12, 20, 35));
+        regions.add(createRegion("Square", 0, 0, 30, 0, 30, 30, 0, 30));
+        regions.add(createRegion("Antimeridian", 170, -20, 180, -20, 180, -5, 170, -5));
+
+        RegionIndex index = new RegionIndex(regions, 2.0);
+        Random random = new Random(0);
+
+        for (int i = 0; i < 100000; i++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lon = random.nextDouble() * 360 - 180;
+            String expected = Regions.getName(lat, lon, regions);
+            Region actual = index.find(lat, lon);
+            assertEquals(expected, actual == null ? null : actual.name());
+        }
+    }
+
+    @Test
+    public void oceanAndLand() {
+        RegionIndex index = new RegionIndex(List.of(createRegion("Square", 0, 0, 30, 0, 30, 30, 0, 30)));
+
+        assertFalse(index.isOcean(15, 15));
+        assertFalse(index.isOcean(0.1, 29.9));
+        assertTrue(index.isOcean(-15, 15));
+        assertTrue(index.isOcean(90, 180));
+    }
+
+}
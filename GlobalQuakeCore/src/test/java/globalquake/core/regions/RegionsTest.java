@@ -1,10 +1,11 @@
 package globalquake.core.regions;
 
+import globalquake.utils.GeoUtils;
 import globalquake.utils.LookupTableIO;
 import org.junit.Test;
 
 import java.io.IOException;
-import java.util.HashMap;
+import java.util.Random;
 
 import static globalquake.core.regions.Regions.interpolate;
 import static org.junit.Assert.*;
@@ -40,7 +41,7 @@ public class RegionsTest {
     }
     @SuppressWarnings("unused")
     public void bilinearInterpolationTest() throws IOException {
-        HashMap<String, Double> lookupTable = LookupTableIO.importLookupTableFromFile();
+        ShorelineLookupTable lookupTable = LookupTableIO.importLookupTableFromFile();
         assertNotNull(lookupTable);
 
         double interpolation = interpolate(21.673478, -19.158873, lookupTable);
@@ -53,7 +54,7 @@ public class RegionsTest {
     public void lookupTableEffectivityTest() throws IOException {
         Regions.init();
 
-        HashMap<String, Double> lookupTable = LookupTableIO.importLookupTableFromFile();
+        ShorelineLookupTable lookupTable = LookupTableIO.importLookupTableFromFile();
         assertNotNull(lookupTable);
 
         double lat = 62.659630,
@@ -81,22 +82,40 @@ public class RegionsTest {
     }
 
     @SuppressWarnings("unused")
-    public void lookupTableGenerationTest() {
-        HashMap<String, Double> testLookupTable = Regions.generateLookupTable(0, 1, 0, 1);
+    public void lookupTableGenerationTest() throws IOException {
+        Regions.init();
 
-        assertEquals(4, testLookupTable.size());
+        ShorelineLookupTable testLookupTable = Regions.generateLookupTable();
 
-        double lat = 0, lon;
-        for(int i = 0; i < 2; i++){
-            lon = 0;
+        for(double lat = -80; lat <= 80; lat += 0.5){
+            for(double lon = -180; lon <= 180; lon += 0.5){
+                assertEquals(Regions.getShorelineDistance(lat, lon), testLookupTable.interpolate(lat, lon), 0.01);
+            }
+        }
+    }
 
-            for(int j = 0; j < 2; j++){
-                String expectedKey = String.format("%.6f,%.6f", lat, lon);
-                assertTrue(testLookupTable.containsKey(expectedKey));
+    @Test
+    public void coastlineIndexTest() throws IOException {
+        Regions.init();
+
+        CoastlineIndex index = new CoastlineIndex(Regions.regionsMD);
+        Random random = new Random(0);
 
-                lon += 0.5;
+        for(int i = 0; i < 200; i++){
+            double lat = random.nextDouble() * 180 - 90;
+            double lon = random.nextDouble() * 360 - 180;
+
+            double closest = Double.MAX_VALUE;
+            for (Region reg : Regions.regionsMD) {
+                for (GeoPolygon polygon : reg.raws()) {
+                    for (int v = 0; v < polygon.size(); v++) {
+                        closest = Math.min(closest, GeoUtils.greatCircleDistance(polygon.getLat(v), polygon.getLon(v), lat, lon));
+                    }
+                }
             }
-            lat += 0.5;
+
+            CoastlineIndex.Vertex vertex = index.nearest(lat, lon);
+            assertEquals(closest, GeoUtils.greatCircleDistance(vertex.lat(), vertex.lon(), lat, lon), 0.01);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,117 @@
+package globalquake.core.seedlink;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SeedlinkRecordingTest {
+
+    private static List<SeedlinkRecording.Packet> writePackets(File file, int count) throws IOException {
+        Random random = new Random(0);
+        List<SeedlinkRecording.Packet> packets = new ArrayList<>();
+        SeedlinkRecorder recorder = new SeedlinkRecorder(file);
+        long arrival = 1_700_000_000_000L;
+        for (int i = 0; i < count; i++) {
+            arrival += random.nextInt(500);
+            byte[] data = new byte[random.nextBoolean() ? 512 : 4096];
+            random.nextBytes(data);
+            recorder.write(arrival, data);
+            packets.add(new SeedlinkRecording.Packet(arrival, data));
+        }
+        recorder.close();
+        return packets;
+    }
+
+    private static File createTempFile() throws IOException {
+        File file = File.createTempFile("seedlink", ".gqsr");
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        File file = createTempFile();
+        List<SeedlinkRecording.Packet> packets = writePackets(file, 2000);
+
+        try (SeedlinkRecording recording = new SeedlinkRecording(file)) {
+            assertTrue(recording.hasIndex());
+            for (SeedlinkRecording.Packet expected : packets) {
+                SeedlinkRecording.Packet packet = recording.next();
+                assertNotNull(packet);
+                assertEquals(expected.arrival(), packet.arrival());
+                assertArrayEquals(expected.data(), packet.data());
+            }
+            assertNull(recording.next());
+
+            for (int i : new int[]{0, 1, 777, 1999}) {
+                recording.seek(packets.get(i).arrival());
+                SeedlinkRecording.Packet packet = recording.next();
+                assertNotNull(packet);
+                assertEquals(packets.get(i).arrival(), packet.arrival());
+            }
+
+            recording.seek(Long.MAX_VALUE);
+            assertNull(recording.next());
+        }
+    }
+
+    @Test
+    public void testInterruptedRecording() throws IOException {
+        File file = createTempFile();
+        List<SeedlinkRecording.Packet> packets = writePackets(file, 100);
+
+        // cut off the index and half of the last packet, as if the recorder was killed
+        long length = SeedlinkRecording.HEADER_SIZE;
+        for (SeedlinkRecording.Packet packet : packets) {
+            length += SeedlinkRecording.ENTRY_HEADER_SIZE + packet.data().length;
+        }
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            randomAccessFile.setLength(length - packets.get(packets.size() - 1).data().length / 2);
+        }
+
+        try (SeedlinkRecording recording = new SeedlinkRecording(file)) {
+            assertFalse(recording.hasIndex());
+            int count = 0;
+            while (recording.next() != null) {
+                count++;
+            }
+            assertEquals(packets.size() - 1, count);
+        }
+    }
+
+    @Test
+    public void testShiftStartTime() {
+        for (boolean bigEndian : new boolean[]{true, false}) {
+            byte[] record = new byte[64];
+            writeShort(record, 20, 2024, bigEndian);
+            writeShort(record, 22, 366, bigEndian);
+            record[24] = 23;
+            record[25] = 59;
+            record[26] = 59;
+            writeShort(record, 28, 9999, bigEndian);
+
+            Instant start = SeedlinkReplayReader.readStartTime(record);
+            assertEquals(Instant.parse("2024-12-31T23:59:59.9999Z"), start);
+
+            SeedlinkReplayReader.shiftStartTime(record, 1000L * 3600 * 24 * 400 + 1);
+            assertEquals(start.plusMillis(1000L * 3600 * 24 * 400 + 1), SeedlinkReplayReader.readStartTime(record));
+
+            SeedlinkReplayReader.shiftStartTime(record, -(1000L * 3600 * 24 * 400 + 1));
+            assertEquals(start, SeedlinkReplayReader.readStartTime(record));
+        }
+    }
+
+    private static void writeShort(byte[] data, int offset, int value, boolean bigEndian) {
+        data[offset + (bigEndian ? 0 : 1)] = (byte) (value >> 8);
+        data[offset + (bigEndian ? 1 : 0)] = (byte) value;
+    }
+
+}
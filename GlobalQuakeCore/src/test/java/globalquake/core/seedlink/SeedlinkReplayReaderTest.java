@@ -0,0 +1,125 @@
+package globalquake.core.seedlink;
+
+import edu.sc.seis.seisFile.mseed.DataRecord;
+import org.junit.Test;
+
+import java.io.File;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+public class SeedlinkReplayReaderTest {
+
+    // opening the recording and the first record delay the whole replay a bit
+    private static final long TOLERANCE = 50;
+
+    private record Received(long wallTime, long replayTime, long recordStart, boolean timeValid) {
+    }
+
+    /**
+     * Collects what the replay passes to {@link #newPacket}, without any stations to feed.
+     */
+    private static class CollectingReader extends SeedlinkReplayReader {
+
+        private final List<Received> received = new CopyOnWriteArrayList<>();
+
+        CollectingReader(File file, double speed) {
+            super(file, speed);
+        }
+
+        @Override
+        protected void createCache() {
+        }
+
+        @Override
+        protected void newPacket(DataRecord dr) {
+            long wallTime = System.currentTimeMillis();
+            Instant recordStart = dr.getStartBtime().toInstant();
+            received.add(new Received(wallTime, now().toEpochMilli(), recordStart.toEpochMilli(), isTimeValid(recordStart)));
+        }
+    }
+
+    private static CollectingReader replay(double speed, long timeout) throws Exception {
+        CollectingReader reader = new CollectingReader(SeedlinkTestRecording.getFile(), speed);
+        reader.run();
+        long deadline = System.currentTimeMillis() + timeout;
+        while (reader.getReplayedPackets() < SeedlinkTestRecording.getRecordCount() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        reader.stop();
+
+        assertEquals(SeedlinkTestRecording.getRecordCount(), reader.getReplayedPackets());
+        assertEquals(SeedlinkTestRecording.getRecordCount(), reader.received.size());
+        return reader;
+    }
+
+    /**
+     * The recording is shifted to the present: every record starts as long before the replay clock
+     * as it started before its arrival.
+     */
+    private static void assertShifted(List<Received> received) {
+        long delay = SeedlinkTestRecording.getArrival(0, SeedlinkTestRecording.START) - SeedlinkTestRecording.START;
+        long lastStationDelay = (SeedlinkTestRecording.STATIONS - 1) * SeedlinkTestRecording.STATION_DELAY;
+        for (Received packet : received) {
+            // the replay clock doesn't go behind the wall clock, which can be a few ms ahead at the first packet
+            assertTrue(packet.replayTime() - packet.recordStart() >= delay);
+            assertTrue(packet.replayTime() - packet.recordStart() <= delay + lastStationDelay + TOLERANCE);
+        }
+    }
+
+    @Test
+    public void testSpeed() throws Exception {
+        long span = SeedlinkTestRecording.getArrival(SeedlinkTestRecording.STATIONS - 1, SeedlinkTestRecording.START + SeedlinkTestRecording.DURATION
+                - SeedlinkTestRecording.RECORD_SECONDS * 1000L) - SeedlinkTestRecording.getArrival(0, SeedlinkTestRecording.START);
+
+        for (double speed : new double[]{240, 120}) {
+            CollectingReader reader = replay(speed, 10_000);
+            List<Received> received = reader.received;
+            assertShifted(received);
+
+            // no packet comes before its time, the replay clock runs speed times faster than the wall clock
+            Received first = received.get(0);
+            for (Received packet : received) {
+                long replayed = packet.replayTime() - first.replayTime();
+                assertTrue(packet.wallTime() - first.wallTime() >= (long) (replayed / speed) - TOLERANCE);
+            }
+
+            long duration = received.get(received.size() - 1).wallTime() - first.wallTime();
+            assertTrue("%.0fx took %d ms".formatted(speed, duration), duration >= (long) (span / speed) - TOLERANCE);
+            assertTrue("%.0fx took %d ms".formatted(speed, duration), duration < (long) (span / speed) + 1000);
+        }
+    }
+
+    @Test
+    public void testAsFastAsPossible() throws Exception {
+        long start = System.currentTimeMillis();
+        CollectingReader reader = replay(SeedlinkReplayReader.AS_FAST_AS_POSSIBLE, 10_000);
+        assertShifted(reader.received);
+
+        // minutes of recording in a fraction of the time, nothing waits and nothing lags
+        assertTrue(System.currentTimeMillis() - start < SeedlinkTestRecording.DURATION / 10);
+        assertEquals(0, reader.getMaxLag());
+        for (Received packet : reader.received) {
+            assertTrue(packet.timeValid());
+        }
+    }
+
+    /**
+     * Above 1x the records are far ahead of the wall clock, they are still valid against the replay clock.
+     */
+    @Test
+    public void testReplayClock() throws Exception {
+        CollectingReader reader = replay(120, 10_000);
+        Received last = reader.received.get(reader.received.size() - 1);
+        assertTrue(last.replayTime() - last.wallTime() > SeedlinkTestRecording.DURATION / 2);
+        assertTrue(last.recordStart() - last.wallTime() > 16_000);
+
+        for (Received packet : reader.received) {
+            assertTrue(packet.timeValid());
+            assertTrue(packet.replayTime() >= packet.wallTime());
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+package globalquake.core.seedlink;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Random;
+
+/**
+ * The small recording in the test resources, four minutes of {@link #STATIONS} stations of the network {@link #NETWORK}.
+ * Each record holds {@link #RECORD_SECONDS} seconds of noise at {@link #SAMPLE_RATE} Hz. The first {@link #SHAKING_STATIONS}
+ * stations shake between {@link #SHAKING_START} and {@link #SHAKING_END}.
+ * Run {@link #main} from the module directory to write it again.
+ */
+public class SeedlinkTestRecording {
+
+    public static final String RESOURCE = "/seedlink/test-recording.gqsr";
+
+    public static final String NETWORK = "XX";
+    public static final int STATIONS = 10;
+    public static final int SAMPLE_RATE = 20;
+    public static final int RECORD_SECONDS = 4;
+    public static final long DURATION = 4 * 60 * 1000;
+    public static final long START = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    public static final int SHAKING_STATIONS = 4;
+    public static final long SHAKING_START = START + 2 * 60 * 1000;
+    public static final long SHAKING_END = START + 3 * 60 * 1000;
+
+    // the records arrive after their last sample, one station after another
+    public static final long LATENCY = 500;
+    public static final long STATION_DELAY = 50;
+
+    private static final int RECORD_LENGTH = 256;
+    private static final int DATA_OFFSET = 64;
+
+    public static File getFile() throws URISyntaxException {
+        URL url = SeedlinkTestRecording.class.getResource(RESOURCE);
+        if (url == null) {
+            throw new IllegalStateException("Missing test resource %s".formatted(RESOURCE));
+        }
+        return new File(url.toURI());
+    }
+
+    public static String getStationCode(int station) {
+        return "S%d".formatted(station);
+    }
+
+    public static int getRecordCount() {
+        return (int) (DURATION / 1000 / RECORD_SECONDS) * STATIONS;
+    }
+
+    /**
+     * @return arrival of the record that starts at the given time
+     */
+    public static long getArrival(int station, long start) {
+        return start + RECORD_SECONDS * 1000L + LATENCY + station * STATION_DELAY;
+    }
+
+    /**
+     * Minimal miniSEED record with one blockette 1000 and uncompressed 16-bit samples.
+     */
+    public static byte[] createRecord(String station, long start, int[] samples) {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_LENGTH);
+        buffer.put("000001D ".getBytes(StandardCharsets.US_ASCII));
+        buffer.put("%-5s%-2s%-3s%-2s".formatted(station, "", "HHZ", NETWORK).getBytes(StandardCharsets.US_ASCII));
+
+        ZonedDateTime time = Instant.ofEpochMilli(start).atZone(ZoneOffset.UTC);
+        buffer.putShort((short) time.getYear());
+        buffer.putShort((short) time.getDayOfYear());
+        buffer.put((byte) time.getHour());
+        buffer.put((byte) time.getMinute());
+        buffer.put((byte) time.getSecond());
+        buffer.put((byte) 0);
+        buffer.putShort((short) (time.getNano() / 100_000));
+
+        buffer.putShort((short) samples.length);
+        buffer.putShort((short) SAMPLE_RATE);
+        buffer.putShort((short) 1);
+        buffer.put(new byte[3]); // activity, io and quality flags
+        buffer.put((byte) 1); // number of blockettes
+        buffer.putInt(0); // time correction
+        buffer.putShort((short) DATA_OFFSET);
+        buffer.putShort((short) 48);
+
+        // blockette 1000: 16-bit integers, big endian, 2^8 bytes long record
+        buffer.putShort((short) 1000);
+        buffer.putShort((short) 0);
+        buffer.put((byte) 1);
+        buffer.put((byte) 1);
+        buffer.put((byte) 8);
+        buffer.put((byte) 0);
+
+        buffer.position(DATA_OFFSET);
+        for (int sample : samples) {
+            buffer.putShort((short) sample);
+        }
+
+        return buffer.array();
+    }
+
+    public static void main(String[] args) throws Exception {
+        File file = new File("src/test/resources" + RESOURCE);
+        Random random = new Random(0);
+        try (SeedlinkRecorder recorder = new SeedlinkRecorder(file)) {
+            for (long start = START; start < START + DURATION; start += RECORD_SECONDS * 1000L) {
+                boolean shaking = start >= SHAKING_START && start < SHAKING_END;
+                for (int station = 0; station < STATIONS; station++) {
+                    double amplitude = shaking && station < SHAKING_STATIONS ? 5000 : 100;
+                    int[] samples = new int[SAMPLE_RATE * RECORD_SECONDS];
+                    for (int i = 0; i < samples.length; i++) {
+                        samples[i] = (int) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, random.nextGaussian() * amplitude));
+                    }
+                    recorder.write(getArrival(station, start), createRecord(getStationCode(station), start, samples));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package globalquake.core.station;
+
+import globalquake.utils.GeoUtils;
+import gqserver.api.packets.station.InputType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StationIndexTest {
+
+    @Test
+    public void testMatchesBruteForce() {
+        Random random = new Random(42);
+        List<AbstractStation> stations = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            double lat = Math.toDegrees(Math.asin(random.nextDouble() * 2 - 1));
+            double lon = random.nextDouble() * 360 - 180;
+            stations.add(new GlobalStation("", "", "", "", lat, lon, 0, i, null, -1, InputType.UNKNOWN));
+        }
+
+        StationIndex<AbstractStation> index = StationIndex.of(stations);
+        assertEquals(stations.size(), index.size());
+
+        for (int query = 0; query < 200; query++) {
+            double lat = random.nextDouble() * 180 - 90;
+            double lon = random.nextDouble() * 360 - 180;
+            double maxDist = query == 0 ? GeoUtils.EARTH_CIRCUMFERENCE : random.nextDouble() * 3000;
+
+            long expected = stations.stream().filter(station ->
+                    GeoUtils.greatCircleDistance(lat, lon, station.getLatitude(), station.getLongitude()) <= maxDist).count();
+
+            List<StationIndex.StationDistance<AbstractStation>> result = index.getStationsWithin(lat, lon, maxDist);
+            assertEquals(expected, result.size());
+
+            for (int i = 1; i < result.size(); i++) {
+                assertTrue(result.get(i - 1).distance() <= result.get(i).distance());
+            }
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        assertTrue(StationIndex.of(new ArrayList<>()).getStationsWithin(0, 0, 1000).isEmpty());
+    }
+
+}
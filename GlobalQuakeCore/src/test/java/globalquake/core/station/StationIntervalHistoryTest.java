@@ -0,0 +1,130 @@
+package globalquake.core.station;
+
+import gqserver.api.packets.station.InputType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+import static org.junit.Assert.*;
+
+public class StationIntervalHistoryTest {
+
+    private static final StationState[] STATES = {StationState.ACTIVE, StationState.INACTIVE};
+
+    // the linear implementation that was used before
+    private static final class LinearHistory {
+        private final Deque<StationInterval> intervals = new ConcurrentLinkedDeque<>();
+
+        private StationState getStateAt(long time) {
+            for (StationInterval interval : intervals) {
+                if (time >= interval.getStart() && time < interval.getEnd()) {
+                    return interval.getState();
+                }
+            }
+            return StationState.UNKNOWN;
+        }
+
+        private void reportState(StationState state, long time) {
+            while (intervals.peekFirst() != null && time - intervals.peekFirst().getEnd() > AbstractStation.INTERVAL_STORAGE_TIME) {
+                intervals.removeFirst();
+            }
+            StationInterval lastInterval = intervals.peekLast();
+            if (lastInterval == null || time - lastInterval.getEnd() > AbstractStation.INTERVAL_MAX_GAP) {
+                intervals.add(new StationInterval(time, time, state));
+                return;
+            }
+
+            lastInterval.setEnd(time);
+
+            if (lastInterval.getState() != state) {
+                intervals.add(new StationInterval(time, time, state));
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesLinearReports() {
+        Random random = new Random(0);
+        AbstractStation station = new GlobalStation("", "", "", "", 0, 0, 0, 0, null, -1, InputType.UNKNOWN);
+        LinearHistory linear = new LinearHistory();
+
+        long time = 0;
+        StationState state = StationState.ACTIVE;
+        for (int i = 0; i < 20000; i++) {
+            double r = random.nextDouble();
+            if (r < 0.02) {
+                time += random.nextInt((int) AbstractStation.INTERVAL_MAX_GAP * 4);
+            } else if (r < 0.025) {
+                // the analysis is reset when the data go backwards in time
+                time -= random.nextInt(20_000);
+            } else {
+                time += random.nextInt(1000);
+            }
+
+            if (random.nextDouble() < 0.05) {
+                state = STATES[random.nextInt(STATES.length)];
+            }
+
+            station.reportState(state, time);
+            linear.reportState(state, time);
+
+            for (int query = 0; query < 5; query++) {
+                long queryTime = time - random.nextInt((int) AbstractStation.INTERVAL_STORAGE_TIME + 60_000);
+                assertEquals("time %d".formatted(queryTime), linear.getStateAt(queryTime), station.getStateAt(queryTime));
+            }
+        }
+
+        assertEquals(linear.intervals.size(), station.getIntervals().size());
+    }
+
+    @Test
+    public void testOverlappingIntervals() {
+        Random random = new Random(1);
+        for (int round = 0; round < 200; round++) {
+            StationIntervalHistory history = new StationIntervalHistory(2);
+            List<StationInterval> added = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                long start = random.nextInt(1000);
+                StationInterval interval = new StationInterval(start, start + random.nextInt(200), STATES[random.nextInt(STATES.length)]);
+                history.add(interval);
+                added.add(interval);
+            }
+
+            for (long time = -10; time < 1300; time++) {
+                StationState expected = StationState.UNKNOWN;
+                for (StationInterval interval : added) {
+                    if (time >= interval.getStart() && time < interval.getEnd()) {
+                        expected = interval.getState();
+                        break;
+                    }
+                }
+                assertEquals(expected, history.getStateAt(time));
+            }
+
+            assertSame(added.get(added.size() - 1), history.peekLast());
+        }
+    }
+
+    @Test
+    public void testExpiry() {
+        StationIntervalHistory history = new StationIntervalHistory(4);
+        for (int i = 0; i < 1000; i++) {
+            history.add(new StationInterval(i * 10L, i * 10L + 5, StationState.ACTIVE));
+            history.removeEndedBefore(i * 10L - 100);
+            assertTrue(history.size() <= 12);
+        }
+
+        assertEquals(StationState.ACTIVE, history.getStateAt(9990));
+        assertEquals(StationState.UNKNOWN, history.getStateAt(9996));
+        assertEquals(StationState.UNKNOWN, history.getStateAt(100));
+
+        history.removeEndedBefore(Long.MAX_VALUE);
+        assertTrue(history.isEmpty());
+        assertNull(history.peekLast());
+    }
+
+}
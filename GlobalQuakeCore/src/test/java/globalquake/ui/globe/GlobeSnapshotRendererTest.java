@@ -0,0 +1,44 @@
+package globalquake.ui.globe;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class GlobeSnapshotRendererTest {
+
+    private static int render(double lat, double lon, AtomicReference<GlobeRenderer> renderer) {
+        GlobeSnapshotRenderer.renderNow(lat, lon, GlobeSnapshotRenderer.DEFAULT_SCROLL, 320, 240,
+                (graphics, globeRenderer, renderProperties) -> renderer.set(globeRenderer));
+        return renderer.get().getStaticLayerRedraws();
+    }
+
+    @Test
+    public void testStaticLayerReusedBetweenRevisions() {
+        AtomicReference<GlobeRenderer> renderer = new AtomicReference<>();
+        int first = render(46.1, 26.2, renderer);
+
+        // revisions with the epicenter moving by a few kilometres
+        assertEquals(first, render(46.3, 25.9, renderer));
+        assertEquals(first, render(45.8, 26.4, renderer));
+
+        // another earthquake nearby
+        assertEquals(first, render(45.5, 25.3, renderer));
+
+        // a distant earthquake needs a new static layer, going back needs another one
+        assertEquals(first + 1, render(-20.5, 170.2, renderer));
+        assertEquals(first + 2, render(46.1, 26.2, renderer));
+    }
+
+    @Test
+    public void testSnap() {
+        assertEquals(44, GlobeSnapshotRenderer.snapLat(44.9), 1e-9);
+        assertEquals(90, GlobeSnapshotRenderer.snapLat(89.9), 1e-9);
+        assertEquals(-90, GlobeSnapshotRenderer.snapLat(-89.9), 1e-9);
+        assertEquals(-180, GlobeSnapshotRenderer.snapLon(179.9), 1e-9);
+        assertEquals(-180, GlobeSnapshotRenderer.snapLon(-179.9), 1e-9);
+        assertEquals(26, GlobeSnapshotRenderer.snapLon(25.02), 1e-9);
+    }
+
+}
@@ -0,0 +1,84 @@
+package globalquake.ui.globe;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class Polygon3DTest {
+
+    private static Polygon3D createRing(double lat, double lon, double radiusDeg, int points, Random random) {
+        Polygon3D polygon = new Polygon3D();
+        for (int i = 0; i <= points; i++) {
+            double ang = 2 * Math.PI * (i % points) / points;
+            double r = radiusDeg * (random == null ? 1 : 0.999 + random.nextDouble() * 0.002);
+            double pLat = lat + r * Math.sin(ang);
+            double pLon = lon + r * Math.cos(ang);
+            polygon.addPoint(GlobeRenderer.getX_3D(pLat, pLon, 0), GlobeRenderer.getY_3D(pLat, pLon, 0), GlobeRenderer.getZ_3D(pLat, pLon, 0));
+        }
+        polygon.finish();
+        return polygon;
+    }
+
+    private static double distanceToSegmentSquared(Polygon3D p, int point, Polygon3D s, int start) {
+        double ax = s.getX(start), ay = s.getY(start), az = s.getZ(start);
+        double dx = s.getX(start + 1) - ax, dy = s.getY(start + 1) - ay, dz = s.getZ(start + 1) - az;
+        double px = p.getX(point) - ax, py = p.getY(point) - ay, pz = p.getZ(point) - az;
+        double len = dx * dx + dy * dy + dz * dz;
+        double t = len == 0 ? 0 : Math.max(0, Math.min(1, (px * dx + py * dy + pz * dz) / len));
+        double ex = px - t * dx, ey = py - t * dy, ez = pz - t * dz;
+        return ex * ex + ey * ey + ez * ez;
+    }
+
+    @Test
+    public void testSimplifyWithinTolerance() {
+        Polygon3D full = createRing(45, 10, 5, 5000, new Random(1));
+        double tolerance = 4;
+        Polygon3D simplified = full.simplify(tolerance);
+
+        assertTrue(simplified.size() < full.size() / 4);
+        assertEquals(full.getX(0), simplified.getX(0), 0);
+        assertEquals(full.getZ(full.size() - 1), simplified.getZ(simplified.size() - 1), 0);
+
+        // every removed point is close to the simplified outline
+        for (int i = 0; i < full.size(); i++) {
+            double best = Double.MAX_VALUE;
+            for (int s = 0; s < simplified.size() - 1; s++) {
+                best = Math.min(best, distanceToSegmentSquared(full, i, simplified, s));
+            }
+            assertTrue(Math.sqrt(best) <= tolerance + 1e-9);
+        }
+    }
+
+    @Test
+    public void testSimplifyZeroToleranceKeepsAll() {
+        Polygon3D full = createRing(0, 0, 1, 100, null);
+        assertEquals(full.size(), full.simplify(0).size());
+    }
+
+    @Test
+    public void testCapCulling() {
+        RenderProperties properties = new RenderProperties(800, 600, 0, 0, 0.5);
+        GlobeRenderer renderer = new GlobeRenderer();
+        renderer.updateCamera(properties);
+        RenderPrecomputedValues precomputed = properties.getRenderPrecomputedValues();
+
+        Polygon3D near = createRing(5, 5, 2, 36, null);
+        Polygon3D far = createRing(0, 180, 2, 36, null);
+        Polygon3D huge = createRing(0, 90, 80, 36, null);
+
+        assertFalse(near.isBeyond(precomputed.cameraDirX, precomputed.cameraDirY, precomputed.cameraDirZ,
+                precomputed.maxAngle, precomputed.cosMaxAngle, precomputed.sinMaxAngle));
+        assertTrue(far.isBeyond(precomputed.cameraDirX, precomputed.cameraDirY, precomputed.cameraDirZ,
+                precomputed.maxAngle, precomputed.cosMaxAngle, precomputed.sinMaxAngle));
+        assertFalse(huge.isBeyond(precomputed.cameraDirX, precomputed.cameraDirY, precomputed.cameraDirZ,
+                precomputed.maxAngle, precomputed.cosMaxAngle, precomputed.sinMaxAngle));
+
+        // culled polygons never have a single point above the horizon
+        for (int i = 0; i < far.size(); i++) {
+            assertFalse(renderer.isAboveHorizon(far.getX(i), far.getY(i), far.getZ(i), properties));
+        }
+    }
+
+}
@@ -0,0 +1,40 @@
+package globalquake.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LruCacheTest {
+
+    @Test
+    public void testBounded() {
+        LruCache<String> cache = new LruCache<>(1024);
+        for (long key = 0; key < 100_000; key++) {
+            assertEquals(String.valueOf(key), cache.computeIfAbsent(key, String::valueOf));
+            assertTrue(cache.size() <= 1024);
+        }
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testKeepsRecentlyUsed() {
+        LruCache<Long> cache = new LruCache<>(64);
+        long hot = 42;
+        cache.computeIfAbsent(hot, key -> key);
+
+        for (long key = 1000; key < 10_000; key++) {
+            cache.computeIfAbsent(key, k -> k);
+            assertEquals(Long.valueOf(hot), cache.get(hot));
+        }
+
+        int[] computed = {0};
+        cache.computeIfAbsent(hot, key -> {
+            computed[0]++;
+            return key;
+        });
+        assertEquals(0, computed[0]);
+    }
+
+}
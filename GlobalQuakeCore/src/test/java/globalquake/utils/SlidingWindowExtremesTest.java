@@ -0,0 +1,72 @@
+package globalquake.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SlidingWindowExtremesTest {
+
+    @Test
+    public void testMatchesBruteForce() {
+        int[] windows = {1, 7, 60, 300};
+        Random random = new Random(0);
+        SlidingWindowExtremes extremes = new SlidingWindowExtremes(windows);
+        List<Double> values = new ArrayList<>();
+
+        for (int i = 0; i < 5000; i++) {
+            // repeated values and long monotonic runs are the interesting cases for the queues
+            double value = switch (random.nextInt(4)) {
+                case 0 -> random.nextInt(5);
+                case 1 -> i % 400;
+                case 2 -> -(i % 250);
+                default -> random.nextGaussian() * 100;
+            };
+
+            extremes.add(value);
+            values.add(value);
+
+            for (int window : windows) {
+                double max = Double.NEGATIVE_INFINITY;
+                double min = Double.POSITIVE_INFINITY;
+                for (int j = Math.max(0, values.size() - window); j < values.size(); j++) {
+                    max = Math.max(max, values.get(j));
+                    min = Math.min(min, values.get(j));
+                }
+
+                assertEquals(max, extremes.getMax(window), 0);
+                assertEquals(min, extremes.getMin(window), 0);
+            }
+        }
+
+        assertEquals(300, extremes.size());
+    }
+
+    @Test
+    public void testEmptyAndClear() {
+        SlidingWindowExtremes extremes = new SlidingWindowExtremes(3);
+        assertTrue(extremes.isEmpty());
+        assertTrue(Double.isNaN(extremes.getMax(3)));
+
+        extremes.add(5);
+        extremes.add(2);
+        assertEquals(5, extremes.getMax(3), 0);
+        assertEquals(2, extremes.getMin(3), 0);
+
+        extremes.clear();
+        assertTrue(Double.isNaN(extremes.getMin(3)));
+
+        extremes.add(1);
+        assertEquals(1, extremes.getMax(3), 0);
+        assertEquals(1, extremes.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownWindow() {
+        new SlidingWindowExtremes(60).getMax(30);
+    }
+
+}
@@ -1,22 +1,26 @@
 package gqserver.events;
 
 import globalquake.core.GlobalQuake;
+import globalquake.core.metrics.Metrics;
 import org.tinylog.Logger;
 
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class GlobalQuakeServerEventHandler {
 
     private Queue<GlobalQuakeServerEventListener> eventListeners;
 
-    private ExecutorService executor;
+    private ThreadPoolExecutor executor;
 
     public GlobalQuakeServerEventHandler runHandler() {
         eventListeners = new ConcurrentLinkedQueue<>();
-        executor = Executors.newSingleThreadExecutor();
+        executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        Metrics.REGISTRY.gauge("gq_server_event_queue_depth", "Server events waiting to be delivered to the listeners",
+                () -> executor.getQueue().size());
         return this;
     }
 
@@ -4,20 +4,29 @@ import globalquake.core.GlobalQuake;
 import globalquake.core.Settings;
 import globalquake.core.database.StationDatabaseManager;
 import globalquake.core.database.StationSource;
+import globalquake.core.database.StationDistanceFilter;
 import globalquake.core.earthquake.GQHypocs;
 import globalquake.core.exception.ApplicationErrorHandler;
 import globalquake.core.exception.FatalIOException;
 import globalquake.core.training.EarthquakeAnalysisTraining;
 import globalquake.core.regions.Regions;
+import globalquake.core.seedlink.SeedlinkRecorder;
+import globalquake.core.seedlink.SeedlinkReplayReader;
 import globalquake.core.geo.taup.TauPTravelTimeCalculator;
+import globalquake.core.metrics.Metrics;
 
 import globalquake.utils.Scale;
 import gqserver.server.GlobalQuakeServer;
+import gqserver.server.MetricsServer;
+import gqserver.server.SnapshotPublisher;
 import gqserver.ui.server.DatabaseMonitorFrame;
 import org.apache.commons.cli.*;
 import org.tinylog.Logger;
 
 import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
@@ -30,6 +39,12 @@ public class Main {
     private static DatabaseMonitorFrame databaseMonitorFrame;
     private static StationDatabaseManager databaseManager;
     private static boolean headless;
+    private static double distanceFilter = -1;
+    private static int[] snapshotSize;
+    private static File recordFile;
+    private static File replayFile;
+    private static double replaySpeed = 1.0;
+    private static InetSocketAddress metricsAddress;
 
     private static void startDatabaseManager() throws FatalIOException {
         databaseManager = new StationDatabaseManager();
@@ -37,6 +52,38 @@ public class Main {
 
         new GlobalQuakeServer(databaseManager);
 
+        if (replayFile != null) {
+            GlobalQuake.instance.setSeedlinkReader(new SeedlinkReplayReader(replayFile, replaySpeed));
+        }
+
+        if (recordFile != null) {
+            try {
+                SeedlinkRecorder recorder = new SeedlinkRecorder(recordFile);
+                GlobalQuake.instance.getSeedlinkReader().setRecorder(recorder);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        recorder.close();
+                    } catch (IOException e) {
+                        Logger.error(e);
+                    }
+                }, "Seedlink Recorder Shutdown"));
+            } catch (IOException e) {
+                throw new FatalIOException("Unable to create seedlink recording %s".formatted(recordFile.getAbsolutePath()), e);
+            }
+        }
+
+        if (metricsAddress != null) {
+            try {
+                new MetricsServer(Metrics.REGISTRY).run(metricsAddress);
+            } catch (IOException e) {
+                throw new FatalIOException("Unable to start metrics server on port %d".formatted(metricsAddress.getPort()), e);
+            }
+        }
+
+        if (snapshotSize != null) {
+            new SnapshotPublisher(snapshotSize[0], snapshotSize[1]).run();
+        }
+
         if (!headless) {
             databaseMonitorFrame = new DatabaseMonitorFrame(databaseManager);
             databaseMonitorFrame.setVisible(true);
@@ -65,6 +112,30 @@ public class Main {
         maxGpuMemOption.setRequired(false);
         options.addOption(maxGpuMemOption);
 
+        Option distanceFilterOption = new Option("d", "distance-filter", true, "deselect stations closer than the given distance in km");
+        distanceFilterOption.setRequired(false);
+        options.addOption(distanceFilterOption);
+
+        Option snapshotsOption = new Option("s", "snapshots", true, "render a map of every earthquake revision, size as WIDTHxHEIGHT");
+        snapshotsOption.setRequired(false);
+        options.addOption(snapshotsOption);
+
+        Option recordOption = new Option("r", "record", true, "record all received seedlink data to the given file");
+        recordOption.setRequired(false);
+        options.addOption(recordOption);
+
+        Option replayOption = new Option("p", "replay", true, "replay recorded seedlink data from the given file instead of connecting to the seedlink servers");
+        replayOption.setRequired(false);
+        options.addOption(replayOption);
+
+        Option replaySpeedOption = new Option("m", "replay-speed", true, "speed multiplier of the replay, 0 replays as fast as possible");
+        replaySpeedOption.setRequired(false);
+        options.addOption(replaySpeedOption);
+
+        Option metricsOption = new Option("x", "metrics", true, "serve metrics in the Prometheus format at /metrics, given as [HOST:]PORT, on the loopback interface unless HOST is given");
+        metricsOption.setRequired(false);
+        options.addOption(metricsOption);
+
         CommandLineParser parser = new org.apache.commons.cli.BasicParser();
         HelpFormatter formatter = new HelpFormatter();
         CommandLine cmd = null;
@@ -110,6 +181,80 @@ public class Main {
             }
         }
 
+        if(cmd.hasOption(distanceFilterOption.getOpt())) {
+            try {
+                double dist = Double.parseDouble(cmd.getOptionValue(distanceFilterOption.getOpt()));
+                if(dist <= 0){
+                    throw new IllegalArgumentException("Distance filter must be positive");
+                }
+                distanceFilter = dist;
+                Logger.info("Stations closer than %.1f km will be deselected".formatted(distanceFilter));
+            } catch(IllegalArgumentException e){
+                Logger.error(e);
+                System.exit(1);
+            }
+        }
+
+        if(cmd.hasOption(snapshotsOption.getOpt())) {
+            try {
+                String[] size = cmd.getOptionValue(snapshotsOption.getOpt()).toLowerCase().split("x");
+                if(size.length != 2){
+                    throw new IllegalArgumentException("Snapshot size must be given as WIDTHxHEIGHT");
+                }
+                int width = Integer.parseInt(size[0].trim());
+                int height = Integer.parseInt(size[1].trim());
+                if(width <= 0 || height <= 0 || width > 8192 || height > 8192){
+                    throw new IllegalArgumentException("Invalid snapshot size %dx%d".formatted(width, height));
+                }
+                snapshotSize = new int[]{width, height};
+            } catch(IllegalArgumentException e){
+                Logger.error(e);
+                System.exit(1);
+            }
+        }
+
+        if(cmd.hasOption(recordOption.getOpt())) {
+            recordFile = new File(cmd.getOptionValue(recordOption.getOpt()));
+        }
+
+        if(cmd.hasOption(replayOption.getOpt())) {
+            replayFile = new File(cmd.getOptionValue(replayOption.getOpt()));
+            if(!replayFile.isFile()){
+                Logger.error("Seedlink recording %s doesn't exist".formatted(replayFile.getAbsolutePath()));
+                System.exit(1);
+            }
+        }
+
+        if(cmd.hasOption(replaySpeedOption.getOpt())) {
+            try {
+                double speed = Double.parseDouble(cmd.getOptionValue(replaySpeedOption.getOpt()));
+                if(speed < 0 || Double.isNaN(speed)){
+                    throw new IllegalArgumentException("Replay speed can't be negative");
+                }
+                replaySpeed = speed;
+            } catch(IllegalArgumentException e){
+                Logger.error(e);
+                System.exit(1);
+            }
+        }
+
+        if(cmd.hasOption(metricsOption.getOpt())) {
+            try {
+                String value = cmd.getOptionValue(metricsOption.getOpt()).trim();
+                int separator = value.lastIndexOf(':');
+                int port = Integer.parseInt(value.substring(separator + 1));
+                if(port < 1 || port > 65535){
+                    throw new IllegalArgumentException("Invalid metrics port %d".formatted(port));
+                }
+                // only reachable from this machine unless a host is given
+                metricsAddress = separator == -1 ? new InetSocketAddress(InetAddress.getLoopbackAddress(), port) :
+                        new InetSocketAddress(value.substring(0, separator), port);
+            } catch(IllegalArgumentException e){
+                Logger.error(e);
+                System.exit(1);
+            }
+        }
+
         Logger.info("Headless = %s".formatted(headless));
 
         try {
@@ -161,6 +306,10 @@ public class Main {
                 () -> {
                     updateProgressBar("Checking Seedlink Networks...", (int) ((phase++ / PHASES) * 100.0));
                     databaseManager.runAvailabilityCheck(databaseManager.getStationDatabase().getSeedlinkNetworks(), () -> {
+                        if(distanceFilter > 0) {
+                            applyDistanceFilter();
+                        }
+
                         updateProgressBar("Saving...", (int) ((phase++ / PHASES) * 100.0));
 
                         try {
@@ -182,6 +331,17 @@ public class Main {
                 });
     }
 
+    private static void applyDistanceFilter() {
+        databaseManager.getStationDatabase().getDatabaseWriteLock().lock();
+        try {
+            int removed = StationDistanceFilter.apply(databaseManager.getStationDatabase(), distanceFilter, Main::updateProgressBar);
+            Logger.info("Distance filter deselected %d stations".formatted(removed));
+        } finally {
+            databaseManager.getStationDatabase().getDatabaseWriteLock().unlock();
+        }
+        databaseManager.fireUpdateEvent();
+    }
+
     private static void autoStartServer() {
         GlobalQuakeServer.instance.initStations();
         GlobalQuakeServer.instance.getServerSocket().run(Settings.lastServerIP, Settings.lastServerPORT);
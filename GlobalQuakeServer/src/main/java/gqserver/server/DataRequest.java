@@ -52,11 +52,11 @@ public class DataRequest {
         }
     }
 
-    public int getQueueSize() {
+    public synchronized int getQueueSize() {
         return dataRecordQueue.size();
     }
 
-    public void clear() {
+    public synchronized void clear() {
         dataRecordQueue.clear();
     }
 }
@@ -2,7 +2,6 @@ package gqserver.server;
 
 import edu.sc.seis.seisFile.mseed.DataRecord;
 import globalquake.core.GlobalQuake;
-import globalquake.core.Settings;
 import globalquake.core.archive.ArchivedEvent;
 import globalquake.core.archive.ArchivedQuake;
 import globalquake.core.earthquake.data.Cluster;
@@ -83,8 +82,10 @@ public class DataService extends GlobalQuakeEventListener {
 
     private void cleanup() {
         synchronized (stationDataQueueLock){
-            for(Queue<DataRecord> queue : stationDataQueueMap.values()){
-                while(!queue.isEmpty() && isOld(queue.peek())){
+            for(var kv : stationDataQueueMap.entrySet()){
+                Queue<DataRecord> queue = kv.getValue();
+                long retention = kv.getKey().getAnalysis().getRetention();
+                while(!queue.isEmpty() && isOld(queue.peek(), retention)){
                     queue.remove();
                 }
             }
@@ -113,9 +114,9 @@ public class DataService extends GlobalQuakeEventListener {
         return System.currentTimeMillis() - client.getLastHeartbeat() > 5 * 60 * 1000;
     }
 
-    private boolean isOld(DataRecord dataRecord) {
+    private boolean isOld(DataRecord dataRecord, long retention) {
         return dataRecord.getStartBtime().toInstant().isBefore(
-                Instant.now().minus(Settings.logsStoreTimeMinutes, ChronoUnit.MINUTES));
+                Instant.now().minus(retention, ChronoUnit.MILLIS));
     }
 
     public StationStatus createStatus(AbstractStation station){
@@ -340,6 +341,21 @@ public class DataService extends GlobalQuakeEventListener {
         });
     }
 
+    /**
+     * @return number of data records waiting to be sent to each client, by client ID
+     */
+    public Map<String, Integer> getSendBacklogs() {
+        Map<String, Integer> result = new HashMap<>();
+        for (var kv : clientDataRequestMap.entrySet()) {
+            int backlog = 0;
+            for (DataRequest dataRequest : kv.getValue()) {
+                backlog += dataRequest.getQueueSize();
+            }
+            result.put(String.valueOf(kv.getKey().getID()), backlog);
+        }
+        return result;
+    }
+
     private List<ServerClient> getEarthquakeReceivingClients(){
         return getClients().stream().filter(serverClient -> serverClient.getClientConfig().earthquakeData()).toList();
     }
@@ -380,7 +396,8 @@ public class DataService extends GlobalQuakeEventListener {
             return;
         }
 
-        clientDataRequestMap.putIfAbsent(client, new HashSet<>());
+        // iterated by the seedlink threads and the metrics while the client adds and cancels requests
+        clientDataRequestMap.putIfAbsent(client, ConcurrentHashMap.newKeySet());
         Set<DataRequest> dataRequests = clientDataRequestMap.get(client);
         if(!packet.cancel()) {
             if(dataRequests.size() >= DATA_REQUESTS_MAX_COUNT){
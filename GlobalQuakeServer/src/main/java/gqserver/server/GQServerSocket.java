@@ -3,6 +3,7 @@ package gqserver.server;
 import globalquake.core.GlobalQuake;
 import globalquake.core.Settings;
 import globalquake.core.exception.RuntimeApplicationException;
+import globalquake.core.metrics.Metrics;
 import globalquake.utils.monitorable.MonitorableCopyOnWriteArrayList;
 import gqserver.api.GQApi;
 import gqserver.api.Packet;
@@ -71,6 +72,7 @@ public class GQServerSocket {
         clientsLimitWatchdog = Executors.newSingleThreadScheduledExecutor();
         statusReportingService = Executors.newSingleThreadScheduledExecutor();
         stats = new GQServerStats();
+        registerMetrics(stats);
 
         setStatus(SocketStatus.OPENING);
         try {
@@ -94,6 +96,18 @@ public class GQServerSocket {
         }
     }
 
+    private void registerMetrics(GQServerStats stats) {
+        Metrics.REGISTRY.gauge("gq_server_clients", "Connected clients", clients::size);
+        Metrics.REGISTRY.gauge("gq_server_client_send_backlog", "Data records waiting to be sent to the client", "client",
+                dataService::getSendBacklogs);
+        Metrics.REGISTRY.counter("gq_server_connections_accepted_total", "Accepted connections", () -> stats.accepted);
+        Metrics.REGISTRY.counter("gq_server_handshakes_successful_total", "Successful handshakes", () -> stats.successfull);
+        Metrics.REGISTRY.counter("gq_server_handshakes_rejected_total", "Handshakes rejected because of a wrong version, wrong packet or full server",
+                () -> stats.wrongVersion + stats.wrongPacket + stats.serverFull);
+        Metrics.REGISTRY.counter("gq_server_connection_errors_total", "Connections that failed before the handshake", () -> stats.errors);
+        Metrics.REGISTRY.counter("gq_server_ip_rejects_total", "Connections rejected for exceeding the limit per address", () -> stats.ipRejects);
+    }
+
     private void updateLimits() {
         clients.forEach(ServerClient::updateLimits);
     }
@@ -0,0 +1,123 @@
+package gqserver.server;
+
+import globalquake.core.GlobalQuake;
+import globalquake.core.earthquake.data.Earthquake;
+import globalquake.core.events.GlobalQuakeEventListener;
+import globalquake.core.events.specific.QuakeArchiveEvent;
+import globalquake.core.events.specific.QuakeCreateEvent;
+import globalquake.core.events.specific.QuakeRemoveEvent;
+import globalquake.core.events.specific.QuakeUpdateEvent;
+import globalquake.core.report.EarthquakeReporter;
+import globalquake.ui.globe.GlobeSnapshotRenderer;
+import org.tinylog.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders a map of every earthquake revision into the snapshots folder,
+ * as revision_N.png and latest.png in a folder named by the earthquake UUID.
+ * Revisions are rendered in parallel, so latest.png is only replaced by a revision at least as new as the one it holds.
+ */
+public class SnapshotPublisher extends GlobalQuakeEventListener {
+
+    public static final File SNAPSHOTS_FOLDER = new File(GlobalQuake.mainFolder, "snapshots/");
+
+    private final int width;
+    private final int height;
+
+    private final Map<UUID, QuakeSnapshots> quakes = new ConcurrentHashMap<>();
+
+    private static final class QuakeSnapshots {
+        private int latestRevision = -1;
+        private int rendering;
+        private boolean removed;
+    }
+
+    public SnapshotPublisher(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    public void run() {
+        GlobalQuakeServer.instance.getEventHandler().registerEventListener(this);
+        Logger.info("Publishing %dx%d earthquake snapshots to %s".formatted(width, height, SNAPSHOTS_FOLDER.getAbsolutePath()));
+    }
+
+    @Override
+    public void onQuakeCreate(QuakeCreateEvent event) {
+        publish(event.earthquake());
+    }
+
+    @Override
+    public void onQuakeUpdate(QuakeUpdateEvent event) {
+        publish(event.earthquake());
+    }
+
+    @Override
+    public void onQuakeRemove(QuakeRemoveEvent quakeRemoveEvent) {
+        forget(quakeRemoveEvent.earthquake().getUuid());
+    }
+
+    @Override
+    public void onQuakeArchive(QuakeArchiveEvent quakeArchiveEvent) {
+        forget(quakeArchiveEvent.earthquake().getUuid());
+    }
+
+    private void forget(UUID uuid) {
+        QuakeSnapshots snapshots = quakes.get(uuid);
+        if (snapshots == null) {
+            return;
+        }
+
+        synchronized (snapshots) {
+            snapshots.removed = true;
+            if (snapshots.rendering == 0) {
+                quakes.remove(uuid);
+            }
+        }
+    }
+
+    private void publish(Earthquake earthquake) {
+        UUID uuid = earthquake.getUuid();
+        File folder = new File(SNAPSHOTS_FOLDER, uuid.toString());
+        int revision = earthquake.getRevisionID();
+
+        QuakeSnapshots snapshots = quakes.computeIfAbsent(uuid, ignored -> new QuakeSnapshots());
+        synchronized (snapshots) {
+            snapshots.rendering++;
+        }
+
+        GlobeSnapshotRenderer.render(earthquake.getLat(), earthquake.getLon(), GlobeSnapshotRenderer.DEFAULT_SCROLL,
+                        width, height, EarthquakeReporter.createMapOverlay(earthquake))
+                .thenAccept(image -> {
+                    try {
+                        GlobeSnapshotRenderer.write(image, new File(folder, "revision_%d.png".formatted(revision)));
+                        synchronized (snapshots) {
+                            if (revision >= snapshots.latestRevision) {
+                                GlobeSnapshotRenderer.write(image, new File(folder, "latest.png"));
+                                snapshots.latestRevision = revision;
+                            }
+                        }
+                    } catch (IOException e) {
+                        Logger.error(e);
+                    }
+                })
+                .exceptionally(throwable -> {
+                    Logger.error(throwable);
+                    return null;
+                })
+                .thenRun(() -> {
+                    synchronized (snapshots) {
+                        snapshots.rendering--;
+                        if (snapshots.removed && snapshots.rendering == 0) {
+                            quakes.remove(uuid);
+                        }
+                    }
+                });
+    }
+
+}